@@ -9,6 +9,7 @@ import android.util.LruCache;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.ProcessLifecycleOwner;
 
 import org.bitbucket.cowwoc.diffmatchpatch.DiffMatchPatch;
 import org.jetbrains.annotations.NotNull;
@@ -17,7 +18,9 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -31,25 +34,56 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import nl.vu.cs.s2group.nappa.graph.ActivityGraph;
+import nl.vu.cs.s2group.nappa.graph.ActivityGraphSnapshot;
 import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.handler.activity.FetchActivityLiveDataInfoHandler;
 import nl.vu.cs.s2group.nappa.handler.activity.RegisterNewActivityHandler;
 import nl.vu.cs.s2group.nappa.handler.graph.InitGraphHandler;
+import nl.vu.cs.s2group.nappa.handler.graph.WriteGraphSnapshotHandler;
+import nl.vu.cs.s2group.nappa.handler.session.PredictLaunchHandler;
 import nl.vu.cs.s2group.nappa.handler.session.RegisterNewSessionHandler;
+import nl.vu.cs.s2group.nappa.handler.extra.InitParameterValueModelHandler;
+import nl.vu.cs.s2group.nappa.handler.url.InitUrlTransitionModelHandler;
+import nl.vu.cs.s2group.nappa.handler.warmup.ScheduleWarmUpHandler;
+import nl.vu.cs.s2group.nappa.prefetch.AbstractPrefetchingStrategy;
+import nl.vu.cs.s2group.nappa.prefetch.IsotonicCalibrator;
+import nl.vu.cs.s2group.nappa.prefetch.LaunchPredictor;
+import nl.vu.cs.s2group.nappa.prefetch.LookaheadStage;
+import nl.vu.cs.s2group.nappa.prefetch.ParameterValueModel;
+import nl.vu.cs.s2group.nappa.prefetch.PeriodicRequestDetector;
+import nl.vu.cs.s2group.nappa.prefetch.PredictionDeadline;
+import nl.vu.cs.s2group.nappa.prefetch.PrefetchDecisionStage;
+import nl.vu.cs.s2group.nappa.prefetch.PrefetchHints;
+import nl.vu.cs.s2group.nappa.prefetch.PrefetchOutcomeTracker;
 import nl.vu.cs.s2group.nappa.prefetch.PrefetchingStrategy;
 import nl.vu.cs.s2group.nappa.prefetch.PrefetchingStrategyConfigKeys;
 import nl.vu.cs.s2group.nappa.prefetch.PrefetchingStrategyType;
+import nl.vu.cs.s2group.nappa.prefetch.ScoredCandidate;
+import nl.vu.cs.s2group.nappa.prefetch.ShadowPrefetchingStrategy;
+import nl.vu.cs.s2group.nappa.prefetch.UrlTransitionModel;
 import nl.vu.cs.s2group.nappa.prefetchurl.ParameteredUrl;
+import nl.vu.cs.s2group.nappa.prefetchurl.UrlTemplate;
 import nl.vu.cs.s2group.nappa.room.ActivityData;
 import nl.vu.cs.s2group.nappa.room.NappaDB;
 import nl.vu.cs.s2group.nappa.room.RequestData;
 import nl.vu.cs.s2group.nappa.room.activity.visittime.ActivityVisitTime;
+import nl.vu.cs.s2group.nappa.room.data.ContextEdgeData;
+import nl.vu.cs.s2group.nappa.room.data.DecayedEdgeData;
 import nl.vu.cs.s2group.nappa.room.data.ActivityExtraData;
 import nl.vu.cs.s2group.nappa.room.data.Session;
 import nl.vu.cs.s2group.nappa.room.data.SessionData;
+import nl.vu.cs.s2group.nappa.room.data.TemplateTtlData;
 import nl.vu.cs.s2group.nappa.room.data.UrlCandidate;
 import nl.vu.cs.s2group.nappa.room.data.UrlCandidateParts;
+import nl.vu.cs.s2group.nappa.util.DecayingCounter;
 import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
-import okhttp3.Cache;
+import nl.vu.cs.s2group.nappa.util.NappaHttpCache;
+import nl.vu.cs.s2group.nappa.util.NappaUtil;
+import nl.vu.cs.s2group.nappa.util.UrlStatisticsCache;
+import nl.vu.cs.s2group.nappa.warmup.JobWarmUpScheduler;
+import nl.vu.cs.s2group.nappa.warmup.WarmUpPlanner;
+import nl.vu.cs.s2group.nappa.warmup.WarmUpScheduler;
+import okhttp3.CacheControl;
 import okhttp3.Headers;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
@@ -63,9 +97,15 @@ import okhttp3.internal.cache.CacheStrategy;
 public class Nappa {
     private static final String LOG_TAG = Nappa.class.getSimpleName();
 
+    /**
+     * Header tagging the requests issued by NAPPA itself, which must not be learned as
+     * requests of the application. It is removed before the request is sent.
+     */
+    private static final String ISSUED_BY_NAPPA_HEADER = "X-NAPPA";
+
     private static Nappa instance;
-    private static boolean libGet = false;
     private static File cacheDir;
+    private static File graphSnapshotFile;
     private static String currentActivityName;
     private static String previousActivityName;
     private static ActivityGraph activityGraph;
@@ -76,6 +116,26 @@ public class Nappa {
     public static HashMap<String, Long> activityMap = new HashMap<>();
     private static Session session;
     private static PrefetchingStrategy strategyIntent;
+    private static int predictionTimeBudget;
+    private static PrefetchDecisionStage decisionStage;
+    private static LookaheadStage lookaheadStage;
+    private static UrlTransitionModel urlTransitionModel;
+    private static ParameterValueModel parameterValueModel;
+    private static PeriodicRequestDetector periodicRequestDetector;
+    private static LaunchPredictor launchPredictor;
+    /**
+     * Created eagerly, such that the hints issued before the initialization are kept
+     */
+    private static final PrefetchHints prefetchHints = new PrefetchHints(AbstractPrefetchingStrategy.DEFAULT_MAX_URL_TO_PREFETCH);
+    /**
+     * The URLs predicted for the launch before the OkHttp client was initialized
+     */
+    private static List<ScoredCandidate> pendingLaunchCandidates;
+    private static boolean warmUpEnabled;
+    /**
+     * The TTL in milliseconds of each URL template, as last persisted
+     */
+    private static ConcurrentHashMap<String, Long> templateTtls = new ConcurrentHashMap<>();
     private static OkHttpClient okHttpClient;
     private static ConcurrentHashMap<String, Long> prefetchRequest = new ConcurrentHashMap<>();
     private static ScheduledThreadPoolExecutor poolExecutor = new ScheduledThreadPoolExecutor(1);
@@ -122,22 +182,95 @@ public class Nappa {
 
             NappaConfigMap.init(config);
             Nappa.prefetchingStrategyType = prefetchingStrategyType;
+            PrefetchOutcomeTracker.setOutcomeWindow(NappaConfigMap.get(
+                    PrefetchingStrategyConfigKeys.PREFETCH_OUTCOME_WINDOW_SECONDS,
+                    PrefetchOutcomeTracker.DEFAULT_OUTCOME_WINDOW_SECONDS));
             strategyIntent = PrefetchingStrategy.getStrategy(prefetchingStrategyType);
+            if (NappaConfigMap.get(PrefetchingStrategyConfigKeys.SHADOW_MODE,
+                    ShadowPrefetchingStrategy.DEFAULT_SHADOW_MODE))
+                strategyIntent = new ShadowPrefetchingStrategy(strategyIntent, prefetchingStrategyType);
+            predictionTimeBudget = NappaConfigMap.get(PrefetchingStrategyConfigKeys.PREDICTION_TIME_BUDGET_MS,
+                    PredictionDeadline.DEFAULT_PREDICTION_TIME_BUDGET);
+            if (NappaConfigMap.get(PrefetchingStrategyConfigKeys.USE_EXPECTED_UTILITY_DECISION,
+                    PrefetchDecisionStage.DEFAULT_USE_EXPECTED_UTILITY_DECISION))
+                decisionStage = new PrefetchDecisionStage(
+                        NappaConfigMap.get(PrefetchingStrategyConfigKeys.PREFETCH_COST_PER_REQUEST,
+                                PrefetchDecisionStage.DEFAULT_COST_PER_REQUEST),
+                        NappaConfigMap.get(PrefetchingStrategyConfigKeys.PREFETCH_COST_PER_KB,
+                                PrefetchDecisionStage.DEFAULT_COST_PER_KB));
+            lookaheadStage = new LookaheadStage(
+                    NappaConfigMap.get(PrefetchingStrategyConfigKeys.LOOKAHEAD_DEPTH,
+                            LookaheadStage.DEFAULT_LOOKAHEAD_DEPTH),
+                    NappaConfigMap.get(PrefetchingStrategyConfigKeys.LOOKAHEAD_BYTE_BUDGET_KB,
+                            LookaheadStage.DEFAULT_LOOKAHEAD_BYTE_BUDGET_KB),
+                    NappaConfigMap.get(PrefetchingStrategyConfigKeys.LOOKAHEAD_BUDGET_DECAY,
+                            LookaheadStage.DEFAULT_LOOKAHEAD_BUDGET_DECAY));
+            urlTransitionModel = new UrlTransitionModel(NappaConfigMap.get(
+                    PrefetchingStrategyConfigKeys.URL_TRANSITION_WEIGHT,
+                    UrlTransitionModel.DEFAULT_URL_TRANSITION_WEIGHT));
+            parameterValueModel = new ParameterValueModel(
+                    NappaConfigMap.get(PrefetchingStrategyConfigKeys.PARAMETER_VALUE_TOP_K,
+                            ParameterValueModel.DEFAULT_PARAMETER_VALUE_TOP_K),
+                    NappaConfigMap.get(PrefetchingStrategyConfigKeys.PARAMETER_VALUE_BUDGET,
+                            ParameterValueModel.DEFAULT_PARAMETER_VALUE_BUDGET));
+            periodicRequestDetector = new PeriodicRequestDetector(
+                    NappaConfigMap.get(PrefetchingStrategyConfigKeys.PERIODIC_REFRESH_LEAD_SECONDS,
+                            PeriodicRequestDetector.DEFAULT_PERIODIC_REFRESH_LEAD_SECONDS),
+                    NappaConfigMap.get(PrefetchingStrategyConfigKeys.PERIODIC_REFRESH_MAX_JITTER,
+                            PeriodicRequestDetector.DEFAULT_PERIODIC_REFRESH_MAX_JITTER),
+                    poolExecutor,
+                    Nappa::refreshPeriodicUrl);
             cacheDir = context.getCacheDir();
+            graphSnapshotFile = new File(context.getFilesDir(), ActivityGraphSnapshot.FILE_NAME);
+
+            prefetchHints.setMaxUrls(NappaConfigMap.get(
+                    PrefetchingStrategyConfigKeys.MAX_URL_TO_PREFETCH,
+                    AbstractPrefetchingStrategy.DEFAULT_MAX_URL_TO_PREFETCH));
+            launchPredictor = new LaunchPredictor(NappaConfigMap.get(
+                    PrefetchingStrategyConfigKeys.LAUNCH_PREFETCH_MAX_URLS,
+                    LaunchPredictor.DEFAULT_LAUNCH_PREFETCH_MAX_URLS));
+            warmUpEnabled = NappaConfigMap.get(PrefetchingStrategyConfigKeys.WARM_UP_ENABLED,
+                    WarmUpPlanner.DEFAULT_WARM_UP_ENABLED);
 
             RegisterNewSessionHandler.run((Session session) -> Nappa.session = session);
             InitGraphHandler.run(strategyIntent,
+                    graphSnapshotFile,
                     Nappa::updateActivityMap,
                     (ActivityGraph graph) -> {
                         Nappa.activityGraph = graph;
                         Log.d(LOG_TAG, "Extended Startup-time: " + (new Date().getTime() - start) + " ms");
                     });
 
+            // Queued after the graph initialization, which the main thread waits for, such that
+            // they do not take the threads of the pool before it
+            if (urlTransitionModel.isEnabled()) InitUrlTransitionModelHandler.run(urlTransitionModel);
+            if (parameterValueModel.isEnabled()) InitParameterValueModelHandler.run(parameterValueModel);
+            if (launchPredictor.isEnabled()) PredictLaunchHandler.run(launchPredictor, Nappa::prefetchLaunchCandidates);
+            WarmUpScheduler warmUpScheduler = new JobWarmUpScheduler(context);
+            if (warmUpEnabled) {
+                ScheduleWarmUpHandler.run(warmUpScheduler, NappaConfigMap.get(
+                        PrefetchingStrategyConfigKeys.WARM_UP_MAX_KB,
+                        WarmUpPlanner.DEFAULT_WARM_UP_MAX_KB));
+            } else {
+                warmUpScheduler.cancel();
+            }
+
+            ProcessLifecycleOwner.get().getLifecycle().addObserver(new NappaProcessLifecycleObserver());
+
             Log.d(LOG_TAG, "Startup-time: " + (new Date().getTime() - start) + " ms");
         }
 
     }
 
+    /**
+     * Invoked when the application goes to the background. Persists a snapshot of the ENG,
+     * which is used to speed up the graph initialization in the next launch.
+     */
+    static void onApplicationBackground() {
+        if (activityGraph == null) return;
+        WriteGraphSnapshotHandler.run(graphSnapshotFile);
+    }
+
     public static LiveData<List<ActivityData>> getActivityLiveData() {
         return listLiveData;
     }
@@ -194,11 +327,12 @@ public class Nappa {
             Nappa.okHttpClient = okHttpClient
                     .newBuilder()
                     .addInterceptor(new CustomInterceptor())
-                    .cache(new Cache(cacheDir, (10 * 10 * 1024)))
+                    .cache(NappaHttpCache.get(cacheDir))
                     .build();
 
             Log.d(LOG_TAG, "TAG " + "okHttpClient initialized");
         }
+        prefetchPendingLaunchCandidates();
         return Nappa.okHttpClient;
     }
 
@@ -221,7 +355,7 @@ public class Nappa {
             if (okHttpClient == null) {
                 Nappa.okHttpClient = okHttpClient.newBuilder()
                         .addInterceptor(new CustomInterceptor())
-                        .cache(new Cache(cacheDir, (10 * 10 * 1024)))
+                        .cache(NappaHttpCache.get(cacheDir))
                         .build();
             }
 
@@ -239,9 +373,16 @@ public class Nappa {
         boolean shouldPrefetch;
         previousActivityName = currentActivityName;
         currentActivityName = activity.getClass().getCanonicalName();
+        if (previousActivityName == null && launchPredictor.isEnabled())
+            launchPredictor.logStatistics(currentActivityName);
         registerActivity(currentActivityName);
         //SHOULD PREFETCH IFF THE USER IS MOVING FORWARD
         shouldPrefetch = activityGraph.updateNodes(currentActivityName);
+        ActivityNode currentNode = activityGraph.getCurrent();
+        loadNeighbourhood(currentNode);
+        // Scheduled before the prediction below on the same single-threaded executor, such that
+        // the strategies update their state first without blocking the main thread
+        poolExecutor.schedule(() -> strategyIntent.onActivityVisited(currentNode), 0, TimeUnit.SECONDS);
 
         //TODO prefetching spot here
 
@@ -256,12 +397,12 @@ public class Nappa {
             }
 
             poolExecutor.schedule(() -> {
-                List<String> topNUrls = strategyIntent.getTopNUrlToPrefetchForNode(activityGraph.getCurrent(), 2);
-                for (String url : topNUrls) {
-                    Log.d(LOG_TAG, "TO_BE_PREF " + url);
+                List<ScoredCandidate> topNUrls = getScoredCandidatesToPrefetch();
+                for (ScoredCandidate candidate : topNUrls) {
+                    Log.d(LOG_TAG, "TO_BE_PREF " + candidate);
                 }
                 if (prefetchEnabled) {
-                    prefetchUrls(topNUrls);
+                    prefetchCandidates(topNUrls);
                 }
             }, 0, TimeUnit.SECONDS);
         }
@@ -271,6 +412,18 @@ public class Nappa {
         visitedCurrentActivityDate = new Date();
     }
 
+    /**
+     * Loads the data of the nodes in the neighbourhood of the provided node when the graph
+     * is lazily loaded. Does nothing otherwise.
+     *
+     * @param node The node the user navigated to
+     */
+    private static void loadNeighbourhood(ActivityNode node) {
+        if (!activityGraph.isLazyLoading()) return;
+        List<ActivityNode> nodesToLoad = activityGraph.touchNeighbourhood(node);
+        if (!nodesToLoad.isEmpty()) FetchActivityLiveDataInfoHandler.run(nodesToLoad, strategyIntent);
+    }
+
     /**
      * Notifies the prefetching library whenever an activity is no longer in the foreground
      * (i.e., the user is leaving the activity). This method should be invoked on the method
@@ -296,6 +449,16 @@ public class Nappa {
                 duration
         );
         poolExecutor.schedule(() -> NappaDB.getInstance().activityVisitTimeDao().insert(visitTime), 0, TimeUnit.SECONDS);
+
+        ActivityNode previousNode = activityGraph.getByName(previousActivityName);
+        ActivityNode currentNode = activityGraph.getByName(currentActivityName);
+        if (previousNode != null && currentNode != null && previousNode.successors.containsKey(currentNode))
+            previousNode.recordDecayedVisitTime(currentNode, duration);
+
+        if (periodicRequestDetector.isEnabled()) {
+            periodicRequestDetector.onActivityLeft(currentActivityId, new Date().getTime());
+            periodicRequestDetector.logStatistics();
+        }
     }
 
     public static ActivityGraph getActivityGraph() {
@@ -318,6 +481,65 @@ public class Nappa {
         }, 0, TimeUnit.SECONDS);
     }
 
+    /**
+     * Persists the decayed visit frequency and visit time counters of a source-destination
+     * pair in the Room database
+     *
+     * @param source      The source node
+     * @param destination The destination node
+     */
+    public static void saveDecayedEdge(@NotNull ActivityNode source, @NotNull ActivityNode destination) {
+        Long sourceId = activityMap.get(source.activityName);
+        Long destinationId = activityMap.get(destination.activityName);
+        if (sourceId == null || destinationId == null) return;
+
+        DecayingCounter frequency = source.decayedFrequency.get(destination);
+        DecayingCounter visitTime = source.decayedVisitTime.get(destination);
+        DecayedEdgeData data = new DecayedEdgeData(sourceId, destinationId,
+                frequency == null ? 0 : frequency.getValue(),
+                frequency == null ? 0 : frequency.getLastUpdate(),
+                visitTime == null ? 0 : visitTime.getValue(),
+                visitTime == null ? 0 : visitTime.getLastUpdate());
+        poolExecutor.schedule(() -> NappaDB.getInstance().decayedEdgeDao().insertOrUpdate(data), 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Deletes the decayed counters of the pruned source-destination pairs from the Room
+     * database
+     *
+     * @param source       The source node
+     * @param destinations The destination nodes whose edge was pruned
+     */
+    public static void deleteDecayedEdges(@NotNull ActivityNode source, @NotNull List<ActivityNode> destinations) {
+        Long sourceId = activityMap.get(source.activityName);
+        if (sourceId == null || destinations.isEmpty()) return;
+
+        List<DecayedEdgeData> data = new ArrayList<>(destinations.size());
+        for (ActivityNode destination : destinations) {
+            Long destinationId = activityMap.get(destination.activityName);
+            if (destinationId != null) data.add(new DecayedEdgeData(sourceId, destinationId, 0, 0, 0, 0));
+        }
+        poolExecutor.schedule(() -> NappaDB.getInstance().decayedEdgeDao().delete(data), 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Persists the visit frequency of a source-destination pair in a context bucket in the
+     * Room database
+     *
+     * @param source      The source node
+     * @param destination The destination node
+     * @param bucket      The context bucket, see {@link nl.vu.cs.s2group.nappa.util.ContextBucket}
+     * @param count       The visit frequency in the context bucket
+     */
+    public static void saveContextEdge(@NotNull ActivityNode source, @NotNull ActivityNode destination, int bucket, long count) {
+        Long sourceId = activityMap.get(source.activityName);
+        Long destinationId = activityMap.get(destination.activityName);
+        if (sourceId == null || destinationId == null) return;
+
+        ContextEdgeData data = new ContextEdgeData(sourceId, destinationId, bucket, count);
+        poolExecutor.schedule(() -> NappaDB.getInstance().contextEdgeDao().insertOrUpdate(data), 0, TimeUnit.SECONDS);
+    }
+
     /**
      * For a given source-destination Pair,  Modify this entry in the Room database
      *
@@ -353,8 +575,9 @@ public class Nappa {
         if (currentActivityName != null) {
             //PREFETCHING SPOT HERE FOR INTENT-BASED PREFETCHING
             final Long idAct = activityMap.get(currentActivityName);
-            // Duplicate map containing key value pairs corresponding to android intent extras
-            Map<String, String> extras = extrasMap.get(idAct, new HashMap<>());
+            // Duplicate map containing key value pairs corresponding to android intent extras.
+            // The published map is never modified, since worker threads read it concurrently.
+            Map<String, String> extras = new HashMap<>(extrasMap.get(idAct, new HashMap<>()));
 
             // Ensure that the set of extras is not empty
             if (allExtras != null) {
@@ -362,7 +585,9 @@ public class Nappa {
                     // Put on this extras tracker for this activity the new key-value pair. If
                     //    No value has been associated with this extra, NULL will be stored
                     Object value = allExtras.get(key);
-                    if (value != null) extras.put(key, value.toString());
+                    if (value == null) continue;
+                    extras.put(key, value.toString());
+                    if (idAct != null) parameterValueModel.onExtra(idAct, key, value.toString());
                 }
 
                 // Update the global extras map after all extras have been stored
@@ -370,13 +595,13 @@ public class Nappa {
 
                 // Begin Generating URL Candidates
                 poolExecutor.schedule(() -> {
-                    List<String> toBePrefetched = strategyIntent.getTopNUrlToPrefetchForNode(activityGraph.getCurrent(), 2);
-                    for (String url : toBePrefetched) {
-                        Log.d(LOG_TAG, String.format("Extras monitor: Prefetching: %s", url));
+                    List<ScoredCandidate> toBePrefetched = getScoredCandidatesToPrefetch();
+                    for (ScoredCandidate candidate : toBePrefetched) {
+                        Log.d(LOG_TAG, String.format("Extras monitor: Prefetching: %s", candidate));
                     }
                     // Trigger Prefetching
                     if (prefetchEnabled) {
-                        prefetchUrls(toBePrefetched);
+                        prefetchCandidates(toBePrefetched);
                     }
 
                 }, 0, TimeUnit.SECONDS);
@@ -409,19 +634,21 @@ public class Nappa {
     public static void notifyExtra(String key, String value) {
         //PREFETCHING SPOT HERE FOR INTENT-BASED PREFETCHING
         final Long idAct = activityMap.get(currentActivityName);
-        // Duplicate map containing key value pairs corresponding to android intent extras
-        Map<String, String> extras = extrasMap.get(idAct, new HashMap<>());
+        // Duplicate map containing key value pairs corresponding to android intent extras.
+        // The published map is never modified, since worker threads read it concurrently.
+        Map<String, String> extras = new HashMap<>(extrasMap.get(idAct, new HashMap<>()));
         // Put on this extras tracker for this activity the new key-value pair
         extras.put(key, value);
+        if (idAct != null && key != null && value != null) parameterValueModel.onExtra(idAct, key, value);
         // Update the global extras map
         extrasMap.put(idAct, extras);
         poolExecutor.schedule(() -> {
-            List<String> toBePrefetched = strategyIntent.getTopNUrlToPrefetchForNode(activityGraph.getCurrent(), 2);
-            for (String url : toBePrefetched) {
-                Log.d(LOG_TAG, "PREFSTRAT2 " + "URL: " + url);
+            List<ScoredCandidate> toBePrefetched = getScoredCandidatesToPrefetch();
+            for (ScoredCandidate candidate : toBePrefetched) {
+                Log.d(LOG_TAG, "PREFSTRAT2 " + "URL: " + candidate);
             }
             if (prefetchEnabled) {
-                prefetchUrls(toBePrefetched);
+                prefetchCandidates(toBePrefetched);
             }
         }, 0, TimeUnit.SECONDS);
         poolExecutor.schedule(() -> {
@@ -432,21 +659,277 @@ public class Nappa {
         }, 0, TimeUnit.SECONDS);
     }
 
+    /**
+     * Run the prefetching strategy for the current node within the prediction time budget.
+     * If the URL transition model is enabled, its predictions for the last requested URL are
+     * blended with the predictions of the strategy. If the expected utility decision is
+     * enabled, only the URLs worth prefetching are kept. The active hints are merged into
+     * these URLs within the same budget.
+     * The URLs are sorted by expected latency saved, such that the most valuable URLs are
+     * prefetched first.
+     *
+     * @return The scored URLs selected by the strategy
+     */
+    private static List<ScoredCandidate> getScoredCandidatesToPrefetch() {
+        PredictionDeadline deadline = PredictionDeadline.start(predictionTimeBudget);
+        List<ScoredCandidate> candidates = new ArrayList<>(
+                strategyIntent.getScoredCandidatesForNode(activityGraph.getCurrent(), 2, deadline));
+        deadline.finish();
+        PredictionDeadline.logStatistics();
+
+        String lastRequestedUrl = urlTransitionModel.isEnabled() ?
+                urlTransitionModel.getLastRequestedUrl(System.currentTimeMillis()) :
+                null;
+        if (lastRequestedUrl != null) {
+            candidates = urlTransitionModel.blend(candidates,
+                    urlTransitionModel.getScoredCandidates(activityGraph.getCurrent(), lastRequestedUrl));
+        }
+
+        Long activityId = activityMap.get(currentActivityName);
+        if (decisionStage != null && activityId != null) {
+            candidates = decisionStage.decide(PrefetchOutcomeTracker.getLiveSource(prefetchingStrategyType),
+                    activityId,
+                    candidates);
+            decisionStage.logCalibrationCurves();
+        }
+
+        long now = System.currentTimeMillis();
+        prefetchHints.decideNewHints(activityGraph.getCurrent(), activityId, decisionStage, now);
+        List<ScoredCandidate> hintedCandidates = prefetchHints.getSelectedCandidates(now);
+        if (hintedCandidates.isEmpty()) {
+            Collections.sort(candidates, ScoredCandidate.BY_EXPECTED_LATENCY_SAVED);
+            return candidates;
+        }
+        return prefetchHints.merge(candidates,
+                hintedCandidates,
+                PrefetchOutcomeTracker.getLiveSource(prefetchingStrategyType));
+    }
+
+    /**
+     * Prefetch the URLs selected for the current node, followed by the URLs whose extras are
+     * predicted and the URLs of the nodes further ahead, if enabled
+     *
+     * @param candidates The scored URLs selected by the strategy
+     */
+    private static void prefetchCandidates(List<ScoredCandidate> candidates) {
+        prefetchUrls(ScoredCandidate.toUrls(candidates));
+
+        Long activityId = activityMap.get(currentActivityName);
+        if (activityId == null) return;
+        if (parameterValueModel.isEnabled()) prefetchPredictedParameterValues(activityId);
+        if (!lookaheadStage.isEnabled()) return;
+        lookaheadStage.run(activityGraph.getCurrent(), activityId, candidates, Nappa::prefetchUrls);
+    }
+
+    /**
+     * Prefetch the URLs predicted for the launch of the application. If the OkHttp client was
+     * not initialized yet, the URLs are prefetched once it is.
+     *
+     * @param candidates The URLs predicted for the launch
+     */
+    private static void prefetchLaunchCandidates(List<ScoredCandidate> candidates) {
+        synchronized (Nappa.class) {
+            if (okHttpClient == null) {
+                pendingLaunchCandidates = candidates;
+                return;
+            }
+        }
+        Long activityId = launchPredictor.getLaunchActivityId();
+        for (ScoredCandidate candidate : candidates) {
+            if (activityId != null) PrefetchOutcomeTracker.registerPrediction(LaunchPredictor.SOURCE, activityId, candidate);
+            Log.d(LOG_TAG, "Launch: Prefetching " + candidate);
+        }
+        if (!candidates.isEmpty()) poolExecutor.schedule(() -> {
+            if (prefetchEnabled) prefetchUrls(ScoredCandidate.toUrls(candidates));
+        }, 0, TimeUnit.SECONDS);
+    }
+
+    private static void prefetchPendingLaunchCandidates() {
+        List<ScoredCandidate> candidates;
+        synchronized (Nappa.class) {
+            candidates = pendingLaunchCandidates;
+            pendingLaunchCandidates = null;
+        }
+        if (candidates != null) prefetchLaunchCandidates(candidates);
+    }
+
+    /**
+     * Prefetch the URLs of the successors of the current node whose extras were not sent yet,
+     * filled with the most likely values of these extras
+     *
+     * @param activityId The ID of the current node
+     */
+    private static void prefetchPredictedParameterValues(long activityId) {
+        Map<String, String> knownParameters = extrasMap.get(activityId, new HashMap<>());
+        List<ScoredCandidate> candidates = parameterValueModel.getScoredCandidates(activityGraph.getCurrent(),
+                activityId,
+                knownParameters);
+        for (ScoredCandidate candidate : candidates) {
+            PrefetchOutcomeTracker.registerPrediction(ParameterValueModel.SOURCE, activityId, candidate);
+            Log.d(LOG_TAG, "Parameter value: Prefetching " + candidate);
+        }
+        if (!candidates.isEmpty()) prefetchUrls(ScoredCandidate.toUrls(candidates));
+    }
+
+    /**
+     * Update the periodic request detector and the URL transition model with a request issued
+     * by the application and prefetch the URLs it most likely requests next, including the
+     * URLs requested within the same activity
+     *
+     * @param url The requested URL
+     */
+    private static void onApplicationRequest(String url) {
+        long timestamp = System.currentTimeMillis();
+        Long activityId = activityMap.get(currentActivityName);
+        if (periodicRequestDetector.isEnabled() && activityId != null)
+            periodicRequestDetector.onRequest(activityId, url, timestamp);
+
+        if (!urlTransitionModel.isEnabled()) return;
+        urlTransitionModel.onRequest(url, timestamp);
+        if (activityGraph == null || activityGraph.getCurrent() == null) return;
+
+        ActivityNode currentNode = activityGraph.getCurrent();
+        poolExecutor.schedule(() -> {
+            List<String> urls = new ArrayList<>();
+            for (ScoredCandidate candidate : urlTransitionModel.getScoredCandidates(currentNode, url)) {
+                if (candidate.probability < UrlTransitionModel.URL_TRANSITION_PREFETCH_THRESHOLD) break;
+                if (activityId != null) PrefetchOutcomeTracker.registerPrediction(UrlTransitionModel.SOURCE, activityId, candidate);
+                Log.d(LOG_TAG, "URL transition: Prefetching " + candidate);
+                urls.add(candidate.url);
+            }
+            if (prefetchEnabled && !urls.isEmpty()) prefetchUrls(urls);
+        }, 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Hint that the application will likely request the provided URL soon, e.g. the URL the
+     * next screen loads. See {@link #hintPrefetch(Map)}.
+     *
+     * @param url         The URL the application will likely request
+     * @param probability The probability the URL is requested, between 0 and 1
+     */
+    @SuppressWarnings("unused")
+    public static void hintPrefetch(@NonNull String url, float probability) {
+        Map<String, Float> hints = new HashMap<>();
+        hints.put(url, probability);
+        hintPrefetch(hints);
+    }
+
+    /**
+     * Hint that the application will likely request the provided URLs soon. The hinted URLs
+     * are prefetched right away, within the same budget and decision stage as the URLs
+     * predicted by the strategy, and merged into the predictions made in the next
+     * {@link PrefetchHints#HINT_LIFETIME} milliseconds.
+     *
+     * @param hints The URLs the application will likely request mapped to the probability
+     *              they are requested, between 0 and 1
+     */
+    public static void hintPrefetch(@NonNull Map<String, Float> hints) {
+        for (Map.Entry<String, Float> hint : hints.entrySet()) {
+            if (hint.getValue() == null || hint.getValue() < 0 || hint.getValue() > 1)
+                throw new IllegalArgumentException("The probability of a hint must be a number between 0 and 1. "
+                        + hint.getValue() + " provided for " + hint.getKey() + ".");
+        }
+        prefetchHints.add(hints, System.currentTimeMillis());
+        // Before the first activity is visited, the hints are merged into its predictions
+        if (activityGraph == null || activityGraph.getCurrent() == null) return;
+
+        ActivityNode currentNode = activityGraph.getCurrent();
+        Long activityId = activityMap.get(currentActivityName);
+        poolExecutor.schedule(() -> {
+            List<ScoredCandidate> candidates = prefetchHints.decideNewHints(currentNode,
+                    activityId,
+                    decisionStage,
+                    System.currentTimeMillis());
+            Collections.sort(candidates, ScoredCandidate.BY_EXPECTED_LATENCY_SAVED);
+            for (ScoredCandidate candidate : candidates) {
+                Log.d(LOG_TAG, "Hint: Prefetching " + candidate);
+            }
+            if (prefetchEnabled && !candidates.isEmpty()) prefetchUrls(ScoredCandidate.toUrls(candidates));
+        }, 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param url A URL
+     * @return The body of the response to the URL stored in the prefetching cache or
+     * {@code null} if there is none
+     */
+    public static String getCachedResponseBody(String url) {
+        SimpleResponse response = responseLruCache.get(url);
+        return response == null ? null : response.body;
+    }
+
+    /**
+     * @return The calibration curve of the raw scores of each strategy into probabilities.
+     * Empty if the expected utility decision is disabled.
+     */
+    @SuppressWarnings("unused")
+    public static Map<String, List<IsotonicCalibrator.Point>> getCalibrationCurves() {
+        if (decisionStage == null) return new HashMap<>();
+        return decisionStage.getCalibrationCurves();
+    }
+
     public static Long getActivityIdFromName(String activityName) {
         return activityMap.get(activityName);
     }
 
     private static void prefetchUrls(List<String> requests) {
-        libGet = true;
         for (String request : requests) {
             try {
-                Request request1 = new Request.Builder().url(request).build();
+                Request request1 = new Request.Builder().url(request).header(ISSUED_BY_NAPPA_HEADER, "1").build();
                 okHttpClient.newCall(request1).execute();
             } catch (IOException e) {
                 e.printStackTrace();
             }
         }
-        libGet = false;
+    }
+
+    /**
+     * Fetch a URL requested periodically by the current activity from the network, bypassing
+     * both caches, such that the next request of the application is served with a fresh
+     * response from the prefetching cache
+     *
+     * @param url The URL to refresh
+     */
+    private static void refreshPeriodicUrl(String url) {
+        Long activityId = activityMap.get(currentActivityName);
+        if (!prefetchEnabled || activityId == null || activityGraph == null || activityGraph.getCurrent() == null)
+            return;
+        ActivityNode currentNode = activityGraph.getCurrent();
+        for (ScoredCandidate candidate : NappaUtil.toScoredCandidates(currentNode, currentNode, Collections.singletonList(url), 1f)) {
+            PrefetchOutcomeTracker.registerPrediction(PeriodicRequestDetector.SOURCE, activityId, candidate);
+        }
+
+        try {
+            Request request = new Request.Builder()
+                    .url(url)
+                    .header(ISSUED_BY_NAPPA_HEADER, "1")
+                    .header("X-REFRESH", "1")
+                    .build();
+            okHttpClient.newCall(request).execute();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Persists how long the server allows the response to be cached for the template of the
+     * URL, if it changed. The warm-up only prefetches the URLs that are still fresh at launch.
+     *
+     * @param url      The requested URL
+     * @param response The response of the server, before its cache control is rewritten
+     */
+    private static void saveTemplateTtl(String url, Response response) {
+        CacheControl cacheControl = response.cacheControl();
+        long ttl = cacheControl.noStore() || cacheControl.noCache() ?
+                0 :
+                TimeUnit.SECONDS.toMillis(Math.max(cacheControl.maxAgeSeconds(), 0));
+        String template = UrlTemplate.parse(url).getKey();
+        Long previousTtl = templateTtls.put(template, ttl);
+        if (previousTtl != null && previousTtl == ttl) return;
+
+        TemplateTtlData data = new TemplateTtlData(template, ttl, System.currentTimeMillis());
+        poolExecutor.schedule(() -> NappaDB.getInstance().templateTtlDao().insertOrUpdate(data), 0, TimeUnit.SECONDS);
     }
 
     /**
@@ -485,7 +968,7 @@ public class Nappa {
     private static void checkUrlWithExtras(String url) {
         poolExecutor.schedule(() -> {
             ActivityNode node = activityGraph.getByName(currentActivityName);
-            List<ActivityNode> parents = ActivityNode.getAllParents(node, new LinkedList<>());
+            List<ActivityNode> parents = activityGraph.getAncestors(node);
             Log.d(LOG_TAG, "PARENTS " + "\nOf: " + node.activityName + " -> ");
             for (ActivityNode parent : parents) {
                 Log.d(LOG_TAG, "PARENTS " + parent.activityName);
@@ -548,6 +1031,8 @@ public class Nappa {
         public Response intercept(Interceptor.Chain chain) {
             Request request = chain.request();
             boolean triggeredByPrefetch = false;
+            boolean triggeredByRefresh = request.header("X-REFRESH") != null;
+            boolean issuedByNappa = request.header(ISSUED_BY_NAPPA_HEADER) != null;
             boolean isGet = request.method().toLowerCase().compareTo("get") == 0;
 
             Log.d(LOG_TAG, "NETWORK-PROVIDER " + request.url().toString());
@@ -574,12 +1059,23 @@ public class Nappa {
                 }
             }
 
+            if (issuedByNappa) request = request.newBuilder().removeHeader(ISSUED_BY_NAPPA_HEADER).build();
+            // Requests issued by NAPPA or prefetched by the application must not be learned as
+            // requests of the application
+            boolean prefetched = issuedByNappa || triggeredByPrefetch;
+
+            // A periodic refresh revalidates the response instead of reading any cache
+            if (triggeredByRefresh) {
+                Log.d(LOG_TAG, "REQ_REFRESHING " + request.url().toString());
+                request = request.newBuilder().removeHeader("X-REFRESH").build();
+            }
+
             // Add a cache control mechanism setting staleness to 300 MS
             request = request.newBuilder()
                     .removeHeader("cache-control")
                     .removeHeader("Cache-control")
                     .removeHeader("Cache-Control")
-                    .addHeader("Cache-Control", "max-age=300, max-stale=300")
+                    .addHeader("Cache-Control", triggeredByRefresh ? "no-cache" : "max-age=300, max-stale=300")
                     //.cacheControl(CacheControl.FORCE_CACHE)
                     .build();
 
@@ -592,14 +1088,16 @@ public class Nappa {
 
             SimpleResponse cachedResp = responseLruCache.get(request.url().toString());
             // If the request is both a Get request and is cached
-            if (isGet && cachedResp != null) {
+            if (isGet && cachedResp != null && !triggeredByRefresh) {
                 Log.d(LOG_TAG, "PREFLIB " + "GET REQUEST " + request.url().toString());
                 //SET TIMEOUT FOR STALE RESOURCES = 300 SECONDS
                 if ((new Date().getTime() - cachedResp.receivedDate.getTime()) < 300 * 1000) {
                     Log.d(LOG_TAG, "PREFLIB " + "found " + request.url().toString() + ", sending it back");
-                    if (!libGet) {
+                    if (!prefetched) {
                         timeSaved += cachedResp.timeToHandle;
                         requestP++;
+                        PrefetchOutcomeTracker.onRequest(request.url().toString(), (long) (cachedResp.timeToHandle * 1000));
+                        onApplicationRequest(request.url().toString());
                     }
                     Log.d(LOG_TAG, "CONTENT " + cachedResp.body);
 
@@ -621,7 +1119,11 @@ public class Nappa {
             try {
                 // Execute the request
                 Response response = chain.proceed(request);
-                if (!libGet) requestNP++;
+                if (!prefetched) {
+                    requestNP++;
+                    PrefetchOutcomeTracker.onRequest(request.url().toString(), 0);
+                    onApplicationRequest(request.url().toString());
+                }
                 // Insert the new request
 
 
@@ -638,7 +1140,9 @@ public class Nappa {
                             request.url().url().toString(),
                             response.body().contentType().type(),
                             response.body().contentLength(),
-                            Calendar.getInstance().getTimeInMillis());
+                            Calendar.getInstance().getTimeInMillis(),
+                            response.receivedResponseAtMillis() - response.sentRequestAtMillis(),
+                            prefetched);
 
                 }
                 // If the response does not contain a defined mime-type, provide an empty string, as per
@@ -651,10 +1155,14 @@ public class Nappa {
                             request.url().url().toString(),
                             "",
                             response.body().contentLength(),
-                            Calendar.getInstance().getTimeInMillis());
+                            Calendar.getInstance().getTimeInMillis(),
+                            response.receivedResponseAtMillis() - response.sentRequestAtMillis(),
+                            prefetched);
                 }
 
                 NappaDB.getInstance().urlDao().insert(req);
+                UrlStatisticsCache.invalidate(request.url().url().toString(), req.idActivity);
+                if (warmUpEnabled) saveTemplateTtl(request.url().toString(), response);
 
                 // Instrument the response to include new cache control aspects
                 if (response.cacheControl().maxAgeSeconds() < 300) {
@@ -0,0 +1,23 @@
+package nl.vu.cs.s2group.nappa;
+
+import android.util.Log;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.OnLifecycleEvent;
+import androidx.lifecycle.ProcessLifecycleOwner;
+
+/**
+ * Observes the lifecycle of the whole application process, as provided by {@link
+ * ProcessLifecycleOwner}, in contrast to {@link NappaLifecycleObserver} that observes a
+ * single activity.
+ */
+public class NappaProcessLifecycleObserver implements LifecycleObserver {
+    private static final String LOG_TAG = NappaProcessLifecycleObserver.class.getSimpleName();
+
+    @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+    public void onStop() {
+        Log.d(LOG_TAG, "Application moved to background");
+        Nappa.onApplicationBackground();
+    }
+}
@@ -2,30 +2,537 @@ package nl.vu.cs.s2group.nappa.graph;
 
 import android.util.Log;
 
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java9.util.function.Consumer;
 
 import nl.vu.cs.s2group.nappa.Nappa;
 import nl.vu.cs.s2group.nappa.room.ActivityData;
 import nl.vu.cs.s2group.nappa.room.NappaDB;
+import nl.vu.cs.s2group.nappa.room.activity.visittime.ActivityVisitTime;
 import nl.vu.cs.s2group.nappa.room.dao.GraphEdgeDao;
+import nl.vu.cs.s2group.nappa.room.dao.SessionDao;
+import nl.vu.cs.s2group.nappa.room.dao.UrlCandidateDao;
+import nl.vu.cs.s2group.nappa.room.data.ContextEdgeData;
+import nl.vu.cs.s2group.nappa.room.data.DecayedEdgeData;
 import nl.vu.cs.s2group.nappa.room.data.LARData;
+import nl.vu.cs.s2group.nappa.util.ContextBucket;
+import nl.vu.cs.s2group.nappa.util.ContextCounter;
+import nl.vu.cs.s2group.nappa.util.DecayingCounter;
 
 public class ActivityGraph {
     private static final String LOG_TAG = ActivityGraph.class.getSimpleName();
 
     List<ActivityNode> nodeList;
+    /**
+     * Indexes the nodes in {@link #nodeList} by activity name
+     */
+    private Map<String, ActivityNode> nodeMap;
     ActivityNode current = null;
+    /**
+     * Tracks the nodes with loaded data when the graph is lazily loaded. It is {@code null}
+     * when all nodes have their data loaded up front.
+     */
+    private ActivityNeighbourhoodCache neighbourhoodCache;
+    /**
+     * Incremented whenever a node or an edge is added to the graph. Used to invalidate the
+     * ancestor closures cached in the nodes.
+     */
+    private final AtomicLong structureVersion = new AtomicLong();
+    private int nodeCount = 0;
+    /**
+     * The half-life in milliseconds of the decayed edge counters and the weight under which
+     * a decayed edge is pruned
+     */
+    private long decayHalfLife = DecayingCounter.halfLifeFromHours(DecayingCounter.DEFAULT_HALF_LIFE_HOURS);
+    private float decayPruneThreshold = DecayingCounter.DEFAULT_PRUNE_THRESHOLD;
+    private volatile boolean edgeDecayEnabled;
+    /**
+     * Notified whenever the statistics used to rank the successors of a node change
+     */
+    private final List<Consumer<ActivityNode>> statisticsListeners = new CopyOnWriteArrayList<>();
     private static ScheduledThreadPoolExecutor poolExecutor = new ScheduledThreadPoolExecutor(1);
 
     public ActivityGraph() {
         nodeList = new LinkedList<>();
+        nodeMap = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds a node to the graph. The caller must ensure the node is not yet part of the graph.
+     *
+     * @param node The node to add
+     */
+    private void addNode(@NotNull ActivityNode node) {
+        node.graph = this;
+        node.index = nodeCount++;
+        nodeList.add(node);
+        nodeMap.put(node.activityName, node);
+        incrementStructureVersion();
+    }
+
+    void incrementStructureVersion() {
+        structureVersion.incrementAndGet();
+    }
+
+    /**
+     * Register a listener notified whenever the statistics used to rank the successors of a
+     * node change, i.e., the edge counts or the visit times of its successors. See
+     * {@link ActivityNode#getStatisticsVersion()}.
+     *
+     * @param listener The listener receiving the node whose statistics changed
+     */
+    public void addStatisticsListener(@NotNull Consumer<ActivityNode> listener) {
+        statisticsListeners.add(listener);
+    }
+
+    void onNodeStatisticsChanged(@NotNull ActivityNode node) {
+        for (Consumer<ActivityNode> listener : statisticsListeners) {
+            listener.accept(node);
+        }
+    }
+
+    /**
+     * Get all nodes from which the provided node can be reached, i.e., the transitive closure
+     * of its ancestors. The closure is cached in the node and is only computed again after
+     * a node or an edge is added to the graph. As such, for a graph that did not change,
+     * this method runs in constant time.
+     *
+     * @param node A node of this graph
+     * @return An unmodifiable list with all ancestors of the node
+     */
+    @NotNull
+    public List<ActivityNode> getAncestors(@NotNull ActivityNode node) {
+        long version = structureVersion.get();
+        synchronized (node) {
+            if (node.ancestorClosureVersion != version) {
+                BitSet closure = new BitSet(nodeCount);
+                List<ActivityNode> closureList = new ArrayList<>();
+                LinkedList<ActivityNode> queue = new LinkedList<>(node.ancestors.keySet());
+                while (!queue.isEmpty()) {
+                    ActivityNode ancestor = queue.removeFirst();
+                    if (closure.get(ancestor.index)) continue;
+                    closure.set(ancestor.index);
+                    closureList.add(ancestor);
+                    queue.addAll(ancestor.ancestors.keySet());
+                }
+                node.ancestorClosure = closure;
+                node.ancestorClosureList = Collections.unmodifiableList(closureList);
+                node.ancestorClosureVersion = version;
+            }
+            return node.ancestorClosureList;
+        }
+    }
+
+    /**
+     * Verifies whether a node can reach another node. Uses the cached ancestor closure.
+     *
+     * @param ancestor A node of this graph
+     * @param node     A node of this graph
+     * @return {@code True} if {@code node} is reachable from {@code ancestor}
+     */
+    public boolean isAncestor(@NotNull ActivityNode ancestor, @NotNull ActivityNode node) {
+        if (ancestor.index < 0) return false;
+        getAncestors(node);
+        synchronized (node) {
+            return node.ancestorClosure.get(ancestor.index);
+        }
+    }
+
+    /**
+     * Build the whole graph in memory from data fetched with set-based queries. This is the
+     * bulk equivalent of invoking {@link #initNode(ActivityData)} for each activity, which
+     * issues one query for the LAR scores, one query for the edges and one more query for the
+     * LAR scores of each edge.
+     * <p>
+     * Besides creating the nodes and linking their successors, this method also seeds each node
+     * with its session aggregates and parametered URLs, so that the strategies have data to work
+     * with before the LiveData objects of the node are registered and emit their first value.
+     *
+     * @param activities        All known activities
+     * @param larList           The LAR scores of all activities
+     * @param edges             The aggregate visit count of all (source -> destination) edges
+     *                          from all sessions
+     * @param sessionAggregates The aggregate visit count of all (source -> destination) edges
+     *                          used to seed the nodes. Depending on the configuration, this is
+     *                          either the same list as {@code edges} or the count within the last
+     *                          N sessions
+     * @param urlCandidateParts The URL candidates parts of all activities
+     */
+    public void initNodes(@NotNull List<ActivityData> activities,
+                          @NotNull List<LARData> larList,
+                          @NotNull List<SessionDao.SessionAggregateBySource> edges,
+                          @NotNull List<SessionDao.SessionAggregateBySource> sessionAggregates,
+                          @NotNull List<UrlCandidateDao.UrlCandidateToUrlParameter> urlCandidateParts) {
+        Map<String, LARData> larMap = new HashMap<>(larList.size());
+        for (LARData lar : larList) larMap.put(lar.activity_name, lar);
+
+        // Create all nodes
+        Map<Long, ActivityNode> nodesById = new HashMap<>(activities.size());
+        for (ActivityData activity : activities) {
+            ActivityNode node = getByName(activity.activityName);
+            if (node == null) {
+                node = new ActivityNode(activity.activityName);
+                LARData lar = larMap.get(activity.activityName);
+                if (lar != null) {
+                    node.pageRank = lar.PR;
+                    node.authority = lar.authority;
+                    node.hub = lar.hub;
+                    node.authorityS = lar.authorityS;
+                    node.hubS = lar.hubS;
+                }
+                addNode(node);
+            }
+            node.setActivityData(activity);
+            nodesById.put(activity.id, node);
+        }
+
+        // Link all successors
+        for (SessionDao.SessionAggregateBySource edge : edges) {
+            ActivityNode source = nodesById.get(edge.idActSource);
+            ActivityNode destination = nodesById.get(edge.idActDest);
+            if (source == null || destination == null) continue;
+            source.initSuccessor(destination);
+        }
+
+        // Seed the session aggregates
+        Map<Long, List<SessionDao.SessionAggregate>> aggregatesBySource = new HashMap<>();
+        for (SessionDao.SessionAggregateBySource aggregate : sessionAggregates) {
+            List<SessionDao.SessionAggregate> list = aggregatesBySource.get(aggregate.idActSource);
+            if (list == null) {
+                list = new ArrayList<>();
+                aggregatesBySource.put(aggregate.idActSource, list);
+            }
+            list.add(aggregate);
+        }
+        for (Map.Entry<Long, List<SessionDao.SessionAggregate>> entry : aggregatesBySource.entrySet()) {
+            ActivityNode node = nodesById.get(entry.getKey());
+            if (node != null) node.setSessionAggregateList(entry.getValue());
+        }
+
+        // Seed the parametered URLs
+        Map<Long, List<UrlCandidateDao.UrlCandidateToUrlParameter>> partsByActivity = new HashMap<>();
+        for (UrlCandidateDao.UrlCandidateToUrlParameter part : urlCandidateParts) {
+            List<UrlCandidateDao.UrlCandidateToUrlParameter> list = partsByActivity.get(part.idActivity);
+            if (list == null) {
+                list = new ArrayList<>();
+                partsByActivity.put(part.idActivity, list);
+            }
+            list.add(part);
+        }
+        for (Map.Entry<Long, List<UrlCandidateDao.UrlCandidateToUrlParameter>> entry : partsByActivity.entrySet()) {
+            ActivityNode node = nodesById.get(entry.getKey());
+            if (node != null)
+                node.parameteredUrlList = UrlCandidateDao.UrlCandidateToUrlParameter.getParameteredUrlList(entry.getValue());
+        }
+
+        Log.d(LOG_TAG, "ACT_GRAPH " + "initNodes() built " + nodeList.size() + " nodes and " + edges.size() + " edges");
+    }
+
+    /**
+     * Enable the lazy loading mode. In this mode, the nodes data (i.e., the LiveData objects
+     * for the session aggregates, visit time, URL candidates and intent extras) is only
+     * loaded for the neighbourhood of the current node.
+     *
+     * @param neighbourhoodDepth The number of hops from the current node to load
+     * @param maxLoadedNodes     The maximum number of nodes to keep loaded
+     */
+    public void enableLazyLoading(int neighbourhoodDepth, int maxLoadedNodes) {
+        neighbourhoodCache = new ActivityNeighbourhoodCache(neighbourhoodDepth, maxLoadedNodes);
+    }
+
+    public boolean isLazyLoading() {
+        return neighbourhoodCache != null;
+    }
+
+    /**
+     * Mark the neighbourhood of the provided node as in use. Nodes that fell out of the
+     * memory budget are released. Does nothing if the lazy loading mode is not enabled.
+     *
+     * @param node The node the user navigated to
+     * @return The nodes whose data must be loaded
+     */
+    @MainThread
+    @NotNull
+    public List<ActivityNode> touchNeighbourhood(ActivityNode node) {
+        if (neighbourhoodCache == null || node == null) return new ArrayList<>();
+        return neighbourhoodCache.touch(node);
+    }
+
+    /**
+     * Maps the nodes of this graph by their activity ID. Nodes whose activity was not
+     * registered in the database yet are not included.
+     *
+     * @return The activity ID -> node map
+     */
+    @NotNull
+    public Map<Long, ActivityNode> mapNodesById() {
+        // Nodes may be added from other threads, thus the map is read instead of the list
+        List<ActivityNode> nodes = new ArrayList<>(nodeMap.values());
+        Map<Long, ActivityNode> nodesById = new HashMap<>(nodes.size());
+        for (ActivityNode node : nodes) {
+            try {
+                nodesById.put(node.getActivityId(), node);
+            } catch (NoSuchElementException ignored) {
+                // The node was not registered yet and therefore has no ID
+            }
+        }
+        return nodesById;
+    }
+
+    /**
+     * Enable and configure the decayed edge counters. Must be invoked before
+     * {@link #initDecayedEdges}. The counters are not maintained unless enabled.
+     *
+     * @param halfLife       The half-life in milliseconds
+     * @param pruneThreshold The decayed visit frequency under which an edge is pruned
+     */
+    public void setEdgeDecay(long halfLife, float pruneThreshold) {
+        this.decayHalfLife = halfLife;
+        this.decayPruneThreshold = pruneThreshold;
+        this.edgeDecayEnabled = true;
+    }
+
+    public boolean isEdgeDecayEnabled() {
+        return edgeDecayEnabled;
+    }
+
+    public long getDecayHalfLife() {
+        return decayHalfLife;
+    }
+
+    public float getDecayPruneThreshold() {
+        return decayPruneThreshold;
+    }
+
+    /**
+     * Load the decayed counters of all edges into the nodes. Edges whose decayed visit
+     * frequency fell below the prune threshold, or whose nodes are not part of the graph,
+     * are not loaded and are returned to be deleted.
+     *
+     * @param decayedEdges The persisted decayed edge counters
+     * @param now          The current timestamp in milliseconds
+     * @return The edges that were pruned
+     */
+    @NotNull
+    public List<DecayedEdgeData> initDecayedEdges(@NotNull List<DecayedEdgeData> decayedEdges, long now) {
+        Map<Long, ActivityNode> nodesById = mapNodesById();
+        List<DecayedEdgeData> prunedEdges = new ArrayList<>();
+        for (DecayedEdgeData edge : decayedEdges) {
+            ActivityNode source = nodesById.get(edge.idActivitySource);
+            ActivityNode destination = nodesById.get(edge.idActivityDestination);
+            DecayingCounter frequency = new DecayingCounter(decayHalfLife, edge.frequency, edge.frequencyUpdatedAt);
+            if (source == null || destination == null || frequency.get(now) < decayPruneThreshold) {
+                prunedEdges.add(edge);
+                continue;
+            }
+            source.decayedFrequency.put(destination, frequency);
+            source.decayedVisitTime.put(destination, new DecayingCounter(decayHalfLife, edge.visitTime, edge.visitTimeUpdatedAt));
+        }
+
+        Log.d(LOG_TAG, "ACT_GRAPH " + "initDecayedEdges() loaded " + (decayedEdges.size() - prunedEdges.size()) +
+                " edges and pruned " + prunedEdges.size() + " edges");
+        return prunedEdges;
+    }
+
+    /**
+     * Seed the decayed counters of the edges that have no persisted counters yet, e.g. when
+     * the graph was recorded before the decayed counters existed, by replaying the
+     * timestamped visits of these edges. Only the visits within
+     * {@link #getDecaySeedingStart(long)} are replayed, since older visits decayed below the
+     * prune threshold. Edges whose seeded frequency is below the prune threshold are skipped.
+     *
+     * @param visits The visits of the edges without persisted counters, in chronological order
+     * @param now    The current timestamp in milliseconds
+     * @return The seeded edges to persist
+     */
+    @NotNull
+    public List<DecayedEdgeData> seedDecayedEdges(@NotNull List<ActivityVisitTime> visits, long now) {
+        Map<Long, ActivityNode> nodesById = mapNodesById();
+        Map<ActivityNode, Map<ActivityNode, DecayingCounter[]>> seededCounters = new HashMap<>();
+        for (ActivityVisitTime visit : visits) {
+            if (visit.fromActivityId == null) continue;
+            ActivityNode source = nodesById.get(visit.fromActivityId);
+            ActivityNode destination = nodesById.get(visit.activityId);
+            if (source == null || destination == null || !source.successors.containsKey(destination) ||
+                    source.decayedFrequency.containsKey(destination)) continue;
+
+            Map<ActivityNode, DecayingCounter[]> counters = seededCounters.get(source);
+            if (counters == null) {
+                counters = new HashMap<>();
+                seededCounters.put(source, counters);
+            }
+            DecayingCounter[] edgeCounters = counters.get(destination);
+            long timestamp = visit.timestamp.getTime();
+            if (edgeCounters == null) {
+                edgeCounters = new DecayingCounter[]{
+                        new DecayingCounter(decayHalfLife, 0, timestamp),
+                        new DecayingCounter(decayHalfLife, 0, timestamp)};
+                counters.put(destination, edgeCounters);
+            }
+            edgeCounters[0].add(1, timestamp);
+            // The visit time is recorded when the user leaves the destination
+            edgeCounters[1].add(visit.duration, timestamp + visit.duration);
+        }
+
+        List<DecayedEdgeData> seededEdges = new ArrayList<>();
+        for (Map.Entry<ActivityNode, Map<ActivityNode, DecayingCounter[]>> sourceEntry : seededCounters.entrySet()) {
+            ActivityNode source = sourceEntry.getKey();
+            for (Map.Entry<ActivityNode, DecayingCounter[]> entry : sourceEntry.getValue().entrySet()) {
+                DecayingCounter frequency = entry.getValue()[0];
+                DecayingCounter visitTime = entry.getValue()[1];
+                if (frequency.get(now) < decayPruneThreshold) continue;
+                // Counters created by a transition recorded meanwhile are kept
+                if (source.decayedFrequency.putIfAbsent(entry.getKey(), frequency) != null) continue;
+                source.decayedVisitTime.putIfAbsent(entry.getKey(), visitTime);
+                seededEdges.add(new DecayedEdgeData(source.getActivityId(), entry.getKey().getActivityId(),
+                        frequency.getValue(), frequency.getLastUpdate(),
+                        visitTime.getValue(), visitTime.getLastUpdate()));
+            }
+        }
+
+        Log.d(LOG_TAG, "ACT_GRAPH " + "seedDecayedEdges() seeded " + seededEdges.size() + " edges from " +
+                visits.size() + " visits");
+        return seededEdges;
+    }
+
+    /**
+     * @param now The current timestamp in milliseconds
+     * @return The timestamp before which a single visit decayed below the prune threshold
+     */
+    public long getDecaySeedingStart(long now) {
+        if (decayHalfLife <= 0 || decayPruneThreshold <= 0) return 0;
+        return now - DecayingCounter.getTimeToDecay(decayHalfLife, decayPruneThreshold);
+    }
+
+    /**
+     * Loads the persisted context bucket counts into the nodes. Counts whose nodes are not
+     * part of this graph are ignored.
+     *
+     * @param contextEdges The persisted context bucket counts
+     */
+    public void initContextEdges(@NotNull List<ContextEdgeData> contextEdges) {
+        Map<Long, ActivityNode> nodesById = mapNodesById();
+        int loadedEdges = 0;
+        for (ContextEdgeData edge : contextEdges) {
+            ActivityNode source = nodesById.get(edge.idActivitySource);
+            ActivityNode destination = nodesById.get(edge.idActivityDestination);
+            if (source == null || destination == null || edge.contextBucket < 0 ||
+                    edge.contextBucket >= ContextBucket.NUMBER_OF_BUCKETS) continue;
+            ContextCounter counter = source.contextFrequency.get(destination);
+            if (counter == null) {
+                counter = new ContextCounter();
+                source.contextFrequency.put(destination, counter);
+            }
+            counter.set(edge.contextBucket, edge.count);
+            loadedEdges++;
+        }
+
+        Log.d(LOG_TAG, "ACT_GRAPH " + "initContextEdges() loaded " + loadedEdges + " context bucket counts");
+    }
+
+    /**
+     * @return A copy of the (source -> destination) edges that have context bucket counts,
+     * mapped by source
+     */
+    @NotNull
+    public Map<ActivityNode, Set<ActivityNode>> getContextCountedEdges() {
+        Map<ActivityNode, Set<ActivityNode>> countedEdges = new HashMap<>();
+        for (ActivityNode node : new ArrayList<>(nodeMap.values())) {
+            if (!node.contextFrequency.isEmpty())
+                countedEdges.put(node, new HashSet<>(node.contextFrequency.keySet()));
+        }
+        return countedEdges;
+    }
+
+    /**
+     * Seed the context bucket counts of the edges that had no persisted counts, e.g. when the
+     * graph was recorded before the counts existed, by replaying the timestamped visits of
+     * these edges. The seeded counts are added to the counts of the transitions recorded
+     * meanwhile, which are never older than {@code before}.
+     *
+     * @param visits       The navigation history
+     * @param countedEdges The edges that had persisted counts, see {@link #getContextCountedEdges()}
+     * @param before       The timestamp in milliseconds from which the transitions are counted
+     *                     by the nodes. Only older visits are replayed
+     * @return The seeded bucket counts to persist
+     */
+    @NotNull
+    public List<ContextEdgeData> seedContextEdges(@NotNull List<ActivityVisitTime> visits,
+                                                  @NotNull Map<ActivityNode, Set<ActivityNode>> countedEdges,
+                                                  long before) {
+        Map<Long, ActivityNode> nodesById = mapNodesById();
+        Map<ActivityNode, Map<ActivityNode, long[]>> seededCounts = new HashMap<>();
+        int replayedVisits = 0;
+        for (ActivityVisitTime visit : visits) {
+            if (visit.fromActivityId == null || visit.timestamp.getTime() >= before) continue;
+            ActivityNode source = nodesById.get(visit.fromActivityId);
+            ActivityNode destination = nodesById.get(visit.activityId);
+            if (source == null || destination == null) continue;
+            Set<ActivityNode> countedDestinations = countedEdges.get(source);
+            if (countedDestinations != null && countedDestinations.contains(destination)) continue;
+
+            Map<ActivityNode, long[]> counts = seededCounts.get(source);
+            if (counts == null) {
+                counts = new HashMap<>();
+                seededCounts.put(source, counts);
+            }
+            long[] edgeCounts = counts.get(destination);
+            if (edgeCounts == null) {
+                edgeCounts = new long[ContextBucket.NUMBER_OF_BUCKETS];
+                counts.put(destination, edgeCounts);
+            }
+            edgeCounts[ContextBucket.of(visit.timestamp.getTime())]++;
+            replayedVisits++;
+        }
+
+        List<ContextEdgeData> seededEdges = new ArrayList<>();
+        for (Map.Entry<ActivityNode, Map<ActivityNode, long[]>> sourceEntry : seededCounts.entrySet()) {
+            ActivityNode source = sourceEntry.getKey();
+            for (Map.Entry<ActivityNode, long[]> entry : sourceEntry.getValue().entrySet()) {
+                ContextCounter counter = new ContextCounter();
+                ContextCounter existingCounter = source.contextFrequency.putIfAbsent(entry.getKey(), counter);
+                if (existingCounter != null) counter = existingCounter;
+
+                long[] edgeCounts = entry.getValue();
+                for (int bucket = 0; bucket < edgeCounts.length; bucket++) {
+                    if (edgeCounts[bucket] == 0) continue;
+                    seededEdges.add(new ContextEdgeData(source.getActivityId(),
+                            entry.getKey().getActivityId(),
+                            bucket,
+                            counter.add(bucket, edgeCounts[bucket])));
+                }
+            }
+        }
+
+        Log.d(LOG_TAG, "ACT_GRAPH " + "seedContextEdges() seeded " + seededEdges.size() +
+                " context bucket counts from " + replayedVisits + " visits");
+        return seededEdges;
+    }
+
+    /**
+     * @return All nodes of this graph
+     */
+    public List<ActivityNode> getNodeList() {
+        return nodeList;
     }
 
     public ActivityNode initNode(@NotNull ActivityData activity) {
@@ -58,7 +565,7 @@ public class ActivityGraph {
             temp.authorityS = LAR.authorityS;
             temp.hubS = LAR.hubS;
             Log.d(LOG_TAG, "LARDataInit " + "node " + temp.activityName + " added to nodeList");
-            nodeList.add(temp);
+            addNode(temp);
         }
 
 
@@ -89,7 +596,7 @@ public class ActivityGraph {
                     temp2.authorityS = LAR.authorityS;
                     temp2.hubS = LAR.hubS;
                     Log.d(LOG_TAG, "LARDataInit " + "node " + temp2.activityName + " added to nodeList from edge");
-                    nodeList.add(temp2);
+                    addNode(temp2);
                 }
 
                 //  Add the Source-Successor relationship to both the database and the temp node itself
@@ -129,7 +636,7 @@ public class ActivityGraph {
             temp.hub = initialHub;
             temp.authorityS = initialAuthorityS;
             temp.hubS = initialHubS;
-            nodeList.add(temp);
+            addNode(temp);
             poolExecutor.schedule(() -> {
                 NappaDB.getInstance().activityDao().insertLAR(new LARData(tempActivityName, initialPageRank, initialAuthority, initialHub, initialAuthorityS, initialHubS));
             }, 0, TimeUnit.SECONDS);
@@ -170,8 +677,8 @@ public class ActivityGraph {
      * @return {@linkplain ActivityNode} Corresponding to the activity name requested
      */
     public ActivityNode getByName(String activityName) {
-        int nodeIdx = nodeList.indexOf(new ActivityNode(activityName));
-        return  nodeIdx == -1 ? null : nodeList.get(nodeIdx);
+        if (activityName == null) return null;
+        return nodeMap.get(activityName);
     }
 
     public void updateLAR(String activityName) {
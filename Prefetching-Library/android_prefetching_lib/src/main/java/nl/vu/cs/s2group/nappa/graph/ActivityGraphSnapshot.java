@@ -0,0 +1,373 @@
+package nl.vu.cs.s2group.nappa.graph;
+
+import android.util.Log;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.vu.cs.s2group.nappa.room.ActivityData;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+import nl.vu.cs.s2group.nappa.room.dao.GraphSnapshotDao.GraphFingerprint;
+import nl.vu.cs.s2group.nappa.room.dao.SessionDao;
+import nl.vu.cs.s2group.nappa.room.dao.UrlCandidateDao;
+import nl.vu.cs.s2group.nappa.room.data.LARData;
+
+/**
+ * Represents all data required to build the ENG, as consumed by {@link
+ * ActivityGraph#initNodes}. The data is either fetched from the database with a handful
+ * of set-based queries or read from a compact binary snapshot file.
+ * <p>
+ * The snapshot contains a header with a magic number, the format version, the {@link
+ * GraphFingerprint} of the database at the moment the snapshot was taken and the number of
+ * sessions used to aggregate the session data. A snapshot is only used if its header matches
+ * the current database fingerprint and configuration, otherwise the graph is rebuilt from the
+ * database.
+ */
+public class ActivityGraphSnapshot {
+    private static final String LOG_TAG = ActivityGraphSnapshot.class.getSimpleName();
+
+    public static final String FILE_NAME = "nappa_graph.snapshot";
+    /**
+     * The ASCII representation of "NAPG"
+     */
+    private static final int MAGIC = 0x4E415047;
+    /**
+     * Must be incremented whenever the binary layout changes
+     */
+    private static final int FORMAT_VERSION = 1;
+    /**
+     * The size in bytes of the magic number, format version, fingerprint and number of sessions
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 8 * 8 + 4;
+    private static final int NULL_VALUE = -1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    public final GraphFingerprint fingerprint;
+    public final int lastNSessions;
+    public final List<ActivityData> activities;
+    public final List<LARData> larList;
+    public final List<SessionDao.SessionAggregateBySource> edges;
+    public final List<SessionDao.SessionAggregateBySource> sessionAggregates;
+    public final List<UrlCandidateDao.UrlCandidateToUrlParameter> urlCandidateParts;
+
+    private ActivityGraphSnapshot(GraphFingerprint fingerprint,
+                                  int lastNSessions,
+                                  List<ActivityData> activities,
+                                  List<LARData> larList,
+                                  List<SessionDao.SessionAggregateBySource> edges,
+                                  List<SessionDao.SessionAggregateBySource> sessionAggregates,
+                                  List<UrlCandidateDao.UrlCandidateToUrlParameter> urlCandidateParts) {
+        this.fingerprint = fingerprint;
+        this.lastNSessions = lastNSessions;
+        this.activities = activities;
+        this.larList = larList;
+        this.edges = edges;
+        this.sessionAggregates = sessionAggregates;
+        this.urlCandidateParts = urlCandidateParts;
+    }
+
+    /**
+     * Fetch all data required to build the ENG from the database. All queries run within a
+     * single transaction to ensure that the data is consistent with the fingerprint.
+     *
+     * @param db            The database instance
+     * @param lastNSessions The number of sessions used to aggregate the session data or -1 to
+     *                      aggregate all sessions
+     * @return The ENG data
+     */
+    @NotNull
+    public static ActivityGraphSnapshot fromDatabase(@NotNull NappaDB db, int lastNSessions) {
+        ActivityGraphSnapshot[] snapshot = new ActivityGraphSnapshot[1];
+        db.runInTransaction(() -> {
+            List<SessionDao.SessionAggregateBySource> edges = db.sessionDao().getCountForAllActivitySources();
+            snapshot[0] = new ActivityGraphSnapshot(
+                    db.graphSnapshotDao().getFingerprint(),
+                    lastNSessions,
+                    db.activityDao().getListActivity(),
+                    db.activityDao().getListLAR(),
+                    edges,
+                    lastNSessions == -1 ? edges : db.sessionDao().getCountForAllActivitySources(lastNSessions),
+                    db.urlCandidateDao().getCandidatePartsList());
+        });
+        return snapshot[0];
+    }
+
+    /**
+     * Verifies if this data still represents the current state of the database
+     *
+     * @param currentFingerprint The current fingerprint of the database
+     * @param lastNSessions      The number of sessions currently configured
+     * @return {@code true} if this data can be used to build the ENG
+     */
+    public boolean isUpToDate(GraphFingerprint currentFingerprint, int lastNSessions) {
+        return this.lastNSessions == lastNSessions && fingerprint.equals(currentFingerprint);
+    }
+
+    /**
+     * Builds the nodes of the provided graph with this data
+     *
+     * @param graph The graph to initialize
+     */
+    public void initGraph(@NotNull ActivityGraph graph) {
+        graph.initNodes(activities, larList, edges, sessionAggregates, urlCandidateParts);
+    }
+
+    /**
+     * Builds only the structure of the provided graph with this data, i.e., the nodes, edges
+     * and LAR scores. Used by lazily loaded graphs, which load the remaining data on demand.
+     *
+     * @param graph The graph to initialize
+     */
+    public void initGraphStructure(@NotNull ActivityGraph graph) {
+        graph.initNodes(activities, larList, edges, new ArrayList<>(), new ArrayList<>());
+    }
+
+    /**
+     * Writes this data to the snapshot file. The data is first written to a temporary file
+     * which then replaces the snapshot file, ensuring that a reader never sees a partially
+     * written snapshot.
+     *
+     * @param file The snapshot file
+     * @throws IOException If the snapshot could not be written
+     */
+    public void write(@NotNull File file) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutputStream))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            writeFingerprint(out, fingerprint);
+            out.writeInt(lastNSessions);
+
+            out.writeInt(activities.size());
+            for (ActivityData activity : activities) {
+                out.writeLong(activity.id);
+                writeString(out, activity.activityName);
+            }
+
+            out.writeInt(larList.size());
+            for (LARData lar : larList) {
+                writeString(out, lar.activity_name);
+                out.writeFloat(lar.PR);
+                out.writeFloat(lar.authority);
+                out.writeFloat(lar.hub);
+                out.writeFloat(lar.authorityS);
+                out.writeFloat(lar.hubS);
+            }
+
+            writeAggregates(out, edges);
+            if (sessionAggregates == edges) out.writeInt(NULL_VALUE);
+            else writeAggregates(out, sessionAggregates);
+
+            out.writeInt(urlCandidateParts.size());
+            for (UrlCandidateDao.UrlCandidateToUrlParameter part : urlCandidateParts) {
+                out.writeLong(part.id);
+                out.writeLong(part.idActivity);
+                writeInteger(out, part.count);
+                writeInteger(out, part.urlOrder);
+                writeInteger(out, part.type);
+                writeString(out, part.urlPiece);
+            }
+
+            out.flush();
+            fileOutputStream.getFD().sync();
+        }
+
+        if (!tempFile.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            throw new IOException("Failed to replace the snapshot file " + file.getPath());
+        }
+
+        Log.d(LOG_TAG, "Written snapshot with " + activities.size() + " nodes, " + edges.size() +
+                " edges and " + urlCandidateParts.size() + " URL candidate parts (" + file.length() + " bytes)");
+    }
+
+    /**
+     * Reads the snapshot file by memory mapping it.
+     *
+     * @param file The snapshot file
+     * @return The ENG data or {@code null} if the file does not exist, is not a snapshot or
+     * was written with another format version
+     * @throws IOException If the snapshot could not be read
+     */
+    @Nullable
+    public static ActivityGraphSnapshot read(@NotNull File file) throws IOException {
+        if (!file.exists()) return null;
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) return null;
+            if (buffer.getInt() != FORMAT_VERSION) return null;
+            GraphFingerprint fingerprint = readFingerprint(buffer);
+            int lastNSessions = buffer.getInt();
+
+            int activityCount = buffer.getInt();
+            List<ActivityData> activities = new ArrayList<>(activityCount);
+            for (int i = 0; i < activityCount; i++) {
+                long id = buffer.getLong();
+                ActivityData activity = new ActivityData(readString(buffer));
+                activity.id = id;
+                activities.add(activity);
+            }
+
+            int larCount = buffer.getInt();
+            List<LARData> larList = new ArrayList<>(larCount);
+            for (int i = 0; i < larCount; i++) {
+                larList.add(new LARData(readString(buffer),
+                        buffer.getFloat(),
+                        buffer.getFloat(),
+                        buffer.getFloat(),
+                        buffer.getFloat(),
+                        buffer.getFloat()));
+            }
+
+            List<SessionDao.SessionAggregateBySource> edges = readAggregates(buffer, buffer.getInt(), activities);
+            int aggregateCount = buffer.getInt();
+            List<SessionDao.SessionAggregateBySource> sessionAggregates = aggregateCount == NULL_VALUE ?
+                    edges : readAggregates(buffer, aggregateCount, activities);
+
+            int partCount = buffer.getInt();
+            List<UrlCandidateDao.UrlCandidateToUrlParameter> urlCandidateParts = new ArrayList<>(partCount);
+            for (int i = 0; i < partCount; i++) {
+                UrlCandidateDao.UrlCandidateToUrlParameter part = new UrlCandidateDao.UrlCandidateToUrlParameter();
+                part.id = buffer.getLong();
+                part.idActivity = buffer.getLong();
+                part.count = readInteger(buffer);
+                part.urlOrder = readInteger(buffer);
+                part.type = readInteger(buffer);
+                part.urlPiece = readString(buffer);
+                urlCandidateParts.add(part);
+            }
+
+            return new ActivityGraphSnapshot(fingerprint, lastNSessions, activities, larList,
+                    edges, sessionAggregates, urlCandidateParts);
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("The snapshot file " + file.getPath() + " is corrupted", e);
+        }
+    }
+
+    /**
+     * Verifies if the snapshot file represents the current state of the database by reading
+     * only its header
+     *
+     * @param file               The snapshot file
+     * @param currentFingerprint The current fingerprint of the database
+     * @param lastNSessions      The number of sessions currently configured
+     * @return {@code true} if the snapshot file exists and is up to date
+     */
+    public static boolean isUpToDate(@NotNull File file, GraphFingerprint currentFingerprint, int lastNSessions) {
+        if (!file.exists()) return false;
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            if (channel.size() < HEADER_SIZE) return false;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) return false;
+            GraphFingerprint fingerprint = readFingerprint(buffer);
+            return buffer.getInt() == lastNSessions && fingerprint.equals(currentFingerprint);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void writeFingerprint(DataOutputStream out, GraphFingerprint fingerprint) throws IOException {
+        out.writeLong(fingerprint.activityCount);
+        out.writeDouble(fingerprint.larSum);
+        out.writeLong(fingerprint.sessionDataCount);
+        out.writeLong(fingerprint.maxSessionId);
+        out.writeLong(fingerprint.transitionCount);
+        out.writeLong(fingerprint.urlCandidateCount);
+        out.writeLong(fingerprint.urlCandidateSum);
+        out.writeLong(fingerprint.urlCandidatePartCount);
+    }
+
+    private static GraphFingerprint readFingerprint(ByteBuffer buffer) {
+        GraphFingerprint fingerprint = new GraphFingerprint();
+        fingerprint.activityCount = buffer.getLong();
+        fingerprint.larSum = buffer.getDouble();
+        fingerprint.sessionDataCount = buffer.getLong();
+        fingerprint.maxSessionId = buffer.getLong();
+        fingerprint.transitionCount = buffer.getLong();
+        fingerprint.urlCandidateCount = buffer.getLong();
+        fingerprint.urlCandidateSum = buffer.getLong();
+        fingerprint.urlCandidatePartCount = buffer.getLong();
+        return fingerprint;
+    }
+
+    private static void writeAggregates(DataOutputStream out, List<SessionDao.SessionAggregateBySource> aggregates) throws IOException {
+        out.writeInt(aggregates.size());
+        for (SessionDao.SessionAggregateBySource aggregate : aggregates) {
+            out.writeLong(aggregate.idActSource);
+            out.writeLong(aggregate.idActDest);
+            out.writeLong(aggregate.countSource2Dest == null ? 0 : aggregate.countSource2Dest);
+        }
+    }
+
+    /**
+     * Reads the edge aggregates. The destination activity name is not stored in the snapshot
+     * and is instead resolved from the list of activities.
+     */
+    private static List<SessionDao.SessionAggregateBySource> readAggregates(ByteBuffer buffer,
+                                                                            int count,
+                                                                            List<ActivityData> activities) {
+        Map<Long, String> activityNames = new HashMap<>(activities.size());
+        for (ActivityData activity : activities) activityNames.put(activity.id, activity.activityName);
+
+        List<SessionDao.SessionAggregateBySource> aggregates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SessionDao.SessionAggregateBySource aggregate = new SessionDao.SessionAggregateBySource();
+            aggregate.idActSource = buffer.getLong();
+            aggregate.idActDest = buffer.getLong();
+            aggregate.countSource2Dest = buffer.getLong();
+            aggregate.actName = activityNames.get(aggregate.idActDest);
+            aggregates.add(aggregate);
+        }
+        return aggregates;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeInt(value);
+    }
+
+    private static Integer readInteger(ByteBuffer buffer) {
+        return buffer.get() == 0 ? null : buffer.getInt();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_VALUE);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_VALUE) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
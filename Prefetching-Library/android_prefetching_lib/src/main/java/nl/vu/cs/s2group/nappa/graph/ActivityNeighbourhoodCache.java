@@ -0,0 +1,109 @@
+package nl.vu.cs.s2group.nappa.graph;
+
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Keeps track of which nodes of a lazily loaded {@link ActivityGraph} have their LiveData
+ * objects loaded. A strategy only inspects the k-hop neighbourhood of the current node,
+ * therefore only these nodes need their data loaded. The loaded nodes are kept in a least
+ * recently used (LRU) order and the least recently used nodes are released once the number
+ * of loaded nodes exceeds the memory budget.
+ */
+public class ActivityNeighbourhoodCache {
+    private static final String LOG_TAG = ActivityNeighbourhoodCache.class.getSimpleName();
+
+    public static final boolean DEFAULT_LAZY_GRAPH_LOADING = false;
+    public static final int DEFAULT_NEIGHBOURHOOD_DEPTH = 2;
+    public static final int DEFAULT_MAX_LOADED_NODES = 50;
+
+    private final int neighbourhoodDepth;
+    private final int maxLoadedNodes;
+    /**
+     * The loaded nodes in access order, from the least to the most recently used
+     */
+    private final LinkedHashMap<ActivityNode, Boolean> loadedNodes;
+
+    public ActivityNeighbourhoodCache(int neighbourhoodDepth, int maxLoadedNodes) {
+        this.neighbourhoodDepth = Math.max(neighbourhoodDepth, 0);
+        this.maxLoadedNodes = Math.max(maxLoadedNodes, 1);
+        this.loadedNodes = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Marks the neighbourhood of the provided node as recently used and releases the
+     * least recently used nodes that exceed the memory budget. The nodes in the
+     * neighbourhood are never released, even if the neighbourhood alone exceeds the budget.
+     * <p>
+     * Must run on the main thread, since releasing a node removes its LiveData observers.
+     *
+     * @param node The node the user navigated to
+     * @return The nodes in the neighbourhood that must have their data loaded
+     */
+    @MainThread
+    @NotNull
+    public List<ActivityNode> touch(@NotNull ActivityNode node) {
+        Set<ActivityNode> neighbourhood = getNeighbourhood(node);
+        List<ActivityNode> nodesToLoad = new ArrayList<>();
+
+        for (ActivityNode neighbour : neighbourhood) {
+            if (loadedNodes.put(neighbour, Boolean.TRUE) == null) nodesToLoad.add(neighbour);
+        }
+
+        int evicted = 0;
+        Iterator<Map.Entry<ActivityNode, Boolean>> iterator = loadedNodes.entrySet().iterator();
+        while (loadedNodes.size() > maxLoadedNodes && iterator.hasNext()) {
+            ActivityNode leastRecentlyUsed = iterator.next().getKey();
+            if (neighbourhood.contains(leastRecentlyUsed)) break;
+            iterator.remove();
+            leastRecentlyUsed.releaseLiveData();
+            evicted++;
+        }
+
+        Log.d(LOG_TAG, String.format("Neighbourhood of %s has %d nodes. Loading %d, evicted %d, %d nodes in memory",
+                node.getActivitySimpleName(),
+                neighbourhood.size(),
+                nodesToLoad.size(),
+                evicted,
+                loadedNodes.size()));
+
+        return nodesToLoad;
+    }
+
+    /**
+     * Perform a breadth-first search over the successors of the provided node
+     *
+     * @param node The node at the center of the neighbourhood
+     * @return All nodes within {@link #neighbourhoodDepth} hops from the node, including itself
+     */
+    @NotNull
+    private Set<ActivityNode> getNeighbourhood(@NotNull ActivityNode node) {
+        Set<ActivityNode> neighbourhood = new HashSet<>();
+        Queue<ActivityNode> queue = new LinkedList<>();
+        neighbourhood.add(node);
+        queue.add(node);
+
+        for (int depth = 0; depth < neighbourhoodDepth && !queue.isEmpty(); depth++) {
+            for (int i = queue.size(); i > 0; i--) {
+                for (ActivityNode successor : queue.remove().successors.keySet()) {
+                    if (neighbourhood.add(successor)) queue.add(successor);
+                }
+            }
+        }
+
+        return neighbourhood;
+    }
+}
@@ -3,12 +3,15 @@ package nl.vu.cs.s2group.nappa.graph;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.MainThread;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -16,6 +19,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import nl.vu.cs.s2group.nappa.Nappa;
 import nl.vu.cs.s2group.nappa.prefetchurl.ParameteredUrl;
@@ -25,6 +30,9 @@ import nl.vu.cs.s2group.nappa.room.dao.SessionDao;
 import nl.vu.cs.s2group.nappa.room.dao.UrlCandidateDao;
 import nl.vu.cs.s2group.nappa.room.data.ActivityExtraData;
 import nl.vu.cs.s2group.nappa.room.data.SessionData;
+import nl.vu.cs.s2group.nappa.util.ContextBucket;
+import nl.vu.cs.s2group.nappa.util.ContextCounter;
+import nl.vu.cs.s2group.nappa.util.DecayingCounter;
 
 public class ActivityNode {
     private static final String LOG_TAG = ActivityNode.class.getSimpleName();
@@ -41,7 +49,23 @@ public class ActivityNode {
 
     public Map<ActivityNode, Integer> successors = new ConcurrentHashMap<>();
     public Map<ActivityNode, Integer> ancestors = new ConcurrentHashMap<>();
+    /**
+     * The exponentially decayed visit frequency and visit time of the edges to each successor.
+     * In contrast to {@link #successors}, these counters adapt to recent navigation patterns.
+     */
+    public ConcurrentMap<ActivityNode, DecayingCounter> decayedFrequency = new ConcurrentHashMap<>();
+    public ConcurrentMap<ActivityNode, DecayingCounter> decayedVisitTime = new ConcurrentHashMap<>();
+    /**
+     * The visit frequency of the edges to each successor partitioned by the context bucket
+     * (band of the day and type of the day) the transition took place in.
+     */
+    public ConcurrentMap<ActivityNode, ContextCounter> contextFrequency = new ConcurrentHashMap<>();
     private LiveData<List<SessionDao.SessionAggregate>> listSessionAggregateLiveData;
+    /**
+     * The session aggregates loaded when bootstrapping the graph. Used until the
+     * {@link #listSessionAggregateLiveData} emits its first value.
+     */
+    private List<SessionDao.SessionAggregate> sessionAggregateList;
     public Map<String, ParameteredUrl> parameteredUrlMap = new HashMap<>();
     public List<ParameteredUrl> parameteredUrlList = new LinkedList<>();            // A list of all parametered URLs within the activity
     public LiveData<List<UrlCandidateDao.UrlCandidateToUrlParameter>> urlCandidateDbLiveData;
@@ -51,6 +75,30 @@ public class ActivityNode {
     AggregateVisitTimeByActivity aggregateVisitTime;
     LiveData<List<AggregateVisitTimeByActivity>> successorVisitTimeLiveData;
     List<AggregateVisitTimeByActivity> successorVisitTimeList;
+    /**
+     * The observers registered in the LiveData objects of this node. Kept to allow releasing
+     * the LiveData objects when the node is evicted from a lazily loaded graph.
+     */
+    private final Map<LiveData<?>, Observer<?>> liveDataObservers = new HashMap<>();
+    /**
+     * The graph this node belongs to and the position of the node in this graph. Both are
+     * set when the node is added to the graph and used to maintain the ancestor closure.
+     */
+    ActivityGraph graph;
+    int index = -1;
+    /**
+     * The cached transitive closure of the {@link #ancestors} of this node, as a bitset of
+     * node indexes and as a list. Valid while the graph structure version equals
+     * {@link #ancestorClosureVersion}. See {@link ActivityGraph#getAncestors(ActivityNode)}.
+     */
+    BitSet ancestorClosure;
+    List<ActivityNode> ancestorClosureList;
+    long ancestorClosureVersion = -1;
+    /**
+     * Incremented whenever the statistics used to rank the successors of this node change,
+     * i.e., the edge counts, the decayed edge counters or the visit times of the successors
+     */
+    private final AtomicLong statisticsVersion = new AtomicLong();
 
     /**
      * Initializes the current activity node by creating an object of the activity.
@@ -115,10 +163,22 @@ public class ActivityNode {
 
     public List<SessionDao.SessionAggregate> getSessionAggregateList() {
         if (listSessionAggregateLiveData == null || listSessionAggregateLiveData.getValue() == null)
-            return new ArrayList<>();
+            return sessionAggregateList == null ? new ArrayList<>() : sessionAggregateList;
         return listSessionAggregateLiveData.getValue();
     }
 
+    /**
+     * Set the session aggregates fetched when bootstrapping the graph. These aggregates are
+     * returned by {@link #getSessionAggregateList()} while the LiveData object is not set or
+     * has not emitted any value yet.
+     *
+     * @param sessionAggregateList The count of (source -> destination) visits of this node
+     */
+    public void setSessionAggregateList(List<SessionDao.SessionAggregate> sessionAggregateList) {
+        this.sessionAggregateList = sessionAggregateList;
+        onStatisticsChanged();
+    }
+
     public LiveData<List<ActivityExtraData>> getListActivityExtraLiveData() {
         return listActivityExtraLiveData;
     }
@@ -138,7 +198,7 @@ public class ActivityNode {
     public void setAggregateVisitTimeLiveData(LiveData<AggregateVisitTimeByActivity> aggregateVisitTimeLiveData) {
         this.aggregateVisitTimeLiveData = aggregateVisitTimeLiveData;
 
-        this.aggregateVisitTimeLiveData.observeForever((newAggregateVisitTime) -> {
+        observeForever(this.aggregateVisitTimeLiveData, (newAggregateVisitTime) -> {
             if (newAggregateVisitTime == null || newAggregateVisitTime.activityName == null) {
                 Log.d(LOG_TAG, "Observer - visit time - " +
                         getActivitySimpleName() +
@@ -146,12 +206,14 @@ public class ActivityNode {
                 aggregateVisitTime = new AggregateVisitTimeByActivity();
                 aggregateVisitTime.totalDuration = 0;
                 aggregateVisitTime.activityName = activityName;
+                onAncestorsStatisticsChanged();
                 return;
             }
 
             if (newAggregateVisitTime.equals(aggregateVisitTime)) return;
 
             aggregateVisitTime = newAggregateVisitTime;
+            onAncestorsStatisticsChanged();
             Log.d(LOG_TAG, "Observer - visit time - " +
                     getActivitySimpleName() +
                     " - New aggregate visit time found is " +
@@ -168,9 +230,10 @@ public class ActivityNode {
      */
     public void setSuccessorsAggregateVisitTimeLiveData(LiveData<List<AggregateVisitTimeByActivity>> successorVisitTimeLiveData) {
         this.successorVisitTimeLiveData = successorVisitTimeLiveData;
-        this.successorVisitTimeLiveData.observeForever((newSuccessorVisitTime) -> {
+        observeForever(this.successorVisitTimeLiveData, (newSuccessorVisitTime) -> {
             if (newSuccessorVisitTime == null || newSuccessorVisitTime.size() == 0) return;
             successorVisitTimeList = newSuccessorVisitTime;
+            onStatisticsChanged();
             Log.d(LOG_TAG, "Observer - successor visit time - " +
                     getActivitySimpleName() +
                     " - Updating the visit time from the successors list:\n" +
@@ -190,7 +253,7 @@ public class ActivityNode {
 
         // This observable updates an activity's list of parametered URLS whenever there is a change in
         // the list of URL Candidates in the database
-        this.urlCandidateDbLiveData.observeForever(parameterList -> {
+        observeForever(this.urlCandidateDbLiveData, parameterList -> {
             // From the UPDATED set of candidate candidates, build a list containing the parameters for all URLS
             if (parameterList == null) return;
             this.parameteredUrlList = UrlCandidateDao.UrlCandidateToUrlParameter.getParameteredUrlList(parameterList);
@@ -210,8 +273,9 @@ public class ActivityNode {
      */
     public void setListSessionAggregateLiveData(LiveData<List<SessionDao.SessionAggregate>> listSessionAggregateLiveData) {
         this.listSessionAggregateLiveData = listSessionAggregateLiveData;
-        this.listSessionAggregateLiveData.observeForever((list) -> {
+        observeForever(this.listSessionAggregateLiveData, (list) -> {
             if (list == null) return;
+            onStatisticsChanged();
             StringBuilder message = new StringBuilder();
 
             message.append("Observer - session data - source")
@@ -240,7 +304,7 @@ public class ActivityNode {
      */
     public void setListActivityExtraLiveData(LiveData<List<ActivityExtraData>> listActivityExtraLiveData) {
         this.listActivityExtraLiveData = listActivityExtraLiveData;
-        this.listActivityExtraLiveData.observeForever((list) -> {
+        observeForever(this.listActivityExtraLiveData, (list) -> {
             if (list == null) return;
             StringBuilder message = new StringBuilder();
 
@@ -261,6 +325,40 @@ public class ActivityNode {
         });
     }
 
+    /**
+     * Attach an observer to the {@link LiveData} object and keep track of it to allow
+     * releasing the object with {@link #releaseLiveData()}
+     */
+    private <T> void observeForever(@NotNull LiveData<T> liveData, @NotNull Observer<T> observer) {
+        liveDataObservers.put(liveData, observer);
+        liveData.observeForever(observer);
+    }
+
+    /**
+     * Remove the observers of all {@link LiveData} objects of this node and drop the data
+     * loaded from them. The node structure (i.e., its successors, ancestors and LAR scores)
+     * is kept. The data is loaded again by registering new LiveData objects, since all
+     * {@code shouldSet*} methods return {@code True} after invoking this method.
+     */
+    @MainThread
+    @SuppressWarnings("unchecked")
+    public void releaseLiveData() {
+        for (Map.Entry<LiveData<?>, Observer<?>> entry : liveDataObservers.entrySet()) {
+            ((LiveData<Object>) entry.getKey()).removeObserver((Observer<Object>) entry.getValue());
+        }
+        liveDataObservers.clear();
+
+        listSessionAggregateLiveData = null;
+        sessionAggregateList = null;
+        urlCandidateDbLiveData = null;
+        parameteredUrlList = new LinkedList<>();
+        listActivityExtraLiveData = null;
+        aggregateVisitTimeLiveData = null;
+        aggregateVisitTime = null;
+        successorVisitTimeLiveData = null;
+        successorVisitTimeList = null;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj instanceof ActivityNode
@@ -340,6 +438,7 @@ public class ActivityNode {
         //TODO fix here
         successors.put(activityNode, 0);
         activityNode.ancestors.put(this, 0);
+        onEdgeAdded();
         // Store the relation between source-destination in the database with a count of 0
         Nappa.addSessionData(activityName, activityNode.activityName, 0L);
     }
@@ -365,9 +464,12 @@ public class ActivityNode {
             if (!successors.containsKey(activityNode) && !ancestors.containsKey(activityNode)) {
                 successors.put(activityNode, 1);
                 activityNode.ancestors.put(this, 1);
+                onEdgeAdded();
                 //CREATE NEW SESSIONDATA - THIS IS THE FIRST TIME
                 Log.d(LOG_TAG, "ACTNODE " + "CREATING, NOT IN DB");
                 Nappa.addSessionData(activityName, activityNode.activityName, 1L);
+                recordDecayedTransition(activityNode);
+                recordContextTransition(activityNode);
                 return true;
             }
             // CASE 2: Activity has already been registered as a successor, thus update the number
@@ -375,9 +477,12 @@ public class ActivityNode {
             //  RETURN: TRUE (Prefetch)
             else if (successors.containsKey(activityNode) /*&& !ancestors.containsKey(activityNode)*/) {
                 successors.put(activityNode, successors.get(activityNode) + 1);
+                onStatisticsChanged();
                 //UPDATE SESSIONDATA - THE SESSIONDATA ALREADY EXISTS
                 Log.d(LOG_TAG, "ACTNODE " + "UPDATING AFTER LOADING FROM DB");
                 Nappa.updateSessionData(activityName, activityNode.activityName, successors.get(activityNode).longValue());
+                recordDecayedTransition(activityNode);
+                recordContextTransition(activityNode);
                 return true;
             }
             // CASE 3: Activity is moving from successor to ancestor, thus do not prefetch
@@ -391,7 +496,127 @@ public class ActivityNode {
     }
 
     /**
-     * Recursively traverse through the list of parents until all parents are identified
+     * Increments the decayed visit frequency of the edge to the provided successor and
+     * persists the edge counters. The other edges of this node that decayed below the prune
+     * threshold are dropped.
+     *
+     * @param successor The successor the user navigated to
+     */
+    private void recordDecayedTransition(@NotNull ActivityNode successor) {
+        if (graph == null || !graph.isEdgeDecayEnabled()) return;
+        long now = System.currentTimeMillis();
+        getDecayingCounter(decayedFrequency, successor).add(1, now);
+        onStatisticsChanged();
+        Nappa.saveDecayedEdge(this, successor);
+        Nappa.deleteDecayedEdges(this, pruneDecayedEdges(graph.getDecayPruneThreshold(), now));
+    }
+
+    /**
+     * Increments the visit frequency of the edge to the provided successor in the current
+     * context bucket and persists the bucket count
+     *
+     * @param successor The successor the user navigated to
+     */
+    private void recordContextTransition(@NotNull ActivityNode successor) {
+        if (graph == null) return;
+        ContextCounter counter = contextFrequency.get(successor);
+        if (counter == null) {
+            counter = new ContextCounter();
+            ContextCounter existingCounter = contextFrequency.putIfAbsent(successor, counter);
+            if (existingCounter != null) counter = existingCounter;
+        }
+        int bucket = ContextBucket.of(System.currentTimeMillis());
+        Nappa.saveContextEdge(this, successor, bucket, counter.increment(bucket));
+    }
+
+    /**
+     * Adds the time spent in the provided successor to the decayed visit time of the edge
+     * to this successor and persists the edge counters
+     *
+     * @param successor The successor the user visited
+     * @param duration  The visit duration in milliseconds
+     */
+    public void recordDecayedVisitTime(@NotNull ActivityNode successor, long duration) {
+        if (graph == null || !graph.isEdgeDecayEnabled()) return;
+        getDecayingCounter(decayedVisitTime, successor).add(duration, System.currentTimeMillis());
+        onStatisticsChanged();
+        Nappa.saveDecayedEdge(this, successor);
+    }
+
+    /**
+     * Drops the decayed counters of the edges leaving this node whose decayed visit frequency
+     * fell below the provided threshold
+     *
+     * @param pruneThreshold The decayed visit frequency under which an edge is pruned
+     * @param now            The current timestamp in milliseconds
+     * @return The successors whose edge was pruned
+     */
+    @NotNull
+    List<ActivityNode> pruneDecayedEdges(float pruneThreshold, long now) {
+        List<ActivityNode> prunedSuccessors = new ArrayList<>();
+        for (Map.Entry<ActivityNode, DecayingCounter> entry : decayedFrequency.entrySet()) {
+            if (entry.getValue().get(now) >= pruneThreshold) continue;
+            if (!decayedFrequency.remove(entry.getKey(), entry.getValue())) continue;
+            decayedVisitTime.remove(entry.getKey());
+            prunedSuccessors.add(entry.getKey());
+        }
+        if (!prunedSuccessors.isEmpty()) onStatisticsChanged();
+        return prunedSuccessors;
+    }
+
+    @NotNull
+    private DecayingCounter getDecayingCounter(@NotNull ConcurrentMap<ActivityNode, DecayingCounter> counters,
+                                               @NotNull ActivityNode successor) {
+        DecayingCounter counter = counters.get(successor);
+        if (counter != null) return counter;
+        counter = new DecayingCounter(graph.getDecayHalfLife(), 0, System.currentTimeMillis());
+        DecayingCounter existingCounter = counters.putIfAbsent(successor, counter);
+        return existingCounter == null ? counter : existingCounter;
+    }
+
+    /**
+     * Invalidates the ancestor closures cached in the graph after adding an edge
+     */
+    private void onEdgeAdded() {
+        if (graph != null) graph.incrementStructureVersion();
+        onStatisticsChanged();
+    }
+
+    /**
+     * @return The position of this node in its graph or -1 if the node is not part of a graph
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The version of the statistics used to rank the successors of this node
+     */
+    public long getStatisticsVersion() {
+        return statisticsVersion.get();
+    }
+
+    /**
+     * Invalidates the successor ranking of this node and notifies the graph listeners
+     */
+    private void onStatisticsChanged() {
+        statisticsVersion.incrementAndGet();
+        if (graph != null) graph.onNodeStatisticsChanged(this);
+    }
+
+    /**
+     * Invalidates the successor ranking of the ancestors of this node, which depends on the
+     * visit time of this node
+     */
+    private void onAncestorsStatisticsChanged() {
+        for (ActivityNode ancestor : ancestors.keySet()) {
+            ancestor.onStatisticsChanged();
+        }
+    }
+
+    /**
+     * Recursively traverse through the list of parents until all parents are identified.
+     * Prefer {@link ActivityGraph#getAncestors(ActivityNode)}, which caches the result.
      *
      * @param node    The node for which the parents will be identified
      * @param parents The list of parents to be returned
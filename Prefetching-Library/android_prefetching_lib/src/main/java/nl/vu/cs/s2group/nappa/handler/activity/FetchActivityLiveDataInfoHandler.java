@@ -2,6 +2,8 @@ package nl.vu.cs.s2group.nappa.handler.activity;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+
 import nl.vu.cs.s2group.nappa.Nappa;
 import nl.vu.cs.s2group.nappa.graph.ActivityNode;
 import nl.vu.cs.s2group.nappa.handler.SessionBasedSelectQueryType;
@@ -54,4 +56,50 @@ public class FetchActivityLiveDataInfoHandler {
         if (activity.shouldSetActivityExtraLiveData())
             NappaThreadPool.submit(new FetchIntentExtraRunnable(activity));
     }
+
+    /**
+     * Register the LiveData objects of all provided activities. Instead of submitting up to
+     * five tasks per activity to the thread pool and waiting for each of them, all runnable
+     * classes are invoked in a single worker task. The caller does not wait for this task,
+     * the LiveData objects are set in the activities once fetched.
+     *
+     * @param activities The activities to register the LiveData objects
+     * @param strategy   The strategy selected for this session
+     */
+    public static void run(@NotNull Collection<ActivityNode> activities, @NotNull PrefetchingStrategy strategy) {
+        NappaThreadPool.execute(() -> runInCurrentThread(activities, strategy));
+    }
+
+    /**
+     * Register the LiveData objects of all provided activities in the current thread. Must
+     * be used instead of {@link #run(Collection, PrefetchingStrategy)} by the runnable
+     * classes already running in the thread pool, since waiting for a task submitted to the
+     * same pool can exhaust its threads.
+     *
+     * @param activities The activities to register the LiveData objects
+     * @param strategy   The strategy selected for this session
+     */
+    public static void runInCurrentThread(@NotNull Collection<ActivityNode> activities, @NotNull PrefetchingStrategy strategy) {
+        SessionBasedSelectQueryType queryType = NappaConfigMap.getSessionBasedSelectQueryType();
+        int lastNSessions = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.LAST_N_SESSIONS,
+                AbstractPrefetchingStrategy.DEFAULT_LAST_N_SESSIONS);
+
+        for (ActivityNode activity : activities) {
+            if (activity.shouldSetSessionAggregateLiveData())
+                new FetchSessionDataRunnable(activity, queryType, lastNSessions).run();
+
+            if (strategy.needVisitTime() && activity.shouldSetAggregateVisitTime())
+                new FetchVisitTimeRunnable(activity, queryType, lastNSessions).run();
+
+            if (strategy.needSuccessorsVisitTime() && activity.shouldSetSuccessorVisitTime())
+                new FetchSuccessorsVisitTimeRunnable(activity, queryType, lastNSessions).run();
+
+            if (activity.shouldSetUrlCandidateDbLiveDataLiveData())
+                new FetchUrlCandidateRunnable(activity).run();
+
+            if (activity.shouldSetActivityExtraLiveData())
+                new FetchIntentExtraRunnable(activity).run();
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package nl.vu.cs.s2group.nappa.handler.extra;
+
+import nl.vu.cs.s2group.nappa.prefetch.ParameterValueModel;
+import nl.vu.cs.s2group.nappa.util.NappaThreadPool;
+
+/**
+ * Defines a Handler to load the distribution of the extra values sent by each activity from
+ * the database. The model is loaded without blocking the caller, since its predictions are
+ * only an addition to the predictions of the strategy.
+ */
+public class InitParameterValueModelHandler {
+
+    /**
+     * Execute the handler
+     *
+     * @param model The model to load
+     */
+    public static void run(ParameterValueModel model) {
+        NappaThreadPool.execute(new InitParameterValueModelRunnable(model));
+    }
+}
@@ -0,0 +1,21 @@
+package nl.vu.cs.s2group.nappa.handler.extra;
+
+import nl.vu.cs.s2group.nappa.prefetch.ParameterValueModel;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+
+/**
+ * Defines a Runnable to load the number of times each activity sent each value of each
+ * extra into the parameter value model.
+ */
+public class InitParameterValueModelRunnable implements Runnable {
+    ParameterValueModel model;
+
+    public InitParameterValueModelRunnable(ParameterValueModel model) {
+        this.model = model;
+    }
+
+    @Override
+    public void run() {
+        model.load(NappaDB.getInstance().activityExtraDao().getExtraValueCounts());
+    }
+}
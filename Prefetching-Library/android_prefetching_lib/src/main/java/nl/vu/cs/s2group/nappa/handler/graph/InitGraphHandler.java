@@ -1,5 +1,6 @@
 package nl.vu.cs.s2group.nappa.handler.graph;
 
+import java.io.File;
 import java.util.List;
 import java9.util.function.Consumer;
 
@@ -16,12 +17,15 @@ public class InitGraphHandler {
      * Execute the handler
      *
      * @param strategy                    The strategy selected for this session
+     * @param snapshotFile                The graph snapshot file or {@code null} to always
+     *                                    initialize the graph from the database
      * @param callbackOnFetchedActivities A callback with a list of known activities
      * @param callbackOnInitializedGraph  A callback with the initialized graph
      */
     public static void run(PrefetchingStrategy strategy,
+                           File snapshotFile,
                            Consumer<List<ActivityData>> callbackOnFetchedActivities,
                            Consumer<ActivityGraph> callbackOnInitializedGraph) {
-        NappaThreadPool.submit(new InitGraphRunnable(strategy, callbackOnFetchedActivities, callbackOnInitializedGraph));
+        NappaThreadPool.submit(new InitGraphRunnable(strategy, snapshotFile, callbackOnFetchedActivities, callbackOnInitializedGraph));
     }
 }
@@ -2,55 +2,136 @@ package nl.vu.cs.s2group.nappa.handler.graph;
 
 import android.util.Log;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java9.util.function.Consumer;
 
 import nl.vu.cs.s2group.nappa.graph.ActivityGraph;
-import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.graph.ActivityNeighbourhoodCache;
+import nl.vu.cs.s2group.nappa.graph.ActivityGraphSnapshot;
 import nl.vu.cs.s2group.nappa.handler.activity.FetchActivityLiveDataInfoHandler;
+import nl.vu.cs.s2group.nappa.prefetch.AbstractPrefetchingStrategy;
 import nl.vu.cs.s2group.nappa.prefetch.PrefetchingStrategy;
+import nl.vu.cs.s2group.nappa.prefetch.PrefetchingStrategyConfigKeys;
 import nl.vu.cs.s2group.nappa.room.ActivityData;
 import nl.vu.cs.s2group.nappa.room.NappaDB;
+import nl.vu.cs.s2group.nappa.room.dao.GraphSnapshotDao;
+import nl.vu.cs.s2group.nappa.room.data.DecayedEdgeData;
+import nl.vu.cs.s2group.nappa.util.DecayingCounter;
+import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
 
 /**
- * Defines a Runnable to initialize the ENG graph. This runnable fetches all known
- * activities registered in the database, inserts a {@link ActivityNode} in the
- * {@link ActivityGraph} for each fetched activity and invokes the handler {@link
+ * Defines a Runnable to initialize the ENG graph. This runnable loads all known activities
+ * together with their LAR scores, edge counts and URL candidate parts, builds the whole
+ * {@link ActivityGraph} in memory and invokes the handler {@link
  * FetchActivityLiveDataInfoHandler} to register LiveData objects.
  * <p>
+ * If the lazy loading mode is enabled, only the graph structure is built and the LiveData
+ * objects are registered on demand, see {@link ActivityNeighbourhoodCache}.
+ * <p>
+ * The data is read from the {@link ActivityGraphSnapshot} file when it is up to date with
+ * the database. Otherwise, the data is fetched from the database using a handful of
+ * set-based queries.
+ * <p>
  * If successful, the list of fetches activities and the initialized graph are returned
  * via callbacks.
  */
 public class InitGraphRunnable implements Runnable {
     private static final String LOG_TAG  = InitGraphRunnable.class.getSimpleName();
     PrefetchingStrategy strategy;
+    File snapshotFile;
     Consumer<List<ActivityData>> callbackOnFetchedActivities;
     Consumer<ActivityGraph> callbackOnInitializedGraph;
 
     public InitGraphRunnable(PrefetchingStrategy strategy,
+                             File snapshotFile,
                              Consumer<List<ActivityData>> callbackOnFetchedActivities,
                              Consumer<ActivityGraph> callbackOnInitializedGraph) {
         this.strategy = strategy;
+        this.snapshotFile = snapshotFile;
         this.callbackOnFetchedActivities = callbackOnFetchedActivities;
         this.callbackOnInitializedGraph = callbackOnInitializedGraph;
     }
 
     @Override
     public void run() {
-        List<ActivityData> activities = NappaDB.getInstance()
-                .activityDao()
-                .getListActivity();
+        long startTime = System.currentTimeMillis();
+        NappaDB db = NappaDB.getInstance();
+        int lastNSessions = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.LAST_N_SESSIONS,
+                AbstractPrefetchingStrategy.DEFAULT_LAST_N_SESSIONS);
+
+        String source;
+        ActivityGraphSnapshot snapshot = null;
+        try {
+            snapshot = snapshotFile == null ? null : ActivityGraphSnapshot.read(snapshotFile);
+            source = snapshot == null ? "database (snapshot missing)" : "snapshot";
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Failed to read the graph snapshot: " + e.getMessage());
+            source = "database (snapshot unreadable)";
+        }
 
-        callbackOnFetchedActivities.accept(activities);
+        if (snapshot != null) {
+            GraphSnapshotDao.GraphFingerprint fingerprint = db.graphSnapshotDao().getFingerprint();
+            if (!snapshot.isUpToDate(fingerprint, lastNSessions)) {
+                snapshot = null;
+                source = "database (snapshot out of date)";
+            }
+        }
+
+        if (snapshot == null) snapshot = ActivityGraphSnapshot.fromDatabase(db, lastNSessions);
+        long loadTime = System.currentTimeMillis();
+
+        callbackOnFetchedActivities.accept(snapshot.activities);
 
         ActivityGraph graph = new ActivityGraph();
-        for (ActivityData activity : activities) {
-            ActivityNode node = graph.initNode(activity);
-            FetchActivityLiveDataInfoHandler.run(node, strategy);
+        boolean lazyLoading = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.LAZY_GRAPH_LOADING,
+                ActivityNeighbourhoodCache.DEFAULT_LAZY_GRAPH_LOADING);
+        if (lazyLoading) {
+            graph.enableLazyLoading(
+                    NappaConfigMap.get(PrefetchingStrategyConfigKeys.LAZY_GRAPH_NEIGHBOURHOOD_DEPTH,
+                            ActivityNeighbourhoodCache.DEFAULT_NEIGHBOURHOOD_DEPTH),
+                    NappaConfigMap.get(PrefetchingStrategyConfigKeys.LAZY_GRAPH_MAX_LOADED_NODES,
+                            ActivityNeighbourhoodCache.DEFAULT_MAX_LOADED_NODES));
+            snapshot.initGraphStructure(graph);
+        } else snapshot.initGraph(graph);
+        // The decayed counters are only maintained when the strategies use them
+        if (NappaConfigMap.get(PrefetchingStrategyConfigKeys.USE_DECAYED_WEIGHTS,
+                AbstractPrefetchingStrategy.DEFAULT_USE_DECAYED_WEIGHTS)) {
+            graph.setEdgeDecay(
+                    DecayingCounter.halfLifeFromHours(NappaConfigMap.get(
+                            PrefetchingStrategyConfigKeys.DECAY_HALF_LIFE_HOURS,
+                            DecayingCounter.DEFAULT_HALF_LIFE_HOURS)),
+                    NappaConfigMap.get(
+                            PrefetchingStrategyConfigKeys.DECAY_PRUNE_THRESHOLD,
+                            DecayingCounter.DEFAULT_PRUNE_THRESHOLD));
+            List<DecayedEdgeData> prunedEdges = graph.initDecayedEdges(db.decayedEdgeDao().getAll(), System.currentTimeMillis());
+            if (!prunedEdges.isEmpty()) db.decayedEdgeDao().delete(prunedEdges);
+            long now = System.currentTimeMillis();
+            List<DecayedEdgeData> seededEdges = graph.seedDecayedEdges(
+                    db.activityVisitTimeDao().getVisitsOfEdgesWithoutDecayedCounters(graph.getDecaySeedingStart(now)), now);
+            if (!seededEdges.isEmpty()) db.decayedEdgeDao().insertOrUpdate(seededEdges);
         }
+        graph.initContextEdges(db.contextEdgeDao().getAll());
+        long buildTime = System.currentTimeMillis();
+
+        // In lazy loading mode, the nodes data is loaded when navigating to the nodes neighbourhood
+        // This runnable already runs in the thread pool, thus the LiveData objects are registered inline
+        if (!lazyLoading) FetchActivityLiveDataInfoHandler.runInCurrentThread(graph.getNodeList(), strategy);
+        strategy.onGraphInitialized(graph);
 
         callbackOnInitializedGraph.accept(graph);
 
+        Log.d(LOG_TAG, String.format("Bootstrapped %sgraph from %s with %d nodes and %d edges in %d ms (load %d ms, build %d ms)",
+                lazyLoading ? "lazily loaded " : "",
+                source,
+                snapshot.activities.size(),
+                snapshot.edges.size(),
+                System.currentTimeMillis() - startTime,
+                loadTime - startTime,
+                buildTime - loadTime));
         Log.d(LOG_TAG, "Initialised graph " + graph.toString());
     }
 }
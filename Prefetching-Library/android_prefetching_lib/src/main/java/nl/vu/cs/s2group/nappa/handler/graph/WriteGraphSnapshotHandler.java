@@ -0,0 +1,22 @@
+package nl.vu.cs.s2group.nappa.handler.graph;
+
+import java.io.File;
+
+import nl.vu.cs.s2group.nappa.util.NappaThreadPool;
+
+/**
+ * Defines a Handler to write a snapshot of the ENG to the file system. The snapshot is
+ * written without blocking the caller, since this handler is invoked when the application
+ * goes to the background.
+ */
+public class WriteGraphSnapshotHandler {
+
+    /**
+     * Execute the handler
+     *
+     * @param snapshotFile The file to write the snapshot to
+     */
+    public static void run(File snapshotFile) {
+        NappaThreadPool.execute(new WriteGraphSnapshotRunnable(snapshotFile));
+    }
+}
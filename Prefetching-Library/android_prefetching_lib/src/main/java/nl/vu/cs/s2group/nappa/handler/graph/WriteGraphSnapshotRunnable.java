@@ -0,0 +1,48 @@
+package nl.vu.cs.s2group.nappa.handler.graph;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityGraphSnapshot;
+import nl.vu.cs.s2group.nappa.prefetch.AbstractPrefetchingStrategy;
+import nl.vu.cs.s2group.nappa.prefetch.PrefetchingStrategyConfigKeys;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+import nl.vu.cs.s2group.nappa.room.dao.GraphSnapshotDao;
+import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
+
+/**
+ * Defines a Runnable to write a snapshot of the ENG data to the file system. The snapshot is
+ * only written if the existing snapshot does not represent the current state of the database.
+ */
+public class WriteGraphSnapshotRunnable implements Runnable {
+    private static final String LOG_TAG = WriteGraphSnapshotRunnable.class.getSimpleName();
+    File snapshotFile;
+
+    public WriteGraphSnapshotRunnable(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    @Override
+    public void run() {
+        long startTime = System.currentTimeMillis();
+        NappaDB db = NappaDB.getInstance();
+        int lastNSessions = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.LAST_N_SESSIONS,
+                AbstractPrefetchingStrategy.DEFAULT_LAST_N_SESSIONS);
+
+        GraphSnapshotDao.GraphFingerprint fingerprint = db.graphSnapshotDao().getFingerprint();
+        if (ActivityGraphSnapshot.isUpToDate(snapshotFile, fingerprint, lastNSessions)) {
+            Log.d(LOG_TAG, "Graph snapshot is up to date");
+            return;
+        }
+
+        try {
+            ActivityGraphSnapshot.fromDatabase(db, lastNSessions).write(snapshotFile);
+            Log.d(LOG_TAG, "Graph snapshot written in " + (System.currentTimeMillis() - startTime) + " ms");
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Failed to write the graph snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package nl.vu.cs.s2group.nappa.handler.session;
+
+import java.util.List;
+
+import java9.util.function.Consumer;
+import nl.vu.cs.s2group.nappa.prefetch.LaunchPredictor;
+import nl.vu.cs.s2group.nappa.prefetch.ScoredCandidate;
+import nl.vu.cs.s2group.nappa.util.NappaThreadPool;
+
+/**
+ * Defines a Handler to predict the URLs requested at the launch of the application from the
+ * launches of the latest sessions. The prediction runs without blocking the caller, such that
+ * the URLs are prefetched concurrently with the initialization of the application.
+ */
+public class PredictLaunchHandler {
+
+    /**
+     * Execute the handler
+     *
+     * @param predictor The predictor to load
+     * @param callback  Receives the predicted URLs by decreasing probability
+     */
+    public static void run(LaunchPredictor predictor, Consumer<List<ScoredCandidate>> callback) {
+        NappaThreadPool.execute(new PredictLaunchRunnable(predictor, callback));
+    }
+}
@@ -0,0 +1,30 @@
+package nl.vu.cs.s2group.nappa.handler.session;
+
+import java.util.List;
+
+import java9.util.function.Consumer;
+import nl.vu.cs.s2group.nappa.prefetch.LaunchPredictor;
+import nl.vu.cs.s2group.nappa.prefetch.ScoredCandidate;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+
+/**
+ * Defines a Runnable to load the first visits and the launch requests of the latest sessions
+ * into the launch predictor. The predicted URLs are returned via the callback.
+ */
+public class PredictLaunchRunnable implements Runnable {
+    LaunchPredictor predictor;
+    Consumer<List<ScoredCandidate>> callback;
+
+    public PredictLaunchRunnable(LaunchPredictor predictor, Consumer<List<ScoredCandidate>> callback) {
+        this.predictor = predictor;
+        this.callback = callback;
+    }
+
+    @Override
+    public void run() {
+        NappaDB db = NappaDB.getInstance();
+        callback.accept(predictor.predict(
+                db.activityVisitTimeDao().getSessionStarts(LaunchPredictor.MAX_SESSIONS),
+                db.urlDao().getLaunchRequests(LaunchPredictor.MAX_SESSIONS, LaunchPredictor.LAUNCH_WINDOW)));
+    }
+}
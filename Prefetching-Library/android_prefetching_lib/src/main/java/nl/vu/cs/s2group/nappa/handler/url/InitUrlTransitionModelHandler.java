@@ -0,0 +1,21 @@
+package nl.vu.cs.s2group.nappa.handler.url;
+
+import nl.vu.cs.s2group.nappa.prefetch.UrlTransitionModel;
+import nl.vu.cs.s2group.nappa.util.NappaThreadPool;
+
+/**
+ * Defines a Handler to load the URL transition model from the latest requests in the
+ * database. The model is loaded without blocking the caller, since its predictions are only
+ * an addition to the predictions of the strategy.
+ */
+public class InitUrlTransitionModelHandler {
+
+    /**
+     * Execute the handler
+     *
+     * @param model The model to load
+     */
+    public static void run(UrlTransitionModel model) {
+        NappaThreadPool.execute(new InitUrlTransitionModelRunnable(model));
+    }
+}
@@ -0,0 +1,31 @@
+package nl.vu.cs.s2group.nappa.handler.url;
+
+import java.util.Collections;
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.prefetch.UrlTransitionModel;
+import nl.vu.cs.s2group.nappa.room.AggregateUrlDao;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+
+/**
+ * Defines a Runnable to load the URL transition model from the latest
+ * {@link UrlTransitionModel#MAX_LOADED_REQUESTS} requests issued by the application, ordered
+ * by the time they were issued. The prefetch requests issued by NAPPA are excluded, otherwise
+ * the model would learn its own predictions.
+ */
+public class InitUrlTransitionModelRunnable implements Runnable {
+    UrlTransitionModel model;
+
+    public InitUrlTransitionModelRunnable(UrlTransitionModel model) {
+        this.model = model;
+    }
+
+    @Override
+    public void run() {
+        List<AggregateUrlDao.UrlRequest> requests = NappaDB.getInstance()
+                .urlDao()
+                .getLatestRequests(UrlTransitionModel.MAX_LOADED_REQUESTS);
+        Collections.reverse(requests);
+        model.load(requests);
+    }
+}
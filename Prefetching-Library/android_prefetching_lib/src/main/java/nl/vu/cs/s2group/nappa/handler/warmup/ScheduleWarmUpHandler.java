@@ -0,0 +1,21 @@
+package nl.vu.cs.s2group.nappa.handler.warmup;
+
+import nl.vu.cs.s2group.nappa.util.NappaThreadPool;
+import nl.vu.cs.s2group.nappa.warmup.WarmUpScheduler;
+
+/**
+ * Defines a Handler to schedule the warm-up of the persistent HTTP cache before the next
+ * typical launch of the application, learned from the start of the latest sessions.
+ */
+public class ScheduleWarmUpHandler {
+
+    /**
+     * Execute the handler
+     *
+     * @param scheduler The scheduler to schedule the warm-up with
+     * @param maxKb     The maximum number of kilobytes the warm-up downloads
+     */
+    public static void run(WarmUpScheduler scheduler, int maxKb) {
+        NappaThreadPool.execute(new ScheduleWarmUpRunnable(scheduler, maxKb));
+    }
+}
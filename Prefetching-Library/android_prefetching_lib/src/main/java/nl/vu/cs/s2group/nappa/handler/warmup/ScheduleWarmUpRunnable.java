@@ -0,0 +1,35 @@
+package nl.vu.cs.s2group.nappa.handler.warmup;
+
+import android.util.Log;
+
+import java.util.TimeZone;
+
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+import nl.vu.cs.s2group.nappa.warmup.WarmUpPlanner;
+import nl.vu.cs.s2group.nappa.warmup.WarmUpScheduler;
+
+/**
+ * Defines a Runnable to find the next typical launch of the application and schedule the
+ * warm-up before it. Nothing is scheduled if the launches are not regular enough yet.
+ */
+public class ScheduleWarmUpRunnable implements Runnable {
+    private static final String LOG_TAG = ScheduleWarmUpRunnable.class.getSimpleName();
+
+    WarmUpScheduler scheduler;
+    int maxKb;
+
+    public ScheduleWarmUpRunnable(WarmUpScheduler scheduler, int maxKb) {
+        this.scheduler = scheduler;
+        this.maxKb = maxKb;
+    }
+
+    @Override
+    public void run() {
+        boolean scheduled = new WarmUpPlanner(TimeZone.getDefault()).scheduleWarmUp(
+                scheduler,
+                NappaDB.getInstance().sessionDao().getLatestSessionDates(WarmUpPlanner.MAX_SESSIONS),
+                System.currentTimeMillis(),
+                maxKb);
+        if (!scheduled) Log.d(LOG_TAG, "No typical launch window, the warm-up is not scheduled");
+    }
+}
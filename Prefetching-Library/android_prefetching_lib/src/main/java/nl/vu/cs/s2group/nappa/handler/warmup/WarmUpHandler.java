@@ -0,0 +1,27 @@
+package nl.vu.cs.s2group.nappa.handler.warmup;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import nl.vu.cs.s2group.nappa.util.NappaThreadPool;
+
+/**
+ * Defines a Handler to prefetch the URLs predicted for the next launch of the application
+ * into the persistent HTTP cache.
+ */
+public class WarmUpHandler {
+
+    /**
+     * Execute the handler
+     *
+     * @param cacheDir   The cache directory of the application
+     * @param maxKb      The maximum number of kilobytes to download
+     * @param launchTime The start of the launch slot the warm-up was scheduled for, or
+     *                   {@link nl.vu.cs.s2group.nappa.warmup.WarmUpPlanner#NONE} if unknown
+     * @param stopped    Set when the warm-up must stop
+     * @param callback   Invoked once the warm-up finishes
+     */
+    public static void run(File cacheDir, int maxKb, long launchTime, AtomicBoolean stopped, Runnable callback) {
+        NappaThreadPool.execute(new WarmUpRunnable(cacheDir, maxKb, launchTime, stopped, callback));
+    }
+}
@@ -0,0 +1,106 @@
+package nl.vu.cs.s2group.nappa.handler.warmup;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import nl.vu.cs.s2group.nappa.prefetch.LaunchPredictor;
+import nl.vu.cs.s2group.nappa.prefetch.ScoredCandidate;
+import nl.vu.cs.s2group.nappa.room.AggregateUrlDao;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+import nl.vu.cs.s2group.nappa.room.data.TemplateTtlData;
+import nl.vu.cs.s2group.nappa.util.NappaHttpCache;
+import nl.vu.cs.s2group.nappa.warmup.WarmUpPlanner;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Defines a Runnable to prefetch the URLs predicted for the next launch into the persistent
+ * HTTP cache, which the instrumented OkHttp client reads when the application is launched.
+ * The URLs are selected by the {@link WarmUpPlanner} for the launch slot the warm-up was
+ * scheduled for and downloaded until the byte budget is exhausted or the warm-up is stopped.
+ * Nothing is downloaded if the job ran after this slot ended.
+ */
+public class WarmUpRunnable implements Runnable {
+    private static final String LOG_TAG = WarmUpRunnable.class.getSimpleName();
+
+    File cacheDir;
+    int maxKb;
+    long launchTime;
+    AtomicBoolean stopped;
+    Runnable callback;
+
+    public WarmUpRunnable(File cacheDir, int maxKb, long launchTime, AtomicBoolean stopped, Runnable callback) {
+        this.cacheDir = cacheDir;
+        this.maxKb = maxKb;
+        this.launchTime = launchTime;
+        this.stopped = stopped;
+        this.callback = callback;
+    }
+
+    @Override
+    public void run() {
+        try {
+            warmUp();
+        } finally {
+            callback.run();
+        }
+    }
+
+    private void warmUp() {
+        NappaDB db = NappaDB.getInstance();
+        WarmUpPlanner planner = new WarmUpPlanner(TimeZone.getDefault());
+        long now = System.currentTimeMillis();
+        if (!planner.isInWarmUpWindow(launchTime, now)) {
+            Log.d(LOG_TAG, "The launch slot of the warm-up has ended, nothing is warmed up");
+            return;
+        }
+
+        List<ScoredCandidate> candidates = new LaunchPredictor(WarmUpPlanner.MAX_URLS).predict(
+                db.activityVisitTimeDao().getSessionStarts(LaunchPredictor.MAX_SESSIONS),
+                db.urlDao().getLaunchRequests(LaunchPredictor.MAX_SESSIONS, LaunchPredictor.LAUNCH_WINDOW));
+        if (candidates.isEmpty()) return;
+
+        Map<String, Long> sizes = new HashMap<>();
+        for (AggregateUrlDao.UrlStatistics statistics : db.urlDao().getUrlStatistics(ScoredCandidate.toUrls(candidates))) {
+            sizes.put(statistics.url, statistics.sizeAvg);
+        }
+        Map<String, Long> templateTtls = new HashMap<>();
+        for (TemplateTtlData data : db.templateTtlDao().getAll()) templateTtls.put(data.template, data.ttl);
+
+        long maxBytes = maxKb * 1024L;
+        List<String> urls = planner.selectUrls(candidates, sizes, templateTtls, now, launchTime, maxBytes);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .cache(NappaHttpCache.get(cacheDir))
+                .build();
+
+        long bytes = 0;
+        int warmedUrls = 0;
+        for (String url : urls) {
+            if (stopped.get() || bytes >= maxBytes) break;
+            try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+                ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) continue;
+                // The response is only written to the cache once its body is read
+                bytes += body.bytes().length;
+                warmedUrls++;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        Log.d(LOG_TAG, String.format("STATS Warm-up: %d of %d predicted URLs warmed up, %d bytes, launch expected in %d ms",
+                warmedUrls,
+                candidates.size(),
+                bytes,
+                launchTime - System.currentTimeMillis()));
+    }
+}
@@ -23,6 +23,7 @@ import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
  * <ul>
  *     <li> {@link PrefetchingStrategyConfigKeys#USE_ALL_SESSIONS_AS_SOURCE_FOR_LAST_N_SESSIONS} </li>
  *     <li> {@link PrefetchingStrategyConfigKeys#NUMBER_OF_ITERATIONS} </li>
+ *     <li> {@link PrefetchingStrategyConfigKeys#USE_DECAYED_WEIGHTS} </li>
  * </ul>
  */
 public abstract class AbstractPrefetchingStrategy implements PrefetchingStrategy {
@@ -32,6 +33,7 @@ public abstract class AbstractPrefetchingStrategy implements PrefetchingStrategy
     public static final int DEFAULT_MAX_URL_TO_PREFETCH = 2;
     public static final int DEFAULT_NUMBER_OF_ITERATIONS = 10;
     public static final boolean DEFAULT_USE_ALL_SESSIONS_AS_SOURCE_FOR_LAST_N_SESSIONS = true;
+    public static final boolean DEFAULT_USE_DECAYED_WEIGHTS = false;
 
     protected int maxNumberOfUrlToPrefetch;
     protected int lastNSessions;
@@ -39,6 +41,7 @@ public abstract class AbstractPrefetchingStrategy implements PrefetchingStrategy
     protected float scoreLowerThreshold;
     protected float dampingFactor;
     protected boolean useAllSessionsAsScoreForLastNSessions;
+    protected boolean useDecayedWeights;
 
     public AbstractPrefetchingStrategy() {
         maxNumberOfUrlToPrefetch = NappaConfigMap.get(
@@ -59,9 +62,15 @@ public abstract class AbstractPrefetchingStrategy implements PrefetchingStrategy
             throw new IllegalArgumentException("The number N of the N last sessions must be greater than 0 or -1. "
                     + lastNSessions + " provided.");
 
+        // The decision stage selects the URLs to prefetch, thus the strategies only filter out negligible candidates
+        boolean useExpectedUtilityDecision = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.USE_EXPECTED_UTILITY_DECISION,
+                PrefetchDecisionStage.DEFAULT_USE_EXPECTED_UTILITY_DECISION);
         scoreLowerThreshold = NappaConfigMap.get(
                 PrefetchingStrategyConfigKeys.LOWER_THRESHOLD_SCORE,
-                DEFAULT_SCORE_LOWER_THRESHOLD);
+                useExpectedUtilityDecision ?
+                        PrefetchDecisionStage.CANDIDATE_SCORE_LOWER_THRESHOLD :
+                        DEFAULT_SCORE_LOWER_THRESHOLD);
         if (scoreLowerThreshold < 0 || scoreLowerThreshold > 1)
             throw new IllegalArgumentException("The lower threshold score must be a number between 0 and 1. "
                     + scoreLowerThreshold + " provided.");
@@ -73,6 +82,10 @@ public abstract class AbstractPrefetchingStrategy implements PrefetchingStrategy
             throw new IllegalArgumentException("The number of iterations must be greater than 0. "
                     + numberOfIterations + " provided.");
 
+        useDecayedWeights = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.USE_DECAYED_WEIGHTS,
+                DEFAULT_USE_DECAYED_WEIGHTS);
+
         dampingFactor = NappaConfigMap.get(
                 PrefetchingStrategyConfigKeys.PAGE_RANK_DAMPING_FACTOR,
                 DEFAULT_DAMPING_FACTOR);
@@ -0,0 +1,250 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import nl.vu.cs.s2group.nappa.Nappa;
+import nl.vu.cs.s2group.nappa.graph.ActivityGraph;
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+import nl.vu.cs.s2group.nappa.room.data.StrategyArmData;
+import nl.vu.cs.s2group.nappa.util.NappaThreadPool;
+
+/**
+ * This meta-strategy selects, for each node, which prefetching strategy to run using a
+ * multi-armed bandit. Each arm is a prefetching strategy. The reward of an arm is whether the
+ * URLs it predicted were requested by the user (see {@link PrefetchOutcomeTracker}), such that
+ * the bandit learns which strategy has the highest realised precision in each activity.
+ * <p>
+ * The arm is selected with Thompson sampling. For each arm, a precision is sampled from the
+ * Beta(successes + 1, failures + 1) distribution of the current node and the arm with the
+ * highest sample is run. Arms without data are thus explored, while arms with a poor
+ * precision are selected less and less often.
+ * <p>
+ * The arm statistics are stored in the table {@code nappa_strategy_arm} and loaded once the
+ * ENG is initialized. The updated statistics are written in batches, at most once every
+ * {@link #PERSIST_DELAY_SECONDS} seconds.
+ *
+ * @see <a href="https://doi.org/10.1561/2200000070">A Tutorial on Thompson Sampling</a>
+ */
+public class BanditPrefetchingStrategy implements PrefetchingStrategy {
+    private static final String LOG_TAG = BanditPrefetchingStrategy.class.getSimpleName();
+
+    private static final PrefetchingStrategyType[] ARMS = {
+            PrefetchingStrategyType.STRATEGY_GREEDY_VISIT_FREQUENCY_AND_TIME,
+            PrefetchingStrategyType.STRATEGY_TFPR,
+            PrefetchingStrategyType.STRATEGY_VARIABLE_ORDER_PPM,
+            PrefetchingStrategyType.STRATEGY_PERSONALIZED_PAGERANK,
+            PrefetchingStrategyType.STRATEGY_SEQUENTIAL_PATTERN,
+            PrefetchingStrategyType.STRATEGY_CONTEXT_AWARE,
+    };
+
+    private static final int PERSIST_DELAY_SECONDS = 10;
+
+    private final Map<String, PrefetchingStrategy> arms = new LinkedHashMap<>();
+    private final Map<Long, Map<String, StrategyArmData>> armStatistics = new ConcurrentHashMap<>();
+    /**
+     * The statistics updated since the last write, keyed by activity ID and arm
+     */
+    private final Map<String, StrategyArmData> pendingWrites = new LinkedHashMap<>();
+    private final Random random = new Random();
+
+    public BanditPrefetchingStrategy() {
+        for (PrefetchingStrategyType type : ARMS) {
+            arms.put(type.name(), PrefetchingStrategy.getStrategy(type));
+        }
+
+        PrefetchOutcomeTracker.addListener(this::onOutcome);
+    }
+
+    @NonNull
+    @Override
+    public List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber) {
+        return ScoredCandidate.toUrls(getScoredCandidatesForNode(node, maxNumber, PredictionDeadline.NONE));
+    }
+
+    @NonNull
+    @Override
+    public List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        return ScoredCandidate.toUrls(getScoredCandidatesForNode(node, maxNumber, deadline));
+    }
+
+    @NonNull
+    @Override
+    public List<ScoredCandidate> getScoredCandidatesForNode(ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        Long activityId = Nappa.getActivityIdFromName(node.activityName);
+        if (activityId == null) return new ArrayList<>();
+
+        String selectedArm = selectArm(activityId);
+        //noinspection ConstantConditions The selected arm is always a key of the map
+        List<ScoredCandidate> candidates = arms.get(selectedArm).getScoredCandidatesForNode(node, maxNumber, deadline);
+
+        for (ScoredCandidate candidate : candidates) {
+            PrefetchOutcomeTracker.registerPrediction(selectedArm, activityId, candidate);
+        }
+
+        Log.d(LOG_TAG, String.format("Arm '%s' selected for node '%s' and predicted %d URLs",
+                selectedArm,
+                node.activityName,
+                candidates.size()));
+        return candidates;
+    }
+
+    /**
+     * Select an arm with Thompson sampling
+     *
+     * @param activityId The ID of the current node
+     * @return The name of the arm with the highest sampled precision
+     */
+    @NotNull
+    private String selectArm(long activityId) {
+        Map<String, StrategyArmData> nodeStatistics = armStatistics.get(activityId);
+        String selectedArm = null;
+        double bestSample = -1;
+
+        for (String arm : arms.keySet()) {
+            StrategyArmData data = nodeStatistics == null ? null : nodeStatistics.get(arm);
+            double sample = data == null ?
+                    sampleBeta(1, 1) :
+                    sampleBeta(data.successes + 1, data.failures + 1);
+            if (sample > bestSample) {
+                bestSample = sample;
+                selectedArm = arm;
+            }
+        }
+
+        //noinspection ConstantConditions There is always at least one arm
+        return selectedArm;
+    }
+
+    /**
+     * Update the statistics of the arm that made the prediction and schedule their write to
+     * the database
+     */
+    private void onOutcome(@NotNull String source, long activityId, @NotNull ScoredCandidate candidate, boolean hit, long latencySaved) {
+        if (!arms.containsKey(source)) return;
+
+        StrategyArmData data;
+        synchronized (armStatistics) {
+            Map<String, StrategyArmData> nodeStatistics = armStatistics.get(activityId);
+            if (nodeStatistics == null) {
+                nodeStatistics = new ConcurrentHashMap<>();
+                armStatistics.put(activityId, nodeStatistics);
+            }
+            StrategyArmData current = nodeStatistics.get(source);
+            if (current == null) current = new StrategyArmData(activityId, source, 0, 0, 0);
+
+            // A new object is stored, such that the object persisted below is never modified
+            data = new StrategyArmData(activityId,
+                    source,
+                    current.successes + (hit ? 1 : 0),
+                    current.failures + (hit ? 0 : 1),
+                    current.latencySaved + latencySaved);
+            nodeStatistics.put(source, data);
+        }
+
+        synchronized (pendingWrites) {
+            // A write is already scheduled if there are pending statistics
+            boolean isWriteScheduled = !pendingWrites.isEmpty();
+            pendingWrites.put(activityId + "/" + source, data);
+            if (isWriteScheduled) return;
+        }
+        NappaThreadPool.schedule(this::writePendingStatistics, PERSIST_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Store all statistics updated since the last write in a single transaction
+     */
+    private void writePendingStatistics() {
+        List<StrategyArmData> statistics;
+        synchronized (pendingWrites) {
+            statistics = new ArrayList<>(pendingWrites.values());
+            pendingWrites.clear();
+        }
+
+        NappaDB.getInstance().strategyArmDao().insertOrUpdate(statistics);
+        Log.d(LOG_TAG, String.format("STATS Wrote %d arm statistics in a batch", statistics.size()));
+    }
+
+    @Override
+    public boolean needVisitTime() {
+        for (PrefetchingStrategy strategy : arms.values()) {
+            if (strategy.needVisitTime()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean needSuccessorsVisitTime() {
+        for (PrefetchingStrategy strategy : arms.values()) {
+            if (strategy.needSuccessorsVisitTime()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void onGraphInitialized(@NotNull ActivityGraph graph) {
+        for (PrefetchingStrategy strategy : arms.values()) strategy.onGraphInitialized(graph);
+
+        List<StrategyArmData> storedStatistics = NappaDB.getInstance().strategyArmDao().getAll();
+        synchronized (armStatistics) {
+            for (StrategyArmData data : storedStatistics) {
+                Map<String, StrategyArmData> nodeStatistics = armStatistics.get(data.idActivity);
+                if (nodeStatistics == null) {
+                    nodeStatistics = new ConcurrentHashMap<>();
+                    armStatistics.put(data.idActivity, nodeStatistics);
+                }
+                // Outcomes resolved before the initialization are more recent than the stored ones
+                if (!nodeStatistics.containsKey(data.strategy)) nodeStatistics.put(data.strategy, data);
+            }
+        }
+
+        Log.d(LOG_TAG, String.format("Loaded %d arm statistics", storedStatistics.size()));
+    }
+
+    @Override
+    public void onActivityVisited(@NotNull ActivityNode node) {
+        for (PrefetchingStrategy strategy : arms.values()) strategy.onActivityVisited(node);
+    }
+
+    /**
+     * Sample the Beta(alpha, beta) distribution as X / (X + Y), where X ~ Gamma(alpha) and
+     * Y ~ Gamma(beta)
+     */
+    private double sampleBeta(double alpha, double beta) {
+        double x = sampleGamma(alpha);
+        double y = sampleGamma(beta);
+        return x / (x + y);
+    }
+
+    /**
+     * Sample the Gamma(shape, 1) distribution with the Marsaglia and Tsang method. Only valid
+     * for shapes greater or equal to 1.
+     *
+     * @see <a href="https://doi.org/10.1145/358407.358414">A simple method for generating gamma variables</a>
+     */
+    private double sampleGamma(double shape) {
+        double d = shape - 1.0 / 3;
+        double c = 1 / Math.sqrt(9 * d);
+        while (true) {
+            double x = random.nextGaussian();
+            double v = 1 + c * x;
+            if (v <= 0) continue;
+            v = v * v * v;
+            double u = random.nextDouble();
+            if (u < 1 - 0.0331 * x * x * x * x) return d * v;
+            if (Math.log(u) < 0.5 * x * x + d * (1 - v + Math.log(v))) return d * v;
+        }
+    }
+}
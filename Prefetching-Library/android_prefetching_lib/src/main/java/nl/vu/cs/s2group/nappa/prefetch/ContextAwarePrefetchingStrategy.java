@@ -0,0 +1,230 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityGraph;
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+import nl.vu.cs.s2group.nappa.room.data.ContextEdgeData;
+import nl.vu.cs.s2group.nappa.util.ContextBucket;
+import nl.vu.cs.s2group.nappa.util.ContextCounter;
+import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
+import nl.vu.cs.s2group.nappa.util.NappaThreadPool;
+import nl.vu.cs.s2group.nappa.util.NappaUtil;
+
+/**
+ * This strategy predicts the successors of the current node using the transitions made in
+ * the same context as the current one. The context is a coarse bucket combining the band of
+ * the day and whether it is a weekday or weekend, see {@link ContextBucket}. As such, users
+ * with strong routines (e.g. checking the weather every morning) get more precise
+ * predictions without prefetching more URLs.
+ * <p>
+ * The probability of a successor is its number of transitions in the current bucket over
+ * the number of transitions from the current node in this bucket. When the current bucket
+ * has fewer than {@link PrefetchingStrategyConfigKeys#CONTEXT_MIN_OBSERVATIONS} transitions,
+ * the strategy backs off to all buckets with the same type of day, then to all buckets and
+ * finally to the transition counts of the ENG, which are not partitioned by context.
+ * <p>
+ * The transition counts per bucket are kept in {@link ActivityNode#contextFrequency} and
+ * persisted in the table {@code nappa_context_edge}. Once the graph is initialized, the
+ * counts of the edges without persisted counts are backfilled from the timestamps of the
+ * navigation history in a background thread. This strategy only considers the direct
+ * successors of the current node.
+ * <p>
+ * This strategy accepts the following configurations:
+ * <ul>
+ *     <li>{@link PrefetchingStrategyConfigKeys#CONTEXT_MIN_OBSERVATIONS}</li>
+ * </ul>
+ */
+public class ContextAwarePrefetchingStrategy extends AbstractPrefetchingStrategy {
+    private static final String LOG_TAG = ContextAwarePrefetchingStrategy.class.getSimpleName();
+
+    public static final int DEFAULT_CONTEXT_MIN_OBSERVATIONS = 10;
+
+    private final int minObservations;
+
+    public ContextAwarePrefetchingStrategy() {
+        super();
+
+        minObservations = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.CONTEXT_MIN_OBSERVATIONS,
+                DEFAULT_CONTEXT_MIN_OBSERVATIONS);
+        if (minObservations < 1)
+            throw new IllegalArgumentException("The minimum number of observations must be greater than 0. "
+                    + minObservations + " provided.");
+    }
+
+    @Override
+    public boolean needVisitTime() {
+        return false;
+    }
+
+    @Override
+    public boolean needSuccessorsVisitTime() {
+        return false;
+    }
+
+    /**
+     * Backfill the context bucket counts from the navigation history without blocking the
+     * graph initialization
+     */
+    @Override
+    public void onGraphInitialized(@NotNull ActivityGraph graph) {
+        long backfillEnd = System.currentTimeMillis();
+        Map<ActivityNode, Set<ActivityNode>> countedEdges = graph.getContextCountedEdges();
+        NappaThreadPool.execute(() -> {
+            NappaDB db = NappaDB.getInstance();
+            List<ContextEdgeData> seededEdges = graph.seedContextEdges(
+                    db.activityVisitTimeDao().getNavigationHistory(), countedEdges, backfillEnd);
+            if (!seededEdges.isEmpty()) db.contextEdgeDao().insertOrUpdate(seededEdges);
+        });
+    }
+
+    @NonNull
+    @Override
+    public List<String> getTopNUrlToPrefetchForNode(@NotNull ActivityNode node, Integer maxNumber) {
+        return ScoredCandidate.toUrls(getScoredCandidatesForNode(node, maxNumber, PredictionDeadline.NONE));
+    }
+
+    @NonNull
+    @Override
+    public List<ScoredCandidate> getScoredCandidatesForNode(@NotNull ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        long startTime = System.currentTimeMillis();
+
+        StrategyExecutionContext context = new StrategyExecutionContext(node, deadline);
+        int bucket = ContextBucket.of(startTime);
+        Log.d(LOG_TAG, String.format("(#%d) Starting execution %d for node '%s' in context '%s'.",
+                context.id,
+                context.id,
+                node.activityName,
+                ContextBucket.toString(bucket)));
+
+        StrategyExecutionContext.NodeScores probabilities = predict(context, bucket);
+        List<ActivityNode> selectedNodes = getNodesSortedByProbability(probabilities);
+        addUrls(context, selectedNodes, probabilities);
+
+        logStrategyExecutionDuration(node, startTime, context.id);
+
+        return context.getCandidates();
+    }
+
+    /**
+     * Calculate the probability of each successor in the most specific level of the back-off
+     * hierarchy with enough observations. If no level has enough observations, the transition
+     * counts of the ENG are used.
+     *
+     * @param context The execution context, whose start node is the node the user is
+     *                currently visiting
+     * @param bucket  The current context bucket
+     * @return The probability of each successor to be visited next
+     */
+    @NotNull
+    private StrategyExecutionContext.NodeScores predict(@NotNull StrategyExecutionContext context, int bucket) {
+        StrategyExecutionContext.NodeScores probabilities = context.getScores();
+        Map<ActivityNode, ContextCounter> successors = context.startNode.contextFrequency;
+
+        for (int level = ContextBucket.LEVEL_BUCKET; level <= ContextBucket.LEVEL_ALL; level++) {
+            long total = 0;
+            for (ContextCounter counter : successors.values()) total += counter.get(bucket, level);
+            if (total < minObservations) continue;
+
+            for (Map.Entry<ActivityNode, ContextCounter> entry : successors.entrySet()) {
+                long count = entry.getValue().get(bucket, level);
+                if (count > 0) probabilities.set(entry.getKey(), (float) count / total);
+            }
+            Log.d(LOG_TAG, String.format("(#%d) Predicted from %d transitions at back-off level %d",
+                    context.id,
+                    total,
+                    level));
+            return probabilities;
+        }
+
+        return predictFromGraph(context);
+    }
+
+    /**
+     * Calculate the probability of each successor from the transition counts of the ENG,
+     * regardless of the context
+     *
+     * @param context The execution context, whose start node is the node the user is
+     *                currently visiting
+     * @return The probability of each successor to be visited next
+     */
+    @NotNull
+    private StrategyExecutionContext.NodeScores predictFromGraph(@NotNull StrategyExecutionContext context) {
+        StrategyExecutionContext.NodeScores probabilities = context.getScores();
+        int total = NappaUtil.getSuccessorsTotalAggregateVisitFrequency(context.startNode, lastNSessions);
+        if (total == 0) return probabilities;
+
+        Map<String, Integer> frequencies = NappaUtil.mapSuccessorsAggregateVisitFrequency(context.startNode, lastNSessions);
+        for (ActivityNode successor : context.startNode.successors.keySet()) {
+            Integer count = frequencies.get(successor.activityName);
+            if (count != null && count > 0) probabilities.set(successor, (float) count / total);
+        }
+        Log.d(LOG_TAG, String.format("(#%d) Predicted from %d transitions of the ENG", context.id, total));
+        return probabilities;
+    }
+
+    /**
+     * Sort the predicted nodes by probability and return all nodes with a probability higher
+     * than the lower threshold score.
+     *
+     * @param probabilities The probability of each successor to be visited next
+     * @return The nodes sorted from the highest to the lowest probability
+     */
+    @NotNull
+    private List<ActivityNode> getNodesSortedByProbability(@NotNull StrategyExecutionContext.NodeScores probabilities) {
+        List<ActivityNode> nodes = new ArrayList<>();
+        for (ActivityNode node : probabilities.getNodes()) {
+            if (probabilities.get(node) >= scoreLowerThreshold) nodes.add(node);
+        }
+        Collections.sort(nodes, new ProbabilityComparator(probabilities));
+        return nodes;
+    }
+
+    private void addUrls(@NotNull StrategyExecutionContext context,
+                         @NotNull List<ActivityNode> nodes,
+                         @NotNull StrategyExecutionContext.NodeScores probabilities) {
+        List<ScoredCandidate> urls = context.getCandidates();
+
+        for (ActivityNode node : nodes) {
+            int remainingUrlBudget = maxNumberOfUrlToPrefetch - urls.size();
+            List<ScoredCandidate> nodUrls = NappaUtil.getScoredCandidatesFromCandidateNode(context.startNode,
+                    node,
+                    probabilities.get(node),
+                    remainingUrlBudget);
+            urls.addAll(nodUrls);
+
+            Log.d(LOG_TAG, String.format("(#%s) The URLs from node '%s' with probability %f are: %s",
+                    context.id,
+                    node.activityName,
+                    probabilities.get(node),
+                    nodUrls));
+            if (urls.size() >= maxNumberOfUrlToPrefetch) break;
+        }
+    }
+
+    private static class ProbabilityComparator implements Comparator<ActivityNode> {
+        private final StrategyExecutionContext.NodeScores probabilities;
+
+        ProbabilityComparator(StrategyExecutionContext.NodeScores probabilities) {
+            this.probabilities = probabilities;
+        }
+
+        @Override
+        public int compare(ActivityNode o1, ActivityNode o2) {
+            return Float.compare(probabilities.get(o2), probabilities.get(o1));
+        }
+    }
+}
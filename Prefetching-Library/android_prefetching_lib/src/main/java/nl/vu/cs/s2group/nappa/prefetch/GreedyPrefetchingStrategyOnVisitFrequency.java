@@ -4,6 +4,9 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -37,7 +40,6 @@ public class GreedyPrefetchingStrategyOnVisitFrequency implements PrefetchingStr
     private static final String LOG_TAG = GreedyPrefetchingStrategyOnVisitFrequency.class.getSimpleName();
 
     private float threshold;
-    private HashMap<Long, String> reversedHashMap = new HashMap<>();
 
     public GreedyPrefetchingStrategyOnVisitFrequency(float threshold) {
         this.threshold = threshold;
@@ -46,15 +48,22 @@ public class GreedyPrefetchingStrategyOnVisitFrequency implements PrefetchingStr
     @NonNull
     @Override
     public List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber) {
+        return ScoredCandidate.toUrls(getScoredCandidatesForNode(node, maxNumber, PredictionDeadline.NONE));
+    }
 
-        Map<String, Long> activityMap = Nappa.activityMap;
-        for (String key : activityMap.keySet()){
-            reversedHashMap.put(activityMap.get(key), key);
+    @NonNull
+    @Override
+    public List<ScoredCandidate> getScoredCandidatesForNode(ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        StrategyExecutionContext context = new StrategyExecutionContext(node, deadline);
+        Map<ActivityNode, Float> probabilities = new HashMap<>();
+        List<ActivityNode> probableNodes = getMostProbableNodes(node, 1, new LinkedList<>(), probabilities, context);
+
+        List<ScoredCandidate> candidates = new ArrayList<>();
+        for (ActivityNode probableNode : probableNodes) {
+            //noinspection ConstantConditions All probable nodes have a probability
+            candidates.addAll(NappaUtil.getScoredCandidatesFromCandidateNode(node, probableNode, probabilities.get(probableNode), -1));
         }
-
-        List<ActivityNode> probableNodes = getMostProbableNodes(node, 1, new LinkedList<>());
-
-        return NappaUtil.getUrlsFromCandidateNodes(node, probableNodes);
+        return candidates;
     }
 
     @Override
@@ -78,9 +87,11 @@ public class GreedyPrefetchingStrategyOnVisitFrequency implements PrefetchingStr
      *                           the probabilities of each successor
      * @param probableNodes List containing all the probable nodes, corresponding to those nodes that
      *                      have a probability exceeding the prescribed threshold.
+     * @param probabilities Map containing the probability calculated for each probable node
+     * @param context The context of this execution
      * @return The set of probable nodes {@code List<ActivityNode>} with respect to the initial activity {@code node}
      */
-    private List<ActivityNode> getMostProbableNodes(ActivityNode node, float initialProbability, List<ActivityNode> probableNodes) {
+    private List<ActivityNode> getMostProbableNodes(ActivityNode node, float initialProbability, List<ActivityNode> probableNodes, Map<ActivityNode, Float> probabilities, StrategyExecutionContext context) {
         // Fetch the current state of the session aggregate
         List<SessionDao.SessionAggregate> sessionAggregate = node.getSessionAggregateList();
         HashMap<Long, Integer> successorCountMap = new HashMap<>();
@@ -97,7 +108,7 @@ public class GreedyPrefetchingStrategyOnVisitFrequency implements PrefetchingStr
         for (Long succ : successorCountMap.keySet()) {
             // Individual successor divided by total accesses
             float prob = initialProbability * ((float) successorCountMap.get(succ)/total);
-            ActivityNode node1 = Nappa.getActivityGraph().getByName(reversedHashMap.get(succ));
+            ActivityNode node1 = Nappa.getActivityGraph().getByName(context.getActivityName(succ));
 
             if (prob >= threshold) {
                 // If not yet added, add this current node to the probable nodes and calculate the
@@ -105,9 +116,10 @@ public class GreedyPrefetchingStrategyOnVisitFrequency implements PrefetchingStr
                 //BUG -- 2 contains(succ) is wrong
                 if (!probableNodes.contains(node1)) {
                     probableNodes.add(node1);
+                    probabilities.put(node1, prob);
                     // Compute the probable nodes using this successor as the current activity
                     // NOTE TO SELF: The further this calculation recurses, the lower the probabilities become.
-                    getMostProbableNodes(node1, prob, probableNodes);
+                    getMostProbableNodes(node1, prob, probableNodes, probabilities, context);
                 }
 
             }
@@ -4,12 +4,15 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import org.jetbrains.annotations.NotNull;
+
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import nl.vu.cs.s2group.nappa.graph.ActivityGraph;
 import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.room.activity.visittime.AggregateVisitTimeByActivity;
 import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
 import nl.vu.cs.s2group.nappa.util.NappaUtil;
 
@@ -23,7 +26,16 @@ import nl.vu.cs.s2group.nappa.util.NappaUtil;
  * <ul>
  *     <li>{@link PrefetchingStrategyConfigKeys#WEIGHT_FREQUENCY_SCORE}</li>
  *     <li>{@link PrefetchingStrategyConfigKeys#WEIGHT_TIME_SCORE}</li>
+ *     <li>{@link PrefetchingStrategyConfigKeys#USE_DECAYED_WEIGHTS}</li>
  * </ul>
+ * <p>
+ * If decayed weights are used, the score of a successor is calculated with the decayed visit
+ * frequency and visit time of the edge leading to it instead of the aggregates of the last N
+ * sessions. Recent transitions then weight more than old ones.
+ * <p>
+ * The successors of each node are ranked in a {@link PredictionTable}, which is refreshed
+ * whenever the node statistics change. As such, the recursion is mostly a sequence of table
+ * lookups.
  */
 public class GreedyPrefetchingStrategyOnVisitFrequencyAndTime extends AbstractPrefetchingStrategy {
     private static final String LOG_TAG = GreedyPrefetchingStrategyOnVisitFrequencyAndTime.class.getSimpleName();
@@ -34,15 +46,7 @@ public class GreedyPrefetchingStrategyOnVisitFrequencyAndTime extends AbstractPr
     protected final float weightFrequencyScore;
     protected final float weightTimeScore;
 
-    /*
-     * The Extras and Navigation monitors triggers the strategy at similar time and might conflict
-     * with each other. This map is a quick fix to ensure that each triggered prefetcher modifies
-     * only its data. This will add a few milliseconds to the total duration, but will keep the run
-     * consistent.
-     */
-    private Map<Integer, List<String>> visitedNodes;
-    private Map<Integer, List<String>> selectedUrls;
-    private int executionNumber = 0;
+    private final PredictionTable predictionTable = new PredictionTable(this::rankSuccessors);
 
     @Override
     public boolean needVisitTime() {
@@ -62,32 +66,100 @@ public class GreedyPrefetchingStrategyOnVisitFrequencyAndTime extends AbstractPr
 
         if ((weightFrequencyScore + weightTimeScore) != 1.0)
             throw new IllegalArgumentException("The sum of the time and frequency weight must be 1!");
+    }
 
-        visitedNodes = new HashMap<>();
-        selectedUrls = new HashMap<>();
+    @Override
+    public void onGraphInitialized(@NotNull ActivityGraph graph) {
+        predictionTable.attach(graph);
     }
 
     @NonNull
     @Override
     public List<String> getTopNUrlToPrefetchForNode(@NonNull ActivityNode node, Integer maxNumber) {
+        return getTopNUrlToPrefetchForNode(node, maxNumber, PredictionDeadline.NONE);
+    }
+
+    @NonNull
+    @Override
+    public List<String> getTopNUrlToPrefetchForNode(@NonNull ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        return ScoredCandidate.toUrls(getScoredCandidatesForNode(node, maxNumber, deadline));
+    }
+
+    @NonNull
+    @Override
+    public List<ScoredCandidate> getScoredCandidatesForNode(@NonNull ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
         long startTime = System.currentTimeMillis();
 
-        executionNumber++;
-        int key = executionNumber;
-        Log.d(LOG_TAG, String.format("(#%d) Starting execution %d for node '%s'.", key, key, node.activityName));
+        // The Extras and Navigation monitors trigger the strategy at similar times, thus each run has its own context
+        StrategyExecutionContext context = new StrategyExecutionContext(node, deadline);
+        Log.d(LOG_TAG, String.format("(#%d) Starting execution %d for node '%s'.", context.id, context.id, node.activityName));
+
+        getTopNUrlToPrefetchForNode(node, 1, context);
+
+        logStrategyExecutionDuration(node, startTime, context.id);
+        predictionTable.logStatistics();
+        return context.getCandidates();
+    }
+
+    /**
+     * Calculate the score of each successor of the provided node. The score of a successor
+     * is the weighted sum of its share of the successors visit time and its share of the
+     * successors visit frequency. The scores are stored in the {@link PredictionTable}
+     * and only calculated again when the node statistics change.
+     *
+     * @param node The node to rank the successors from
+     * @return A list with the score of each successor
+     */
+    @NotNull
+    private List<PredictionTable.RankedSuccessor> rankSuccessors(@NotNull ActivityNode node) {
+        // Fetches the data to start the calculations
+        // Represents the total time spent visiting all successors from current node
+        float totalAggregateTime;
+
+        // Represents the total visit frequency from all successors from current node
+        float totalAggregateFrequency;
+
+        // Represents maps with <activity name, visit frequency> and <activity name, visit time> for each successor
+        Map<String, ? extends Number> successorsFrequencyMap;
+        Map<String, ? extends Number> successorsTimeMap = null;
+
+        if (useDecayedWeights) {
+            long now = System.currentTimeMillis();
+            totalAggregateTime = (float) NappaUtil.getSuccessorsTotalDecayedVisitTime(node, now);
+            totalAggregateFrequency = (float) NappaUtil.getSuccessorsTotalDecayedVisitFrequency(node, now);
+            successorsFrequencyMap = NappaUtil.mapSuccessorsDecayedVisitFrequency(node, now);
+            successorsTimeMap = NappaUtil.mapSuccessorsDecayedVisitTime(node, now);
+        } else {
+            totalAggregateTime = NappaUtil.getSuccessorsAggregateVisitTime(node);
+            totalAggregateFrequency = NappaUtil.getSuccessorsTotalAggregateVisitFrequency(node, lastNSessions);
+            successorsFrequencyMap = NappaUtil.mapSuccessorsAggregateVisitFrequency(node, lastNSessions);
+        }
 
-        visitedNodes.put(key, new ArrayList<>());
-        selectedUrls.put(key, new ArrayList<>());
+        List<PredictionTable.RankedSuccessor> rankedSuccessors = new ArrayList<>(node.successors.size());
+        for (ActivityNode successor : node.successors.keySet()) {
+            float successorTime;
+            if (successorsTimeMap == null) {
+                // The visit time is not loaded yet if its LiveData object did not emit any value
+                AggregateVisitTimeByActivity visitTime = successor.getAggregateVisitTime();
+                successorTime = visitTime == null ? 0 : visitTime.totalDuration;
+            } else {
+                Number decayedTime = successorsTimeMap.get(successor.activityName);
+                successorTime = decayedTime == null ? 0 : decayedTime.floatValue();
+            }
 
-        getTopNUrlToPrefetchForNode(node, 1, key);
-        List<String> urls = selectedUrls.get(key);
+            Number successorFrequency = successorsFrequencyMap.get(successor.activityName);
+            if (successorFrequency == null) {
+                Log.w(LOG_TAG, String.format("Unknown visit frequency count for node '%s'. ", successor.activityName));
+                successorFrequency = 0;
+            }
 
-        selectedUrls.remove(key);
-        visitedNodes.remove(key);
+            float successorTimeScore = totalAggregateTime == 0 ? 0 : (successorTime / totalAggregateTime) * weightTimeScore;
+            float successorFrequencyScore = totalAggregateFrequency == 0 ? 0 : (successorFrequency.floatValue() / totalAggregateFrequency) * weightFrequencyScore;
 
-        logStrategyExecutionDuration(node, startTime, key);
-        //noinspection ConstantConditions
-        return urls;
+            rankedSuccessors.add(new PredictionTable.RankedSuccessor(successor, successorTimeScore + successorFrequencyScore));
+        }
+
+        return rankedSuccessors;
     }
 
     /**
@@ -107,17 +179,24 @@ public class GreedyPrefetchingStrategyOnVisitFrequencyAndTime extends AbstractPr
      * current URL list. If the URL budget is completely filled, then the URL list is returned,
      * otherwise, the recursion continues by invoking this method with the best successor object
      * and its score.
+     * <p>
+     * The recursion also stops once the deadline expires. Since the URLs of each selected
+     * successor are added as soon as the successor is found, the URL list is always the best
+     * selection found so far.
      *
      * @param node        The current node in the recursion. Either the node that started the
      *                    recursion or of of its descendant
      * @param parentScore The score of the parent node.
-     * @param key         An ID representing the visited nodes and selected URLs entries for this
-     *                    execution
+     * @param context     The visited nodes, selected URLs and time budget of this execution
      */
-    private void getTopNUrlToPrefetchForNode(@NonNull ActivityNode node, float parentScore, int key) {
+    private void getTopNUrlToPrefetchForNode(@NonNull ActivityNode node, float parentScore, @NotNull StrategyExecutionContext context) {
+        if (context.deadline.isExpired()) {
+            Log.d(LOG_TAG, String.format("(#%d) Deadline expired before visiting node '%s'", context.id, node.activityName));
+            return;
+        }
+
         // Verifies if this node was already been visited -- recursion found a loop
-        if (isNodeVisited(key, node.activityName)) return;
-        addVisitedNode(key, node.activityName);
+        if (!context.markVisited(node)) return;
 
         if (node.successors.isEmpty()) return;
 
@@ -136,37 +215,11 @@ public class GreedyPrefetchingStrategyOnVisitFrequencyAndTime extends AbstractPr
             bestSuccessor = node.successors.keySet().iterator().next();
             bestSuccessorScore = parentScore * 0.9f;
         } else {
-            // Fetches the data to start the calculations
-            // Represents the total aggregate time spent visiting all successors from current node
-            float totalAggregateTime = NappaUtil.getSuccessorsAggregateVisitTime(node);
-
-            // Represents the total aggregate visit frequency from all successors from current node
-            int totalAggregateFrequency = NappaUtil.getSuccessorsTotalAggregateVisitFrequency(node, lastNSessions);
-
-            // Represents a map with <activity name, visit frequency> for each successor
-            Map<String, Integer> successorsAggregateFrequencyMap = NappaUtil.mapSuccessorsAggregateVisitFrequency(node, lastNSessions);
-
-            /*
-             * Loop all successors and saves the successor with the best score. In case of drawn,
-             * the current best successor is picked
-             */
-            for (ActivityNode successor : node.successors.keySet()) {
-                float successorTime = successor.getAggregateVisitTime().totalDuration;
-                Integer successorFrequency = successorsAggregateFrequencyMap.get(successor.activityName);
-                if (successorFrequency == null) {
-                    Log.w(LOG_TAG, String.format("(#%d) Unknown visit frequency count for node '%s'. ", key, successor.activityName));
-                    successorFrequency = 0;
-                }
-
-                float successorTimeScore = totalAggregateTime == 0 ? 0 : (successorTime / totalAggregateTime) * weightTimeScore;
-                float successorFrequencyScore = totalAggregateFrequency == 0 ? 0 : ((float) successorFrequency / totalAggregateFrequency) * weightFrequencyScore;
-
-                float successorScore = parentScore * (successorTimeScore + successorFrequencyScore);
-
-                if (bestSuccessor == null || successorScore > bestSuccessorScore) {
-                    bestSuccessor = successor;
-                    bestSuccessorScore = successorScore;
-                }
+            // Picks the successor with the best score. In case of drawn, the first successor is picked
+            List<PredictionTable.RankedSuccessor> rankedSuccessors = predictionTable.getRankedSuccessors(node);
+            if (!rankedSuccessors.isEmpty()) {
+                bestSuccessor = rankedSuccessors.get(0).node;
+                bestSuccessorScore = parentScore * rankedSuccessors.get(0).score;
             }
         }
 
@@ -174,13 +227,12 @@ public class GreedyPrefetchingStrategyOnVisitFrequencyAndTime extends AbstractPr
         if (bestSuccessor == null || bestSuccessorScore < scoreLowerThreshold) return;
 
         // Fetches the URLs from the bestSuccessor and the remaining URL budget
-        List<String> urls = selectedUrls.get(key);
-        //noinspection ConstantConditions
+        List<ScoredCandidate> urls = context.getCandidates();
         int remainingUrlBudget = maxNumberOfUrlToPrefetch - urls.size();
-        List<String> bestSuccessorUrls = NappaUtil.getUrlsFromCandidateNode(node, bestSuccessor, remainingUrlBudget);
+        List<ScoredCandidate> bestSuccessorUrls = NappaUtil.getScoredCandidatesFromCandidateNode(node, bestSuccessor, bestSuccessorScore, remainingUrlBudget);
 
         Log.d(LOG_TAG, String.format("(#%d) The best successor for activity '%s' is node '%s' with a score of %f and the following %d URLS: %s",
-                key,
+                context.id,
                 node.activityName,
                 bestSuccessor.activityName,
                 bestSuccessorScore,
@@ -190,22 +242,9 @@ public class GreedyPrefetchingStrategyOnVisitFrequencyAndTime extends AbstractPr
 
         // Add the remaining URLs to the list of URLs to prefetch
         urls.addAll(bestSuccessorUrls);
-        selectedUrls.put(key, urls);
 
         // Verifies if there is any URL budget left
         if (urls.size() >= maxNumberOfUrlToPrefetch) return;
-        getTopNUrlToPrefetchForNode(bestSuccessor, bestSuccessorScore, key);
-    }
-
-    private void addVisitedNode(int key, String nodeName) {
-        List<String> list = visitedNodes.get(key);
-        //noinspection ConstantConditions
-        list.add(nodeName);
-        visitedNodes.put(key, list);
-    }
-
-    private boolean isNodeVisited(int key, String nodeName) {
-        //noinspection ConstantConditions
-        return visitedNodes.get(key).contains(nodeName);
+        getTopNUrlToPrefetchForNode(bestSuccessor, bestSuccessorScore, context);
     }
 }
@@ -7,7 +7,6 @@ import androidx.annotation.NonNull;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import nl.vu.cs.s2group.nappa.Nappa;
 import nl.vu.cs.s2group.nappa.graph.ActivityNode;
@@ -23,7 +22,6 @@ import nl.vu.cs.s2group.nappa.util.NappaUtil;
 public class GreedyWithPageRankScoresPrefetchingStrategy implements PrefetchingStrategy {
     private static final String LOG_TAG = GreedyWithPageRankScoresPrefetchingStrategy.class.getSimpleName();
     private float threshold;
-    private HashMap<Long, String> reversedHashMap = new HashMap<>();
 
     public GreedyWithPageRankScoresPrefetchingStrategy(float threshold) {
         this.threshold = threshold;
@@ -42,18 +40,14 @@ public class GreedyWithPageRankScoresPrefetchingStrategy implements PrefetchingS
     @NonNull
     @Override
     public List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber) {
-
-        Map<String, Long> activityMap = Nappa.activityMap;
-        for (String key : activityMap.keySet()){
-            reversedHashMap.put(activityMap.get(key), key);
-        }
-
-        List<ActivityNode> probableNodes = getMostProbableNodes(node, 1, new LinkedList<>());
+        StrategyExecutionContext context = new StrategyExecutionContext(node, PredictionDeadline.NONE);
+        StrategyExecutionContext.NodeScores probabilities = context.getScores();
+        List<ActivityNode> probableNodes = getMostProbableNodes(node, 1, new LinkedList<>(), context);
 
         for (ActivityNode node1 : probableNodes) {
             for (int i=probableNodes.lastIndexOf(node1)+1;i<probableNodes.size();i++) {
                 ActivityNode node2 = probableNodes.get(i);
-                if(node1.prob<node2.prob){
+                if(probabilities.get(node1)<probabilities.get(node2)){
                     ActivityNode temp=node1;
                     probableNodes.set(probableNodes.lastIndexOf(node1),node2);
                     probableNodes.set(probableNodes.lastIndexOf(node2),temp);
@@ -64,9 +58,9 @@ public class GreedyWithPageRankScoresPrefetchingStrategy implements PrefetchingS
         List<String> listUrlToPrefetch = new LinkedList<>();
         maxNumber = (int) (threshold*probableNodes.size() +1);
 
-        for (int i=0; i<maxNumber; i++) {
+        for (int i=0; i<Math.min(maxNumber, probableNodes.size()); i++) {
             listUrlToPrefetch.addAll(NappaUtil.getUrlsFromCandidateNode(node, probableNodes.get(i)));
-            Log.d(LOG_TAG,"SELECTED --> " + probableNodes.get(i).activityName + " index: " + probableNodes.get(i).prob);
+            Log.d(LOG_TAG,"SELECTED --> " + probableNodes.get(i).activityName + " index: " + probabilities.get(probableNodes.get(i)));
 
         }
 
@@ -84,9 +78,10 @@ public class GreedyWithPageRankScoresPrefetchingStrategy implements PrefetchingS
      *                           the probabilities of each successor
      * @param probableNodes List containing all the probable nodes, corresponding to those nodes that
      *                      have a probability exceeding the prescribed threshold.
+     * @param context The context of this execution, holding the probability of each node
      * @return The set of probable nodes {@code List<ActivityNode>} with respect to the initial activity {@code node}
      */
-    private List<ActivityNode> getMostProbableNodes(ActivityNode node, float initialProbability, List<ActivityNode> probableNodes) {
+    private List<ActivityNode> getMostProbableNodes(ActivityNode node, float initialProbability, List<ActivityNode> probableNodes, StrategyExecutionContext context) {
         // Fetch the current state of the session aggregate
         List<SessionDao.SessionAggregate> sessionAggregate = node.getSessionAggregateList();
         HashMap<Long, Integer> successorCountMap = new HashMap<>();
@@ -103,19 +98,19 @@ public class GreedyWithPageRankScoresPrefetchingStrategy implements PrefetchingS
         // For each destination calculate the probability of Access
         for (Long succ : successorCountMap.keySet()) {
             // Individual successor divided by total accesses
-            float prob = initialProbability * ((float) successorCountMap.get(succ)/total * Nappa.getActivityGraph().getByName(reversedHashMap.get(succ)).pageRank);
-            ActivityNode node1 = Nappa.getActivityGraph().getByName(reversedHashMap.get(succ));
+            float prob = initialProbability * ((float) successorCountMap.get(succ)/total * Nappa.getActivityGraph().getByName(context.getActivityName(succ)).pageRank);
+            ActivityNode node1 = Nappa.getActivityGraph().getByName(context.getActivityName(succ));
 
                 // If not yet added, add this current node to the probable nodes and calculate the
                 //     next probability using this nodes probability as an initial probability.
                 if (!probableNodes.contains(node1)) {
-                    node1.prob=prob;
+                    context.getScores().set(node1, prob);
                     probableNodes.add(node1);
                     // Compute the probable nodes using this successor as the current activity
                     // NOTE TO SELF: The further this calculation recurses, the lower the probabilities become.
-                    getMostProbableNodes(node1, prob, probableNodes);
-                }else if(prob>node1.prob){
-                    node1.prob=prob;
+                    getMostProbableNodes(node1, prob, probableNodes, context);
+                }else if(prob>context.getScores().get(node1)){
+                    context.getScores().set(node1, prob);
                 }
         }
         return probableNodes;
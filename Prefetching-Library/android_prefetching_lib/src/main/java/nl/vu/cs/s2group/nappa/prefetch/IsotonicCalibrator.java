@@ -0,0 +1,137 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps the raw score of a strategy into a probability of the predicted URL being requested.
+ * The observed outcomes are grouped in equally sized bins of the raw score and the hit rate
+ * of the bins is fitted with isotonic regression using the pool adjacent violators
+ * algorithm. The calibrated probability is therefore a non-decreasing step function of the
+ * raw score.
+ * <p>
+ * While there are fewer than {@link #MIN_OBSERVATIONS} outcomes, the raw score is returned
+ * unchanged. Bins without outcomes take the probability of the closest lower bin with
+ * outcomes, or of the first bin with outcomes if there is none.
+ *
+ * @see <a href="https://doi.org/10.1145/775047.775151">Transforming classifier scores into accurate multiclass probability estimates</a>
+ */
+public class IsotonicCalibrator {
+    public static final int NUMBER_OF_BINS = 20;
+    public static final int MIN_OBSERVATIONS = 20;
+
+    private final long[] hits = new long[NUMBER_OF_BINS];
+    private final long[] counts = new long[NUMBER_OF_BINS];
+    private long observations = 0;
+    private float[] curve = null;
+
+    /**
+     * @param score The raw score of a resolved prediction
+     * @param hit   {@code True} if the predicted URL was requested
+     */
+    public synchronized void addOutcome(float score, boolean hit) {
+        int bin = getBin(score);
+        counts[bin]++;
+        if (hit) hits[bin]++;
+        observations++;
+        curve = null;
+    }
+
+    /**
+     * @param score A raw score
+     * @return The probability of a URL with the provided score to be requested
+     */
+    public synchronized float calibrate(float score) {
+        if (observations < MIN_OBSERVATIONS) return score;
+        return getCurve()[getBin(score)];
+    }
+
+    /**
+     * @return The calibration curve with one point per bin. Empty if there are fewer than
+     * {@link #MIN_OBSERVATIONS} outcomes.
+     */
+    @NotNull
+    public synchronized List<Point> getCalibrationCurve() {
+        List<Point> points = new ArrayList<>(NUMBER_OF_BINS);
+        if (observations < MIN_OBSERVATIONS) return points;
+
+        float[] probabilities = getCurve();
+        for (int bin = 0; bin < NUMBER_OF_BINS; bin++) {
+            points.add(new Point((float) bin / NUMBER_OF_BINS,
+                    (float) (bin + 1) / NUMBER_OF_BINS,
+                    probabilities[bin],
+                    counts[bin]));
+        }
+        return points;
+    }
+
+    private static int getBin(float score) {
+        int bin = (int) (score * NUMBER_OF_BINS);
+        return Math.max(0, Math.min(bin, NUMBER_OF_BINS - 1));
+    }
+
+    /**
+     * Fit the hit rate of the bins with the pool adjacent violators algorithm. Each block
+     * is a sequence of adjacent non-empty bins sharing the same probability. Whenever a
+     * block has a lower hit rate than the previous block, both are merged.
+     *
+     * @return The calibrated probability of each bin
+     */
+    @NotNull
+    private float[] getCurve() {
+        if (curve != null) return curve;
+
+        int[] blockStart = new int[NUMBER_OF_BINS];
+        long[] blockHits = new long[NUMBER_OF_BINS];
+        long[] blockCounts = new long[NUMBER_OF_BINS];
+        int blocks = 0;
+
+        for (int bin = 0; bin < NUMBER_OF_BINS; bin++) {
+            if (counts[bin] == 0) continue;
+            blockStart[blocks] = bin;
+            blockHits[blocks] = hits[bin];
+            blockCounts[blocks] = counts[bin];
+            blocks++;
+
+            // Compares the hit rates hits[i - 1] / counts[i - 1] > hits[i] / counts[i] without divisions
+            while (blocks > 1 && blockHits[blocks - 2] * blockCounts[blocks - 1] > blockHits[blocks - 1] * blockCounts[blocks - 2]) {
+                blockHits[blocks - 2] += blockHits[blocks - 1];
+                blockCounts[blocks - 2] += blockCounts[blocks - 1];
+                blocks--;
+            }
+        }
+
+        curve = new float[NUMBER_OF_BINS];
+        int block = 0;
+        for (int bin = 0; bin < NUMBER_OF_BINS; bin++) {
+            while (block + 1 < blocks && blockStart[block + 1] <= bin) block++;
+            curve[bin] = (float) blockHits[block] / blockCounts[block];
+        }
+        return curve;
+    }
+
+    /**
+     * Represents the calibrated probability of the raw scores in the range [lower, upper)
+     */
+    public static class Point {
+        public final float lowerScore;
+        public final float upperScore;
+        public final float probability;
+        public final long observations;
+
+        public Point(float lowerScore, float upperScore, float probability, long observations) {
+            this.lowerScore = lowerScore;
+            this.upperScore = upperScore;
+            this.probability = probability;
+            this.observations = observations;
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return String.format("[%.2f, %.2f) -> %.3f (%d)", lowerScore, upperScore, probability, observations);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.room.AggregateUrlDao;
+import nl.vu.cs.s2group.nappa.room.activity.visittime.ActivityVisitTimeDao;
+
+/**
+ * Predicts the activity the application is launched into and the URLs it requests right
+ * after the launch. The strategies only predict the successors of the current node, thus the
+ * first activity of a session is never prefetched.
+ * <p>
+ * The probability of an activity is the number of the latest {@link #MAX_SESSIONS} sessions
+ * that started at it over the number of these sessions. The probability of a URL is the sum,
+ * over the first activities, of the probability of the activity times the share of the
+ * sessions started at it that requested the URL within {@link #LAUNCH_WINDOW} milliseconds.
+ * Only the sessions with at least one recorded launch request are part of this share, since
+ * the requests served from the prefetching cache are not recorded in {@code nappa_url}.
+ * <p>
+ * The predicted URLs are prefetched when NAPPA is initialized, concurrently with the
+ * initialization of the application, and registered in the {@link PrefetchOutcomeTracker}
+ * under the source {@link #SOURCE}.
+ * <p>
+ * This predictor accepts the following configurations:
+ * <ul>
+ *     <li>{@link PrefetchingStrategyConfigKeys#LAUNCH_PREFETCH_MAX_URLS}</li>
+ * </ul>
+ */
+public class LaunchPredictor {
+    private static final String LOG_TAG = LaunchPredictor.class.getSimpleName();
+
+    public static final String SOURCE = "launch";
+    public static final int DEFAULT_LAUNCH_PREFETCH_MAX_URLS = 0;
+    /**
+     * The number of latest sessions the predictor is loaded from
+     */
+    public static final int MAX_SESSIONS = 50;
+    /**
+     * The number of milliseconds after the first visit of a session a request is part of
+     * the launch
+     */
+    public static final long LAUNCH_WINDOW = 10000;
+
+    /**
+     * URLs less likely than this probability are not prefetched
+     */
+    private static final float MIN_URL_PROBABILITY = 0.3f;
+
+    private final int maxUrls;
+    private ActivityNode launchNode;
+    private Long launchActivityId;
+    private float launchProbability;
+
+    /**
+     * @param maxUrls The maximum number of URLs to prefetch at launch
+     */
+    public LaunchPredictor(int maxUrls) {
+        if (maxUrls < 0)
+            throw new IllegalArgumentException("The maximum number of URLs to prefetch at launch must be a positive number. "
+                    + maxUrls + " provided.");
+        this.maxUrls = maxUrls;
+    }
+
+    /**
+     * @return {@code True} if the URLs are prefetched at launch
+     */
+    public boolean isEnabled() {
+        return maxUrls > 0;
+    }
+
+    /**
+     * Predict the URLs requested at launch from the launches of the latest sessions
+     *
+     * @param sessionStarts  The first visit of each of the latest sessions
+     * @param launchRequests The URLs requested at the launch of these sessions
+     * @return The predicted URLs by decreasing probability
+     */
+    @NotNull
+    public synchronized List<ScoredCandidate> predict(@NotNull List<ActivityVisitTimeDao.SessionStart> sessionStarts,
+                                                      @NotNull List<AggregateUrlDao.LaunchRequest> launchRequests) {
+        Map<Long, Integer> startCounts = new HashMap<>();
+        Map<Long, String> activityNames = new HashMap<>();
+        int totalStarts = 0;
+        for (ActivityVisitTimeDao.SessionStart start : sessionStarts) {
+            if (start.activityId == null) continue;
+            Integer count = startCounts.get(start.activityId);
+            startCounts.put(start.activityId, count == null ? 1 : count + 1);
+            activityNames.put(start.activityId, start.activityName);
+            totalStarts++;
+        }
+        if (totalStarts == 0) return new ArrayList<>();
+
+        launchActivityId = null;
+        launchProbability = 0;
+        for (Map.Entry<Long, Integer> entry : startCounts.entrySet()) {
+            float probability = (float) entry.getValue() / totalStarts;
+            if (probability <= launchProbability) continue;
+            launchActivityId = entry.getKey();
+            launchProbability = probability;
+        }
+        launchNode = new ActivityNode(activityNames.get(launchActivityId));
+
+        // The sessions with recorded launch requests and the sessions that requested each URL, by first activity
+        Map<Long, Set<Long>> sessionsWithRequests = new HashMap<>();
+        Map<Long, Map<String, Integer>> urlCounts = new HashMap<>();
+        for (AggregateUrlDao.LaunchRequest request : launchRequests) {
+            if (request.sessionId == null || request.activityId == null || request.url == null) continue;
+            Set<Long> sessions = sessionsWithRequests.get(request.activityId);
+            if (sessions == null) {
+                sessions = new HashSet<>();
+                sessionsWithRequests.put(request.activityId, sessions);
+            }
+            sessions.add(request.sessionId);
+            Map<String, Integer> counts = urlCounts.get(request.activityId);
+            if (counts == null) {
+                counts = new HashMap<>();
+                urlCounts.put(request.activityId, counts);
+            }
+            Integer count = counts.get(request.url);
+            counts.put(request.url, count == null ? 1 : count + 1);
+        }
+
+        Map<String, Float> probabilities = new HashMap<>();
+        for (Map.Entry<Long, Map<String, Integer>> entry : urlCounts.entrySet()) {
+            Integer starts = startCounts.get(entry.getKey());
+            if (starts == null) continue;
+            float activityProbability = (float) starts / totalStarts;
+            int sessions = sessionsWithRequests.get(entry.getKey()).size();
+            for (Map.Entry<String, Integer> url : entry.getValue().entrySet()) {
+                Float current = probabilities.get(url.getKey());
+                probabilities.put(url.getKey(), (current == null ? 0 : current) +
+                        activityProbability * url.getValue() / sessions);
+            }
+        }
+
+        List<ScoredCandidate> candidates = new ArrayList<>();
+        for (Map.Entry<String, Float> entry : probabilities.entrySet()) {
+            if (entry.getValue() < MIN_URL_PROBABILITY) continue;
+            candidates.add(new ScoredCandidate(entry.getKey(),
+                    launchNode,
+                    launchNode,
+                    entry.getValue(),
+                    ScoredCandidate.UNKNOWN,
+                    ScoredCandidate.UNKNOWN));
+        }
+        Collections.sort(candidates, ScoredCandidate.BY_PROBABILITY);
+        if (candidates.size() > maxUrls) candidates = new ArrayList<>(candidates.subList(0, maxUrls));
+
+        Log.d(LOG_TAG, String.format("Predicted launch into '%s' with probability %.3f from %d sessions, URLs: %s",
+                launchNode.activityName,
+                launchProbability,
+                totalStarts,
+                candidates));
+        return candidates;
+    }
+
+    /**
+     * @return The ID of the most likely first activity or {@code null} if there is no prediction
+     */
+    public synchronized Long getLaunchActivityId() {
+        return launchActivityId;
+    }
+
+    /**
+     * Log whether the application was launched into the predicted activity
+     *
+     * @param activityName The name of the first activity visited in this session
+     */
+    public synchronized void logStatistics(@NotNull String activityName) {
+        if (launchNode == null) return;
+        Log.d(LOG_TAG, String.format("STATS Launch prediction: predicted '%s' (probability %.3f), launched into '%s'",
+                launchNode.activityName,
+                launchProbability,
+                activityName));
+    }
+}
@@ -0,0 +1,337 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import java9.util.function.Consumer;
+import nl.vu.cs.s2group.nappa.Nappa;
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.prefetchurl.ParameteredUrl;
+import nl.vu.cs.s2group.nappa.room.data.ActivityExtraData;
+import nl.vu.cs.s2group.nappa.util.NappaUtil;
+
+/**
+ * Extends the prefetching beyond the nodes predicted by the strategy. Once the URLs selected
+ * by the strategy are prefetched, this stage walks the ENG from the current node up to the
+ * configured depth and prefetches the URLs of the nodes at each depth in turn. The
+ * probability of reaching a node is the product of the transition probabilities along the
+ * most likely path to it, where the transition probability of an edge is its visit frequency
+ * over the visit frequency of all edges leaving the same node.
+ * <p>
+ * The URLs of a node at depth {@code d} are templates whose parameters are the extras sent by
+ * its predecessor at depth {@code d - 1}, which are not known yet. A parameter is filled if
+ * <ul>
+ *     <li> It is an extra of the current node, since extras are often forwarded along the
+ *     path (e.g. an ID)</li>
+ *     <li> It can be derived from the responses prefetched for the predecessor. A value
+ *     previously sent by the predecessor with this key and present in one of these responses
+ *     is considered a derived value. If there are multiple derived values, the probability
+ *     of the path is split among them</li>
+ * </ul>
+ * <p>
+ * The URLs of each depth are prefetched by decreasing expected latency saved while they fit
+ * the byte budget of the depth, which shrinks geometrically with the depth. URLs with unknown
+ * size are not prefetched, since their cost cannot be bounded. The prefetched URLs are
+ * registered in the {@link PrefetchOutcomeTracker} under the source {@link #SOURCE}.
+ * <p>
+ * This stage accepts the following configurations:
+ * <ul>
+ *     <li>{@link PrefetchingStrategyConfigKeys#LOOKAHEAD_DEPTH}</li>
+ *     <li>{@link PrefetchingStrategyConfigKeys#LOOKAHEAD_BYTE_BUDGET_KB}</li>
+ *     <li>{@link PrefetchingStrategyConfigKeys#LOOKAHEAD_BUDGET_DECAY}</li>
+ * </ul>
+ */
+public class LookaheadStage {
+    private static final String LOG_TAG = LookaheadStage.class.getSimpleName();
+
+    public static final String SOURCE = "lookahead";
+
+    public static final int DEFAULT_LOOKAHEAD_DEPTH = 1;
+    public static final int DEFAULT_LOOKAHEAD_BYTE_BUDGET_KB = 256;
+    public static final float DEFAULT_LOOKAHEAD_BUDGET_DECAY = 0.5f;
+
+    /**
+     * Paths less likely than this probability are not expanded
+     */
+    private static final float MIN_PATH_PROBABILITY = 0.1f;
+    /**
+     * The maximum number of values derived for a single parameter
+     */
+    private static final int MAX_DERIVED_VALUES = 3;
+
+    private final int depth;
+    private final long byteBudget;
+    private final float budgetDecay;
+
+    /**
+     * @param depth        The maximum depth of the nodes to prefetch. The strategy already
+     *                     prefetches the nodes at depth 1.
+     * @param byteBudgetKb The number of KB that can be prefetched for the nodes at depth 2
+     * @param budgetDecay  The factor by which the byte budget shrinks at each further depth
+     */
+    public LookaheadStage(int depth, int byteBudgetKb, float budgetDecay) {
+        if (depth < 1)
+            throw new IllegalArgumentException("The lookahead depth must be greater than 0. "
+                    + depth + " provided.");
+        if (byteBudgetKb < 0)
+            throw new IllegalArgumentException("The lookahead byte budget must be a positive number. "
+                    + byteBudgetKb + " provided.");
+        if (budgetDecay < 0 || budgetDecay > 1)
+            throw new IllegalArgumentException("The lookahead budget decay must be a number between 0 and 1. "
+                    + budgetDecay + " provided.");
+
+        this.depth = depth;
+        this.byteBudget = byteBudgetKb * 1024L;
+        this.budgetDecay = budgetDecay;
+    }
+
+    /**
+     * @return {@code True} if this stage prefetches beyond the nodes predicted by the strategy
+     */
+    public boolean isEnabled() {
+        return depth > 1 && byteBudget > 0;
+    }
+
+    /**
+     * Prefetch the URLs of the nodes from depth 2 to the configured depth. Must be invoked
+     * once the URLs selected by the strategy are prefetched, as the parameters of the next
+     * depth are derived from the prefetched responses.
+     *
+     * @param currentNode The node the user is currently visiting
+     * @param activityId  The ID of the current node
+     * @param candidates  The URLs prefetched for the nodes at depth 1
+     * @param prefetcher  Prefetches the provided URLs and returns once they are cached
+     */
+    public void run(@NotNull ActivityNode currentNode,
+                    long activityId,
+                    @NotNull List<ScoredCandidate> candidates,
+                    @NotNull Consumer<List<String>> prefetcher) {
+        if (!isEnabled()) return;
+
+        Map<String, String> knownParameters = Nappa.getExtrasMap().get(activityId);
+        if (knownParameters == null) knownParameters = new HashMap<>();
+
+        Set<ActivityNode> expandedNodes = new HashSet<>();
+        Set<String> prefetchedUrls = new HashSet<>(ScoredCandidate.toUrls(candidates));
+        Map<ActivityNode, Float> frontier = new HashMap<>();
+        frontier.put(currentNode, 1f);
+        expandedNodes.add(currentNode);
+        List<ScoredCandidate> previousCandidates = candidates;
+        long budget = byteBudget;
+
+        // The nodes at depth 1 are expanded without prefetching, since the strategy already did
+        frontier = expand(frontier, expandedNodes);
+        for (int currentDepth = 2; currentDepth <= depth && !frontier.isEmpty() && budget > 0; currentDepth++) {
+            Map<ActivityNode, Float> nextFrontier = expand(frontier, expandedNodes);
+            if (nextFrontier.isEmpty()) break;
+
+            List<ScoredCandidate> levelCandidates = new ArrayList<>();
+            for (Map.Entry<ActivityNode, Float> entry : nextFrontier.entrySet()) {
+                ActivityNode predecessor = getMostLikelyPredecessor(entry.getKey(), frontier);
+                if (predecessor == null) continue;
+                levelCandidates.addAll(getCandidatesForNode(currentNode,
+                        predecessor,
+                        entry.getKey(),
+                        entry.getValue(),
+                        knownParameters,
+                        previousCandidates,
+                        prefetchedUrls));
+            }
+
+            List<ScoredCandidate> selectedCandidates = selectWithinBudget(levelCandidates, budget);
+            for (ScoredCandidate candidate : selectedCandidates) {
+                PrefetchOutcomeTracker.registerPrediction(SOURCE, activityId, candidate);
+                prefetchedUrls.add(candidate.url);
+                Log.d(LOG_TAG, String.format("Depth %d: prefetching %s", currentDepth, candidate));
+            }
+            if (!selectedCandidates.isEmpty()) prefetcher.accept(ScoredCandidate.toUrls(selectedCandidates));
+
+            previousCandidates = selectedCandidates;
+            frontier = nextFrontier;
+            budget = (long) (budget * budgetDecay);
+        }
+    }
+
+    /**
+     * Expand the frontier by one depth, multiplying the probability of reaching each node by
+     * the transition probability of its edges. The nodes already expanded are not revisited.
+     *
+     * @return The nodes at the next depth mapped to the probability of their most likely path
+     */
+    @NotNull
+    private Map<ActivityNode, Float> expand(@NotNull Map<ActivityNode, Float> frontier, @NotNull Set<ActivityNode> expandedNodes) {
+        Map<ActivityNode, Float> nextFrontier = new HashMap<>();
+
+        for (Map.Entry<ActivityNode, Float> entry : frontier.entrySet()) {
+            Map<ActivityNode, Integer> successors = entry.getKey().successors;
+            int total = 0;
+            for (Integer count : successors.values()) total += count;
+            if (total == 0) continue;
+
+            for (Map.Entry<ActivityNode, Integer> successor : successors.entrySet()) {
+                if (expandedNodes.contains(successor.getKey())) continue;
+                float probability = entry.getValue() * successor.getValue() / total;
+                if (probability < MIN_PATH_PROBABILITY) continue;
+                Float current = nextFrontier.get(successor.getKey());
+                if (current == null || current < probability) nextFrontier.put(successor.getKey(), probability);
+            }
+        }
+
+        expandedNodes.addAll(nextFrontier.keySet());
+        return nextFrontier;
+    }
+
+    @Nullable
+    private ActivityNode getMostLikelyPredecessor(@NotNull ActivityNode node, @NotNull Map<ActivityNode, Float> frontier) {
+        ActivityNode predecessor = null;
+        float bestProbability = -1;
+        for (Map.Entry<ActivityNode, Float> entry : frontier.entrySet()) {
+            Integer count = entry.getKey().successors.get(node);
+            if (count == null || count == 0) continue;
+            if (entry.getValue() > bestProbability) {
+                bestProbability = entry.getValue();
+                predecessor = entry.getKey();
+            }
+        }
+        return predecessor;
+    }
+
+    /**
+     * Fill the URL templates of the node with the known parameters and the parameters
+     * derived from the responses prefetched for its predecessor
+     */
+    @NotNull
+    private List<ScoredCandidate> getCandidatesForNode(@NotNull ActivityNode currentNode,
+                                                       @NotNull ActivityNode predecessor,
+                                                       @NotNull ActivityNode node,
+                                                       float probability,
+                                                       @NotNull Map<String, String> knownParameters,
+                                                       @NotNull List<ScoredCandidate> predecessorCandidates,
+                                                       @NotNull Set<String> prefetchedUrls) {
+        List<ScoredCandidate> candidates = new ArrayList<>();
+        List<String> responses = getPrefetchedResponses(predecessor, predecessorCandidates);
+
+        for (ParameteredUrl parameteredUrl : node.parameteredUrlList) {
+            List<Map<String, String>> parameterMaps = new ArrayList<>();
+            parameterMaps.add(new HashMap<>(knownParameters));
+
+            for (String key : parameteredUrl.getParamKeys()) {
+                if (knownParameters.containsKey(key)) continue;
+                List<String> values = deriveParameterValues(predecessor, key, responses);
+                List<Map<String, String>> expandedMaps = new ArrayList<>();
+                for (Map<String, String> parameterMap : parameterMaps) {
+                    for (String value : values) {
+                        Map<String, String> expandedMap = new HashMap<>(parameterMap);
+                        expandedMap.put(key, value);
+                        expandedMaps.add(expandedMap);
+                    }
+                }
+                parameterMaps = expandedMaps;
+                if (parameterMaps.isEmpty() || parameterMaps.size() > MAX_DERIVED_VALUES) break;
+            }
+            if (parameterMaps.isEmpty() || parameterMaps.size() > MAX_DERIVED_VALUES) continue;
+
+            List<String> urls = new ArrayList<>(parameterMaps.size());
+            for (Map<String, String> parameterMap : parameterMaps) {
+                String url = parameteredUrl.fillParams(parameterMap);
+                if (!prefetchedUrls.contains(url)) urls.add(url);
+            }
+            candidates.addAll(NappaUtil.toScoredCandidates(currentNode, node, urls, probability / parameterMaps.size()));
+        }
+
+        return candidates;
+    }
+
+    @NotNull
+    private List<String> getPrefetchedResponses(@NotNull ActivityNode predecessor, @NotNull List<ScoredCandidate> predecessorCandidates) {
+        List<String> responses = new ArrayList<>();
+        for (ScoredCandidate candidate : predecessorCandidates) {
+            if (candidate.targetNode != predecessor) continue;
+            String body = Nappa.getCachedResponseBody(candidate.url);
+            if (body != null) responses.add(body);
+        }
+        return responses;
+    }
+
+    /**
+     * @return The values previously sent by the node with the provided key that are present
+     * as a whole token in the provided responses
+     */
+    @NotNull
+    private List<String> deriveParameterValues(@NotNull ActivityNode node, @NotNull String key, @NotNull List<String> responses) {
+        if (responses.isEmpty()) return Collections.emptyList();
+        List<ActivityExtraData> extras = node.getListActivityExtraLiveData() == null ?
+                null :
+                node.getListActivityExtraLiveData().getValue();
+        if (extras == null) return Collections.emptyList();
+
+        Set<String> values = new LinkedHashSet<>();
+        for (ActivityExtraData extra : extras) {
+            if (!key.equals(extra.key) || extra.value == null || extra.value.isEmpty()) continue;
+            for (String response : responses) {
+                if (containsToken(response, extra.value)) {
+                    values.add(extra.value);
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(values);
+    }
+
+    /**
+     * Verify if the value occurs in the text as a whole token, i.e. not preceded nor followed
+     * by a letter, a digit or one of {@code _-.}. As such, the value {@code 12} is found in
+     * {@code {"id": 12}} and {@code {"id": "12"}}, but not in {@code {"id": 123}} or
+     * {@code {"price": 1.12}}.
+     *
+     * @param text  The text to search, e.g. a JSON response body
+     * @param value The value to look for
+     * @return {@code True} if the value is found as a token
+     */
+    static boolean containsToken(@NotNull String text, @NotNull String value) {
+        if (value.isEmpty()) return false;
+        int index = text.indexOf(value);
+        while (index != -1) {
+            int end = index + value.length();
+            if ((index == 0 || !isTokenCharacter(text.charAt(index - 1))) &&
+                    (end == text.length() || !isTokenCharacter(text.charAt(end)))) return true;
+            index = text.indexOf(value, index + 1);
+        }
+        return false;
+    }
+
+    private static boolean isTokenCharacter(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+    }
+
+    /**
+     * Select the candidates by decreasing expected latency saved while they fit the budget
+     */
+    @NotNull
+    private List<ScoredCandidate> selectWithinBudget(@NotNull List<ScoredCandidate> candidates, long budget) {
+        Collections.sort(candidates, ScoredCandidate.BY_EXPECTED_LATENCY_SAVED);
+        List<ScoredCandidate> selectedCandidates = new ArrayList<>();
+        Set<String> selectedUrls = new HashSet<>();
+        long spent = 0;
+        for (ScoredCandidate candidate : candidates) {
+            if (candidate.expectedSize == ScoredCandidate.UNKNOWN) continue;
+            if (spent + candidate.expectedSize > budget) continue;
+            // Different templates of the same node may be filled into the same URL
+            if (!selectedUrls.add(candidate.url)) continue;
+            spent += candidate.expectedSize;
+            selectedCandidates.add(candidate);
+        }
+        return selectedCandidates;
+    }
+}
@@ -7,7 +7,6 @@ import androidx.annotation.NonNull;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import nl.vu.cs.s2group.nappa.Nappa;
@@ -30,7 +29,6 @@ public class PPMPrefetchingStrategy implements PrefetchingStrategy {
     private static final String LOG_TAG = PPMPrefetchingStrategy.class.getSimpleName();
 
     private float threshold;
-    private HashMap<Long, String> reversedHashMap = new HashMap<>();
     private static ScheduledThreadPoolExecutor poolExecutor = new ScheduledThreadPoolExecutor(1);
     public PPMPrefetchingStrategy(float threshold) {
         this.threshold = threshold;
@@ -50,16 +48,13 @@ public class PPMPrefetchingStrategy implements PrefetchingStrategy {
     @NonNull
     @Override
     public List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber) {
-
-        Map<String, Long> activityMap = Nappa.activityMap;
-        for (String key : activityMap.keySet()){
-            reversedHashMap.put(activityMap.get(key), key);
-        }
-        List<ActivityNode> probableNodes = getMostProbableNodes(node);
+        StrategyExecutionContext context = new StrategyExecutionContext(node, PredictionDeadline.NONE);
+        StrategyExecutionContext.NodeScores probabilities = context.getScores();
+        List<ActivityNode> probableNodes = getMostProbableNodes(node, context);
         for (ActivityNode node1 : probableNodes) {
             for (int i=probableNodes.lastIndexOf(node1)+1;i<probableNodes.size();i++) {
                 ActivityNode node2 = probableNodes.get(i);
-                if(node1.prob<node2.prob){
+                if(probabilities.get(node1)<probabilities.get(node2)){
                     ActivityNode temp=node1;
                     probableNodes.set(probableNodes.lastIndexOf(node1),node2);
                     probableNodes.set(probableNodes.lastIndexOf(node2),temp);
@@ -70,9 +65,9 @@ public class PPMPrefetchingStrategy implements PrefetchingStrategy {
         List<String> listUrlToPrefetch = new LinkedList<>();
         maxNumber = (int) (threshold*probableNodes.size() +1);
 
-        for (int i=0; i<maxNumber; i++) {
+        for (int i=0; i<Math.min(maxNumber, probableNodes.size()); i++) {
             listUrlToPrefetch.addAll(NappaUtil.getUrlsFromCandidateNode(node, probableNodes.get(i)));
-            Log.d(LOG_TAG,"SELECTED --> " + probableNodes.get(i).activityName + " index: " + probableNodes.get(i).prob);
+            Log.d(LOG_TAG,"SELECTED --> " + probableNodes.get(i).activityName + " index: " + probabilities.get(probableNodes.get(i)));
 
         }
         return listUrlToPrefetch;
@@ -89,17 +84,18 @@ public class PPMPrefetchingStrategy implements PrefetchingStrategy {
      * total Total number of hits in the sessions taken in consideration
      * successorCountMap List containing all the probable nodes, corresponding to those nodes that
      *                      have a probability exceeding the prescribed threshold.
+     * @param context The context of this execution, holding the probability of each node
      * @return The set of probable nodes {@code List<ActivityNode>} with respect to the initial activity {@code node}
      */
 
-    private List<ActivityNode> getMostProbableNodes(ActivityNode node) {
+    private List<ActivityNode> getMostProbableNodes(ActivityNode node, StrategyExecutionContext context) {
         HashMap<Long, Integer> successorCountMap = new HashMap<>();
         List<ActivityNode> probableNodes = new LinkedList<>();
-        successorCountMap = zeroContextNodes(node,successorCountMap);
+        successorCountMap = zeroContextNodes(node,successorCountMap,context);
         int total = 0;
         for(Long candidate : successorCountMap.keySet()) {
             total+=successorCountMap.get(candidate);
-            Log.d(LOG_TAG,"actName :"+reversedHashMap.get(candidate)+" hit: "+successorCountMap.get(candidate));
+            Log.d(LOG_TAG,"actName :"+context.getActivityName(candidate)+" hit: "+successorCountMap.get(candidate));
         }
         //////////////////////////// Will calculate the probability to access a node by partial match based on a 0-order markov-model
         //////////////////////////// https://pdfs.semanticscholar.org/f9dc/bf7b0c900335932d9a651b9c21d8a59c3679.pdf
@@ -107,18 +103,20 @@ public class PPMPrefetchingStrategy implements PrefetchingStrategy {
         for (Long succ : successorCountMap.keySet()) {
             float prob = 0;
             if(total>0) prob= (float)successorCountMap.get(succ)/total; // * succ.pageRank or others
-            ActivityNode node1 = Nappa.getActivityGraph().getByName(reversedHashMap.get(succ));
-            node1.prob=prob;
+            ActivityNode node1 = Nappa.getActivityGraph().getByName(context.getActivityName(succ));
+            context.getScores().set(node1, prob);
             probableNodes.add(node1);
             Log.d(LOG_TAG, "Computed probability: " + prob + " for " + node1.activityName);
         }
         return probableNodes;
     }
 
-    private HashMap<Long, Integer> zeroContextNodes(ActivityNode node, HashMap<Long, Integer> successorCountMap){
+    private HashMap<Long, Integer> zeroContextNodes(ActivityNode node, HashMap<Long, Integer> successorCountMap, StrategyExecutionContext context){
+        // The successors of a node are counted once, otherwise a cycle in the graph never ends
+        if (!context.markVisited(node)) return successorCountMap;
         List<SessionDao.SessionAggregate> sessionAggregate = node.getSessionAggregateList();
         for (SessionDao.SessionAggregate succ : sessionAggregate) {
-            successorCountMap = zeroContextNodes(Nappa.getActivityGraph().getByName(reversedHashMap.get(succ.idActDest)),successorCountMap);
+            successorCountMap = zeroContextNodes(Nappa.getActivityGraph().getByName(context.getActivityName(succ.idActDest)),successorCountMap,context);
             if(successorCountMap.containsKey(succ.idActDest)){
                 successorCountMap.put(succ.idActDest, succ.countSource2Dest.intValue()+successorCountMap.get(succ.idActDest));
             }
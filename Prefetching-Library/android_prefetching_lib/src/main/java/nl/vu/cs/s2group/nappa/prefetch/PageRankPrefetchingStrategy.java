@@ -4,10 +4,11 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import org.jetbrains.annotations.NotNull;
+
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import nl.vu.cs.s2group.nappa.Nappa;
 import nl.vu.cs.s2group.nappa.graph.ActivityNode;
@@ -23,7 +24,6 @@ import nl.vu.cs.s2group.nappa.util.NappaUtil;
 public class PageRankPrefetchingStrategy implements PrefetchingStrategy {
     private static final String LOG_TAG = PageRankPrefetchingStrategy.class.getSimpleName();
 
-    private HashMap<Long, String> reversedHashMap = new HashMap<>();
     float threshold;
     public PageRankPrefetchingStrategy(float threshold) {this.threshold=threshold;}
 
@@ -40,13 +40,15 @@ public class PageRankPrefetchingStrategy implements PrefetchingStrategy {
     @NonNull
     @Override
     public List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber) {
+        return getTopNUrlToPrefetchForNode(node, maxNumber, PredictionDeadline.NONE);
+    }
 
-        Map<String, Long> activityMap = Nappa.activityMap;
-        for (String key : activityMap.keySet()){
-            reversedHashMap.put(activityMap.get(key), key);
-        }
+    @NonNull
+    @Override
+    public List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        StrategyExecutionContext context = new StrategyExecutionContext(node, deadline);
 
-        List<ActivityNode> probableNodes = getMostProbableNodes(node, new LinkedList<>());
+        List<ActivityNode> probableNodes = getMostProbableNodes(node, new LinkedList<>(), context);
         for (ActivityNode node1 : probableNodes) {
             for (int i=probableNodes.lastIndexOf(node1)+1;i<probableNodes.size();i++) {
                 ActivityNode node2 = probableNodes.get(i);
@@ -59,7 +61,8 @@ public class PageRankPrefetchingStrategy implements PrefetchingStrategy {
             }
         }
         List<String> listUrlToPrefetch = new LinkedList<>();
-        maxNumber = (int) (threshold*probableNodes.size() +1);
+        // The list might be incomplete or empty if the deadline expired during the search
+        maxNumber = Math.min((int) (threshold*probableNodes.size() +1), probableNodes.size());
 
         for (int i=0; i<maxNumber; i++) {
             listUrlToPrefetch.addAll(NappaUtil.getUrlsFromCandidateNode(node, probableNodes.get(i)));
@@ -75,13 +78,18 @@ public class PageRankPrefetchingStrategy implements PrefetchingStrategy {
      *
      * node->successorA->...->successorN
      *
+     * The search stops once the deadline expires, returning the nodes found so far.
+     *
      * @param node Current activity to be considered for prefetching
      *
      * @param probableNodes List containing all the probable nodes, corresponding to those nodes that
      *                      have a probability exceeding the prescribed threshold.
+     * @param context The context of this execution, holding the time budget of this prediction
      * @return The set of probable nodes {@code List<ActivityNode>} with respect to the initial activity {@code node}
      */
-    private List<ActivityNode> getMostProbableNodes(ActivityNode node, List<ActivityNode> probableNodes) {
+    private List<ActivityNode> getMostProbableNodes(ActivityNode node, List<ActivityNode> probableNodes, StrategyExecutionContext context) {
+        if (context.deadline.isExpired()) return probableNodes;
+
         // Fetch the current state of the session aggregate
         List<SessionDao.SessionAggregate> sessionAggregate = node.getSessionAggregateList();
         HashMap<Long, Float> successorCountMap = new HashMap<>();
@@ -93,11 +101,11 @@ public class PageRankPrefetchingStrategy implements PrefetchingStrategy {
 
         for (Long succ : successorCountMap.keySet()) {
 
-            ActivityNode node1 = Nappa.getActivityGraph().getByName(reversedHashMap.get(succ));
+            ActivityNode node1 = Nappa.getActivityGraph().getByName(context.getActivityName(succ));
 
                 if (!probableNodes.contains(node1)) {
                     probableNodes.add(node1);
-                    getMostProbableNodes(node1, probableNodes);
+                    getMostProbableNodes(node1, probableNodes, context);
                 }
 
         }
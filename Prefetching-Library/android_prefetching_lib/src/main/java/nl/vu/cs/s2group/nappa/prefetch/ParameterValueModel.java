@@ -0,0 +1,265 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.prefetchurl.ParameteredUrl;
+import nl.vu.cs.s2group.nappa.room.dao.ActivityExtraDao;
+import nl.vu.cs.s2group.nappa.util.NappaUtil;
+
+/**
+ * Predicts the values of the extras an activity will send before the user selects them. The
+ * URL templates of the successors of the current node can only be filled once the current
+ * node sent the extras they require, typically when the user picks an item. Thus, nothing is
+ * prefetched for them before that.
+ * <p>
+ * This model learns how often each activity sent each value of each extra from the table
+ * {@code nappa_activity_extra}. The probability of a value is its number of occurrences over
+ * the occurrences of all values of the same (activity, key) pair. The unknown extras of a
+ * template are filled with the {@link PrefetchingStrategyConfigKeys#PARAMETER_VALUE_TOP_K}
+ * most likely values, while the known extras keep their value. The probability of a filled
+ * URL is the transition probability to the successor times the probability of each
+ * predicted value.
+ * <p>
+ * The predicted URLs have their own budget, separate from the URL budget of the strategy and
+ * weighted by their probability: the URLs are selected by decreasing probability while the
+ * expected number of wasted requests, i.e. the sum of {@code 1 - probability}, does not exceed
+ * {@link PrefetchingStrategyConfigKeys#PARAMETER_VALUE_BUDGET}. The prefetched URLs are
+ * registered in the {@link PrefetchOutcomeTracker} under the source {@link #SOURCE}.
+ * <p>
+ * This model accepts the following configurations:
+ * <ul>
+ *     <li>{@link PrefetchingStrategyConfigKeys#PARAMETER_VALUE_TOP_K}</li>
+ *     <li>{@link PrefetchingStrategyConfigKeys#PARAMETER_VALUE_BUDGET}</li>
+ * </ul>
+ */
+public class ParameterValueModel {
+    private static final String LOG_TAG = ParameterValueModel.class.getSimpleName();
+
+    public static final String SOURCE = "parameter-value";
+    public static final int DEFAULT_PARAMETER_VALUE_TOP_K = 0;
+    public static final float DEFAULT_PARAMETER_VALUE_BUDGET = 1f;
+
+    /**
+     * URLs less likely than this probability are not predicted
+     */
+    private static final float MIN_URL_PROBABILITY = 0.05f;
+
+    /**
+     * The number of occurrences of each value mapped by activity ID and key
+     */
+    private final Map<Long, Map<String, Map<String, Long>>> valueCounts = new HashMap<>();
+    private final int topK;
+    private final float budget;
+
+    /**
+     * @param topK   The number of most likely values an unknown extra is filled with
+     * @param budget The maximum expected number of wasted requests
+     */
+    public ParameterValueModel(int topK, float budget) {
+        if (topK < 0)
+            throw new IllegalArgumentException("The number of predicted parameter values must be a positive number. "
+                    + topK + " provided.");
+        if (budget < 0)
+            throw new IllegalArgumentException("The parameter value budget must be a positive number. "
+                    + budget + " provided.");
+        this.topK = topK;
+        this.budget = budget;
+    }
+
+    /**
+     * @return {@code True} if the URLs with unknown extras are predicted
+     */
+    public boolean isEnabled() {
+        return topK > 0 && budget > 0;
+    }
+
+    /**
+     * Learn the provided extra value counts. The extras sent while loading are counted as well.
+     *
+     * @param counts The number of times each activity sent each value of each extra
+     */
+    public synchronized void load(@NotNull List<ActivityExtraDao.ExtraValueCount> counts) {
+        for (ActivityExtraDao.ExtraValueCount count : counts) {
+            if (count.idActivity == null || count.key == null || count.value == null || count.count == null) continue;
+            add(count.idActivity, count.key, count.value, count.count);
+        }
+        Log.d(LOG_TAG, String.format("Loaded %d extra values of %d activities", counts.size(), valueCounts.size()));
+    }
+
+    /**
+     * Learn an extra sent by an activity
+     *
+     * @param activityId The ID of the activity that sent the extra
+     * @param key        The key of the extra
+     * @param value      The value of the extra
+     */
+    public synchronized void onExtra(long activityId, @NotNull String key, @NotNull String value) {
+        add(activityId, key, value, 1);
+    }
+
+    private void add(long activityId, @NotNull String key, @NotNull String value, long count) {
+        Map<String, Map<String, Long>> keys = valueCounts.get(activityId);
+        if (keys == null) {
+            keys = new HashMap<>();
+            valueCounts.put(activityId, keys);
+        }
+        Map<String, Long> values = keys.get(key);
+        if (values == null) {
+            values = new HashMap<>();
+            keys.put(key, values);
+        }
+        Long current = values.get(value);
+        values.put(value, current == null ? count : current + count);
+    }
+
+    /**
+     * Predict the URLs of the successors of the current node whose extras are not all known
+     * and select them within the budget
+     *
+     * @param currentNode     The node the user is currently visiting
+     * @param activityId      The ID of the current node
+     * @param knownParameters The extras the current node sent in this session
+     * @return The selected URLs by decreasing probability
+     */
+    @NotNull
+    public List<ScoredCandidate> getScoredCandidates(@NotNull ActivityNode currentNode,
+                                                     long activityId,
+                                                     @NotNull Map<String, String> knownParameters) {
+        Map<ActivityNode, Integer> successors = currentNode.successors;
+        int total = 0;
+        for (Integer count : successors.values()) total += count;
+        if (total == 0) return new ArrayList<>();
+
+        Map<String, Float> probabilities = new HashMap<>();
+        Map<String, ActivityNode> targetNodes = new HashMap<>();
+        for (Map.Entry<ActivityNode, Integer> successor : successors.entrySet()) {
+            float transitionProbability = (float) successor.getValue() / total;
+            if (transitionProbability < MIN_URL_PROBABILITY) continue;
+            for (ParameteredUrl parameteredUrl : successor.getKey().parameteredUrlList) {
+                for (Map.Entry<String, Float> url : predictUrls(activityId, parameteredUrl, knownParameters, transitionProbability).entrySet()) {
+                    Float current = probabilities.get(url.getKey());
+                    if (current != null && current >= url.getValue()) continue;
+                    probabilities.put(url.getKey(), url.getValue());
+                    targetNodes.put(url.getKey(), successor.getKey());
+                }
+            }
+        }
+
+        // The expected costs of the URLs of each node are queried at once and the probabilities set afterwards
+        Map<ActivityNode, List<String>> urlsByNode = new HashMap<>();
+        for (Map.Entry<String, ActivityNode> entry : targetNodes.entrySet()) {
+            List<String> urls = urlsByNode.get(entry.getValue());
+            if (urls == null) {
+                urls = new ArrayList<>();
+                urlsByNode.put(entry.getValue(), urls);
+            }
+            urls.add(entry.getKey());
+        }
+        List<ScoredCandidate> candidates = new ArrayList<>(probabilities.size());
+        for (Map.Entry<ActivityNode, List<String>> entry : urlsByNode.entrySet()) {
+            for (ScoredCandidate candidate : NappaUtil.toScoredCandidates(currentNode, entry.getKey(), entry.getValue(), 1f)) {
+                //noinspection ConstantConditions All URLs have a probability
+                candidates.add(new ScoredCandidate(candidate.url,
+                        candidate.sourceNode,
+                        candidate.targetNode,
+                        probabilities.get(candidate.url),
+                        candidate.expectedSize,
+                        candidate.expectedDuration));
+            }
+        }
+        return selectWithinBudget(candidates);
+    }
+
+    /**
+     * Fill the template with the known extras and the most likely values of the unknown
+     * extras
+     *
+     * @return The filled URLs mapped to their probability. Empty if all extras are known,
+     * since these URLs are already predicted by the strategy.
+     */
+    @NotNull
+    Map<String, Float> predictUrls(long activityId,
+                                           @NotNull ParameteredUrl parameteredUrl,
+                                           @NotNull Map<String, String> knownParameters,
+                                           float transitionProbability) {
+        Map<Map<String, String>, Float> parameterMaps = new HashMap<>();
+        parameterMaps.put(new HashMap<>(knownParameters), transitionProbability);
+        boolean hasUnknownParameters = false;
+
+        for (String key : new HashSet<>(parameteredUrl.getParamKeys())) {
+            if (knownParameters.containsKey(key)) continue;
+            hasUnknownParameters = true;
+            List<Map.Entry<String, Float>> values = getTopValues(activityId, key);
+
+            Map<Map<String, String>, Float> expandedMaps = new HashMap<>();
+            for (Map.Entry<Map<String, String>, Float> parameterMap : parameterMaps.entrySet()) {
+                for (Map.Entry<String, Float> value : values) {
+                    float probability = parameterMap.getValue() * value.getValue();
+                    if (probability < MIN_URL_PROBABILITY) continue;
+                    Map<String, String> expandedMap = new HashMap<>(parameterMap.getKey());
+                    expandedMap.put(key, value.getKey());
+                    expandedMaps.put(expandedMap, probability);
+                }
+            }
+            parameterMaps = expandedMaps;
+            if (parameterMaps.isEmpty()) break;
+        }
+
+        Map<String, Float> urls = new HashMap<>();
+        if (!hasUnknownParameters) return urls;
+        for (Map.Entry<Map<String, String>, Float> parameterMap : parameterMaps.entrySet()) {
+            urls.put(parameteredUrl.fillParams(parameterMap.getKey()), parameterMap.getValue());
+        }
+        return urls;
+    }
+
+    /**
+     * @return The {@link #topK} most likely values of the extra mapped to their probability,
+     * by decreasing probability
+     */
+    @NotNull
+    private synchronized List<Map.Entry<String, Float>> getTopValues(long activityId, @NotNull String key) {
+        Map<String, Map<String, Long>> keys = valueCounts.get(activityId);
+        Map<String, Long> values = keys == null ? null : keys.get(key);
+        if (values == null || values.isEmpty()) return new ArrayList<>();
+
+        long total = 0;
+        for (Long count : values.values()) total += count;
+        List<Map.Entry<String, Long>> sortedValues = new ArrayList<>(values.entrySet());
+        Collections.sort(sortedValues, (o1, o2) -> Long.compare(o2.getValue(), o1.getValue()));
+
+        List<Map.Entry<String, Float>> topValues = new ArrayList<>(Math.min(topK, sortedValues.size()));
+        for (Map.Entry<String, Long> value : sortedValues.subList(0, Math.min(topK, sortedValues.size()))) {
+            topValues.add(new AbstractMap.SimpleImmutableEntry<>(value.getKey(), (float) value.getValue() / total));
+        }
+        return topValues;
+    }
+
+    /**
+     * Select the candidates by decreasing probability while the expected number of wasted
+     * requests fits the budget
+     */
+    @NotNull
+    List<ScoredCandidate> selectWithinBudget(@NotNull List<ScoredCandidate> candidates) {
+        Collections.sort(candidates, ScoredCandidate.BY_PROBABILITY);
+        List<ScoredCandidate> selectedCandidates = new ArrayList<>();
+        float expectedWaste = 0;
+        for (ScoredCandidate candidate : candidates) {
+            expectedWaste += 1 - candidate.probability;
+            if (expectedWaste > budget) break;
+            selectedCandidates.add(candidate);
+        }
+        return selectedCandidates;
+    }
+}
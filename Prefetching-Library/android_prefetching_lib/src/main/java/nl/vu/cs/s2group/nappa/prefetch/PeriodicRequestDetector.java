@@ -0,0 +1,251 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import java9.util.function.Consumer;
+
+/**
+ * Detects URLs the application requests with a stable period while an activity is open (e.g.
+ * a weather or news screen polling the same endpoint every few minutes) and refreshes them
+ * shortly before the next expected request, such that the poll of the application is served
+ * from the prefetching cache.
+ * <p>
+ * The detector keeps the intervals between the latest requests of each (activity, URL) pair.
+ * The requests are periodic if there are at least {@link #MIN_INTERVALS} intervals and their
+ * coefficient of variation does not exceed
+ * {@link PrefetchingStrategyConfigKeys#PERIODIC_REFRESH_MAX_JITTER}. The period is the
+ * average interval. After each request of a periodic URL, a refresh is scheduled
+ * {@link PrefetchingStrategyConfigKeys#PERIODIC_REFRESH_LEAD_SECONDS} before the next
+ * expected request. The scheduled refreshes of an activity are cancelled when the user
+ * leaves it, while the detected periods are kept for the next visit.
+ * <p>
+ * The detector learns from the requests issued by the application, including the ones served
+ * from the prefetching cache. It is not loaded from the table {@code nappa_url}, since this
+ * table contains the requests issued by the prefetcher and misses the ones served from the
+ * prefetching cache, i.e. the requests of the application once the refresh works.
+ * <p>
+ * A prediction is accurate if the next request arrives within {@link #TOLERANCE_RATIO} of
+ * the period from the expected time. The lead time is the time between a refresh and the
+ * request it was made for. Both are logged as statistics.
+ * <p>
+ * This detector accepts the following configurations:
+ * <ul>
+ *     <li>{@link PrefetchingStrategyConfigKeys#PERIODIC_REFRESH_LEAD_SECONDS}</li>
+ *     <li>{@link PrefetchingStrategyConfigKeys#PERIODIC_REFRESH_MAX_JITTER}</li>
+ * </ul>
+ */
+public class PeriodicRequestDetector {
+    private static final String LOG_TAG = PeriodicRequestDetector.class.getSimpleName();
+
+    public static final String SOURCE = "periodic-refresh";
+    public static final int DEFAULT_PERIODIC_REFRESH_LEAD_SECONDS = 0;
+    public static final float DEFAULT_PERIODIC_REFRESH_MAX_JITTER = 0.1f;
+
+    /**
+     * Requests of the same URL closer than this number of milliseconds are considered
+     * duplicates and not polls
+     */
+    private static final long MIN_PERIOD = 10000;
+    private static final int MIN_INTERVALS = 3;
+    private static final int MAX_INTERVALS = 8;
+    private static final float TOLERANCE_RATIO = 0.2f;
+    private static final int MAX_SERIES = 200;
+    private static final long NONE = -1;
+
+    private final Map<String, Series> series = new LinkedHashMap<>(16, 0.75f, true);
+    private final long leadTime;
+    private final float maxJitter;
+    private final ScheduledExecutorService executor;
+    private final Consumer<String> refresher;
+
+    private long predictions;
+    private long accuratePredictions;
+    private long refreshes;
+    private long usedRefreshes;
+    private long totalLeadTime;
+
+    /**
+     * @param leadSeconds The number of seconds a URL is refreshed before its next expected request
+     * @param maxJitter   The maximum coefficient of variation of the intervals between requests
+     * @param executor    The executor the refreshes are scheduled in
+     * @param refresher   Fetches the provided URL from the network
+     */
+    public PeriodicRequestDetector(int leadSeconds,
+                                   float maxJitter,
+                                   @NotNull ScheduledExecutorService executor,
+                                   @NotNull Consumer<String> refresher) {
+        if (leadSeconds < 0)
+            throw new IllegalArgumentException("The periodic refresh lead time must be a positive number. "
+                    + leadSeconds + " provided.");
+        if (maxJitter < 0)
+            throw new IllegalArgumentException("The periodic refresh maximum jitter must be a positive number. "
+                    + maxJitter + " provided.");
+        this.leadTime = TimeUnit.SECONDS.toMillis(leadSeconds);
+        this.maxJitter = maxJitter;
+        this.executor = executor;
+        this.refresher = refresher;
+    }
+
+    /**
+     * @return {@code True} if the periodic URLs are refreshed
+     */
+    public boolean isEnabled() {
+        return leadTime > 0;
+    }
+
+    /**
+     * Learn a request issued by the application and schedule the refresh of the URL if it is
+     * requested periodically
+     *
+     * @param activityId The ID of the activity the user is visiting
+     * @param url        The requested URL
+     * @param timestamp  The timestamp the URL was requested at
+     */
+    public synchronized void onRequest(long activityId, @NotNull String url, long timestamp) {
+        Series current = getSeries(activityId, url);
+        if (current.lastTimestamp != NONE && timestamp - current.lastTimestamp < MIN_PERIOD) return;
+
+        if (current.expectedTime != NONE) resolve(current, timestamp);
+        if (current.lastTimestamp != NONE) current.addInterval(timestamp - current.lastTimestamp);
+        current.lastTimestamp = timestamp;
+
+        long period = current.getPeriod(maxJitter);
+        if (period == NONE || period <= leadTime) return;
+        current.expectedTime = timestamp + period;
+        current.tolerance = (long) (period * TOLERANCE_RATIO);
+        long expectedTime = current.expectedTime;
+        current.pendingRefresh = executor.schedule(() -> refresh(current, expectedTime),
+                period - leadTime,
+                TimeUnit.MILLISECONDS);
+        Log.d(LOG_TAG, String.format("Refreshing %s in %d ms, period %d ms", url, period - leadTime, period));
+    }
+
+    /**
+     * Cancel the scheduled refreshes of the activity the user is leaving
+     *
+     * @param activityId The ID of the activity the user is leaving
+     * @param timestamp  The timestamp the user left the activity at
+     */
+    public synchronized void onActivityLeft(long activityId, long timestamp) {
+        for (Series current : series.values()) {
+            if (current.activityId != activityId) continue;
+            // The expected request did not arrive before the user left
+            if (current.expectedTime != NONE && timestamp > current.expectedTime + current.tolerance) predictions++;
+            current.reset();
+            current.lastTimestamp = NONE;
+        }
+    }
+
+    private void resolve(@NotNull Series current, long timestamp) {
+        predictions++;
+        if (Math.abs(timestamp - current.expectedTime) <= current.tolerance) {
+            accuratePredictions++;
+            if (current.refreshTime != NONE) {
+                usedRefreshes++;
+                totalLeadTime += timestamp - current.refreshTime;
+            }
+        }
+        current.reset();
+    }
+
+    /**
+     * @param expectedTime The expected time of the request the refresh was scheduled for. The
+     *                     refresh is discarded if this request was already resolved.
+     */
+    private void refresh(@NotNull Series current, long expectedTime) {
+        synchronized (this) {
+            if (current.expectedTime != expectedTime || current.refreshTime != NONE) return;
+            current.pendingRefresh = null;
+            current.refreshTime = System.currentTimeMillis();
+            refreshes++;
+        }
+        Log.d(LOG_TAG, "Refreshing " + current.url);
+        refresher.accept(current.url);
+    }
+
+    @NotNull
+    private Series getSeries(long activityId, @NotNull String url) {
+        String key = activityId + " " + url;
+        Series current = series.get(key);
+        if (current == null) {
+            current = new Series(activityId, url);
+            series.put(key, current);
+            // The series are accessed in order, thus the eldest is the least recently requested
+            if (series.size() > MAX_SERIES) {
+                Series eldest = series.values().iterator().next();
+                eldest.reset();
+                series.remove(eldest.activityId + " " + eldest.url);
+            }
+        }
+        return current;
+    }
+
+    public synchronized void logStatistics() {
+        Log.d(LOG_TAG, String.format("STATS Periodic requests: %d of %d expected requests arrived on time (accuracy %.3f)",
+                accuratePredictions,
+                predictions,
+                predictions == 0 ? 0 : (float) accuratePredictions / predictions));
+        Log.d(LOG_TAG, String.format("STATS Periodic refresh: %d of %d refreshes were used, average lead time %d ms",
+                usedRefreshes,
+                refreshes,
+                usedRefreshes == 0 ? 0 : totalLeadTime / usedRefreshes));
+    }
+
+    /**
+     * Represents the requests of a URL while an activity is open
+     */
+    private static class Series {
+        final long activityId;
+        final String url;
+        final Deque<Long> intervals = new ArrayDeque<>();
+        long lastTimestamp = NONE;
+        long expectedTime = NONE;
+        long tolerance;
+        long refreshTime = NONE;
+        ScheduledFuture<?> pendingRefresh;
+
+        Series(long activityId, String url) {
+            this.activityId = activityId;
+            this.url = url;
+        }
+
+        void addInterval(long interval) {
+            intervals.addLast(interval);
+            if (intervals.size() > MAX_INTERVALS) intervals.removeFirst();
+        }
+
+        /**
+         * @return The average interval if the intervals are stable or {@link #NONE} otherwise
+         */
+        long getPeriod(float maxJitter) {
+            if (intervals.size() < MIN_INTERVALS) return NONE;
+            double mean = 0;
+            for (long interval : intervals) mean += interval;
+            mean /= intervals.size();
+            double variance = 0;
+            for (long interval : intervals) variance += (interval - mean) * (interval - mean);
+            variance /= intervals.size();
+            return Math.sqrt(variance) / mean <= maxJitter ? Math.round(mean) : NONE;
+        }
+
+        /**
+         * Discard the expected request and cancel its refresh
+         */
+        void reset() {
+            if (pendingRefresh != null) pendingRefresh.cancel(false);
+            pendingRefresh = null;
+            expectedTime = NONE;
+            refreshTime = NONE;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
+import nl.vu.cs.s2group.nappa.util.NappaUtil;
+
+/**
+ * This strategy employs a random walk with restart (i.e., a personalized PageRank) starting
+ * at the current node to decide which nodes to select. At each step, the random walker
+ * either restarts at the current node or follows an edge proportionally to the number of
+ * transitions recorded in the ENG. The score of a node is the expected number of visits to
+ * this node before the walker restarts. As such, nodes several hops away from the current
+ * node are also ranked and can be selected for prefetching.
+ * <p>
+ * The scores are approximated with the forward push algorithm. Instead of iterating over
+ * the whole graph, the algorithm only pushes the residual probability of nodes whose
+ * residual is higher than epsilon times their out-degree. The number of push operations
+ * is bounded by {@code 1 / (restart probability * epsilon)} and therefore the cost of this
+ * strategy depends on the tolerance rather than on the size of the graph.
+ * <p>
+ * This strategy accepts the following configurations:
+ * <ul>
+ *     <li>{@link PrefetchingStrategyConfigKeys#PPR_RESTART_PROBABILITY}</li>
+ *     <li>{@link PrefetchingStrategyConfigKeys#PPR_EPSILON}</li>
+ * </ul>
+ *
+ * @see <a href="https://doi.org/10.1109/FOCS.2006.44">Local Graph Partitioning using PageRank Vectors</a>
+ */
+public class PersonalizedPageRankPrefetchingStrategy extends AbstractPrefetchingStrategy {
+    private static final String LOG_TAG = PersonalizedPageRankPrefetchingStrategy.class.getSimpleName();
+
+    public static final float DEFAULT_RESTART_PROBABILITY = 0.15f;
+    public static final float DEFAULT_EPSILON = 0.0001f;
+
+    private final float restartProbability;
+    private final float epsilon;
+
+    public PersonalizedPageRankPrefetchingStrategy() {
+        super();
+
+        restartProbability = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.PPR_RESTART_PROBABILITY,
+                DEFAULT_RESTART_PROBABILITY);
+        if (restartProbability <= 0 || restartProbability >= 1)
+            throw new IllegalArgumentException("The restart probability must be a number between 0 and 1, exclusive. "
+                    + restartProbability + " provided.");
+
+        epsilon = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.PPR_EPSILON,
+                DEFAULT_EPSILON);
+        if (epsilon <= 0)
+            throw new IllegalArgumentException("The epsilon must be greater than 0. "
+                    + epsilon + " provided.");
+
+        /*
+         * The scores decay with each hop, therefore a node two hops away rarely reaches the
+         * default lower threshold. The value is only overridden if it was not already
+         * overridden using the user-defined configurations.
+         */
+        if (scoreLowerThreshold == DEFAULT_SCORE_LOWER_THRESHOLD) scoreLowerThreshold = 0.3f;
+    }
+
+    @Override
+    public boolean needVisitTime() {
+        return false;
+    }
+
+    @Override
+    public boolean needSuccessorsVisitTime() {
+        return false;
+    }
+
+    @NonNull
+    @Override
+    public List<String> getTopNUrlToPrefetchForNode(@NotNull ActivityNode node, Integer maxNumber) {
+        return ScoredCandidate.toUrls(getScoredCandidatesForNode(node, maxNumber, PredictionDeadline.NONE));
+    }
+
+    /**
+     * The URLs are scored with the expected number of visits to their node, capped at 1.
+     * For direct successors it approximates the probability of navigating to the node. A
+     * node within a cycle can be expected to be visited more than once, thus the cap keeps
+     * the score a valid probability.
+     */
+    @NonNull
+    @Override
+    public List<ScoredCandidate> getScoredCandidatesForNode(@NotNull ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        long startTime = System.currentTimeMillis();
+
+        StrategyExecutionContext context = new StrategyExecutionContext(node, deadline);
+        Log.d(LOG_TAG, String.format("(#%d) Starting execution %d for node '%s'.", context.id, context.id, node.activityName));
+
+        if (node.successors.isEmpty()) {
+            logStrategyExecutionDuration(node, startTime, context.id);
+            return context.getCandidates();
+        }
+
+        StrategyExecutionContext.NodeScores scores = runForwardPush(context);
+        List<ActivityNode> selectedNodes = getNodesSortedByScore(node, scores);
+        addUrls(context, selectedNodes, scores);
+
+        logStrategyExecutionDuration(node, startTime, context.id);
+
+        return context.getCandidates();
+    }
+
+    /**
+     * Approximate the personalized PageRank of all nodes reachable from the source node.
+     * The approximation error of each node is at most epsilon times its out-degree.
+     *
+     * @param context The execution context, whose start node is the node at which the random
+     *                walker restarts
+     * @return The approximate personalized PageRank of each reached node
+     */
+    @NotNull
+    private StrategyExecutionContext.NodeScores runForwardPush(@NotNull StrategyExecutionContext context) {
+        ActivityNode source = context.startNode;
+        StrategyExecutionContext.NodeScores estimates = context.getScores();
+        StrategyExecutionContext.NodeScores residuals = context.createScores();
+        Deque<ActivityNode> queue = new ArrayDeque<>();
+        int pushes = 0;
+
+        residuals.set(source, 1f);
+        queue.add(source);
+
+        while (!queue.isEmpty()) {
+            ActivityNode node = queue.poll();
+            float residual = residuals.get(node);
+            if (residual <= epsilon * Math.max(node.successors.size(), 1)) continue;
+
+            pushes++;
+            residuals.set(node, 0f);
+            estimates.add(node, restartProbability * residual);
+            float walkProbability = (1 - restartProbability) * residual;
+
+            // A walker at a node without successors restarts at the source node
+            if (node.successors.isEmpty()) {
+                pushResidual(residuals, queue, source, walkProbability);
+                continue;
+            }
+
+            int totalTransitions = 0;
+            for (Integer transitions : node.successors.values()) totalTransitions += transitions;
+
+            for (Map.Entry<ActivityNode, Integer> successor : node.successors.entrySet()) {
+                // Edges without transitions (e.g. only loaded from the database) are equally weighted
+                float transitionProbability = totalTransitions == 0 ?
+                        1f / node.successors.size() :
+                        (float) successor.getValue() / totalTransitions;
+                pushResidual(residuals, queue, successor.getKey(), walkProbability * transitionProbability);
+            }
+        }
+
+        Log.d(LOG_TAG, String.format("(#%d) Forward push reached %d nodes with %d push operations",
+                context.id,
+                estimates.getNodes().size(),
+                pushes));
+
+        return estimates;
+    }
+
+    private void pushResidual(@NotNull StrategyExecutionContext.NodeScores residuals,
+                              @NotNull Deque<ActivityNode> queue,
+                              @NotNull ActivityNode node,
+                              float probability) {
+        float residual = residuals.add(node, probability);
+        // Enqueue the node only once, when its residual first exceeds the threshold
+        if (residual > epsilon * Math.max(node.successors.size(), 1) &&
+                residual - probability <= epsilon * Math.max(node.successors.size(), 1)) {
+            queue.add(node);
+        }
+    }
+
+    /**
+     * Normalize the scores of all nodes but the source node, sort them and return all nodes
+     * with a score higher than the lower threshold score. The personalized PageRank is
+     * divided by the restart probability, resulting in the expected number of visits to a node
+     * before the walker restarts. For a direct successor, it approximates the probability of
+     * navigating to it and it decays with the distance from the source node.
+     *
+     * @param source The current node
+     * @param scores The approximate personalized PageRank of each node. The normalized
+     *               scores are written back
+     * @return The nodes sorted from the highest to the lowest score
+     */
+    @NotNull
+    private List<ActivityNode> getNodesSortedByScore(@NotNull ActivityNode source, @NotNull StrategyExecutionContext.NodeScores scores) {
+        List<ActivityNode> nodes = new ArrayList<>();
+        for (ActivityNode node : scores.getNodes()) {
+            // Prefetching the data of the current node brings no benefit
+            if (node == source) continue;
+            float score = scores.get(node) / restartProbability;
+            scores.set(node, score);
+            if (score >= scoreLowerThreshold) nodes.add(node);
+        }
+
+        Collections.sort(nodes, new ScoreComparator(scores));
+        return nodes;
+    }
+
+    private void addUrls(@NotNull StrategyExecutionContext context,
+                         @NotNull List<ActivityNode> nodes,
+                         @NotNull StrategyExecutionContext.NodeScores scores) {
+        List<ScoredCandidate> urls = context.getCandidates();
+
+        for (ActivityNode node : nodes) {
+            int remainingUrlBudget = maxNumberOfUrlToPrefetch - urls.size();
+            List<ScoredCandidate> nodUrls = NappaUtil.getScoredCandidatesFromCandidateNode(context.startNode,
+                    node,
+                    Math.min(scores.get(node), 1f),
+                    remainingUrlBudget);
+            urls.addAll(nodUrls);
+
+            Log.d(LOG_TAG, String.format("(#%s) The URLs from node '%s' with score %f are: %s",
+                    context.id,
+                    node.activityName,
+                    scores.get(node),
+                    nodUrls));
+            if (urls.size() >= maxNumberOfUrlToPrefetch) break;
+        }
+    }
+
+    private static class ScoreComparator implements Comparator<ActivityNode> {
+        private final StrategyExecutionContext.NodeScores scores;
+
+        ScoreComparator(StrategyExecutionContext.NodeScores scores) {
+            this.scores = scores;
+        }
+
+        @Override
+        public int compare(ActivityNode o1, ActivityNode o2) {
+            return Float.compare(scores.get(o2), scores.get(o1));
+        }
+    }
+}
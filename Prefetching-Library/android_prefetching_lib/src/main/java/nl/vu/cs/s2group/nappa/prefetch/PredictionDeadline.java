@@ -0,0 +1,96 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents the time budget of a single prediction. A prediction arriving after the user
+ * already navigated to another activity is useless, therefore strategies supporting a
+ * deadline periodically verify {@link #isExpired()} and, once expired, stop exploring the
+ * graph and return the best URLs found so far.
+ * <p>
+ * This class also keeps global counters of how often the deadline expired and by how much
+ * the predictions exceeded their budget.
+ */
+public final class PredictionDeadline {
+    private static final String LOG_TAG = PredictionDeadline.class.getSimpleName();
+
+    public static final int DEFAULT_PREDICTION_TIME_BUDGET = 100;
+
+    /**
+     * A deadline that never expires
+     */
+    public static final PredictionDeadline NONE = new PredictionDeadline(0);
+
+    private static final AtomicLong predictions = new AtomicLong();
+    private static final AtomicLong expiredPredictions = new AtomicLong();
+    private static final AtomicLong totalOverrun = new AtomicLong();
+    private static final AtomicLong maxOverrun = new AtomicLong();
+
+    private final long startTime;
+    private final long budget;
+    private volatile boolean expired;
+
+    private PredictionDeadline(long budget) {
+        this.startTime = System.nanoTime();
+        this.budget = budget;
+    }
+
+    /**
+     * Start counting the time budget of a prediction
+     *
+     * @param budgetMillis The time budget in milliseconds. Use 0 for no budget.
+     * @return A new deadline
+     */
+    @NotNull
+    @Contract("_ -> new")
+    public static PredictionDeadline start(long budgetMillis) {
+        return new PredictionDeadline(TimeUnit.MILLISECONDS.toNanos(Math.max(budgetMillis, 0)));
+    }
+
+    /**
+     * @return {@code True} if the time budget ran out, {@code False} otherwise or if there is
+     * no time budget
+     */
+    public boolean isExpired() {
+        if (budget == 0) return false;
+        if (!expired && System.nanoTime() - startTime > budget) expired = true;
+        return expired;
+    }
+
+    /**
+     * Register the end of the prediction in the global counters. Must be invoked once the
+     * strategy returns.
+     */
+    public void finish() {
+        if (this == NONE) return;
+        predictions.incrementAndGet();
+        if (budget == 0 || !isExpired()) return;
+
+        long overrun = System.nanoTime() - startTime - budget;
+        expiredPredictions.incrementAndGet();
+        totalOverrun.addAndGet(overrun);
+        long currentMax = maxOverrun.get();
+        while (overrun > currentMax && !maxOverrun.compareAndSet(currentMax, overrun)) {
+            currentMax = maxOverrun.get();
+        }
+    }
+
+    /**
+     * Log how often the deadline expired and by how much the predictions exceeded their budget
+     */
+    public static void logStatistics() {
+        long expiredCount = expiredPredictions.get();
+        Log.d(LOG_TAG, String.format("STATS Prediction deadline expired in %d of %d predictions. " +
+                        "Overrun: average %d ms, max %d ms",
+                expiredCount,
+                predictions.get(),
+                expiredCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalOverrun.get() / expiredCount),
+                TimeUnit.NANOSECONDS.toMillis(maxOverrun.get())));
+    }
+}
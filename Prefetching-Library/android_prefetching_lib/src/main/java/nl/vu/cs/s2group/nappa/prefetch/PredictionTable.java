@@ -0,0 +1,176 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityGraph;
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.util.NappaThreadPool;
+
+/**
+ * Stores the successors of each node ranked by score. A row of the table is valid while the
+ * statistics version of its node does not change (see
+ * {@link ActivityNode#getStatisticsVersion()}). Once attached to a graph, a row is refreshed
+ * in a worker thread as soon as the statistics of its node change. The changes emitted while
+ * a refresh of the node is pending are coalesced into this refresh. As such, a strategy
+ * usually obtains the ranked successors of a node with a table lookup, without reading the
+ * LiveData aggregates again.
+ */
+public class PredictionTable {
+    private static final String LOG_TAG = PredictionTable.class.getSimpleName();
+
+    private final SuccessorRanker ranker;
+    private final Executor executor;
+    private final Map<ActivityNode, Row> rows = new ConcurrentHashMap<>();
+    private final Set<ActivityNode> pendingRefreshes = Collections.newSetFromMap(new ConcurrentHashMap<ActivityNode, Boolean>());
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalescedRefreshes = new AtomicLong();
+
+    public PredictionTable(@NotNull SuccessorRanker ranker) {
+        this(ranker, NappaThreadPool::execute);
+    }
+
+    /**
+     * @param ranker   Ranks the successors of a node
+     * @param executor The executor the rows are refreshed in
+     */
+    PredictionTable(@NotNull SuccessorRanker ranker, @NotNull Executor executor) {
+        this.ranker = ranker;
+        this.executor = executor;
+    }
+
+    /**
+     * Refresh the rows of the nodes of the provided graph whenever their statistics change
+     *
+     * @param graph The ENG whose nodes are ranked in this table
+     */
+    public void attach(@NotNull ActivityGraph graph) {
+        graph.addStatisticsListener(this::scheduleRefresh);
+    }
+
+    /**
+     * Schedule the refresh of the row of the provided node. Nothing is scheduled if a refresh
+     * of the node is already pending, since the pending refresh reads the latest statistics.
+     *
+     * @param node The node whose statistics changed
+     */
+    void scheduleRefresh(@NotNull ActivityNode node) {
+        if (!pendingRefreshes.add(node)) {
+            coalescedRefreshes.incrementAndGet();
+            return;
+        }
+        executor.execute(() -> {
+            // Cleared before ranking, such that a change during the ranking schedules another refresh
+            pendingRefreshes.remove(node);
+            refresh(node);
+        });
+    }
+
+    /**
+     * Get the successors of the provided node ranked from the highest to the lowest score.
+     * The successors are only ranked again if the statistics of the node changed since the
+     * last ranking.
+     *
+     * @param node The node to get the successors from
+     * @return An unmodifiable list with the ranked successors
+     */
+    @NotNull
+    public List<RankedSuccessor> getRankedSuccessors(@NotNull ActivityNode node) {
+        Row row = rows.get(node);
+        if (row != null && row.version == node.getStatisticsVersion()) {
+            hits.incrementAndGet();
+            return row.rankedSuccessors;
+        }
+        misses.incrementAndGet();
+        return refresh(node);
+    }
+
+    /**
+     * Rank the successors of the provided node if its row is out of date
+     *
+     * @param node The node to rank the successors from
+     * @return The ranked successors
+     */
+    @NotNull
+    private List<RankedSuccessor> refresh(@NotNull ActivityNode node) {
+        // Read the version before ranking, so a change during the ranking invalidates the row
+        long version = node.getStatisticsVersion();
+        Row row = rows.get(node);
+        if (row != null && row.version == version) return row.rankedSuccessors;
+
+        List<RankedSuccessor> rankedSuccessors = ranker.rankSuccessors(node);
+        Collections.sort(rankedSuccessors);
+        rankedSuccessors = Collections.unmodifiableList(rankedSuccessors);
+        rows.put(node, new Row(version, rankedSuccessors));
+
+        Log.d(LOG_TAG, String.format("Refreshed the %d ranked successors of node '%s' (version %d)",
+                rankedSuccessors.size(),
+                node.activityName,
+                version));
+        return rankedSuccessors;
+    }
+
+    /**
+     * Log the number of lookups served by an up to date row
+     */
+    public void logStatistics() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        Log.d(LOG_TAG, String.format("STATS Prediction table hits: %d of %d lookups (%.1f%%)",
+                hitCount,
+                total,
+                total == 0 ? 0 : 100f * hitCount / total));
+        Log.d(LOG_TAG, String.format("STATS Prediction table coalesced refreshes: %d",
+                coalescedRefreshes.get()));
+    }
+
+    /**
+     * Calculates the score of the successors of a node
+     */
+    public interface SuccessorRanker {
+        /**
+         * @param node The node to rank the successors from
+         * @return A modifiable list with a score for each successor of the node, in any order
+         */
+        @NotNull
+        List<RankedSuccessor> rankSuccessors(@NotNull ActivityNode node);
+    }
+
+    public static class RankedSuccessor implements Comparable<RankedSuccessor> {
+        public final ActivityNode node;
+        public final float score;
+
+        public RankedSuccessor(@NotNull ActivityNode node, float score) {
+            this.node = node;
+            this.score = score;
+        }
+
+        /**
+         * Sorts from the highest to the lowest score
+         */
+        @Override
+        public int compareTo(@NotNull RankedSuccessor o) {
+            return Float.compare(o.score, score);
+        }
+    }
+
+    private static class Row {
+        final long version;
+        final List<RankedSuccessor> rankedSuccessors;
+
+        Row(long version, List<RankedSuccessor> rankedSuccessors) {
+            this.version = version;
+            this.rankedSuccessors = rankedSuccessors;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which of the candidates selected by a strategy are worth prefetching. The raw
+ * score of each candidate is calibrated into a probability with an {@link IsotonicCalibrator}
+ * fitted with the realised outcomes of the previous predictions of the same source (see
+ * {@link PrefetchOutcomeTracker}). A candidate is prefetched only if its expected utility
+ * exceeds its cost:
+ *
+ * <pre>
+ *     probability * expected duration > cost per request + cost per KB * expected size
+ * </pre>
+ * <p>
+ * The costs are expressed in milliseconds of latency saved, such that the cost per request
+ * represents the energy spent waking up the radio and the cost per KB represents the data
+ * and energy spent downloading the response. Candidates with unknown duration are
+ * prefetched only if they are more likely to be requested than not.
+ * <p>
+ * This stage accepts the following configurations:
+ * <ul>
+ *     <li>{@link PrefetchingStrategyConfigKeys#PREFETCH_COST_PER_REQUEST}</li>
+ *     <li>{@link PrefetchingStrategyConfigKeys#PREFETCH_COST_PER_KB}</li>
+ * </ul>
+ */
+public class PrefetchDecisionStage {
+    private static final String LOG_TAG = PrefetchDecisionStage.class.getSimpleName();
+
+    public static final boolean DEFAULT_USE_EXPECTED_UTILITY_DECISION = false;
+    public static final float DEFAULT_COST_PER_REQUEST = 10f;
+    public static final float DEFAULT_COST_PER_KB = 1f;
+
+    /**
+     * The lower threshold score used by the strategies when this stage is enabled, such
+     * that the strategies only filter out negligible candidates and this stage decides
+     */
+    public static final float CANDIDATE_SCORE_LOWER_THRESHOLD = 0.05f;
+
+    private static final float UNKNOWN_DURATION_MIN_PROBABILITY = 0.5f;
+
+    private final float costPerRequest;
+    private final float costPerKb;
+    private final Map<String, IsotonicCalibrator> calibrators = new ConcurrentHashMap<>();
+
+    public PrefetchDecisionStage(float costPerRequest, float costPerKb) {
+        if (costPerRequest < 0)
+            throw new IllegalArgumentException("The cost per request must be a positive number. "
+                    + costPerRequest + " provided.");
+        if (costPerKb < 0)
+            throw new IllegalArgumentException("The cost per KB must be a positive number. "
+                    + costPerKb + " provided.");
+
+        this.costPerRequest = costPerRequest;
+        this.costPerKb = costPerKb;
+
+        PrefetchOutcomeTracker.addListener((source, activityId, candidate, hit, latencySaved) ->
+                getCalibrator(source).addOutcome(candidate.probability, hit));
+    }
+
+    /**
+     * Register the candidates in the {@link PrefetchOutcomeTracker}, calibrate their scores
+     * and select the candidates whose expected utility exceeds their cost
+     *
+     * @param source     An identification of the strategy that selected the candidates
+     * @param activityId The ID of the current activity
+     * @param candidates The candidates selected by the strategy with their raw scores
+     * @return The candidates worth prefetching with their calibrated probabilities
+     */
+    @NotNull
+    public List<ScoredCandidate> decide(@NotNull String source, long activityId, @NotNull List<ScoredCandidate> candidates) {
+        IsotonicCalibrator calibrator = getCalibrator(source);
+        List<ScoredCandidate> selectedCandidates = new ArrayList<>(candidates.size());
+
+        for (ScoredCandidate candidate : candidates) {
+            // The raw candidate is registered, since the calibration maps raw scores
+            PrefetchOutcomeTracker.registerPrediction(source, activityId, candidate);
+
+            ScoredCandidate calibratedCandidate = new ScoredCandidate(candidate.url,
+                    candidate.sourceNode,
+                    candidate.targetNode,
+                    calibrator.calibrate(candidate.probability),
+                    candidate.expectedSize,
+                    candidate.expectedDuration);
+            boolean prefetch = isWorthPrefetching(calibratedCandidate);
+            if (prefetch) selectedCandidates.add(calibratedCandidate);
+
+            Log.d(LOG_TAG, String.format("Raw score %.3f calibrated to %s. Prefetch: %b",
+                    candidate.probability,
+                    calibratedCandidate,
+                    prefetch));
+        }
+
+        return selectedCandidates;
+    }
+
+    private boolean isWorthPrefetching(@NotNull ScoredCandidate candidate) {
+        if (candidate.expectedDuration == ScoredCandidate.UNKNOWN)
+            return candidate.probability > UNKNOWN_DURATION_MIN_PROBABILITY;
+
+        float cost = costPerRequest;
+        if (candidate.expectedSize != ScoredCandidate.UNKNOWN) cost += costPerKb * candidate.expectedSize / 1024f;
+        return candidate.getExpectedLatencySaved() > cost;
+    }
+
+    @NotNull
+    private IsotonicCalibrator getCalibrator(@NotNull String source) {
+        synchronized (calibrators) {
+            IsotonicCalibrator calibrator = calibrators.get(source);
+            if (calibrator == null) {
+                calibrator = new IsotonicCalibrator();
+                calibrators.put(source, calibrator);
+            }
+            return calibrator;
+        }
+    }
+
+    /**
+     * @return The calibration curve of each source with enough resolved predictions
+     */
+    @NotNull
+    public Map<String, List<IsotonicCalibrator.Point>> getCalibrationCurves() {
+        Map<String, List<IsotonicCalibrator.Point>> curves = new HashMap<>();
+        for (Map.Entry<String, IsotonicCalibrator> entry : calibrators.entrySet()) {
+            List<IsotonicCalibrator.Point> curve = entry.getValue().getCalibrationCurve();
+            if (!curve.isEmpty()) curves.put(entry.getKey(), curve);
+        }
+        return curves;
+    }
+
+    /**
+     * Log the calibration curve of each source
+     */
+    public void logCalibrationCurves() {
+        for (Map.Entry<String, List<IsotonicCalibrator.Point>> entry : getCalibrationCurves().entrySet()) {
+            Log.d(LOG_TAG, String.format("STATS Calibration curve of source '%s': %s", entry.getKey(), entry.getValue()));
+        }
+    }
+}
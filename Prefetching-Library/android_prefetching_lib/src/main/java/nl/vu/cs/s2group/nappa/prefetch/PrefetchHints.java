@@ -0,0 +1,223 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.util.NappaUtil;
+
+/**
+ * Keeps the URLs the application hinted it will request soon, together with the probability
+ * the developer assigned to them. Hints need no warm-up period, thus they can be used for
+ * critical flows before the strategies learn them.
+ * <p>
+ * The hints are scored like the predictions of the strategies and go through the same
+ * decision stage, using their own calibration, and the same budget of
+ * {@link PrefetchingStrategyConfigKeys#MAX_URL_TO_PREFETCH} URLs. A hint stays active for
+ * {@link #HINT_LIFETIME} milliseconds, such that the hints issued right before an activity
+ * transition are merged into the predictions made for the new activity.
+ * <p>
+ * Each hint is scored, decided and registered in the {@link PrefetchOutcomeTracker} under the
+ * source {@link #SOURCE} once, the first time it is prefetched or merged. Hinting a URL again
+ * renews it as a new hint.
+ */
+public class PrefetchHints {
+    public static final String SOURCE = "hint";
+    public static final long HINT_LIFETIME = 30000;
+
+    private final Map<String, Hint> hints = new HashMap<>();
+    private volatile int maxUrls;
+
+    /**
+     * @param maxUrls The maximum number of URLs prefetched at once
+     */
+    public PrefetchHints(int maxUrls) {
+        setMaxUrls(maxUrls);
+    }
+
+    /**
+     * @param maxUrls The maximum number of URLs prefetched at once
+     */
+    public void setMaxUrls(int maxUrls) {
+        if (maxUrls < 1)
+            throw new IllegalArgumentException("The maximum number of URLs must be greater than 0. "
+                    + maxUrls + " provided.");
+        this.maxUrls = maxUrls;
+    }
+
+    /**
+     * Register the provided hints. A URL hinted again is renewed with the new probability.
+     *
+     * @param urlProbabilities The hinted URLs mapped to the probability they are requested
+     * @param timestamp        The timestamp the URLs were hinted at
+     */
+    public synchronized void add(@NotNull Map<String, Float> urlProbabilities, long timestamp) {
+        for (Map.Entry<String, Float> entry : urlProbabilities.entrySet()) {
+            hints.put(entry.getKey(), new Hint(entry.getValue(), timestamp));
+        }
+    }
+
+    /**
+     * Score the hints that were not decided yet, select the ones worth prefetching and
+     * register them in the {@link PrefetchOutcomeTracker}. Hints are only registered if the
+     * current activity is known.
+     *
+     * @param visitedNode   Represents the node which the user is currently visiting
+     * @param activityId    The ID of the current node, if known
+     * @param decisionStage The decision stage selecting the URLs worth prefetching, if enabled
+     * @param now           The current timestamp
+     * @return The newly hinted URLs to prefetch
+     */
+    @NotNull
+    public List<ScoredCandidate> decideNewHints(@NotNull ActivityNode visitedNode,
+                                                @Nullable Long activityId,
+                                                @Nullable PrefetchDecisionStage decisionStage,
+                                                long now) {
+        Map<String, Hint> newHints = new LinkedHashMap<>();
+        synchronized (this) {
+            expireHints(now);
+            for (Map.Entry<String, Hint> entry : hints.entrySet()) {
+                if (!entry.getValue().decided) newHints.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (newHints.isEmpty()) return new ArrayList<>();
+
+        // The expected costs are queried without holding the lock, such that hinting never waits on it
+        Map<String, Float> urlProbabilities = new LinkedHashMap<>();
+        for (Map.Entry<String, Hint> entry : newHints.entrySet()) {
+            urlProbabilities.put(entry.getKey(), entry.getValue().probability);
+        }
+        List<ScoredCandidate> candidates = getScoredCandidates(visitedNode, urlProbabilities);
+        if (activityId != null) {
+            // The decision stage registers the candidates itself
+            if (decisionStage != null) candidates = decisionStage.decide(SOURCE, activityId, candidates);
+            else for (ScoredCandidate candidate : candidates) {
+                PrefetchOutcomeTracker.registerPrediction(SOURCE, activityId, candidate);
+            }
+        }
+
+        synchronized (this) {
+            for (Hint hint : newHints.values()) hint.decided = true;
+            for (ScoredCandidate candidate : candidates) {
+                //noinspection ConstantConditions All candidates are hinted
+                newHints.get(candidate.url).candidate = candidate;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @param now The current timestamp
+     * @return The hinted URLs that did not expire and were selected for prefetching
+     */
+    @NotNull
+    public synchronized List<ScoredCandidate> getSelectedCandidates(long now) {
+        expireHints(now);
+        List<ScoredCandidate> candidates = new ArrayList<>();
+        for (Hint hint : hints.values()) {
+            if (hint.candidate != null) candidates.add(hint.candidate);
+        }
+        return candidates;
+    }
+
+    /**
+     * Score the hinted URLs with their probability and expected cost
+     *
+     * @param visitedNode      Represents the node which the user is currently visiting
+     * @param urlProbabilities The hinted URLs mapped to the probability they are requested
+     * @return The {@link #maxUrls} most likely URLs by decreasing probability
+     */
+    @NotNull
+    public List<ScoredCandidate> getScoredCandidates(@NotNull ActivityNode visitedNode,
+                                                     @NotNull Map<String, Float> urlProbabilities) {
+        List<String> urls = new ArrayList<>(urlProbabilities.size());
+        for (Map.Entry<String, Float> entry : urlProbabilities.entrySet()) {
+            if (entry.getValue() > 0) urls.add(entry.getKey());
+        }
+        if (urls.isEmpty()) return new ArrayList<>();
+
+        // The expected costs of all URLs are queried at once and the probabilities set afterwards
+        List<ScoredCandidate> candidates = new ArrayList<>(urls.size());
+        for (ScoredCandidate candidate : NappaUtil.toScoredCandidates(visitedNode, null, urls, 1f)) {
+            //noinspection ConstantConditions All URLs have a probability
+            candidates.add(new ScoredCandidate(candidate.url,
+                    candidate.sourceNode,
+                    null,
+                    urlProbabilities.get(candidate.url),
+                    candidate.expectedSize,
+                    candidate.expectedDuration));
+        }
+        Collections.sort(candidates, ScoredCandidate.BY_PROBABILITY);
+        int limit = maxUrls;
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+
+    /**
+     * Merge the hinted URLs into the URLs predicted by the strategy, within the budget of
+     * {@link #maxUrls} URLs. A URL both hinted and predicted keeps the highest probability.
+     * If the hint wins, the prediction of the strategy is withdrawn from the
+     * {@link PrefetchOutcomeTracker}, such that the URL is only credited to the hint.
+     *
+     * @param predictedCandidates The URLs predicted by the strategy
+     * @param hintedCandidates    The hinted URLs
+     * @param predictedSource     The source the predictions of the strategy are registered under
+     * @return The {@link #maxUrls} URLs of both lists saving the most latency, sorted by
+     * decreasing expected latency saved
+     */
+    @NotNull
+    public List<ScoredCandidate> merge(@NotNull List<ScoredCandidate> predictedCandidates,
+                                       @NotNull List<ScoredCandidate> hintedCandidates,
+                                       @NotNull String predictedSource) {
+        Map<String, ScoredCandidate> candidates = new LinkedHashMap<>();
+        for (ScoredCandidate candidate : predictedCandidates) candidates.put(candidate.url, candidate);
+        for (ScoredCandidate candidate : hintedCandidates) {
+            ScoredCandidate predictedCandidate = candidates.get(candidate.url);
+            if (predictedCandidate != null && predictedCandidate.probability >= candidate.probability) continue;
+            if (predictedCandidate != null) PrefetchOutcomeTracker.withdrawPrediction(predictedSource, candidate.url);
+            candidates.put(candidate.url, candidate);
+        }
+
+        List<ScoredCandidate> mergedCandidates = new ArrayList<>(candidates.values());
+        Collections.sort(mergedCandidates, ScoredCandidate.BY_EXPECTED_LATENCY_SAVED);
+        int limit = maxUrls;
+        return mergedCandidates.size() > limit ? new ArrayList<>(mergedCandidates.subList(0, limit)) : mergedCandidates;
+    }
+
+    /**
+     * Remove the expired hints. Must be invoked while holding the lock.
+     *
+     * @param now The current timestamp
+     */
+    private void expireHints(long now) {
+        Iterator<Map.Entry<String, Hint>> iterator = hints.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().getValue().timestamp > HINT_LIFETIME) iterator.remove();
+        }
+    }
+
+    private static class Hint {
+        final float probability;
+        final long timestamp;
+        /**
+         * Set once the hint was scored and registered
+         */
+        boolean decided;
+        /**
+         * The scored hint, if it was selected for prefetching
+         */
+        ScoredCandidate candidate;
+
+        Hint(float probability, long timestamp) {
+            this.probability = probability;
+            this.timestamp = timestamp;
+        }
+    }
+}
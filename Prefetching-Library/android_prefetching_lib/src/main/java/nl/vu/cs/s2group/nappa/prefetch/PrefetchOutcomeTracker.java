@@ -0,0 +1,246 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the realised outcome of the URLs predicted for prefetching. A prediction is
+ * registered together with its source (e.g. the strategy that made it) and resolved as:
+ *
+ * <ul>
+ *     <li> A hit, if the user requests the URL within the outcome window. The latency saved
+ *     is the duration of the original request if the response was served from the
+ *     prefetching cache and 0 otherwise</li>
+ *     <li> A miss, if the outcome window elapses before the user requests the URL</li>
+ * </ul>
+ * <p>
+ * Each source is credited at most once per pending URL. Outcomes are notified to the
+ * registered {@link OutcomeListener listeners} and aggregated per source for the statistics.
+ * The precision of a source is the share of its resolved predictions that were hits and its
+ * recall is the share of the requests issued by the application that it predicted.
+ */
+public final class PrefetchOutcomeTracker {
+    private static final String LOG_TAG = PrefetchOutcomeTracker.class.getSimpleName();
+
+    public static final int DEFAULT_OUTCOME_WINDOW_SECONDS = 300;
+
+    private static final String LIVE_SOURCE_PREFIX = "live/";
+
+    private static final Map<String, Map<String, Prediction>> pendingPredictions = new HashMap<>();
+    private static final Map<String, SourceStatistics> statistics = new HashMap<>();
+    private static final List<OutcomeListener> listeners = new CopyOnWriteArrayList<>();
+    private static long outcomeWindow = TimeUnit.SECONDS.toMillis(DEFAULT_OUTCOME_WINDOW_SECONDS);
+    private static long requests = 0;
+
+    private PrefetchOutcomeTracker() {
+        throw new IllegalStateException("PrefetchOutcomeTracker is a utility class and should not be instantiated!");
+    }
+
+    /**
+     * @param seconds The number of seconds after which a prediction whose URL was not
+     *                requested is resolved as a miss
+     */
+    public static void setOutcomeWindow(int seconds) {
+        if (seconds < 1)
+            throw new IllegalArgumentException("The outcome window must be greater than 0. "
+                    + seconds + " provided.");
+        outcomeWindow = TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    public static void addListener(@NotNull OutcomeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param strategyType The type of the configured strategy
+     * @return The source identifying the predictions of the configured strategy
+     */
+    @NotNull
+    public static String getLiveSource(@NotNull PrefetchingStrategyType strategyType) {
+        return LIVE_SOURCE_PREFIX + strategyType.name();
+    }
+
+    /**
+     * Register a URL predicted by the provided source. If the same source already has a
+     * pending prediction for this URL, the prediction is renewed instead.
+     *
+     * @param source     An identification of who made the prediction
+     * @param activityId The ID of the activity the user was visiting when the prediction was made
+     * @param candidate  The predicted URL
+     */
+    public static void registerPrediction(@NotNull String source, long activityId, @NotNull ScoredCandidate candidate) {
+        long now = System.currentTimeMillis();
+        List<Prediction> expiredPredictions;
+        synchronized (pendingPredictions) {
+            expiredPredictions = expirePredictions(now);
+            Map<String, Prediction> predictions = pendingPredictions.get(candidate.url);
+            if (predictions == null) {
+                predictions = new HashMap<>();
+                pendingPredictions.put(candidate.url, predictions);
+            }
+            if (!predictions.containsKey(source)) getStatistics(source).predictions++;
+            predictions.put(source, new Prediction(source, activityId, candidate, now));
+        }
+
+        for (Prediction prediction : expiredPredictions) notifyListeners(prediction, false, 0);
+    }
+
+    /**
+     * Withdraw the pending prediction of a URL made by the provided source, e.g. when another
+     * source is credited for prefetching the URL. The prediction is neither a hit nor a miss.
+     *
+     * @param source An identification of who made the prediction
+     * @param url    The predicted URL
+     * @return {@code true} if the source had a pending prediction for this URL
+     */
+    public static boolean withdrawPrediction(@NotNull String source, @NotNull String url) {
+        synchronized (pendingPredictions) {
+            Map<String, Prediction> predictions = pendingPredictions.get(url);
+            if (predictions == null || predictions.remove(source) == null) return false;
+            if (predictions.isEmpty()) pendingPredictions.remove(url);
+            getStatistics(source).predictions--;
+            return true;
+        }
+    }
+
+    /**
+     * Resolve all pending predictions of the requested URL as hits. Must be invoked for every
+     * request issued by the application, but not for requests issued by the prefetcher.
+     *
+     * @param url          The requested URL
+     * @param latencySaved The number of milliseconds saved by serving the response from the
+     *                     prefetching cache, or 0 if it was fetched from the network
+     */
+    public static void onRequest(@NotNull String url, long latencySaved) {
+        Map<String, Prediction> predictions;
+        List<Prediction> expiredPredictions;
+        synchronized (pendingPredictions) {
+            expiredPredictions = expirePredictions(System.currentTimeMillis());
+            requests++;
+            predictions = pendingPredictions.remove(url);
+            if (predictions != null) {
+                for (Prediction prediction : predictions.values()) {
+                    SourceStatistics sourceStatistics = getStatistics(prediction.source);
+                    sourceStatistics.hits++;
+                    sourceStatistics.latencySaved += latencySaved;
+                }
+            }
+        }
+
+        // The listeners are notified outside the lock, since they might take it again
+        for (Prediction prediction : expiredPredictions) notifyListeners(prediction, false, 0);
+        if (predictions == null) return;
+        for (Prediction prediction : predictions.values()) notifyListeners(prediction, true, latencySaved);
+        logStatistics();
+    }
+
+    /**
+     * Resolve all predictions older than the outcome window as misses.
+     * Must be invoked while holding the lock on {@link #pendingPredictions}. The listeners
+     * must be notified of the expired predictions after releasing the lock.
+     *
+     * @param now The current timestamp
+     * @return The expired predictions
+     */
+    @NotNull
+    private static List<Prediction> expirePredictions(long now) {
+        List<Prediction> expiredPredictions = new ArrayList<>();
+        Iterator<Map<String, Prediction>> urlIterator = pendingPredictions.values().iterator();
+        while (urlIterator.hasNext()) {
+            Map<String, Prediction> predictions = urlIterator.next();
+            Iterator<Prediction> iterator = predictions.values().iterator();
+            while (iterator.hasNext()) {
+                Prediction prediction = iterator.next();
+                if (now - prediction.timestamp < outcomeWindow) continue;
+                iterator.remove();
+                getStatistics(prediction.source).misses++;
+                expiredPredictions.add(prediction);
+            }
+            if (predictions.isEmpty()) urlIterator.remove();
+        }
+        return expiredPredictions;
+    }
+
+    private static void notifyListeners(@NotNull Prediction prediction, boolean hit, long latencySaved) {
+        for (OutcomeListener listener : listeners) {
+            listener.onOutcome(prediction.source, prediction.activityId, prediction.candidate, hit, latencySaved);
+        }
+    }
+
+    @NotNull
+    private static SourceStatistics getStatistics(@NotNull String source) {
+        SourceStatistics sourceStatistics = statistics.get(source);
+        if (sourceStatistics == null) {
+            sourceStatistics = new SourceStatistics();
+            statistics.put(source, sourceStatistics);
+        }
+        return sourceStatistics;
+    }
+
+    /**
+     * Log the realised precision, the recall and the latency saved of each source
+     */
+    public static void logStatistics() {
+        synchronized (pendingPredictions) {
+            for (Map.Entry<String, SourceStatistics> entry : statistics.entrySet()) {
+                SourceStatistics sourceStatistics = entry.getValue();
+                long resolved = sourceStatistics.hits + sourceStatistics.misses;
+                Log.d(LOG_TAG, String.format("STATS Source '%s': %d predictions, %d hits, %d misses " +
+                                "(precision %.1f%%, recall %.1f%% of %d requests), %d ms saved",
+                        entry.getKey(),
+                        sourceStatistics.predictions,
+                        sourceStatistics.hits,
+                        sourceStatistics.misses,
+                        resolved == 0 ? 0 : 100f * sourceStatistics.hits / resolved,
+                        requests == 0 ? 0 : 100f * sourceStatistics.hits / requests,
+                        requests,
+                        sourceStatistics.latencySaved));
+            }
+        }
+    }
+
+    /**
+     * Notified whenever a prediction is resolved. Listeners are invoked in the thread
+     * resolving the prediction and must not block.
+     */
+    public interface OutcomeListener {
+        /**
+         * @param source       An identification of who made the prediction
+         * @param activityId   The ID of the activity the user was visiting when the prediction was made
+         * @param candidate    The predicted URL
+         * @param hit          {@code True} if the URL was requested within the outcome window
+         * @param latencySaved The number of milliseconds saved by prefetching the URL
+         */
+        void onOutcome(@NotNull String source, long activityId, @NotNull ScoredCandidate candidate, boolean hit, long latencySaved);
+    }
+
+    private static class Prediction {
+        final String source;
+        final long activityId;
+        final ScoredCandidate candidate;
+        final long timestamp;
+
+        Prediction(String source, long activityId, ScoredCandidate candidate, long timestamp) {
+            this.source = source;
+            this.activityId = activityId;
+            this.candidate = candidate;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static class SourceStatistics {
+        long predictions;
+        long hits;
+        long misses;
+        long latencySaved;
+    }
+}
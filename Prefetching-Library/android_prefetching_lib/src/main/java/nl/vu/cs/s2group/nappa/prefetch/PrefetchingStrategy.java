@@ -7,7 +7,9 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
 
+import nl.vu.cs.s2group.nappa.graph.ActivityGraph;
 import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.util.NappaUtil;
 
 /**
  * The <tt>PrefetchStrategy</tt> interface provides the API to access and initialize
@@ -32,6 +34,42 @@ public interface PrefetchingStrategy {
     @NonNull
     List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber);
 
+    /**
+     * Obtain the most likely {@link android.app.Activity} the user is likely to navigate to
+     * within the provided time budget. Strategies supporting a deadline stop exploring the
+     * ENG once the deadline expires and return the best URLs found so far. By default, the
+     * deadline is ignored.
+     *
+     * @param node      Represents the current {@link android.app.Activity} to where the user navigated to
+     * @param maxNumber Limits the number of requests to prefetch
+     * @param deadline  The time budget of this prediction
+     * @return A list of URLs with high potential to be requested by the user in the immediate future
+     */
+    @NonNull
+    default List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        return getTopNUrlToPrefetchForNode(node, maxNumber);
+    }
+
+    /**
+     * Obtain the URLs the user is likely to request in the near future scored with the
+     * probability of being requested and their expected cost. Strategies estimating the
+     * probability of navigating to a node should override this method and derive
+     * {@link #getTopNUrlToPrefetchForNode(ActivityNode, Integer, PredictionDeadline)} from it.
+     * <p>
+     * By default, the URLs selected by
+     * {@link #getTopNUrlToPrefetchForNode(ActivityNode, Integer, PredictionDeadline)} are scored
+     * with probability 1, since the strategy provides no estimation, and an unknown target node.
+     *
+     * @param node      Represents the current {@link android.app.Activity} to where the user navigated to
+     * @param maxNumber Limits the number of requests to prefetch
+     * @param deadline  The time budget of this prediction
+     * @return A list of scored URLs with high potential to be requested by the user in the immediate future
+     */
+    @NonNull
+    default List<ScoredCandidate> getScoredCandidatesForNode(ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        return NappaUtil.toScoredCandidates(node, null, getTopNUrlToPrefetchForNode(node, maxNumber, deadline), 1f);
+    }
+
     /**
      * Verifies if the time spent visiting an activity is used for calculating the
      * probabilities in {@link #getTopNUrlToPrefetchForNode(ActivityNode, Integer)}.
@@ -51,6 +89,25 @@ public interface PrefetchingStrategy {
      */
     boolean needSuccessorsVisitTime();
 
+    /**
+     * Invoked in a background thread once the ENG is initialized. Strategies that maintain
+     * their own model can use this hook to train it from the database.
+     *
+     * @param graph The initialized ENG
+     */
+    default void onGraphInitialized(@NotNull ActivityGraph graph) {
+    }
+
+    /**
+     * Invoked in a background thread whenever the user navigates to an activity, after the ENG
+     * is updated and before the URLs to prefetch for the activity are selected. Strategies that
+     * maintain their own model can use this hook to update it incrementally.
+     *
+     * @param node Represents the {@link android.app.Activity} the user navigated to
+     */
+    default void onActivityVisited(@NotNull ActivityNode node) {
+    }
+
     /**
      * Instantiate the prefetching strategy corresponding to the provided ID.
      * If the ID is unknown, instantiate the default Greedy-based strategy implemented by
@@ -86,6 +143,16 @@ public interface PrefetchingStrategy {
                 return new GreedyPrefetchingStrategyOnVisitFrequencyAndTime();
             case STRATEGY_TFPR:
                 return new TfprPrefetchingStrategy();
+            case STRATEGY_VARIABLE_ORDER_PPM:
+                return new VariableOrderPPMPrefetchingStrategy();
+            case STRATEGY_PERSONALIZED_PAGERANK:
+                return new PersonalizedPageRankPrefetchingStrategy();
+            case STRATEGY_BANDIT:
+                return new BanditPrefetchingStrategy();
+            case STRATEGY_SEQUENTIAL_PATTERN:
+                return new SequentialPatternPrefetchingStrategy();
+            case STRATEGY_CONTEXT_AWARE:
+                return new ContextAwarePrefetchingStrategy();
             default:
                 return new GreedyPrefetchingStrategyOnVisitFrequency(0.6f);
         }
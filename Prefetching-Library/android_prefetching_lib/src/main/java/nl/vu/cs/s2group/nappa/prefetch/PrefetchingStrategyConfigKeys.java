@@ -5,6 +5,10 @@ import android.content.Context;
 import java.util.Map;
 
 import nl.vu.cs.s2group.nappa.Nappa;
+import nl.vu.cs.s2group.nappa.graph.ActivityNeighbourhoodCache;
+import nl.vu.cs.s2group.nappa.util.DecayingCounter;
+import nl.vu.cs.s2group.nappa.util.NappaHttpCache;
+import nl.vu.cs.s2group.nappa.warmup.WarmUpPlanner;
 
 /**
  * This enumerate contains all available configurations that can be passed as parameter to
@@ -117,4 +121,419 @@ public enum PrefetchingStrategyConfigKeys {
      * The default value is {@link AbstractPrefetchingStrategy#DEFAULT_DAMPING_FACTOR}.
      */
     PAGE_RANK_DAMPING_FACTOR,
+
+    /**
+     * Maps a {@link Boolean} flag to enable the lazy loading of the ENG. If {@code True}, the
+     * graph is initialized only with its structure (i.e., nodes, edges and LAR scores) and
+     * the data of each node is loaded only when the node is in the neighbourhood of the
+     * current node. Nodes that are not in the neighbourhood of recently visited nodes are
+     * released according to {@link #LAZY_GRAPH_MAX_LOADED_NODES}.
+     * <p>
+     * The default value is {@link ActivityNeighbourhoodCache#DEFAULT_LAZY_GRAPH_LOADING}.
+     */
+    LAZY_GRAPH_LOADING,
+
+    /**
+     * Maps an {@link Integer} representing the number of hops from the current node whose
+     * nodes will have their data loaded.
+     * <p>
+     * This parameter is only used together with the parameter {@link #LAZY_GRAPH_LOADING}.
+     * <p>
+     * Must be a number greater or equal to 0.
+     * <p>
+     * The default value is {@link ActivityNeighbourhoodCache#DEFAULT_NEIGHBOURHOOD_DEPTH}.
+     */
+    LAZY_GRAPH_NEIGHBOURHOOD_DEPTH,
+
+    /**
+     * Maps an {@link Integer} representing the maximum number of nodes to keep loaded. The
+     * least recently used nodes are released when this number is exceeded.
+     * <p>
+     * This parameter is only used together with the parameter {@link #LAZY_GRAPH_LOADING}.
+     * <p>
+     * Must be a number greater than 0.
+     * <p>
+     * The default value is {@link ActivityNeighbourhoodCache#DEFAULT_MAX_LOADED_NODES}.
+     */
+    LAZY_GRAPH_MAX_LOADED_NODES,
+
+    /**
+     * Maps a {@link Float} representing the half-life in hours of the decayed visit frequency
+     * and visit time counters of the ENG edges. After one half-life without visits, the
+     * weight of an edge is halved.
+     * <p>
+     * Must be a number greater than 0.
+     * <p>
+     * The default value is {@link DecayingCounter#DEFAULT_HALF_LIFE_HOURS}.
+     */
+    DECAY_HALF_LIFE_HOURS,
+
+    /**
+     * Maps a {@link Float} representing the decayed visit frequency under which an edge
+     * counter is pruned when initializing the ENG and when another edge of its source node
+     * is visited.
+     * <p>
+     * The default value is {@link DecayingCounter#DEFAULT_PRUNE_THRESHOLD}.
+     */
+    DECAY_PRUNE_THRESHOLD,
+
+    /**
+     * Maps a {@link Boolean} flag to determine whether strategies use the decayed visit
+     * frequency and visit time counters instead of the aggregates of the last N sessions.
+     * The decayed counters are only maintained and persisted when this flag is set.
+     * <p>
+     * This configuration is available for the following strategies:
+     * <ul>
+     *     <li> {@link GreedyPrefetchingStrategyOnVisitFrequencyAndTime}</li>
+     * </ul>
+     * <p>
+     * The default value is {@link AbstractPrefetchingStrategy#DEFAULT_USE_DECAYED_WEIGHTS}.
+     */
+    USE_DECAYED_WEIGHTS,
+
+    /**
+     * Maps a {@link Integer} representing the maximum order k of the variable-order Markov
+     * model, i.e. the number of previously visited activities used as context to predict the
+     * next activity.
+     * <p>
+     * Must be a number greater than 0.
+     * <p>
+     * This configuration is available for the following strategies:
+     * <ul>
+     *     <li> {@link VariableOrderPPMPrefetchingStrategy}</li>
+     * </ul>
+     * <p>
+     * The default value is {@link VariableOrderPPMPrefetchingStrategy#DEFAULT_MAX_ORDER}.
+     */
+    PPM_MAX_ORDER,
+
+    /**
+     * Maps a {@link Float} representing the probability that the random walker restarts at
+     * the current node at each step.
+     * <p>
+     * Must be a number between 0 and 1, exclusive.
+     * <p>
+     * This configuration is available for the following strategies:
+     * <ul>
+     *     <li> {@link PersonalizedPageRankPrefetchingStrategy}</li>
+     * </ul>
+     * <p>
+     * The default value is {@link PersonalizedPageRankPrefetchingStrategy#DEFAULT_RESTART_PROBABILITY}.
+     */
+    PPR_RESTART_PROBABILITY,
+
+    /**
+     * Maps a {@link Float} representing the tolerance of the forward push approximation.
+     * Lower values rank more distant nodes at the cost of more push operations.
+     * <p>
+     * Must be a number greater than 0.
+     * <p>
+     * This configuration is available for the following strategies:
+     * <ul>
+     *     <li> {@link PersonalizedPageRankPrefetchingStrategy}</li>
+     * </ul>
+     * <p>
+     * The default value is {@link PersonalizedPageRankPrefetchingStrategy#DEFAULT_EPSILON}.
+     */
+    PPR_EPSILON,
+
+    /**
+     * Maps a {@link Float} representing the maximum change of a score between two iterations
+     * under which the scores are considered converged and the iterations stop. The number
+     * of iterations is still bounded by {@link #NUMBER_OF_ITERATIONS}.
+     * <p>
+     * Must be a positive number. Use 0 to always run all iterations.
+     * <p>
+     * This configuration is available for the following strategies:
+     * <ul>
+     *     <li> {@link TfprPrefetchingStrategy}</li>
+     * </ul>
+     * <p>
+     * The default value is {@link TfprPrefetchingStrategy#DEFAULT_CONVERGENCE_THRESHOLD}.
+     */
+    TFPR_CONVERGENCE_THRESHOLD,
+
+    /**
+     * Maps a {@link Integer} representing the time budget of a single prediction in
+     * milliseconds. Once the budget runs out, the strategy stops exploring the ENG and
+     * returns the best URLs found so far. Strategies without support for a deadline ignore
+     * this configuration.
+     * <p>
+     * Must be a positive number. Use 0 to disable the time budget.
+     * <p>
+     * This configuration is available for the following strategies:
+     * <ul>
+     *     <li> {@link GreedyPrefetchingStrategyOnVisitFrequencyAndTime}</li>
+     *     <li> {@link PageRankPrefetchingStrategy}</li>
+     *     <li> {@link HITSPrefetchingStrategy}</li>
+     * </ul>
+     * <p>
+     * The default value is {@link PredictionDeadline#DEFAULT_PREDICTION_TIME_BUDGET}.
+     */
+    PREDICTION_TIME_BUDGET_MS,
+
+    /**
+     * Maps a {@link Integer} representing the number of seconds a predicted URL has to be
+     * requested by the user to count as a hit. Predictions not requested within this window
+     * count as a miss.
+     * <p>
+     * Must be a number greater than 0.
+     * <p>
+     * This configuration is available for the following strategies:
+     * <ul>
+     *     <li> {@link BanditPrefetchingStrategy}</li>
+     *     <li> {@link ShadowPrefetchingStrategy}</li>
+     * </ul>
+     * <p>
+     * The default value is {@link PrefetchOutcomeTracker#DEFAULT_OUTCOME_WINDOW_SECONDS}.
+     */
+    PREFETCH_OUTCOME_WINDOW_SECONDS,
+
+    /**
+     * Maps a {@link Boolean} flag to determine whether all other strategies are evaluated in
+     * shadow mode. If enabled, all strategies predict the URLs on each trigger in a background
+     * thread, but only the URLs selected by the configured strategy are prefetched. The
+     * precision, recall and hypothetical bytes and latency of each strategy are logged.
+     * <p>
+     * The default value is {@link ShadowPrefetchingStrategy#DEFAULT_SHADOW_MODE}.
+     */
+    SHADOW_MODE,
+
+    /**
+     * Maps a {@link Boolean} flag to determine whether the URLs to prefetch are selected by
+     * their expected utility instead of a fixed score threshold. If enabled, the raw score of
+     * each URL is calibrated into a probability with the realised outcomes of the previous
+     * predictions and a URL is prefetched only if its probability times its expected latency
+     * saved exceeds its cost. The strategies then use a lower threshold score of
+     * {@link PrefetchDecisionStage#CANDIDATE_SCORE_LOWER_THRESHOLD}, unless
+     * {@link #LOWER_THRESHOLD_SCORE} is configured.
+     * <p>
+     * The default value is {@link PrefetchDecisionStage#DEFAULT_USE_EXPECTED_UTILITY_DECISION}.
+     */
+    USE_EXPECTED_UTILITY_DECISION,
+
+    /**
+     * Maps a {@link Float} representing the cost of prefetching a single URL, in milliseconds
+     * of latency saved. Represents the energy spent to wake up the radio.
+     * <p>
+     * Must be a positive number.
+     * <p>
+     * This configuration is only used if {@link #USE_EXPECTED_UTILITY_DECISION} is enabled.
+     * <p>
+     * The default value is {@link PrefetchDecisionStage#DEFAULT_COST_PER_REQUEST}.
+     */
+    PREFETCH_COST_PER_REQUEST,
+
+    /**
+     * Maps a {@link Float} representing the cost of prefetching one KB of the expected
+     * response size, in milliseconds of latency saved. Represents the data and energy spent
+     * to download the response.
+     * <p>
+     * Must be a positive number.
+     * <p>
+     * This configuration is only used if {@link #USE_EXPECTED_UTILITY_DECISION} is enabled.
+     * <p>
+     * The default value is {@link PrefetchDecisionStage#DEFAULT_COST_PER_KB}.
+     */
+    PREFETCH_COST_PER_KB,
+
+    /**
+     * Maps a {@link Integer} representing the depth up to which the nodes ahead of the
+     * current node are prefetched. The strategy prefetches the nodes at depth 1, thus the
+     * lookahead is disabled with a depth of 1. The probability of the nodes further ahead is
+     * the product of the transition probabilities along the path to them.
+     * <p>
+     * Must be a number greater than 0.
+     * <p>
+     * The default value is {@link LookaheadStage#DEFAULT_LOOKAHEAD_DEPTH}.
+     */
+    LOOKAHEAD_DEPTH,
+
+    /**
+     * Maps a {@link Integer} representing the number of KB the lookahead can prefetch for
+     * the nodes at depth 2. The budget of each further depth is shrunk by
+     * {@link #LOOKAHEAD_BUDGET_DECAY}.
+     * <p>
+     * Must be a positive number.
+     * <p>
+     * This configuration is only used if {@link #LOOKAHEAD_DEPTH} is greater than 1.
+     * <p>
+     * The default value is {@link LookaheadStage#DEFAULT_LOOKAHEAD_BYTE_BUDGET_KB}.
+     */
+    LOOKAHEAD_BYTE_BUDGET_KB,
+
+    /**
+     * Maps a {@link Float} representing the factor by which the lookahead byte budget is
+     * multiplied at each further depth.
+     * <p>
+     * Must be a number between 0 and 1.
+     * <p>
+     * This configuration is only used if {@link #LOOKAHEAD_DEPTH} is greater than 1.
+     * <p>
+     * The default value is {@link LookaheadStage#DEFAULT_LOOKAHEAD_BUDGET_DECAY}.
+     */
+    LOOKAHEAD_BUDGET_DECAY,
+
+    /**
+     * Maps a {@link Float} representing the weight of the predictions of the URL transition
+     * model, which learns the transitions between URL templates from the request stream
+     * independently of the activities. The score of a URL is the weighted sum of the score
+     * given by the strategy and the probability given by the URL transition model. In
+     * addition, the URLs the model predicts with a probability of at least
+     * {@link UrlTransitionModel#URL_TRANSITION_PREFETCH_THRESHOLD} are prefetched right after
+     * each request.
+     * <p>
+     * Must be a number between 0 and 1. Use 0 to disable the URL transition model.
+     * <p>
+     * The default value is {@link UrlTransitionModel#DEFAULT_URL_TRANSITION_WEIGHT}.
+     */
+    URL_TRANSITION_WEIGHT,
+
+    /**
+     * Maps a {@link Integer} representing the minimum number of sessions in which a sequence
+     * of activities must occur to be considered a routine of the user.
+     * <p>
+     * Must be a number greater than 0.
+     * <p>
+     * This configuration is available for the following strategies:
+     * <ul>
+     *     <li> {@link SequentialPatternPrefetchingStrategy}</li>
+     * </ul>
+     * <p>
+     * The default value is {@link SequentialPatternPrefetchingStrategy#DEFAULT_MIN_SUPPORT}.
+     */
+    SEQUENCE_MIN_SUPPORT,
+
+    /**
+     * Maps a {@link Integer} representing the maximum number of activities in a mined
+     * sequence. Longer sequences capture longer routines, but take longer to mine.
+     * <p>
+     * Must be a number greater than 1.
+     * <p>
+     * This configuration is available for the following strategies:
+     * <ul>
+     *     <li> {@link SequentialPatternPrefetchingStrategy}</li>
+     * </ul>
+     * <p>
+     * The default value is {@link SequentialPatternPrefetchingStrategy#DEFAULT_MAX_PATTERN_LENGTH}.
+     */
+    SEQUENCE_MAX_PATTERN_LENGTH,
+
+    /**
+     * Maps a {@link Integer} representing the number of visited activities after which the
+     * sequences are mined again from the navigation history.
+     * <p>
+     * Must be a number greater than 0.
+     * <p>
+     * This configuration is available for the following strategies:
+     * <ul>
+     *     <li> {@link SequentialPatternPrefetchingStrategy}</li>
+     * </ul>
+     * <p>
+     * The default value is {@link SequentialPatternPrefetchingStrategy#DEFAULT_MINING_INTERVAL}.
+     */
+    SEQUENCE_MINING_INTERVAL,
+
+    /**
+     * Maps a {@link Integer} representing the minimum number of transitions from the current
+     * node in the current context bucket (band of the day and type of day) to predict from
+     * this bucket alone. Otherwise, the prediction backs off to all buckets of the same type
+     * of day and then to all buckets.
+     * <p>
+     * Must be a number greater than 0.
+     * <p>
+     * This configuration is available for the following strategies:
+     * <ul>
+     *     <li> {@link ContextAwarePrefetchingStrategy}</li>
+     * </ul>
+     * <p>
+     * The default value is {@link ContextAwarePrefetchingStrategy#DEFAULT_CONTEXT_MIN_OBSERVATIONS}.
+     */
+    CONTEXT_MIN_OBSERVATIONS,
+
+    /**
+     * Maps a {@link Integer} representing the number of most likely values an extra that was
+     * not sent yet is filled with, in order to prefetch the URLs of the successors before the
+     * user selects an item. The likelihood of the values is learned from the extras
+     * previously sent by the current activity.
+     * <p>
+     * Must be a positive number. Use 0 to disable the prediction of extra values.
+     * <p>
+     * The default value is {@link ParameterValueModel#DEFAULT_PARAMETER_VALUE_TOP_K}.
+     */
+    PARAMETER_VALUE_TOP_K,
+
+    /**
+     * Maps a {@link Float} representing the budget of the URLs filled with predicted extra
+     * values, as the maximum expected number of wasted requests. The URLs are selected by
+     * decreasing probability while the sum of {@code 1 - probability} fits the budget. This
+     * budget is separate from {@link #MAX_URL_TO_PREFETCH}.
+     * <p>
+     * Must be a positive number.
+     * <p>
+     * This configuration is only used if {@link #PARAMETER_VALUE_TOP_K} is greater than 0.
+     * <p>
+     * The default value is {@link ParameterValueModel#DEFAULT_PARAMETER_VALUE_BUDGET}.
+     */
+    PARAMETER_VALUE_BUDGET,
+
+    /**
+     * Maps a {@link Integer} representing the number of seconds a URL requested periodically
+     * while an activity is open is refreshed before its next expected request, such that the
+     * request is served from the prefetching cache. Since the prefetching cache keeps the
+     * responses for 300 seconds, the lead time should be much shorter.
+     * <p>
+     * Must be a positive number. Use 0 to disable the refresh of periodic requests.
+     * <p>
+     * The default value is {@link PeriodicRequestDetector#DEFAULT_PERIODIC_REFRESH_LEAD_SECONDS}.
+     */
+    PERIODIC_REFRESH_LEAD_SECONDS,
+
+    /**
+     * Maps a {@link Float} representing the maximum coefficient of variation (standard
+     * deviation over average) of the intervals between the requests of a URL for these
+     * requests to be considered periodic.
+     * <p>
+     * Must be a positive number.
+     * <p>
+     * This configuration is only used if {@link #PERIODIC_REFRESH_LEAD_SECONDS} is greater than 0.
+     * <p>
+     * The default value is {@link PeriodicRequestDetector#DEFAULT_PERIODIC_REFRESH_MAX_JITTER}.
+     */
+    PERIODIC_REFRESH_MAX_JITTER,
+
+    /**
+     * Maps a {@link Integer} representing the maximum number of URLs prefetched when NAPPA is
+     * initialized, predicted from the URLs requested at the launch of the latest sessions.
+     * Only the URLs requested in at least 30% of the launches are prefetched.
+     * <p>
+     * Must be a positive number. Use 0 to disable the prefetching at launch.
+     * <p>
+     * The default value is {@link LaunchPredictor#DEFAULT_LAUNCH_PREFETCH_MAX_URLS}.
+     */
+    LAUNCH_PREFETCH_MAX_URLS,
+
+    /**
+     * Maps a {@link Boolean} representing whether the URLs predicted for the launch are
+     * prefetched into the persistent HTTP cache in the background, shortly before the time
+     * of the day the application is typically launched. The warm-up runs as a job only while
+     * the device is idle and connected to an unmetered network, and only prefetches the URLs
+     * whose learned TTL keeps them fresh until the launch.
+     * <p>
+     * The default value is {@link WarmUpPlanner#DEFAULT_WARM_UP_ENABLED}.
+     */
+    WARM_UP_ENABLED,
+
+    /**
+     * Maps a {@link Integer} representing the maximum number of kilobytes a background
+     * warm-up downloads. The persistent HTTP cache is limited to
+     * {@link NappaHttpCache#MAX_SIZE} bytes.
+     * <p>
+     * Must be a positive number.
+     * <p>
+     * This configuration is only used if {@link #WARM_UP_ENABLED} is {@code true}.
+     * <p>
+     * The default value is {@link WarmUpPlanner#DEFAULT_WARM_UP_MAX_KB}.
+     */
+    WARM_UP_MAX_KB,
 }
@@ -11,6 +11,10 @@ package nl.vu.cs.s2group.nappa.prefetch;
  *     <li> {@link #STRATEGY_SALSA} (Stochastic Approach for Link-Structure Analysis)</li>
  *     <li> {@link #STRATEGY_GREEDY_WITH_PAGERANK_SCORES}</li>
  *     <li> {@link #STRATEGY_PPM_WITH_HITS_SCORES}</li>
+ *     <li> {@link #STRATEGY_VARIABLE_ORDER_PPM}</li>
+ *     <li> {@link #STRATEGY_PERSONALIZED_PAGERANK}</li>
+ *     <li> {@link #STRATEGY_SEQUENTIAL_PATTERN}</li>
+ *     <li> {@link #STRATEGY_CONTEXT_AWARE}</li>
  * </ul>
  */
 public enum PrefetchingStrategyType {
@@ -70,4 +74,39 @@ public enum PrefetchingStrategyType {
      * ID for strategy implemented at {@link PPMWithHITSScoresPrefetchingStrategy}
      */
     STRATEGY_PPM_WITH_HITS_SCORES,
+
+    /**
+     * ID for strategy implemented at {@link VariableOrderPPMPrefetchingStrategy}.
+     * This strategy predicts the next activities using a variable-order Markov model over
+     * the last k activities visited in the session
+     */
+    STRATEGY_VARIABLE_ORDER_PPM,
+
+    /**
+     * ID for strategy implemented at {@link PersonalizedPageRankPrefetchingStrategy}.
+     * This strategy ranks the nodes reachable from the current node with a random walk
+     * with restart at the current node
+     */
+    STRATEGY_PERSONALIZED_PAGERANK,
+
+    /**
+     * ID for strategy implemented at {@link BanditPrefetchingStrategy}.
+     * This meta-strategy selects which strategy to run in each node with a multi-armed
+     * bandit rewarded by the realised precision of the predictions
+     */
+    STRATEGY_BANDIT,
+
+    /**
+     * ID for strategy implemented at {@link SequentialPatternPrefetchingStrategy}.
+     * This strategy mines the frequent sequences of activities visited in a session and
+     * predicts the rest of the sequences the current session started
+     */
+    STRATEGY_SEQUENTIAL_PATTERN,
+
+    /**
+     * ID for strategy implemented at {@link ContextAwarePrefetchingStrategy}.
+     * This strategy predicts the successors of the current node from the transitions made
+     * in the same band of the day and type of day
+     */
+    STRATEGY_CONTEXT_AWARE,
 }
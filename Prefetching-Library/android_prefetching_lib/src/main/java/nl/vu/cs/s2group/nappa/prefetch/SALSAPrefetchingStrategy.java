@@ -7,7 +7,6 @@ import androidx.annotation.NonNull;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import nl.vu.cs.s2group.nappa.Nappa;
 import nl.vu.cs.s2group.nappa.graph.ActivityNode;
@@ -27,7 +26,6 @@ import nl.vu.cs.s2group.nappa.util.NappaUtil;
 @Deprecated
 public class SALSAPrefetchingStrategy implements PrefetchingStrategy {
     private static final String LOG_TAG = SALSAPrefetchingStrategy.class.getSimpleName();
-    private HashMap<Long, String> reversedHashMap = new HashMap<>();
     private float threshold;
 
     public SALSAPrefetchingStrategy(float threshold) {this.threshold = threshold;}
@@ -45,13 +43,9 @@ public class SALSAPrefetchingStrategy implements PrefetchingStrategy {
     @NonNull
     @Override
     public List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber) {
+        StrategyExecutionContext context = new StrategyExecutionContext(node, PredictionDeadline.NONE);
 
-        Map<String, Long> activityMap = Nappa.activityMap;
-        for (String key : activityMap.keySet()){
-            reversedHashMap.put(activityMap.get(key), key);
-        }
-
-        List<ActivityNode> probableNodes = getMostProbableNodes(node, new LinkedList<>());
+        List<ActivityNode> probableNodes = getMostProbableNodes(node, new LinkedList<>(), context);
         for (ActivityNode node1 : probableNodes) {
             for (int i=probableNodes.lastIndexOf(node1)+1;i<probableNodes.size();i++) {
                 ActivityNode node2 = probableNodes.get(i);
@@ -90,9 +84,10 @@ public class SALSAPrefetchingStrategy implements PrefetchingStrategy {
      *
      * @param probableNodes List containing all the probable nodes, corresponding to those nodes that
      *                      have a probability exceeding the prescribed threshold.
+     * @param context The context of this execution
      * @return The set of probable nodes {@code List<ActivityNode>} with respect to the initial activity {@code node}
      */
-    private List<ActivityNode> getMostProbableNodes(ActivityNode node, List<ActivityNode> probableNodes) {
+    private List<ActivityNode> getMostProbableNodes(ActivityNode node, List<ActivityNode> probableNodes, StrategyExecutionContext context) {
         // Fetch the current state of the session aggregate
         List<SessionDao.SessionAggregate> sessionAggregate = node.getSessionAggregateList();
         HashMap<Long, Float> successorCountMap = new HashMap<>();
@@ -104,11 +99,11 @@ public class SALSAPrefetchingStrategy implements PrefetchingStrategy {
 
         for (Long succ : successorCountMap.keySet()) {
 
-            ActivityNode node1 = Nappa.getActivityGraph().getByName(reversedHashMap.get(succ));
+            ActivityNode node1 = Nappa.getActivityGraph().getByName(context.getActivityName(succ));
 
             if (!probableNodes.contains(node1)) {
                 probableNodes.add(node1);
-                getMostProbableNodes(node1, probableNodes);
+                getMostProbableNodes(node1, probableNodes, context);
             }
 
         }
@@ -0,0 +1,113 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+
+/**
+ * Represents a URL selected by a prefetching strategy together with the information required
+ * to decide whether it is worth prefetching:
+ *
+ * <ul>
+ *     <li> The node the user is visiting when the URL was selected (source node)</li>
+ *     <li> The node expected to request the URL (target node)</li>
+ *     <li> The probability that the target node requests the URL in the near future</li>
+ *     <li> The expected response size in bytes, from the history in {@code nappa_url}</li>
+ *     <li> The expected request duration in milliseconds, from the history in {@code nappa_url}</li>
+ * </ul>
+ * <p>
+ * The expected size and duration are {@link #UNKNOWN} if the URL and its target node were
+ * never requested before.
+ */
+public class ScoredCandidate {
+    public static final long UNKNOWN = -1;
+
+    /**
+     * Sorts from the highest to the lowest probability
+     */
+    public static final Comparator<ScoredCandidate> BY_PROBABILITY =
+            (o1, o2) -> Float.compare(o2.probability, o1.probability);
+
+    /**
+     * Sorts from the highest to the lowest expected latency saved. Candidates with unknown
+     * duration are sorted by probability after all candidates with known duration.
+     */
+    public static final Comparator<ScoredCandidate> BY_EXPECTED_LATENCY_SAVED = (o1, o2) -> {
+        int comparison = Float.compare(o2.getExpectedLatencySaved(), o1.getExpectedLatencySaved());
+        return comparison != 0 ? comparison : BY_PROBABILITY.compare(o1, o2);
+    };
+
+    public final String url;
+    public final ActivityNode sourceNode;
+    @Nullable
+    public final ActivityNode targetNode;
+    public final float probability;
+    public final long expectedSize;
+    public final long expectedDuration;
+
+    /**
+     * @param url              The URL to prefetch
+     * @param sourceNode       The node the user is visiting
+     * @param targetNode       The node expected to request the URL. Use {@code null} if unknown.
+     * @param probability      The probability that the URL is requested, between 0 and 1
+     * @param expectedSize     The expected response size in bytes or {@link #UNKNOWN}
+     * @param expectedDuration The expected request duration in milliseconds or {@link #UNKNOWN}
+     */
+    public ScoredCandidate(@NotNull String url,
+                           @NotNull ActivityNode sourceNode,
+                           @Nullable ActivityNode targetNode,
+                           float probability,
+                           long expectedSize,
+                           long expectedDuration) {
+        this.url = url;
+        this.sourceNode = sourceNode;
+        this.targetNode = targetNode;
+        this.probability = Math.max(0, Math.min(probability, 1));
+        this.expectedSize = expectedSize;
+        this.expectedDuration = expectedDuration;
+    }
+
+    /**
+     * @return The expected number of milliseconds the user saves if this URL is prefetched,
+     * or 0 if the request duration is unknown
+     */
+    public float getExpectedLatencySaved() {
+        return expectedDuration == UNKNOWN ? 0 : probability * expectedDuration;
+    }
+
+    /**
+     * @return The expected number of bytes downloaded without being used if this URL is
+     * prefetched, or 0 if the response size is unknown
+     */
+    public float getExpectedWastedBytes() {
+        return expectedSize == UNKNOWN ? 0 : (1 - probability) * expectedSize;
+    }
+
+    /**
+     * @param candidates A list of scored candidates
+     * @return The URLs of the candidates, in the same order
+     */
+    @NotNull
+    public static List<String> toUrls(@NotNull List<ScoredCandidate> candidates) {
+        List<String> urls = new ArrayList<>(candidates.size());
+        for (ScoredCandidate candidate : candidates) urls.add(candidate.url);
+        return urls;
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return String.format("%s (%s -> %s, probability %.3f, size %d, duration %d)",
+                url,
+                sourceNode.activityName,
+                targetNode == null ? "?" : targetNode.activityName,
+                probability,
+                expectedSize,
+                expectedDuration);
+    }
+}
@@ -0,0 +1,459 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityGraph;
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+import nl.vu.cs.s2group.nappa.room.activity.visittime.ActivityVisitTime;
+import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
+import nl.vu.cs.s2group.nappa.util.NappaUtil;
+
+/**
+ * This strategy mines the navigation routines of the user, i.e. the sequences of activities
+ * frequently visited in the same session (e.g. weather -> capital list -> Amsterdam), and
+ * predicts the rest of a routine once the user starts it.
+ * <p>
+ * The frequent sequences are mined from the full navigation history with the PrefixSpan
+ * algorithm. A sequence is frequent if it occurs, not necessarily contiguously, in at least
+ * {@link PrefetchingStrategyConfigKeys#SEQUENCE_MIN_SUPPORT} sessions. The frequent sequences
+ * are stored in a prefix index, a trie in which each path from the root is a frequent
+ * sequence and each trie node counts the sessions containing its sequence. The sequences are
+ * mined in a background thread when the graph is initialized and mined again every
+ * {@link PrefetchingStrategyConfigKeys#SEQUENCE_MINING_INTERVAL} visits. As such, predicting
+ * the next activities is a bounded walk in the trie and does not access the database. Until
+ * the first mining completes, the prefix index is empty and no activity is predicted.
+ * <p>
+ * The longest suffix of the current session that is a frequent sequence with known
+ * continuations is used as prefix. The score of each activity in the rest of the sequences
+ * is the confidence of the sequence up to it, that is, the share of the sessions containing
+ * the prefix that also contain the sequence.
+ * <p>
+ * This strategy accepts the following configurations:
+ * <ul>
+ *     <li>{@link PrefetchingStrategyConfigKeys#SEQUENCE_MIN_SUPPORT}</li>
+ *     <li>{@link PrefetchingStrategyConfigKeys#SEQUENCE_MAX_PATTERN_LENGTH}</li>
+ *     <li>{@link PrefetchingStrategyConfigKeys#SEQUENCE_MINING_INTERVAL}</li>
+ * </ul>
+ *
+ * @see <a href="https://doi.org/10.1109/TKDE.2004.77">PrefixSpan paper</a>
+ */
+public class SequentialPatternPrefetchingStrategy extends AbstractPrefetchingStrategy {
+    private static final String LOG_TAG = SequentialPatternPrefetchingStrategy.class.getSimpleName();
+
+    public static final int DEFAULT_MIN_SUPPORT = 2;
+    public static final int DEFAULT_MAX_PATTERN_LENGTH = 5;
+    public static final int DEFAULT_MINING_INTERVAL = 20;
+
+    /**
+     * The number of latest sessions the sequences are mined from
+     */
+    private static final int MAX_MINED_SESSIONS = 500;
+    /**
+     * The maximum number of frequent sequences kept in the prefix index
+     */
+    private static final int MAX_PATTERNS = 20000;
+
+    private final int minSupport;
+    private final int maxPatternLength;
+    private final int miningInterval;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "nappa-sequence-mining");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile PatternNode root = new PatternNode(null, 0);
+    /**
+     * The last activities visited in the current session, at most one less than the
+     * maximum pattern length, such that a prefix always leaves room for a prediction
+     */
+    private final Deque<ActivityNode> currentSession = new ArrayDeque<>();
+    private ActivityNode lastVisitedNode;
+    private ActivityGraph graph;
+    private int visitsSinceMining;
+    private boolean isMining;
+
+    public SequentialPatternPrefetchingStrategy() {
+        super();
+
+        minSupport = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.SEQUENCE_MIN_SUPPORT,
+                DEFAULT_MIN_SUPPORT);
+        if (minSupport < 1)
+            throw new IllegalArgumentException("The minimum support must be greater than 0. "
+                    + minSupport + " provided.");
+
+        maxPatternLength = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.SEQUENCE_MAX_PATTERN_LENGTH,
+                DEFAULT_MAX_PATTERN_LENGTH);
+        if (maxPatternLength < 2)
+            throw new IllegalArgumentException("The maximum pattern length must be greater than 1. "
+                    + maxPatternLength + " provided.");
+
+        miningInterval = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.SEQUENCE_MINING_INTERVAL,
+                DEFAULT_MINING_INTERVAL);
+        if (miningInterval < 1)
+            throw new IllegalArgumentException("The mining interval must be greater than 0. "
+                    + miningInterval + " provided.");
+    }
+
+    @Override
+    public boolean needVisitTime() {
+        return false;
+    }
+
+    @Override
+    public boolean needSuccessorsVisitTime() {
+        return false;
+    }
+
+    @Override
+    public synchronized void onGraphInitialized(@NotNull ActivityGraph graph) {
+        this.graph = graph;
+        if (isMining) return;
+        visitsSinceMining = 0;
+        startMining();
+    }
+
+    @Override
+    public synchronized void onActivityVisited(@NotNull ActivityNode node) {
+        // Reloading the same activity does not advance the routine
+        if (node.equals(lastVisitedNode)) return;
+        lastVisitedNode = node;
+
+        currentSession.addLast(node);
+        if (currentSession.size() >= maxPatternLength) currentSession.removeFirst();
+
+        visitsSinceMining++;
+        if (visitsSinceMining < miningInterval || isMining || graph == null) return;
+        visitsSinceMining = 0;
+        startMining();
+    }
+
+    /**
+     * Mine the sequences in the mining thread, such that neither the graph initialization nor
+     * the navigation wait for it. Must be invoked while holding the lock on this strategy.
+     */
+    private void startMining() {
+        isMining = true;
+        ActivityGraph minedGraph = graph;
+        executor.execute(() -> {
+            try {
+                root = mine(minedGraph);
+            } finally {
+                synchronized (this) {
+                    isMining = false;
+                }
+            }
+        });
+    }
+
+    @NonNull
+    @Override
+    public List<String> getTopNUrlToPrefetchForNode(@NotNull ActivityNode node, Integer maxNumber) {
+        return ScoredCandidate.toUrls(getScoredCandidatesForNode(node, maxNumber, PredictionDeadline.NONE));
+    }
+
+    @NonNull
+    @Override
+    public List<ScoredCandidate> getScoredCandidatesForNode(@NotNull ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        long startTime = System.currentTimeMillis();
+
+        StrategyExecutionContext context = new StrategyExecutionContext(node, deadline);
+        Log.d(LOG_TAG, String.format("(#%d) Starting execution %d for node '%s'.", context.id, context.id, node.activityName));
+
+        StrategyExecutionContext.NodeScores confidences = predict(context);
+        List<ActivityNode> selectedNodes = getNodesSortedByConfidence(node, confidences);
+        addUrls(context, selectedNodes, confidences);
+
+        logStrategyExecutionDuration(node, startTime, context.id);
+
+        return context.getCandidates();
+    }
+
+    /**
+     * Mine the frequent sequences of the latest sessions in the navigation history
+     *
+     * @param graph The graph containing the visited activities
+     * @return The root of the prefix index
+     */
+    @NotNull
+    private PatternNode mine(@NotNull ActivityGraph graph) {
+        long startTime = System.currentTimeMillis();
+        List<ActivityNode[]> sessions = getSessions(graph);
+
+        PatternNode minedRoot = new PatternNode(null, sessions.size());
+        Projection projection = new Projection();
+        for (int i = 0; i < sessions.size(); i++) projection.add(i, 0);
+        int numberOfPatterns = grow(minedRoot, sessions, projection, 1, 0);
+
+        Log.d(LOG_TAG, String.format("Mined %d frequent sequences from %d sessions in %d ms",
+                numberOfPatterns,
+                sessions.size(),
+                System.currentTimeMillis() - startTime));
+        return minedRoot;
+    }
+
+    /**
+     * Read the navigation history as a list of sessions. Consecutive visits to the same
+     * activity are merged and sessions with a single activity are discarded, since they
+     * contain no sequence.
+     */
+    @NotNull
+    private List<ActivityNode[]> getSessions(@NotNull ActivityGraph graph) {
+        Map<Long, ActivityNode> nodesById = graph.mapNodesById();
+        List<ActivityVisitTime> history = NappaDB.getInstance().activityVisitTimeDao().getNavigationHistory();
+
+        List<ActivityNode[]> sessions = new ArrayList<>();
+        List<ActivityNode> session = new ArrayList<>();
+        long sessionId = -1;
+        for (ActivityVisitTime visit : history) {
+            if (visit.sessionId != sessionId) {
+                if (session.size() > 1) sessions.add(session.toArray(new ActivityNode[0]));
+                session.clear();
+                sessionId = visit.sessionId;
+            }
+            ActivityNode node = nodesById.get(visit.activityId);
+            if (node == null) continue;
+            if (session.isEmpty() || session.get(session.size() - 1) != node) session.add(node);
+        }
+        if (session.size() > 1) sessions.add(session.toArray(new ActivityNode[0]));
+
+        // The history is ordered by session, thus the latest sessions are at the end
+        if (sessions.size() > MAX_MINED_SESSIONS)
+            sessions = new ArrayList<>(sessions.subList(sessions.size() - MAX_MINED_SESSIONS, sessions.size()));
+        return sessions;
+    }
+
+    /**
+     * Extend the provided frequent sequence with each activity frequent in its projected
+     * sessions and recursively mine the extended sequences (PrefixSpan with
+     * pseudo-projection).
+     *
+     * @param prefix           The trie node representing the frequent sequence
+     * @param sessions         The mined sessions
+     * @param projection       The sessions containing the sequence and the position right
+     *                         after the first occurrence of the sequence in each of them
+     * @param length           The length of the extended sequences
+     * @param numberOfPatterns The number of frequent sequences mined so far
+     * @return The number of frequent sequences mined after mining this prefix
+     */
+    private int grow(@NotNull PatternNode prefix,
+                     @NotNull List<ActivityNode[]> sessions,
+                     @NotNull Projection projection,
+                     int length,
+                     int numberOfPatterns) {
+        if (length > maxPatternLength) return numberOfPatterns;
+
+        // The projection of each extension keeps only the first occurrence in each session
+        Map<ActivityNode, Projection> extensions = new LinkedHashMap<>();
+        for (int p = 0; p < projection.size; p++) {
+            int sessionIndex = projection.sessions[p];
+            ActivityNode[] session = sessions.get(sessionIndex);
+            for (int i = projection.positions[p]; i < session.length; i++) {
+                Projection extension = extensions.get(session[i]);
+                if (extension == null) {
+                    extension = new Projection();
+                    extensions.put(session[i], extension);
+                }
+                if (extension.getLastSession() != sessionIndex) extension.add(sessionIndex, i + 1);
+            }
+        }
+
+        for (Map.Entry<ActivityNode, Projection> entry : extensions.entrySet()) {
+            if (entry.getValue().size < minSupport) continue;
+            if (numberOfPatterns >= MAX_PATTERNS) break;
+            PatternNode child = prefix.addChild(entry.getKey(), entry.getValue().size);
+            numberOfPatterns = grow(child, sessions, entry.getValue(), length + 1, numberOfPatterns + 1);
+        }
+        return numberOfPatterns;
+    }
+
+    /**
+     * Find the longest suffix of the current session with known continuations and score the
+     * activities in the continuations by their confidence.
+     *
+     * @param context The execution context, whose start node is the node the user is
+     *                currently visiting
+     * @return The confidence of each activity to be visited in the rest of the session
+     */
+    @NotNull
+    private StrategyExecutionContext.NodeScores predict(@NotNull StrategyExecutionContext context) {
+        ActivityNode node = context.startNode;
+        List<ActivityNode> session;
+        synchronized (this) {
+            // The strategy was not notified about this visit, thus only the current node is known
+            if (node.equals(lastVisitedNode)) session = new ArrayList<>(currentSession);
+            else session = Collections.singletonList(node);
+        }
+
+        StrategyExecutionContext.NodeScores confidences = context.getScores();
+        PatternNode patterns = root;
+        for (int start = 0; start < session.size(); start++) {
+            PatternNode prefix = patterns.find(session, start);
+            if (prefix == null || prefix.children == null) continue;
+            addConfidences(context, prefix, prefix.support, confidences);
+            Log.d(LOG_TAG, String.format("(#%d) Matched the prefix of length %d with support %d",
+                    context.id,
+                    session.size() - start,
+                    prefix.support));
+            break;
+        }
+        return confidences;
+    }
+
+    private void addConfidences(@NotNull StrategyExecutionContext context,
+                                @NotNull PatternNode pattern,
+                                int prefixSupport,
+                                @NotNull StrategyExecutionContext.NodeScores confidences) {
+        if (pattern.children == null || context.deadline.isExpired()) return;
+        for (PatternNode child : pattern.children.values()) {
+            float confidence = (float) child.support / prefixSupport;
+            if (confidence > confidences.get(child.activity)) confidences.set(child.activity, confidence);
+            // The confidence never increases along a sequence
+            if (confidence >= scoreLowerThreshold) addConfidences(context, child, prefixSupport, confidences);
+        }
+    }
+
+    /**
+     * Sort the predicted nodes by confidence and return all nodes with a confidence higher
+     * than the lower threshold score.
+     *
+     * @param currentNode The node the user is currently visiting
+     * @param confidences The confidence of each activity to be visited
+     * @return The nodes sorted from the highest to the lowest confidence
+     */
+    @NotNull
+    private List<ActivityNode> getNodesSortedByConfidence(@NotNull ActivityNode currentNode,
+                                                          @NotNull StrategyExecutionContext.NodeScores confidences) {
+        List<ActivityNode> nodes = new ArrayList<>();
+        for (ActivityNode node : confidences.getNodes()) {
+            // Prefetching the data of the current node brings no benefit
+            if (node == currentNode) continue;
+            if (confidences.get(node) >= scoreLowerThreshold) nodes.add(node);
+        }
+        Collections.sort(nodes, new ConfidenceComparator(confidences));
+        return nodes;
+    }
+
+    private void addUrls(@NotNull StrategyExecutionContext context,
+                         @NotNull List<ActivityNode> nodes,
+                         @NotNull StrategyExecutionContext.NodeScores confidences) {
+        List<ScoredCandidate> urls = context.getCandidates();
+
+        for (ActivityNode node : nodes) {
+            int remainingUrlBudget = maxNumberOfUrlToPrefetch - urls.size();
+            List<ScoredCandidate> nodUrls = NappaUtil.getScoredCandidatesFromCandidateNode(context.startNode,
+                    node,
+                    confidences.get(node),
+                    remainingUrlBudget);
+            urls.addAll(nodUrls);
+
+            Log.d(LOG_TAG, String.format("(#%s) The URLs from node '%s' with confidence %f are: %s",
+                    context.id,
+                    node.activityName,
+                    confidences.get(node),
+                    nodUrls));
+            if (urls.size() >= maxNumberOfUrlToPrefetch) break;
+        }
+    }
+
+    private static class ConfidenceComparator implements Comparator<ActivityNode> {
+        private final StrategyExecutionContext.NodeScores confidences;
+
+        ConfidenceComparator(StrategyExecutionContext.NodeScores confidences) {
+            this.confidences = confidences;
+        }
+
+        @Override
+        public int compare(ActivityNode o1, ActivityNode o2) {
+            return Float.compare(confidences.get(o2), confidences.get(o1));
+        }
+    }
+
+    /**
+     * Represents the sessions containing a sequence by pairs of session index and the
+     * position right after the first occurrence of the sequence in the session
+     */
+    private static class Projection {
+        int[] sessions = new int[4];
+        int[] positions = new int[4];
+        int size;
+
+        void add(int session, int position) {
+            if (size == sessions.length) {
+                sessions = Arrays.copyOf(sessions, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            sessions[size] = session;
+            positions[size] = position;
+            size++;
+        }
+
+        int getLastSession() {
+            return size == 0 ? -1 : sessions[size - 1];
+        }
+    }
+
+    /**
+     * Represents a node in the prefix index. The path from the root to this node is a
+     * frequent sequence and {@link #support} is the number of sessions containing it.
+     */
+    private static class PatternNode {
+        final ActivityNode activity;
+        final int support;
+        /**
+         * Most sequences have a handful of continuations, thus the map is only allocated
+         * when the first continuation is added
+         */
+        Map<ActivityNode, PatternNode> children;
+
+        PatternNode(ActivityNode activity, int support) {
+            this.activity = activity;
+            this.support = support;
+        }
+
+        @NotNull
+        PatternNode addChild(@NotNull ActivityNode node, int support) {
+            if (children == null) children = new HashMap<>(4);
+            PatternNode child = new PatternNode(node, support);
+            children.put(node, child);
+            return child;
+        }
+
+        /**
+         * @return The trie node representing the sequence from the provided position to the
+         * end of the list or {@code null} if the sequence is not frequent
+         */
+        PatternNode find(@NotNull List<ActivityNode> sequence, int start) {
+            PatternNode node = this;
+            for (int i = start; i < sequence.size() && node != null; i++) {
+                node = node.children == null ? null : node.children.get(sequence.get(i));
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.os.Debug;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import nl.vu.cs.s2group.nappa.Nappa;
+import nl.vu.cs.s2group.nappa.graph.ActivityGraph;
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+
+/**
+ * Decorates the configured {@link PrefetchingStrategy} with a shadow evaluation of all other
+ * strategies. Whenever the configured strategy is triggered, every other strategy also
+ * predicts the URLs for the same node, but their predictions are only registered in the
+ * {@link PrefetchOutcomeTracker} and never prefetched. The predictions of the configured
+ * strategy are registered as well, such that all strategies are scored against the URLs
+ * the application actually requests.
+ * <p>
+ * The precision and recall of each strategy are reported by the tracker under the source
+ * {@code live/<strategy>} or {@code shadow/<strategy>}. This decorator additionally reports
+ * the bytes each strategy would have downloaded, the bytes it would have wasted, the latency
+ * it would have saved, based on the expected size and duration of the predicted URLs, and
+ * the CPU time it spent.
+ * <p>
+ * The shadow strategies run in a single background thread with background priority, thus
+ * their CPU time is never charged to the main thread or to the prefetching thread.
+ * The {@link BanditPrefetchingStrategy} is not evaluated, since it would update its arm
+ * statistics with the shadow predictions.
+ */
+public class ShadowPrefetchingStrategy implements PrefetchingStrategy {
+    private static final String LOG_TAG = ShadowPrefetchingStrategy.class.getSimpleName();
+
+    public static final boolean DEFAULT_SHADOW_MODE = false;
+
+    private static final String SHADOW_SOURCE_PREFIX = "shadow/";
+
+    private final PrefetchingStrategy strategy;
+    private final String liveSource;
+    private final Map<String, PrefetchingStrategy> shadowStrategies = new LinkedHashMap<>();
+    private final Map<String, ShadowStatistics> statistics = new LinkedHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "nappa-shadow");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param strategy     The configured strategy, whose predictions are prefetched
+     * @param strategyType The type of the configured strategy
+     */
+    public ShadowPrefetchingStrategy(@NotNull PrefetchingStrategy strategy, @NotNull PrefetchingStrategyType strategyType) {
+        this.strategy = strategy;
+        this.liveSource = PrefetchOutcomeTracker.getLiveSource(strategyType);
+        statistics.put(liveSource, new ShadowStatistics());
+
+        for (PrefetchingStrategyType type : PrefetchingStrategyType.values()) {
+            if (type == strategyType || type == PrefetchingStrategyType.STRATEGY_BANDIT) continue;
+            String source = SHADOW_SOURCE_PREFIX + type.name();
+            shadowStrategies.put(source, PrefetchingStrategy.getStrategy(type));
+            statistics.put(source, new ShadowStatistics());
+        }
+
+        PrefetchOutcomeTracker.addListener(this::onOutcome);
+    }
+
+    @NonNull
+    @Override
+    public List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber) {
+        return ScoredCandidate.toUrls(getScoredCandidatesForNode(node, maxNumber, PredictionDeadline.NONE));
+    }
+
+    @NonNull
+    @Override
+    public List<String> getTopNUrlToPrefetchForNode(ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        return ScoredCandidate.toUrls(getScoredCandidatesForNode(node, maxNumber, deadline));
+    }
+
+    @NonNull
+    @Override
+    public List<ScoredCandidate> getScoredCandidatesForNode(ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        List<ScoredCandidate> candidates = strategy.getScoredCandidatesForNode(node, maxNumber, deadline);
+
+        Long activityId = Nappa.getActivityIdFromName(node.activityName);
+        if (activityId == null) return candidates;
+
+        registerPredictions(liveSource, activityId, candidates);
+        executor.execute(() -> runShadowStrategies(node, activityId, maxNumber));
+        return candidates;
+    }
+
+    private void runShadowStrategies(@NotNull ActivityNode node, long activityId, Integer maxNumber) {
+        for (Map.Entry<String, PrefetchingStrategy> entry : shadowStrategies.entrySet()) {
+            long cpuStartTime = Debug.threadCpuTimeNanos();
+            try {
+                List<ScoredCandidate> candidates = entry.getValue().getScoredCandidatesForNode(node, maxNumber, PredictionDeadline.NONE);
+                registerPredictions(entry.getKey(), activityId, candidates);
+            } catch (Exception e) {
+                Log.w(LOG_TAG, String.format("Shadow strategy '%s' failed for node '%s'", entry.getKey(), node.activityName), e);
+            }
+            long cpuTime = Debug.threadCpuTimeNanos() - cpuStartTime;
+            synchronized (statistics) {
+                //noinspection ConstantConditions All sources have statistics
+                statistics.get(entry.getKey()).cpuTime += cpuTime;
+            }
+        }
+        logStatistics();
+    }
+
+    private void registerPredictions(@NotNull String source, long activityId, @NotNull List<ScoredCandidate> candidates) {
+        for (ScoredCandidate candidate : candidates) {
+            PrefetchOutcomeTracker.registerPrediction(source, activityId, candidate);
+            if (candidate.expectedSize == ScoredCandidate.UNKNOWN) continue;
+            synchronized (statistics) {
+                //noinspection ConstantConditions All sources have statistics
+                statistics.get(source).bytesPredicted += candidate.expectedSize;
+            }
+        }
+    }
+
+    private void onOutcome(@NotNull String source, long activityId, @NotNull ScoredCandidate candidate, boolean hit, long latencySaved) {
+        synchronized (statistics) {
+            ShadowStatistics sourceStatistics = statistics.get(source);
+            if (sourceStatistics == null) return;
+            if (hit && candidate.expectedDuration != ScoredCandidate.UNKNOWN)
+                sourceStatistics.latencySaved += candidate.expectedDuration;
+            if (!hit && candidate.expectedSize != ScoredCandidate.UNKNOWN)
+                sourceStatistics.bytesWasted += candidate.expectedSize;
+        }
+    }
+
+    /**
+     * Log the hypothetical bytes and latency of each strategy and the CPU time spent on it
+     */
+    private void logStatistics() {
+        synchronized (statistics) {
+            for (Map.Entry<String, ShadowStatistics> entry : statistics.entrySet()) {
+                ShadowStatistics sourceStatistics = entry.getValue();
+                Log.d(LOG_TAG, String.format("STATS Source '%s': %d bytes predicted, %d bytes wasted, " +
+                                "%d ms saved, %d ms CPU time",
+                        entry.getKey(),
+                        sourceStatistics.bytesPredicted,
+                        sourceStatistics.bytesWasted,
+                        sourceStatistics.latencySaved,
+                        TimeUnit.NANOSECONDS.toMillis(sourceStatistics.cpuTime)));
+            }
+        }
+        PrefetchOutcomeTracker.logStatistics();
+    }
+
+    @Override
+    public boolean needVisitTime() {
+        if (strategy.needVisitTime()) return true;
+        for (PrefetchingStrategy shadowStrategy : shadowStrategies.values()) {
+            if (shadowStrategy.needVisitTime()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean needSuccessorsVisitTime() {
+        if (strategy.needSuccessorsVisitTime()) return true;
+        for (PrefetchingStrategy shadowStrategy : shadowStrategies.values()) {
+            if (shadowStrategy.needSuccessorsVisitTime()) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void onGraphInitialized(@NotNull ActivityGraph graph) {
+        strategy.onGraphInitialized(graph);
+        executor.execute(() -> {
+            for (PrefetchingStrategy shadowStrategy : shadowStrategies.values()) {
+                shadowStrategy.onGraphInitialized(graph);
+            }
+        });
+    }
+
+    @Override
+    public void onActivityVisited(@NotNull ActivityNode node) {
+        strategy.onActivityVisited(node);
+        // Runs in the shadow thread to keep the shadow strategies single-threaded
+        executor.execute(() -> {
+            for (PrefetchingStrategy shadowStrategy : shadowStrategies.values()) {
+                shadowStrategy.onActivityVisited(node);
+            }
+        });
+    }
+
+    private static class ShadowStatistics {
+        long bytesPredicted;
+        long bytesWasted;
+        long latencySaved;
+        long cpuTime;
+    }
+}
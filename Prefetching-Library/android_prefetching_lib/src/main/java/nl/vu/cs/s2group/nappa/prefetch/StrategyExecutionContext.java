@@ -0,0 +1,191 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nl.vu.cs.s2group.nappa.Nappa;
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+
+/**
+ * Holds the mutable state of a single execution of a strategy, i.e., the visited nodes, the
+ * scores calculated for the nodes and the selected URLs. A new context is created for each
+ * execution, such that the strategies keep no mutable state of their own and the same strategy
+ * can run concurrently in several threads (e.g. when the navigation and the extras monitors
+ * trigger it at the same time).
+ * <p>
+ * The visited nodes and the scores are indexed by the position of the node in the graph
+ * (see {@link ActivityNode#getIndex()}), thus no hashing takes place on the hot path.
+ */
+public final class StrategyExecutionContext {
+    private static final AtomicInteger executionCounter = new AtomicInteger();
+
+    /**
+     * An identification of this execution, used to correlate the log entries of concurrent
+     * executions
+     */
+    public final int id;
+    public final ActivityNode startNode;
+    public final PredictionDeadline deadline;
+
+    private final BitSet visitedNodes = new BitSet();
+    private final List<ActivityNode> detachedVisitedNodes = new ArrayList<>(0);
+    private final List<ScoredCandidate> candidates = new ArrayList<>();
+    private NodeScores scores;
+    private Map<Long, String> activityNames;
+
+    public StrategyExecutionContext(@NotNull ActivityNode startNode, @NotNull PredictionDeadline deadline) {
+        this.id = executionCounter.incrementAndGet();
+        this.startNode = startNode;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Mark the provided node as visited in this execution
+     *
+     * @param node A node
+     * @return {@code True} if the node was not visited before
+     */
+    public boolean markVisited(@NotNull ActivityNode node) {
+        int index = node.getIndex();
+        // Nodes outside of a graph have no index and are compared by identity
+        if (index < 0) {
+            for (ActivityNode visitedNode : detachedVisitedNodes) {
+                if (visitedNode == node) return false;
+            }
+            detachedVisitedNodes.add(node);
+            return true;
+        }
+        if (visitedNodes.get(index)) return false;
+        visitedNodes.set(index);
+        return true;
+    }
+
+    /**
+     * @return The URLs selected in this execution
+     */
+    @NotNull
+    public List<ScoredCandidate> getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * @return The scores calculated for the nodes in this execution
+     */
+    @NotNull
+    public NodeScores getScores() {
+        if (scores == null) scores = new NodeScores();
+        return scores;
+    }
+
+    /**
+     * @return A new set of scores for strategies that need more than one score per node
+     */
+    @NotNull
+    public NodeScores createScores() {
+        return new NodeScores();
+    }
+
+    /**
+     * @param activityId The ID of an activity
+     * @return The name of the activity. The names are read once per execution.
+     */
+    public String getActivityName(Long activityId) {
+        if (activityNames == null) {
+            activityNames = new HashMap<>();
+            for (Map.Entry<String, Long> entry : Nappa.activityMap.entrySet()) {
+                activityNames.put(entry.getValue(), entry.getKey());
+            }
+        }
+        return activityNames.get(activityId);
+    }
+
+    /**
+     * Maps nodes to scores using arrays indexed by the position of the node in the graph.
+     * The nodes are iterated in the order they were first scored.
+     */
+    public static final class NodeScores {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private float[] values = new float[INITIAL_CAPACITY];
+        private final BitSet present = new BitSet();
+        private final List<ActivityNode> nodes = new ArrayList<>();
+        private final List<ActivityNode> detachedNodes = new ArrayList<>(0);
+        private final List<Float> detachedValues = new ArrayList<>(0);
+
+        private NodeScores() {
+        }
+
+        public boolean contains(@NotNull ActivityNode node) {
+            int index = node.getIndex();
+            return index < 0 ? getDetachedPosition(node) != -1 : present.get(index);
+        }
+
+        /**
+         * @return The score of the node or 0 if the node has no score
+         */
+        public float get(@NotNull ActivityNode node) {
+            int index = node.getIndex();
+            if (index < 0) {
+                int position = getDetachedPosition(node);
+                return position == -1 ? 0 : detachedValues.get(position);
+            }
+            return present.get(index) ? values[index] : 0;
+        }
+
+        public void set(@NotNull ActivityNode node, float score) {
+            int index = node.getIndex();
+            if (index < 0) {
+                int position = getDetachedPosition(node);
+                if (position == -1) {
+                    detachedNodes.add(node);
+                    detachedValues.add(score);
+                    nodes.add(node);
+                } else {
+                    detachedValues.set(position, score);
+                }
+                return;
+            }
+
+            if (index >= values.length) values = Arrays.copyOf(values, Math.max(index + 1, values.length * 2));
+            if (!present.get(index)) {
+                present.set(index);
+                nodes.add(node);
+            }
+            values[index] = score;
+        }
+
+        /**
+         * Add the value to the score of the node, which starts at 0
+         *
+         * @return The updated score
+         */
+        public float add(@NotNull ActivityNode node, float value) {
+            float score = get(node) + value;
+            set(node, score);
+            return score;
+        }
+
+        /**
+         * @return The scored nodes in the order they were first scored
+         */
+        @NotNull
+        public List<ActivityNode> getNodes() {
+            return Collections.unmodifiableList(nodes);
+        }
+
+        private int getDetachedPosition(@NotNull ActivityNode node) {
+            for (int i = 0; i < detachedNodes.size(); i++) {
+                if (detachedNodes.get(i) == node) return i;
+            }
+            return -1;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package nl.vu.cs.s2group.nappa.prefetch;
 
-import android.app.Activity;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
@@ -8,13 +7,14 @@ import androidx.annotation.NonNull;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.room.activity.visittime.AggregateVisitTimeByActivity;
+import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
 import nl.vu.cs.s2group.nappa.util.NappaUtil;
 
 /**
@@ -28,8 +28,12 @@ import nl.vu.cs.s2group.nappa.util.NappaUtil;
  * Strategy inspired on the paper Personalized PageRank for Web Page Prediction Based
  * on Access Time-Length and Frequency from 2007.
  * <p>
+ * The subgraph is stored in index-addressed primitive arrays, which are reused among the
+ * executions, and the iterations stop as soon as the scores converge.
+ * <p>
  * This strategy accepts the following configurations:
  * <ul>
+ *     <li>{@link PrefetchingStrategyConfigKeys#TFPR_CONVERGENCE_THRESHOLD}</li>
  * </ul>
  *
  * @see <a href="https://dl.acm.org/doi/10.1109/WI.2007.145">Personalized PageRank paper</a>
@@ -37,7 +41,20 @@ import nl.vu.cs.s2group.nappa.util.NappaUtil;
 public class TfprPrefetchingStrategy extends AbstractPrefetchingStrategy {
     private static final String LOG_TAG = TfprPrefetchingStrategy.class.getSimpleName();
 
-    private int executionNumber = 0;
+    public static final float DEFAULT_CONVERGENCE_THRESHOLD = 0.0001f;
+
+    /**
+     * The scratch buffers are reused among the executions in the same thread. The strategy
+     * is triggered from more than one thread, see {@link nl.vu.cs.s2group.nappa.Nappa}.
+     */
+    private static final ThreadLocal<TfprBuffers> BUFFERS = new ThreadLocal<TfprBuffers>() {
+        @Override
+        protected TfprBuffers initialValue() {
+            return new TfprBuffers();
+        }
+    };
+
+    private final float convergenceThreshold;
 
     public TfprPrefetchingStrategy() {
         super();
@@ -61,6 +78,13 @@ public class TfprPrefetchingStrategy extends AbstractPrefetchingStrategy {
           configurations.
          */
         if (scoreLowerThreshold == DEFAULT_SCORE_LOWER_THRESHOLD) scoreLowerThreshold = 0.3f;
+
+        convergenceThreshold = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.TFPR_CONVERGENCE_THRESHOLD,
+                DEFAULT_CONVERGENCE_THRESHOLD);
+        if (convergenceThreshold < 0)
+            throw new IllegalArgumentException("The convergence threshold must be a positive number. "
+                    + convergenceThreshold + " provided.");
     }
 
     @Override
@@ -76,10 +100,16 @@ public class TfprPrefetchingStrategy extends AbstractPrefetchingStrategy {
     @NonNull
     @Override
     public List<String> getTopNUrlToPrefetchForNode(@NotNull ActivityNode node, Integer maxNumber) {
+        return ScoredCandidate.toUrls(getScoredCandidatesForNode(node, maxNumber, PredictionDeadline.NONE));
+    }
+
+    @NonNull
+    @Override
+    public List<ScoredCandidate> getScoredCandidatesForNode(@NotNull ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
         long startTime = System.currentTimeMillis();
 
-        executionNumber++;
-        int key = executionNumber;
+        StrategyExecutionContext context = new StrategyExecutionContext(node, deadline);
+        int key = context.id;
         Log.d(LOG_TAG, String.format("(#%d) Starting execution %d for node '%s'.", key, key, node.activityName));
 
         if (node.successors.isEmpty()) {
@@ -88,36 +118,85 @@ public class TfprPrefetchingStrategy extends AbstractPrefetchingStrategy {
         }
 
         // Prepare the graph
-        TfprGraph graph = makeSubgraph(node);
-        calculateVisitTimeScores(graph);
+        TfprBuffers buffers = BUFFERS.get();
+        int allocationsBefore = buffers.allocations;
+        makeSubgraph(buffers, node);
+        calculateVisitTimeScores(buffers);
 
         // Verifies if we have any data in our subgraph.
-        if (graph.aggregateVisitTime == 0) {
+        if (buffers.aggregateVisitTime == 0) {
             logStrategyExecutionDuration(node, startTime, key);
             return new ArrayList<>();
         }
 
         // Run page rank
-        runTfprAlgorithm(graph);
+        int iterations = runTfprAlgorithm(buffers);
 
         // Select all successors nodes with score above the threshold
-        List<ActivityNode> selectedNodes = getSuccessorListSortByTfprScore(graph, node);
+        List<ActivityNode> selectedNodes = getSuccessorListSortByTfprScore(buffers);
 
         // Select all URLs that fits the budget
-        List<String> selectedUrls = getUrls(node, selectedNodes, key);
-
+        List<ScoredCandidate> selectedUrls = getUrls(node, selectedNodes, buffers, key);
+
+        Log.d(LOG_TAG, String.format("(#%d) STATS Subgraph with %d nodes and %d edges converged after %d iterations. " +
+                        "Scratch buffer allocations: %d in this run, %d in total",
+                key,
+                buffers.nodeCount,
+                buffers.edgeCount,
+                iterations,
+                buffers.allocations - allocationsBefore,
+                buffers.allocations));
         logStrategyExecutionDuration(node, startTime, key);
 
         return selectedUrls;
     }
 
+    /**
+     * Calculate the TFPR score of the successors of the provided node
+     *
+     * @param node The current node
+     * @return The successors mapped to their TFPR score, empty if there is no visit time
+     */
     @NotNull
-    private List<String> getUrls(ActivityNode currentNode, @NotNull List<ActivityNode> nodes, int key) {
-        List<String> urls = new ArrayList<>();
+    Map<ActivityNode, Float> getSuccessorScores(@NotNull ActivityNode node) {
+        Map<ActivityNode, Float> successorScores = new HashMap<>();
+        if (node.successors.isEmpty()) return successorScores;
+
+        TfprBuffers buffers = BUFFERS.get();
+        makeSubgraph(buffers, node);
+        calculateVisitTimeScores(buffers);
+        if (buffers.aggregateVisitTime == 0) return successorScores;
+        runTfprAlgorithm(buffers);
+
+        for (int u = buffers.getFirstSuccessor(); u <= buffers.successorCount; u++) {
+            successorScores.put(buffers.nodes[u], buffers.scores[u]);
+        }
+        return successorScores;
+    }
 
-        for (ActivityNode node : nodes) {
+    /**
+     * @param currentNode The current node
+     * @param nodes       The selected successors sorted by TFPR score, as returned by
+     *                    {@link #getSuccessorListSortByTfprScore(TfprBuffers)}
+     * @param buffers     The subgraph after sorting the successors. The i-th selected node
+     *                    has the score at the index {@code order[i]}
+     * @param key         An identification of this run
+     * @return The URLs of the selected nodes scored with the TFPR score of their node
+     */
+    @NotNull
+    private List<ScoredCandidate> getUrls(ActivityNode currentNode,
+                                          @NotNull List<ActivityNode> nodes,
+                                          @NotNull TfprBuffers buffers,
+                                          int key) {
+        List<ScoredCandidate> urls = new ArrayList<>();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            ActivityNode node = nodes.get(i);
             int remainingUrlBudget = maxNumberOfUrlToPrefetch - urls.size();
-            List<String> nodUrls = NappaUtil.getUrlsFromCandidateNode(currentNode, node, remainingUrlBudget);
+            List<ScoredCandidate> nodUrls = NappaUtil.getScoredCandidatesFromCandidateNode(currentNode,
+                    node,
+                    buffers.scores[buffers.order[i]],
+                    remainingUrlBudget);
             urls.addAll(nodUrls);
 
             Log.d(LOG_TAG, String.format("(#%s) The URLs from node '%s' are: %s", key, node.activityName, nodUrls));
@@ -131,240 +210,331 @@ public class TfprPrefetchingStrategy extends AbstractPrefetchingStrategy {
      * Take the successors of the current node, sort by their TFPR score and return an array
      * with all the successors that have a TFPR score higher than the lower threshold score.
      *
-     * @param graph       The subgraph after running the TFPR algorithm
-     * @param currentNode The {@link Activity} the user navigated to
+     * @param buffers The subgraph after running the TFPR algorithm
      * @return An array of successors sorted by TFPR score
      */
     @NotNull
-    private List<ActivityNode> getSuccessorListSortByTfprScore(@NotNull TfprGraph graph, @NotNull ActivityNode currentNode) {
-        // sort nodes from the highest TFPR score to the lowest
-        //noinspection ConstantConditions We do not add null values to the map
-        List<TfprNode> sortedSuccessors = graph.graph.get(currentNode.activityName).successors;
-        Collections.sort(sortedSuccessors, new TfprComparator());
-
+    private List<ActivityNode> getSuccessorListSortByTfprScore(@NotNull TfprBuffers buffers) {
         // filter out all nodes with low TFPR score
-        List<ActivityNode> sortedSuccessorsAboveThreshold = new ArrayList<>();
-        for (TfprNode successor : sortedSuccessors) {
-            if (successor.tfprScore >= scoreLowerThreshold) {
-                sortedSuccessorsAboveThreshold.add(successor.node);
-            } else {
-                // Since the list is sorted, all subsequent nodes will have insufficient TFPR score
-                break;
+        int count = 0;
+        for (int i = buffers.getFirstSuccessor(); i <= buffers.successorCount; i++) {
+            if (buffers.scores[i] >= scoreLowerThreshold) buffers.order[count++] = i;
+        }
+
+        // sort nodes from the highest TFPR score to the lowest. There are only a few
+        // successors, thus an insertion sort on the scratch buffer is sufficient
+        for (int i = 1; i < count; i++) {
+            int index = buffers.order[i];
+            int j = i - 1;
+            while (j >= 0 && buffers.scores[buffers.order[j]] < buffers.scores[index]) {
+                buffers.order[j + 1] = buffers.order[j];
+                j--;
             }
+            buffers.order[j + 1] = index;
+        }
+
+        List<ActivityNode> sortedSuccessorsAboveThreshold = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            sortedSuccessorsAboveThreshold.add(buffers.nodes[buffers.order[i]]);
         }
 
         return sortedSuccessorsAboveThreshold;
     }
 
     /**
-     * Run the TFPR algorithm to calculate the TFPR score
+     * Run the TFPR algorithm to calculate the TFPR score. The scores are updated in place
+     * and the iterations stop as soon as no score changes more than the convergence
+     * threshold or after the configured number of iterations.
      *
-     * @param graph A subgraph with parents/successors linked and visit time weights
-     *              calculated
+     * @param buffers A subgraph with parents/successors linked and visit time weights
+     *                calculated
+     * @return The number of iterations run
      */
-    private void runTfprAlgorithm(TfprGraph graph) {
-        for (int i = 0; i < numberOfIterations; i++) {
-            for (TfprNode node : graph.graph.values()) {
+    private int runTfprAlgorithm(@NotNull TfprBuffers buffers) {
+        float[] scores = buffers.scores;
+        int iteration = 0;
+
+        while (iteration < numberOfIterations) {
+            iteration++;
+            float maxDelta = 0;
+
+            for (int u = 0; u < buffers.nodeCount; u++) {
                 // This variable needs a better name
                 float sumBu = 0;
-
-                for (TfprNode parent : node.parents) {
-                    //noinspection ConstantConditions The hash should never return null
-                    sumBu += parent.tfprScore * parent.aggregateVisitTimeFromSuccessors.get(node.node.activityName) /
-                            parent.totalAggregateVisitTimeFromSuccessors;
+                for (int edge = buffers.parentsStart[u]; edge < buffers.parentsEnd[u]; edge++) {
+                    sumBu += scores[buffers.edgeParent[edge]] * buffers.edgeWeight[edge];
                 }
 
-                node.tfprScore = dampingFactor * node.aggregateVisitTime / graph.aggregateVisitTime + (1 - dampingFactor) * sumBu;
+                float score = dampingFactor * buffers.visitTimes[u] / buffers.aggregateVisitTime + (1 - dampingFactor) * sumBu;
+                maxDelta = Math.max(maxDelta, Math.abs(score - scores[u]));
+                scores[u] = score;
             }
+
+            if (maxDelta < convergenceThreshold) break;
         }
+
+        return iteration;
     }
 
     /**
-     * Create an instance of {@link TfprGraph} with a subgraph G of all nodes to consider
-     * in this calculation. The subgraph includes the following nodes:
+     * Fill the scratch buffers with a subgraph G of all nodes to consider in this
+     * calculation. The subgraph includes the following nodes:
      *
      * <ul>
-     *     <li> The current node </li>
-     *     <li> All successors of the current node </li>
+     *     <li> The current node, at index 0 </li>
+     *     <li> All other successors of the current node, at the indexes 1 to k </li>
      *     <li> All parents of all successors of the current node </li>
      * </ul>
      * <p>
-     * All the {@link TfprNode} created here contains the links to their respective {@link
-     * ActivityNode} object and their parents and successors present in the subgraph.
+     * Only the successors have parents in the subgraph. If the current node is its own
+     * successor (e.g. the activity was reloaded), it is a successor at index 0 as well. The
+     * edges are stored grouped by successor, such that the parents of node {@code u} are the
+     * edges in the range {@code [parentsStart[u], parentsEnd[u])}.
      *
+     * @param buffers     The scratch buffers of the current thread
      * @param currentNode Represents the {@link android.app.Activity} the user navigated to
-     * @return A instance of {@link TfprGraph} without the aggregate visit time weights.
      */
-    @NotNull
-    private TfprGraph makeSubgraph(@NotNull ActivityNode currentNode) {
-        TfprGraph tfprGraph = new TfprGraph();
-
-        // Creates a TFPR node for the current node
-        TfprNode currentNodeTfprNode = new TfprNode(currentNode);
-        tfprGraph.graph.put(currentNode.activityName, currentNodeTfprNode);
+    private void makeSubgraph(@NotNull TfprBuffers buffers, @NotNull ActivityNode currentNode) {
+        buffers.reset();
 
-        // Create TFPR nodes for all successors of the current node and add parent-successor links
+        // Adds the current node and all its successors first, so the successors have the indexes 1 to k
+        addNode(buffers, currentNode);
         for (ActivityNode successor : currentNode.successors.keySet()) {
-            TfprNode successorTfprNode = getOrCreateTfprNode(tfprGraph, successor);
-            linkNodesAsSuccessorParent(successorTfprNode, currentNodeTfprNode);
-
-            // Create TFPR nodes for all the parents of this successor and add parent-successor links
-            for (ActivityNode successorParent : successor.ancestors.keySet()) {
-                TfprNode successorParentTfprNode = getOrCreateTfprNode(tfprGraph, successorParent);
-                linkNodesAsSuccessorParent(successorTfprNode, successorParentTfprNode);
+            addNode(buffers, successor);
+        }
+        buffers.successorCount = buffers.nodeCount - 1;
+        buffers.isCurrentNodeSuccessor = currentNode.successors.containsKey(currentNode);
+
+        // Add parent-successor links for all successors
+        for (int u = buffers.getFirstSuccessor(); u <= buffers.successorCount; u++) {
+            buffers.parentsStart[u] = buffers.edgeCount;
+            addEdge(buffers, 0);
+            for (ActivityNode successorParent : buffers.nodes[u].ancestors.keySet()) {
+                if (successorParent == currentNode) continue;
+                addEdge(buffers, addNode(buffers, successorParent));
             }
+            buffers.parentsEnd[u] = buffers.edgeCount;
         }
-
-        return tfprGraph;
     }
 
     /**
-     * Link the nodes {@code successor} and {@code parent} if they are not linked yet
+     * Verifies if the provided node exists in the subgraph. If so, return its index,
+     * otherwise add the node to the subgraph
      *
-     * @param successor The successor node.
-     * @param parent    The parent node.
+     * @param buffers The subgraph
+     * @param node    The node to look for
+     * @return The index of the node in the subgraph
      */
-    private void linkNodesAsSuccessorParent(@NotNull TfprNode successor, @NotNull TfprNode parent) {
-        if (!parent.successors.contains(successor)) parent.successors.add(successor);
-        if (!successor.parents.contains(parent)) successor.parents.add(parent);
+    private int addNode(@NotNull TfprBuffers buffers, @NotNull ActivityNode node) {
+        int index = buffers.indexOf(node);
+        if (index != -1) return index;
+
+        index = buffers.nodeCount++;
+        buffers.ensureNodeCapacity(buffers.nodeCount);
+        buffers.nodes[index] = node;
+        buffers.scores[index] = 0;
+        buffers.parentsStart[index] = 0;
+        buffers.parentsEnd[index] = 0;
+        buffers.setIndex(node, index);
+        return index;
     }
 
-    /**
-     * Verifies if the provided node exists in the graph. If so, return it, otherwise
-     * create a new node and add it to the graph
-     *
-     * @param tfprGraph The graph to add a new {@link TfprNode} if it doesn't contain
-     *                  the provided node
-     * @param node      The node used as reference to get an existent or create a new
-     *                  {@link TfprNode}
-     * @return Either an existent or a new node
-     */
-    private TfprNode getOrCreateTfprNode(@NotNull TfprGraph tfprGraph, @NotNull ActivityNode node) {
-        if (tfprGraph.graph.containsKey(node.activityName))
-            return tfprGraph.graph.get(node.activityName);
-
-        TfprNode newNode = new TfprNode(node);
-        tfprGraph.graph.put(node.activityName, newNode);
-
-        return newNode;
+    private void addEdge(@NotNull TfprBuffers buffers, int parent) {
+        int edge = buffers.edgeCount++;
+        buffers.ensureEdgeCapacity(buffers.edgeCount);
+        buffers.edgeParent[edge] = parent;
     }
 
     /**
-     * Take an instance of {@link TfprGraph} with liked parents and successors and run the
-     * calculations to obtain the visit time weight required to run the TFPR algorithm.
+     * Obtain the visit times of the subgraph nodes and calculate the weight of each edge,
+     * which are required to run the TFPR algorithm.
      *
-     * @param tfprGraph The subgraph to run the TFPR algorithm
+     * @param buffers The subgraph to run the TFPR algorithm
      */
-    private void calculateVisitTimeScores(@NotNull TfprGraph tfprGraph) {
-        for (TfprNode tfprNode : tfprGraph.graph.values()) {
+    private void calculateVisitTimeScores(@NotNull TfprBuffers buffers) {
+        for (int v = 0; v < buffers.nodeCount; v++) {
+            ActivityNode node = buffers.nodes[v];
+
             // Obtain t(u)
-            tfprNode.aggregateVisitTime = tfprNode.node.getAggregateVisitTime().totalDuration;
+            AggregateVisitTimeByActivity visitTime = node.getAggregateVisitTime();
+            buffers.visitTimes[v] = visitTime == null ? 0 : visitTime.totalDuration;
 
             // Obtain partial SUM(t(w)) | w e G
-            tfprGraph.aggregateVisitTime += tfprNode.aggregateVisitTime;
+            buffers.aggregateVisitTime += buffers.visitTimes[v];
 
             // Obtain SUM(t(v, w)) | w e F_v
-            tfprNode.totalAggregateVisitTimeFromSuccessors = NappaUtil.getSuccessorsAggregateVisitTimeOriginatedFromNode(tfprNode.node);
-
-            // Obtain t(v, u) for all pairs of v -> u where v is the current node
-            tfprNode.aggregateVisitTimeFromSuccessors = NappaUtil.getSuccessorsAggregateVisitTimeOriginatedFromNodeMap(tfprNode.node);
+            buffers.totalVisitTimesFromSuccessors[v] = NappaUtil.getSuccessorsAggregateVisitTimeOriginatedFromNode(node);
         }
 
+        // Obtain t(v, u) / SUM(t(v, w)) for all edges v -> u
+        for (int u = buffers.getFirstSuccessor(); u <= buffers.successorCount; u++) {
+            String successorName = buffers.nodes[u].activityName;
+            for (int edge = buffers.parentsStart[u]; edge < buffers.parentsEnd[u]; edge++) {
+                int v = buffers.edgeParent[edge];
+                long total = buffers.totalVisitTimesFromSuccessors[v];
+                buffers.edgeWeight[edge] = total == 0 ? 0 :
+                        (float) getVisitTimeFromNode(buffers.nodes[v], successorName) / total;
+            }
+        }
     }
 
-    private static class TfprComparator implements Comparator<TfprNode> {
-        @Override
-        public int compare(@NotNull TfprNode o1, @NotNull TfprNode o2) {
-            return Float.compare(o2.tfprScore, o1.tfprScore);
+    /**
+     * @return t(v, u), the time spent on the successor {@code u} when accessed from {@code v}
+     */
+    private static long getVisitTimeFromNode(@NotNull ActivityNode v, @NotNull String successorName) {
+        for (AggregateVisitTimeByActivity visitTime : v.getSuccessorsVisitTimeList()) {
+            if (successorName.equals(visitTime.activityName)) return visitTime.totalDuration;
         }
+        return 0;
     }
 
-    private static class TfprGraph {
+    /**
+     * Represents G, the subgraph used to compute the TFPR score. The subgraph is stored in
+     * index-addressed primitive arrays, which are reused among the executions in the same
+     * thread and only grow when a larger subgraph is found.
+     */
+    private static class TfprBuffers {
+        private static final int INITIAL_NODE_CAPACITY = 16;
+        private static final int INITIAL_EDGE_CAPACITY = 32;
+
+        int nodeCount;
+        int successorCount;
+        int edgeCount;
         /**
-         * Represents G, the subgraph used to compute the TFPR score. This subgraph is
-         * stored as a hash map that maps the name of the activity to its TFPR node.
+         * Whether the current node, at index 0, is a successor of itself
          */
-        Map<String, TfprNode> graph;
+        boolean isCurrentNodeSuccessor;
 
         /**
          * Represents SUM(t(w)) | w e G, the total time spent on all pages of the tree.
          */
         long aggregateVisitTime;
 
-        public TfprGraph() {
-            graph = new HashMap<>();
-        }
-
-        @NonNull
-        @Override
-        public String toString() {
-            StringBuilder graphAsStr = new StringBuilder();
+        /**
+         * The number of times a buffer was allocated in this thread
+         */
+        int allocations;
 
-            for (TfprNode node : graph.values()) {
-                graphAsStr.append(node.toString()).append('\n');
-            }
+        /**
+         * A reference to the default node representation. Needed to obtain the URLs
+         */
+        ActivityNode[] nodes;
 
-            return "TfprGraph{\n" +
-                    graphAsStr.toString() +
-                    '}';
-        }
-    }
+        /**
+         * Represents TFPR(u)
+         */
+        float[] scores;
 
-    private static class TfprNode {
         /**
-         * Represents B_u, the set of pages that link to page u.
+         * Represent t(u), the total time spent on page u.
          */
-        List<TfprNode> parents;
+        long[] visitTimes;
 
         /**
-         * Represents F_v, the set of pages that page v links to.
-         * From the point of view of each parent
+         * Represents SUM(t(v, w)) | w e F_v, the total time spent on all pages when accessed from
+         * a page v.
          */
-        List<TfprNode> successors;
+        long[] totalVisitTimesFromSuccessors;
 
         /**
-         * A reference to the default node representation. Needed to obtain the URLs
+         * Represents B_u, the set of pages that link to page u, as a range of edges
          */
-        ActivityNode node;
+        int[] parentsStart;
+        int[] parentsEnd;
 
         /**
-         * Represents Tvu, the  sum  of  the  time–lengths  spent  on  visiting  page  u
-         * when  page  v  and  u  were  visited consecutively. if more occurrences of the
-         * path v→u  occurs and the user stay on page u for a longer  time, the  value
-         * of t(v, u) will be larger, thus t(v,u) covers both information of access
-         * time-length and access frequency of a page u.
+         * The parent v of each edge v -> u and the weight t(v, u) / SUM(t(v, w)) | w e F_v
          */
-        Map<String, Long> aggregateVisitTimeFromSuccessors;
+        int[] edgeParent;
+        float[] edgeWeight;
 
         /**
-         * Represents TFPR(u)
+         * Scratch buffer to sort the successors
          */
-        float tfprScore;
+        int[] order;
 
         /**
-         * Represent t(u), the total time spent on page u.
+         * Maps the index of a node in the ENG to its index in the subgraph. An entry is only
+         * valid if its stamp equals the stamp of the current execution, which avoids clearing
+         * the map on each execution.
          */
-        long aggregateVisitTime;
+        int[] subgraphIndexes;
+        int[] subgraphIndexStamps;
+        int stamp;
+
+        TfprBuffers() {
+            ensureNodeCapacity(INITIAL_NODE_CAPACITY);
+            ensureEdgeCapacity(INITIAL_EDGE_CAPACITY);
+            ensureGraphCapacity(INITIAL_NODE_CAPACITY);
+        }
+
+        void reset() {
+            nodeCount = 0;
+            successorCount = 0;
+            edgeCount = 0;
+            isCurrentNodeSuccessor = false;
+            aggregateVisitTime = 0;
+            stamp++;
+        }
 
         /**
-         * Represents SUM(t(v, w)) | w e F_v, the total time spent on all pages when accessed from
-         * a page v.
+         * @return The index of the first successor, the successors are at the indexes from
+         * this index to {@link #successorCount}
          */
-        long totalAggregateVisitTimeFromSuccessors;
+        int getFirstSuccessor() {
+            return isCurrentNodeSuccessor ? 0 : 1;
+        }
+
+        int indexOf(@NotNull ActivityNode node) {
+            int graphIndex = node.getIndex();
+            if (graphIndex != -1) {
+                if (graphIndex < subgraphIndexes.length && subgraphIndexStamps[graphIndex] == stamp)
+                    return subgraphIndexes[graphIndex];
+                return -1;
+            }
 
-        public TfprNode(ActivityNode node) {
-            parents = new ArrayList<>();
-            successors = new ArrayList<>();
-            this.node = node;
+            // The node is not part of a graph
+            for (int i = 0; i < nodeCount; i++) {
+                if (nodes[i] == node) return i;
+            }
+            return -1;
         }
 
-        @NonNull
-        @Override
-        public String toString() {
-            return "TfprNode{" +
-                    node.getActivitySimpleName() + " : " +
-                    "TFPR = " + tfprScore +
-                    '}';
+        void setIndex(@NotNull ActivityNode node, int index) {
+            int graphIndex = node.getIndex();
+            if (graphIndex == -1) return;
+            ensureGraphCapacity(graphIndex + 1);
+            subgraphIndexes[graphIndex] = index;
+            subgraphIndexStamps[graphIndex] = stamp;
+        }
+
+        void ensureNodeCapacity(int capacity) {
+            if (nodes != null && nodes.length >= capacity) return;
+            int newCapacity = nodes == null ? capacity : Math.max(capacity, nodes.length * 2);
+            nodes = nodes == null ? new ActivityNode[newCapacity] : Arrays.copyOf(nodes, newCapacity);
+            scores = scores == null ? new float[newCapacity] : Arrays.copyOf(scores, newCapacity);
+            visitTimes = new long[newCapacity];
+            totalVisitTimesFromSuccessors = new long[newCapacity];
+            parentsStart = parentsStart == null ? new int[newCapacity] : Arrays.copyOf(parentsStart, newCapacity);
+            parentsEnd = parentsEnd == null ? new int[newCapacity] : Arrays.copyOf(parentsEnd, newCapacity);
+            order = new int[newCapacity];
+            allocations++;
+        }
+
+        void ensureEdgeCapacity(int capacity) {
+            if (edgeParent != null && edgeParent.length >= capacity) return;
+            int newCapacity = edgeParent == null ? capacity : Math.max(capacity, edgeParent.length * 2);
+            edgeParent = edgeParent == null ? new int[newCapacity] : Arrays.copyOf(edgeParent, newCapacity);
+            edgeWeight = new float[newCapacity];
+            allocations++;
+        }
+
+        void ensureGraphCapacity(int capacity) {
+            if (subgraphIndexes != null && subgraphIndexes.length >= capacity) return;
+            int newCapacity = subgraphIndexes == null ? capacity : Math.max(capacity, subgraphIndexes.length * 2);
+            subgraphIndexes = subgraphIndexes == null ? new int[newCapacity] : Arrays.copyOf(subgraphIndexes, newCapacity);
+            subgraphIndexStamps = subgraphIndexStamps == null ? new int[newCapacity] : Arrays.copyOf(subgraphIndexStamps, newCapacity);
+            allocations++;
         }
     }
 }
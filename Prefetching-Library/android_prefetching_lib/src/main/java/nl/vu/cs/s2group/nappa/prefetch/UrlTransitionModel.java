@@ -0,0 +1,320 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.util.Log;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.prefetchurl.UrlTemplate;
+import nl.vu.cs.s2group.nappa.room.AggregateUrlDao;
+import nl.vu.cs.s2group.nappa.util.NappaUtil;
+
+/**
+ * Predicts the next URLs from the last requested URL, independently of the activities. The
+ * URLs are normalized into {@link UrlTemplate templates} and the model counts how often a
+ * template is followed by another template within {@link #TRANSITION_WINDOW} milliseconds in
+ * the request stream. The probability of a transition is the number of times the source
+ * template was followed by the target template over the number of times the source template
+ * was requested. Thus, endpoints requested after other endpoints within the same activity
+ * are also predicted.
+ * <p>
+ * The slots of the target template are filled from the source URL. For each transition and
+ * target slot, the model keeps track of which source slot always had the same value (e.g. the
+ * same ID in {@code /pokemon/{}} and {@code /pokemon-species/{}}) and whether the target slot
+ * always had the same value. Transitions whose slots cannot be filled are not predicted.
+ * <p>
+ * The model is loaded from the latest requests in the table {@code nappa_url}, ordered by
+ * {@code time_issued}, and updated with each request issued by the application.
+ * <p>
+ * This model accepts the following configurations:
+ * <ul>
+ *     <li>{@link PrefetchingStrategyConfigKeys#URL_TRANSITION_WEIGHT}</li>
+ * </ul>
+ */
+public class UrlTransitionModel {
+    private static final String LOG_TAG = UrlTransitionModel.class.getSimpleName();
+
+    public static final String SOURCE = "url-transition";
+    public static final float DEFAULT_URL_TRANSITION_WEIGHT = 0f;
+    /**
+     * The minimum probability of a transition to prefetch its URL right after the source URL
+     * is requested
+     */
+    public static final float URL_TRANSITION_PREFETCH_THRESHOLD = 0.5f;
+    /**
+     * The number of latest requests the model is loaded from
+     */
+    public static final int MAX_LOADED_REQUESTS = 5000;
+
+    private static final long TRANSITION_WINDOW = 10000;
+    private static final int MIN_OCCURRENCES = 3;
+    private static final int MAX_TEMPLATES = 500;
+    private static final int NO_SLOT = -1;
+
+    private final Map<String, TemplateStatistics> templates = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<Request> recentRequests = new ArrayDeque<>();
+    private final float weight;
+
+    /**
+     * @param weight The weight of the predictions of this model when blended with the
+     *               predictions of the strategy
+     */
+    public UrlTransitionModel(float weight) {
+        if (weight < 0 || weight > 1)
+            throw new IllegalArgumentException("The URL transition weight must be a number between 0 and 1. "
+                    + weight + " provided.");
+        this.weight = weight;
+    }
+
+    /**
+     * @return {@code True} if the predictions of this model are used
+     */
+    public boolean isEnabled() {
+        return weight > 0;
+    }
+
+    /**
+     * Learn the transitions of the provided request stream
+     *
+     * @param requests The requests ordered by the time they were issued
+     */
+    public synchronized void load(@NotNull List<AggregateUrlDao.UrlRequest> requests) {
+        // The requests issued while loading are more recent than the loaded ones
+        List<Request> liveRequests = new ArrayList<>(recentRequests);
+        recentRequests.clear();
+        for (AggregateUrlDao.UrlRequest request : requests) {
+            if (request.url == null || request.timeIssued == null) continue;
+            addRequest(request.url, request.timeIssued);
+        }
+        recentRequests.clear();
+        recentRequests.addAll(liveRequests);
+        Log.d(LOG_TAG, String.format("Loaded %d requests into %d templates", requests.size(), templates.size()));
+    }
+
+    /**
+     * Learn the transitions to the provided URL from the URLs requested within the
+     * transition window
+     *
+     * @param url       The requested URL
+     * @param timestamp The timestamp the URL was requested at
+     */
+    public synchronized void onRequest(@NotNull String url, long timestamp) {
+        addRequest(url, timestamp);
+    }
+
+    private void addRequest(@NotNull String url, long timestamp) {
+        UrlTemplate template = UrlTemplate.parse(url);
+
+        while (!recentRequests.isEmpty() && timestamp - recentRequests.peekFirst().timestamp > TRANSITION_WINDOW) {
+            recentRequests.removeFirst();
+        }
+
+        for (Request source : recentRequests) {
+            if (source.url.equals(url)) continue;
+            // Each request is followed by a template at most once, such that the probability is a share of the requests
+            if (!source.followingTemplates.add(template.getKey())) continue;
+            TemplateStatistics statistics = templates.get(source.template.getKey());
+            if (statistics == null) continue;
+            statistics.addTransition(source, template);
+        }
+
+        getStatistics(template.getKey()).occurrences++;
+        recentRequests.addLast(new Request(url, template, timestamp));
+    }
+
+    @NotNull
+    private TemplateStatistics getStatistics(@NotNull String key) {
+        TemplateStatistics statistics = templates.get(key);
+        if (statistics == null) {
+            statistics = new TemplateStatistics();
+            templates.put(key, statistics);
+            // The templates are accessed in order, thus the eldest is the least recently requested
+            if (templates.size() > MAX_TEMPLATES) {
+                String eldest = templates.keySet().iterator().next();
+                templates.remove(eldest);
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Predict the URLs requested after the provided URL
+     *
+     * @param visitedNode Represents the node which the user is currently visiting
+     * @param url         The last requested URL
+     * @return The scored URLs by decreasing transition probability
+     */
+    @NotNull
+    public List<ScoredCandidate> getScoredCandidates(@NotNull ActivityNode visitedNode, @NotNull String url) {
+        UrlTemplate source = UrlTemplate.parse(url);
+        Map<String, Float> probabilities = new LinkedHashMap<>();
+
+        synchronized (this) {
+            TemplateStatistics statistics = templates.get(source.getKey());
+            if (statistics == null || statistics.occurrences < MIN_OCCURRENCES) return new ArrayList<>();
+
+            for (Transition transition : statistics.transitions.values()) {
+                String target = transition.fill(source);
+                if (target == null || target.equals(url)) continue;
+                float probability = (float) transition.count / statistics.occurrences;
+                Float current = probabilities.get(target);
+                if (current == null || current < probability) probabilities.put(target, probability);
+            }
+        }
+
+        // The expected costs of all URLs are queried at once and the probabilities set afterwards
+        List<ScoredCandidate> candidates = new ArrayList<>(probabilities.size());
+        for (ScoredCandidate candidate : NappaUtil.toScoredCandidates(visitedNode, null, new ArrayList<>(probabilities.keySet()), 1f)) {
+            //noinspection ConstantConditions All URLs have a probability
+            candidates.add(new ScoredCandidate(candidate.url,
+                    candidate.sourceNode,
+                    null,
+                    probabilities.get(candidate.url),
+                    candidate.expectedSize,
+                    candidate.expectedDuration));
+        }
+        Collections.sort(candidates, ScoredCandidate.BY_PROBABILITY);
+        return candidates;
+    }
+
+    /**
+     * @return The last URL requested within the transition window or {@code null} if there is none
+     */
+    public synchronized String getLastRequestedUrl(long now) {
+        Request last = recentRequests.peekLast();
+        if (last == null || now - last.timestamp > TRANSITION_WINDOW) return null;
+        return last.url;
+    }
+
+    /**
+     * Blend the predictions of the strategy with the predictions of this model. The score of
+     * a URL is {@code (1 - weight) * strategy score + weight * model probability}, where a URL
+     * not predicted by either has a score of 0 for it.
+     *
+     * @param strategyCandidates The URLs predicted by the strategy
+     * @param modelCandidates    The URLs predicted by this model
+     * @return The blended URLs by decreasing score
+     */
+    @NotNull
+    public List<ScoredCandidate> blend(@NotNull List<ScoredCandidate> strategyCandidates,
+                                       @NotNull List<ScoredCandidate> modelCandidates) {
+        Map<String, ScoredCandidate> strategyMap = new HashMap<>();
+        for (ScoredCandidate candidate : strategyCandidates) strategyMap.put(candidate.url, candidate);
+        Map<String, ScoredCandidate> modelMap = new HashMap<>();
+        for (ScoredCandidate candidate : modelCandidates) modelMap.put(candidate.url, candidate);
+
+        Set<String> urls = new HashSet<>(strategyMap.keySet());
+        urls.addAll(modelMap.keySet());
+
+        List<ScoredCandidate> candidates = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            ScoredCandidate strategyCandidate = strategyMap.get(url);
+            ScoredCandidate modelCandidate = modelMap.get(url);
+            ScoredCandidate candidate = strategyCandidate != null ? strategyCandidate : modelCandidate;
+            //noinspection ConstantConditions All URLs are predicted by at least one of them
+            candidates.add(new ScoredCandidate(url,
+                    candidate.sourceNode,
+                    candidate.targetNode,
+                    (1 - weight) * (strategyCandidate == null ? 0 : strategyCandidate.probability) +
+                            weight * (modelCandidate == null ? 0 : modelCandidate.probability),
+                    candidate.expectedSize,
+                    candidate.expectedDuration));
+        }
+        Collections.sort(candidates, ScoredCandidate.BY_PROBABILITY);
+        return candidates;
+    }
+
+    private static class Request {
+        final String url;
+        final UrlTemplate template;
+        final long timestamp;
+        final Set<String> followingTemplates = new HashSet<>();
+
+        Request(String url, UrlTemplate template, long timestamp) {
+            this.url = url;
+            this.template = template;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static class TemplateStatistics {
+        long occurrences;
+        final Map<String, Transition> transitions = new HashMap<>();
+
+        void addTransition(@NotNull Request source, @NotNull UrlTemplate target) {
+            Transition transition = transitions.get(target.getKey());
+            if (transition == null) {
+                transition = new Transition(source.template, target);
+                transitions.put(target.getKey(), transition);
+            } else {
+                transition.update(source.template, target);
+            }
+            transition.count++;
+        }
+    }
+
+    /**
+     * Represents the transition to a target template and how to fill each of its slots
+     */
+    private static class Transition {
+        final UrlTemplate target;
+        long count;
+        /**
+         * The source slot that always had the same value as each target slot or {@link #NO_SLOT}
+         */
+        final int[] sourceSlots;
+        /**
+         * The value each target slot always had or {@code null} if it changed
+         */
+        final String[] constantValues;
+
+        Transition(@NotNull UrlTemplate source, @NotNull UrlTemplate target) {
+            this.target = target;
+            List<String> sourceValues = source.getValues();
+            List<String> targetValues = target.getValues();
+            sourceSlots = new int[targetValues.size()];
+            constantValues = new String[targetValues.size()];
+            for (int i = 0; i < targetValues.size(); i++) {
+                sourceSlots[i] = sourceValues.indexOf(targetValues.get(i));
+                constantValues[i] = targetValues.get(i);
+            }
+        }
+
+        void update(@NotNull UrlTemplate source, @NotNull UrlTemplate target) {
+            List<String> sourceValues = source.getValues();
+            List<String> targetValues = target.getValues();
+            for (int i = 0; i < sourceSlots.length; i++) {
+                if (sourceSlots[i] != NO_SLOT && !sourceValues.get(sourceSlots[i]).equals(targetValues.get(i)))
+                    sourceSlots[i] = NO_SLOT;
+                if (constantValues[i] != null && !constantValues[i].equals(targetValues.get(i)))
+                    constantValues[i] = null;
+            }
+        }
+
+        /**
+         * @return The target URL with its slots filled from the source URL or {@code null} if
+         * a slot cannot be filled
+         */
+        String fill(@NotNull UrlTemplate source) {
+            List<String> sourceValues = source.getValues();
+            List<String> values = new ArrayList<>(sourceSlots.length);
+            for (int i = 0; i < sourceSlots.length; i++) {
+                if (sourceSlots[i] != NO_SLOT) values.add(sourceValues.get(sourceSlots[i]));
+                else if (constantValues[i] != null) values.add(constantValues[i]);
+                else return null;
+            }
+            return target.fill(values);
+        }
+    }
+}
@@ -0,0 +1,480 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityGraph;
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+import nl.vu.cs.s2group.nappa.room.activity.visittime.ActivityVisitTime;
+import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
+import nl.vu.cs.s2group.nappa.util.NappaUtil;
+
+/**
+ * This strategy utilizes the Prediction by Partial Match (PPM) algorithm based on a
+ * variable-order Markov model. The last k activities visited in the session are used as
+ * context to predict the next activity.
+ * <p>
+ * The model is a context trie in which each path from the root represents a sequence of
+ * visited activities and each trie node counts how often its sequence was visited. The
+ * contexts of order 0 to k are kept, thus the trie is k + 1 levels deep. The trie is trained
+ * from the navigation history in a background thread after the graph is initialized and is
+ * updated incrementally whenever the user navigates to an activity. As such, predicting the
+ * next activities is a bounded walk in the trie and does not access the database.
+ * <p>
+ * The trie holds at most {@link #MAX_CONTEXT_NODES} nodes. When exceeded, the least
+ * frequent contexts of order 2 or higher are pruned.
+ * <p>
+ * The prediction blends all orders, from the longest context to the empty context, using the
+ * PPM escape mechanism (method C) with exclusion. The activities predicted by longer contexts
+ * take most of the probability mass and the escape probability is distributed to the
+ * activities only predicted by shorter contexts.
+ * <p>
+ * This strategy accepts the following configurations:
+ * <ul>
+ *     <li>{@link PrefetchingStrategyConfigKeys#PPM_MAX_ORDER}</li>
+ * </ul>
+ *
+ * @see <a href="https://dl.acm.org/doi/10.1145/301453.301557">PPM paper</a>
+ */
+public class VariableOrderPPMPrefetchingStrategy extends AbstractPrefetchingStrategy {
+    private static final String LOG_TAG = VariableOrderPPMPrefetchingStrategy.class.getSimpleName();
+
+    public static final int DEFAULT_MAX_ORDER = 3;
+
+    /**
+     * The maximum number of nodes in the context trie
+     */
+    private static final int MAX_CONTEXT_NODES = 20000;
+
+    private final int maxOrder;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "nappa-ppm-training");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ContextTrie trie;
+    /**
+     * The trie nodes representing the contexts of order 0 to k of the current session,
+     * sorted from the lowest to the highest order
+     */
+    private List<ContextNode> currentContexts;
+    private ActivityNode lastVisitedNode;
+
+    public VariableOrderPPMPrefetchingStrategy() {
+        super();
+
+        maxOrder = NappaConfigMap.get(
+                PrefetchingStrategyConfigKeys.PPM_MAX_ORDER,
+                DEFAULT_MAX_ORDER);
+        if (maxOrder < 1)
+            throw new IllegalArgumentException("The maximum order must be greater than 0. "
+                    + maxOrder + " provided.");
+
+        /*
+         * Blending the orders spreads the probability mass among all activities ever visited
+         * after the context, therefore the probabilities are lower than the ones calculated
+         * with the successors only. The value is only overridden if it was not already
+         * overridden using the user-defined configurations.
+         */
+        if (scoreLowerThreshold == DEFAULT_SCORE_LOWER_THRESHOLD) scoreLowerThreshold = 0.3f;
+
+        trie = new ContextTrie(maxOrder, MAX_CONTEXT_NODES);
+        currentContexts = trie.getEmptyContexts();
+    }
+
+    @Override
+    public boolean needVisitTime() {
+        return false;
+    }
+
+    @Override
+    public boolean needSuccessorsVisitTime() {
+        return false;
+    }
+
+    @Override
+    public void onGraphInitialized(@NotNull ActivityGraph graph) {
+        // Replaying the whole navigation history must not delay the initialization of NAPPA
+        executor.execute(() -> train(graph));
+    }
+
+    /**
+     * Train a new context trie from the navigation history and replace the current trie. The
+     * visits notified while training are merged into the new trie.
+     *
+     * @param graph The initialized graph
+     */
+    private void train(@NotNull ActivityGraph graph) {
+        long startTime = System.currentTimeMillis();
+        Map<Long, ActivityNode> nodesById = graph.mapNodesById();
+        List<ActivityVisitTime> history = NappaDB.getInstance().activityVisitTimeDao().getNavigationHistory();
+
+        ContextTrie trainedTrie = new ContextTrie(maxOrder, MAX_CONTEXT_NODES);
+        List<ContextNode> contexts = null;
+        long sessionId = -1;
+        for (ActivityVisitTime visit : history) {
+            ActivityNode node = nodesById.get(visit.activityId);
+            if (contexts == null || visit.sessionId != sessionId || node == null) {
+                contexts = trainedTrie.getEmptyContexts();
+                sessionId = visit.sessionId;
+            }
+            if (node != null) contexts = trainedTrie.update(contexts, node);
+        }
+
+        synchronized (this) {
+            trainedTrie.merge(trie);
+            currentContexts = trainedTrie.find(currentContexts);
+            trie = trainedTrie;
+        }
+
+        Log.d(LOG_TAG, String.format("Trained the context trie with %d nodes from %d visits in %d ms",
+                trainedTrie.size,
+                history.size(),
+                System.currentTimeMillis() - startTime));
+    }
+
+    @Override
+    public synchronized void onActivityVisited(@NotNull ActivityNode node) {
+        currentContexts = trie.update(currentContexts, node);
+        lastVisitedNode = node;
+    }
+
+    @NonNull
+    @Override
+    public List<String> getTopNUrlToPrefetchForNode(@NotNull ActivityNode node, Integer maxNumber) {
+        return ScoredCandidate.toUrls(getScoredCandidatesForNode(node, maxNumber, PredictionDeadline.NONE));
+    }
+
+    @NonNull
+    @Override
+    public List<ScoredCandidate> getScoredCandidatesForNode(@NotNull ActivityNode node, Integer maxNumber, @NotNull PredictionDeadline deadline) {
+        long startTime = System.currentTimeMillis();
+
+        StrategyExecutionContext context = new StrategyExecutionContext(node, deadline);
+        Log.d(LOG_TAG, String.format("(#%d) Starting execution %d for node '%s'.", context.id, context.id, node.activityName));
+
+        StrategyExecutionContext.NodeScores probabilities = predict(context);
+        List<ActivityNode> selectedNodes = getNodesSortedByProbability(node, probabilities);
+        addUrls(context, selectedNodes, probabilities);
+
+        logStrategyExecutionDuration(node, startTime, context.id);
+
+        return context.getCandidates();
+    }
+
+    /**
+     * Calculate the probability of the next activity by blending all contexts, from the
+     * highest to the lowest order.
+     *
+     * @param executionContext The execution context, whose start node is the node the user
+     *                         is currently visiting
+     * @return The probability of each activity to be visited next
+     */
+    @NotNull
+    synchronized StrategyExecutionContext.NodeScores predict(@NotNull StrategyExecutionContext executionContext) {
+        ActivityNode node = executionContext.startNode;
+        List<ContextNode> contexts = currentContexts;
+
+        // The strategy was not notified about this visit, thus only the order 1 context is known
+        if (!node.equals(lastVisitedNode)) {
+            contexts = trie.getEmptyContexts();
+            ContextNode context = trie.root.getChild(node);
+            if (context != null) contexts.add(context);
+        }
+
+        StrategyExecutionContext.NodeScores probabilities = executionContext.getScores();
+        List<ContextNode> candidates = new ArrayList<>();
+        float escapeProbability = 1;
+
+        for (int i = contexts.size() - 1; i >= 0; i--) {
+            ContextNode context = contexts.get(i);
+            if (context.children == null) continue;
+
+            // Exclude the activities already predicted by a higher order context
+            candidates.clear();
+            int total = 0;
+            for (ContextNode child : context.children.values()) {
+                if (probabilities.contains(child.activity)) continue;
+                candidates.add(child);
+                total += child.count;
+            }
+            if (total == 0) continue;
+
+            float denominator = total + candidates.size();
+            for (ContextNode candidate : candidates) {
+                probabilities.set(candidate.activity, escapeProbability * candidate.count / denominator);
+            }
+            escapeProbability *= candidates.size() / denominator;
+        }
+
+        return probabilities;
+    }
+
+    /**
+     * Sort the predicted nodes by probability and return all nodes with a probability higher
+     * than the lower threshold score.
+     *
+     * @param currentNode   The node the user is currently visiting
+     * @param probabilities The probability of each activity to be visited next
+     * @return The nodes sorted from the highest to the lowest probability
+     */
+    @NotNull
+    private List<ActivityNode> getNodesSortedByProbability(@NotNull ActivityNode currentNode,
+                                                           @NotNull StrategyExecutionContext.NodeScores probabilities) {
+        List<ActivityNode> nodes = new ArrayList<>();
+        for (ActivityNode node : probabilities.getNodes()) {
+            // Prefetching the data of the current node brings no benefit
+            if (node == currentNode) continue;
+            if (probabilities.get(node) >= scoreLowerThreshold) nodes.add(node);
+        }
+        Collections.sort(nodes, new ProbabilityComparator(probabilities));
+        return nodes;
+    }
+
+    private void addUrls(@NotNull StrategyExecutionContext context,
+                         @NotNull List<ActivityNode> nodes,
+                         @NotNull StrategyExecutionContext.NodeScores probabilities) {
+        List<ScoredCandidate> urls = context.getCandidates();
+
+        for (ActivityNode node : nodes) {
+            int remainingUrlBudget = maxNumberOfUrlToPrefetch - urls.size();
+            List<ScoredCandidate> nodUrls = NappaUtil.getScoredCandidatesFromCandidateNode(context.startNode,
+                    node,
+                    probabilities.get(node),
+                    remainingUrlBudget);
+            urls.addAll(nodUrls);
+
+            Log.d(LOG_TAG, String.format("(#%s) The URLs from node '%s' with probability %f are: %s",
+                    context.id,
+                    node.activityName,
+                    probabilities.get(node),
+                    nodUrls));
+            if (urls.size() >= maxNumberOfUrlToPrefetch) break;
+        }
+    }
+
+    private static class ProbabilityComparator implements Comparator<ActivityNode> {
+        private final StrategyExecutionContext.NodeScores probabilities;
+
+        ProbabilityComparator(StrategyExecutionContext.NodeScores probabilities) {
+            this.probabilities = probabilities;
+        }
+
+        @Override
+        public int compare(ActivityNode o1, ActivityNode o2) {
+            return Float.compare(probabilities.get(o2), probabilities.get(o1));
+        }
+    }
+
+    /**
+     * Represents the context trie. The trie is not thread-safe, the strategy synchronizes the
+     * access to the trie in use.
+     */
+    static class ContextTrie {
+        final ContextNode root = new ContextNode(null, null, 0);
+        private final int maxOrder;
+        private final int maxSize;
+        /**
+         * The number of nodes in the trie, without the root
+         */
+        int size;
+
+        /**
+         * @param maxOrder The maximum order k of the contexts
+         * @param maxSize  The maximum number of nodes in the trie
+         */
+        ContextTrie(int maxOrder, int maxSize) {
+            this.maxOrder = maxOrder;
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @return The contexts at the start of a session, i.e. only the empty context
+         */
+        @NotNull
+        List<ContextNode> getEmptyContexts() {
+            List<ContextNode> contexts = new ArrayList<>(maxOrder + 1);
+            contexts.add(root);
+            return contexts;
+        }
+
+        /**
+         * Add the provided node to the trie as successor of all current contexts
+         *
+         * @param contexts The trie nodes representing the current contexts
+         * @param node     The visited node
+         * @return The trie nodes representing the contexts of order 0 to k after visiting the
+         * provided node
+         */
+        @NotNull
+        List<ContextNode> update(@NotNull List<ContextNode> contexts, @NotNull ActivityNode node) {
+            List<ContextNode> nextContexts = getEmptyContexts();
+            for (ContextNode context : contexts) {
+                // The context was pruned
+                if (context.removed) continue;
+                ContextNode child = context.getOrAddChild(node);
+                if (child.count++ == 0) size++;
+                if (child.order <= maxOrder) nextContexts.add(child);
+            }
+            if (size > maxSize) {
+                prune();
+                Iterator<ContextNode> iterator = nextContexts.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().removed) iterator.remove();
+                }
+            }
+            return nextContexts;
+        }
+
+        /**
+         * Add the counts of the provided trie to this trie
+         *
+         * @param trie The trie to merge
+         */
+        void merge(@NotNull ContextTrie trie) {
+            merge(root, trie.root);
+            if (size > maxSize) prune();
+        }
+
+        private void merge(@NotNull ContextNode target, @NotNull ContextNode source) {
+            if (source.children == null) return;
+            for (ContextNode child : source.children.values()) {
+                ContextNode targetChild = target.getOrAddChild(child.activity);
+                if (targetChild.count == 0) size++;
+                targetChild.count += child.count;
+                merge(targetChild, child);
+            }
+        }
+
+        /**
+         * Find the contexts of another trie in this trie
+         *
+         * @param contexts The contexts of another trie
+         * @return The trie nodes representing the same contexts in this trie
+         */
+        @NotNull
+        List<ContextNode> find(@NotNull List<ContextNode> contexts) {
+            List<ContextNode> foundContexts = getEmptyContexts();
+            for (ContextNode context : contexts) {
+                if (context.order == 0 || context.removed) continue;
+                List<ActivityNode> path = new ArrayList<>(context.order);
+                for (ContextNode node = context; node.parent != null; node = node.parent) path.add(node.activity);
+                ContextNode foundContext = root;
+                for (int i = path.size() - 1; i >= 0 && foundContext != null; i--) {
+                    foundContext = foundContext.getChild(path.get(i));
+                }
+                if (foundContext != null) foundContexts.add(foundContext);
+            }
+            return foundContexts;
+        }
+
+        /**
+         * Remove the least frequent contexts of order 2 or higher, doubling the count under
+         * which a context is removed until the trie holds at most 3/4 of its maximum size.
+         * The contexts of order 1 are kept, since there is one per activity.
+         */
+        private void prune() {
+            int initialSize = size;
+            int maxCount = 1;
+            while (size > maxSize * 3 / 4) {
+                if (!prune(root, maxCount)) break;
+                maxCount *= 2;
+            }
+            Log.d(LOG_TAG, String.format("Pruned the context trie from %d to %d nodes, removing the contexts visited up to %d times",
+                    initialSize,
+                    size,
+                    maxCount));
+        }
+
+        /**
+         * @return {@code True} if contexts of order 2 or higher remain in the subtree
+         */
+        private boolean prune(@NotNull ContextNode node, int maxCount) {
+            if (node.children == null) return false;
+            boolean hasPrunableContexts = false;
+            Iterator<ContextNode> iterator = node.children.values().iterator();
+            while (iterator.hasNext()) {
+                ContextNode child = iterator.next();
+                if (child.order >= 2 && child.count <= maxCount) {
+                    iterator.remove();
+                    size -= remove(child);
+                    continue;
+                }
+                if (child.order >= 2) hasPrunableContexts = true;
+                if (prune(child, maxCount)) hasPrunableContexts = true;
+            }
+            return hasPrunableContexts;
+        }
+
+        /**
+         * @return The number of removed nodes
+         */
+        private int remove(@NotNull ContextNode node) {
+            node.removed = true;
+            int removedNodes = 1;
+            if (node.children != null) {
+                for (ContextNode child : node.children.values()) removedNodes += remove(child);
+            }
+            return removedNodes;
+        }
+    }
+
+    /**
+     * Represents a node in the context trie. The path from the root to this node is a
+     * sequence of visited activities and {@link #count} is how often this sequence was visited.
+     */
+    static class ContextNode {
+        final ContextNode parent;
+        final ActivityNode activity;
+        final int order;
+        int count;
+        /**
+         * Set when the node is pruned from the trie
+         */
+        boolean removed;
+        /**
+         * Most contexts have a handful of successors, thus the map is only allocated when the
+         * first successor is added
+         */
+        Map<ActivityNode, ContextNode> children;
+
+        ContextNode(ContextNode parent, ActivityNode activity, int order) {
+            this.parent = parent;
+            this.activity = activity;
+            this.order = order;
+        }
+
+        ContextNode getChild(@NotNull ActivityNode node) {
+            return children == null ? null : children.get(node);
+        }
+
+        @NotNull
+        ContextNode getOrAddChild(@NotNull ActivityNode node) {
+            if (children == null) children = new HashMap<>(4);
+            ContextNode child = children.get(node);
+            if (child == null) {
+                child = new ContextNode(this, node, order + 1);
+                children.put(node, child);
+            }
+            return child;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package nl.vu.cs.s2group.nappa.prefetchurl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a URL normalized into a template, where the path segments and query values that
+ * look like identifiers are replaced by slots. For instance, the URLs
+ * {@code https://pokeapi.co/api/v2/pokemon/25} and {@code https://pokeapi.co/api/v2/pokemon/133}
+ * share the template {@code https://pokeapi.co/api/v2/pokemon/{}}.
+ * <p>
+ * A segment is considered an identifier if it is a number, a UUID or a hexadecimal string with
+ * at least 8 characters and one digit. In contrast to {@link ParameteredUrl}, the templates are
+ * inferred from the URL alone, without the intent extras of the activities.
+ */
+public class UrlTemplate {
+    private static final String SLOT = "{}";
+    private static final Pattern IDENTIFIER = Pattern.compile(
+            "\\d+|" +
+                    "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|" +
+                    "(?=[a-fA-F]*\\d)[0-9a-fA-F]{8,}");
+
+    /**
+     * The static pieces of the URL. There is always one piece more than slots, such that
+     * slot {@code i} is between the pieces {@code i} and {@code i + 1}.
+     */
+    private final List<String> pieces;
+    private final List<String> values;
+    private final String key;
+
+    private UrlTemplate(@NotNull List<String> pieces, @NotNull List<String> values) {
+        this.pieces = pieces;
+        this.values = values;
+
+        StringBuilder sb = new StringBuilder(pieces.get(0));
+        for (int i = 1; i < pieces.size(); i++) sb.append(SLOT).append(pieces.get(i));
+        this.key = sb.toString();
+    }
+
+    /**
+     * Normalize the provided URL into a template. The fragment of the URL is dropped.
+     *
+     * @param url A URL
+     * @return The template of the URL with the slot values of the URL
+     */
+    @NotNull
+    public static UrlTemplate parse(@NotNull String url) {
+        int fragmentStart = url.indexOf('#');
+        if (fragmentStart != -1) url = url.substring(0, fragmentStart);
+
+        List<String> pieces = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        StringBuilder piece = new StringBuilder();
+
+        // The scheme and the host are never replaced
+        int schemeEnd = url.indexOf("://");
+        int pathStart = url.indexOf('/', schemeEnd == -1 ? 0 : schemeEnd + 3);
+        if (pathStart == -1) pathStart = url.length();
+        piece.append(url, 0, pathStart);
+
+        int tokenStart = pathStart;
+        for (int i = pathStart; i <= url.length(); i++) {
+            char c = i < url.length() ? url.charAt(i) : '/';
+            if (c != '/' && c != '?' && c != '&' && c != '=') continue;
+
+            String token = url.substring(tokenStart, i);
+            if (!token.isEmpty() && IDENTIFIER.matcher(token).matches()) {
+                pieces.add(piece.toString());
+                values.add(token);
+                piece.setLength(0);
+            } else {
+                piece.append(token);
+            }
+            if (i < url.length()) piece.append(c);
+            tokenStart = i + 1;
+        }
+        pieces.add(piece.toString());
+
+        return new UrlTemplate(pieces, values);
+    }
+
+    /**
+     * @return The template with the slots represented as {@code {}}, which identifies all URLs
+     * with the same template
+     */
+    @NotNull
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The values of the slots in the URL this template was parsed from
+     */
+    @NotNull
+    public List<String> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
+    public int getNumberOfSlots() {
+        return values.size();
+    }
+
+    /**
+     * @param slotValues The value of each slot
+     * @return The URL with the slots filled with the provided values or {@code null} if the
+     * number of values does not match the number of slots
+     */
+    @Nullable
+    public String fill(@NotNull List<String> slotValues) {
+        if (slotValues.size() != values.size()) return null;
+        StringBuilder sb = new StringBuilder(pieces.get(0));
+        for (int i = 0; i < slotValues.size(); i++) sb.append(slotValues.get(i)).append(pieces.get(i + 1));
+        return sb.toString();
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return key;
+    }
+}
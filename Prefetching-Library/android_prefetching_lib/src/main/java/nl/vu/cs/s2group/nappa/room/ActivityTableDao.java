@@ -30,4 +30,14 @@ public interface ActivityTableDao {
 
     @Query("SELECT * FROM nappa_LAR WHERE activity_name=:activity_name")
     LARData getLAR(String activity_name);
+
+    /**
+     * Get the link analysis ranking (LAR) scores of all activities in a single query.
+     * Used to bootstrap the whole ENG at once instead of querying the scores of each
+     * activity with {@link #getLAR(String)}.
+     *
+     * @return The LAR scores of all known activities
+     */
+    @Query("SELECT * FROM nappa_LAR")
+    List<LARData> getListLAR();
 }
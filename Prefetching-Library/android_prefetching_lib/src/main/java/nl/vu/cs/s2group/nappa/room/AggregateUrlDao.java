@@ -33,6 +33,116 @@ public interface AggregateUrlDao {
             "GROUP BY url, id_activity ORDER BY count DESC")
     LiveData<List<AggregateURL>> getAggregateLiveData();
 
+    /**
+     * Get the average response size and request duration of the provided URLs. Responses
+     * without a known length are stored with the size -1 and are not included in the
+     * average size.
+     *
+     * @param urls The URLs to query
+     * @return The statistics of the URLs requested at least once
+     */
+    @Query("SELECT url, AVG(CASE WHEN size >= 0 THEN size END) as sizeAvg, AVG(duration) as durationAvg " +
+            "FROM nappa_url " +
+            "WHERE url IN (:urls) " +
+            "GROUP BY url")
+    List<UrlStatistics> getUrlStatistics(List<String> urls);
+
+    /**
+     * Get the average response size and request duration of all requests issued by the
+     * provided activity. Responses without a known length are not included in the average
+     * size.
+     *
+     * @param idActivity The ID of the activity
+     * @return The statistics of the activity requests
+     */
+    @Query("SELECT NULL as url, AVG(CASE WHEN size >= 0 THEN size END) as sizeAvg, AVG(duration) as durationAvg " +
+            "FROM nappa_url " +
+            "WHERE id_activity = :idActivity")
+    UrlStatistics getUrlStatisticsForIdActivity(Long idActivity);
+
+    /**
+     * Get the latest requests issued by the application in reverse chronological order.
+     * The requests issued by NAPPA are not included.
+     *
+     * @param maxRequests The maximum number of requests to take
+     * @return A list containing the URL and issue time of the requests
+     */
+    @Query("SELECT url, time_issued as timeIssued " +
+            "FROM nappa_url " +
+            "WHERE time_issued IS NOT NULL AND prefetched = 0 " +
+            "ORDER BY time_issued DESC " +
+            "LIMIT :maxRequests")
+    List<UrlRequest> getLatestRequests(Integer maxRequests);
+
+    /**
+     * Get the URLs requested by the first activity of each of the latest sessions within the
+     * provided window after the activity was visited. The requests issued by NAPPA are not
+     * included.
+     *
+     * @param maxSessions The maximum number of sessions to take
+     * @param window      The number of milliseconds after the first visit of a session
+     * @return The distinct URLs requested at the launch of each session
+     */
+    @Query("SELECT DISTINCT " +
+            "   launch.sessionId AS sessionId, " +
+            "   launch.activityId AS activityId, " +
+            "   url " +
+            "FROM (" +
+            "   SELECT id_session AS sessionId, id_activity AS activityId, MIN(timestamp) AS startTime " +
+            "   FROM nappa_activity_visit_time " +
+            "   GROUP BY id_session " +
+            "   ORDER BY id_session DESC " +
+            "   LIMIT :maxSessions" +
+            ") AS launch " +
+            "INNER JOIN nappa_url " +
+            "   ON id_activity = launch.activityId AND " +
+            "   prefetched = 0 AND " +
+            "   time_issued BETWEEN launch.startTime AND launch.startTime + :window ")
+    List<LaunchRequest> getLaunchRequests(int maxSessions, long window);
+
+    /**
+     * Represents a URL requested at a given timestamp
+     */
+    class UrlRequest {
+        public String url;
+        public Long timeIssued;
+
+        public UrlRequest(String url, Long timeIssued) {
+            this.url = url;
+            this.timeIssued = timeIssued;
+        }
+    }
+
+    /**
+     * Represents a URL requested at the launch of a session
+     */
+    class LaunchRequest {
+        public Long sessionId;
+        public Long activityId;
+        public String url;
+
+        public LaunchRequest(Long sessionId, Long activityId, String url) {
+            this.sessionId = sessionId;
+            this.activityId = activityId;
+            this.url = url;
+        }
+    }
+
+    /**
+     * Represents the average response size in bytes and the average duration in milliseconds
+     * of the requests issued for a URL. A {@code null} average indicates an unknown value.
+     */
+    class UrlStatistics {
+        public String url;
+        public Long sizeAvg;
+        public Long durationAvg;
+
+        public UrlStatistics(String url, Long sizeAvg, Long durationAvg) {
+            this.url = url;
+            this.sizeAvg = sizeAvg;
+            this.durationAvg = durationAvg;
+        }
+    }
 
 
     static class AggregateURL {
@@ -7,6 +7,8 @@ import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import nl.vu.cs.s2group.nappa.room.activity.ActivitySourceDestination;
 import nl.vu.cs.s2group.nappa.room.activity.visittime.ActivityVisitTime;
@@ -15,13 +17,22 @@ import nl.vu.cs.s2group.nappa.room.activity.visittime.AggregateVisitTimeBySessio
 import nl.vu.cs.s2group.nappa.room.activity.visittime.SuccessorsAggregateVisitTimeBySession;
 import nl.vu.cs.s2group.nappa.room.converter.DateConverters;
 import nl.vu.cs.s2group.nappa.room.dao.ActivityExtraDao;
+import nl.vu.cs.s2group.nappa.room.dao.ContextEdgeDao;
+import nl.vu.cs.s2group.nappa.room.dao.DecayedEdgeDao;
 import nl.vu.cs.s2group.nappa.room.dao.GraphEdgeDao;
+import nl.vu.cs.s2group.nappa.room.dao.GraphSnapshotDao;
 import nl.vu.cs.s2group.nappa.room.dao.SessionDao;
+import nl.vu.cs.s2group.nappa.room.dao.StrategyArmDao;
+import nl.vu.cs.s2group.nappa.room.dao.TemplateTtlDao;
 import nl.vu.cs.s2group.nappa.room.dao.UrlCandidateDao;
 import nl.vu.cs.s2group.nappa.room.data.ActivityExtraData;
+import nl.vu.cs.s2group.nappa.room.data.ContextEdgeData;
+import nl.vu.cs.s2group.nappa.room.data.DecayedEdgeData;
 import nl.vu.cs.s2group.nappa.room.data.LARData;
 import nl.vu.cs.s2group.nappa.room.data.Session;
 import nl.vu.cs.s2group.nappa.room.data.SessionData;
+import nl.vu.cs.s2group.nappa.room.data.StrategyArmData;
+import nl.vu.cs.s2group.nappa.room.data.TemplateTtlData;
 import nl.vu.cs.s2group.nappa.room.data.UrlCandidate;
 import nl.vu.cs.s2group.nappa.room.data.UrlCandidateParts;
 
@@ -36,18 +47,93 @@ import nl.vu.cs.s2group.nappa.room.data.UrlCandidateParts;
                 UrlCandidateParts.class,
                 LARData.class,
                 ActivityVisitTime.class,
+                DecayedEdgeData.class,
+                StrategyArmData.class,
+                ContextEdgeData.class,
+                TemplateTtlData.class,
         },
         views = {
                 AggregateVisitTimeBySession.class,
                 SuccessorsAggregateVisitTimeBySession.class,
                 ActivitySourceDestination.class,
         },
-        version = 1)
+        version = 8)
 @TypeConverters({DateConverters.class})
 public abstract class NappaDB extends RoomDatabase {
 
     private static NappaDB instance = null;
 
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `nappa_decayed_edge` (" +
+                    "`id_activity_source` INTEGER NOT NULL, " +
+                    "`id_activity_destination` INTEGER NOT NULL, " +
+                    "`frequency` REAL NOT NULL, " +
+                    "`frequency_updated_at` INTEGER NOT NULL, " +
+                    "`visit_time` REAL NOT NULL, " +
+                    "`visit_time_updated_at` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`id_activity_source`, `id_activity_destination`))");
+        }
+    };
+
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `nappa_url` ADD COLUMN `duration` INTEGER");
+        }
+    };
+
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_nappa_url_url` ON `nappa_url` (`url`)");
+        }
+    };
+
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `nappa_strategy_arm` (" +
+                    "`id_activity` INTEGER NOT NULL, " +
+                    "`strategy` TEXT NOT NULL, " +
+                    "`successes` INTEGER NOT NULL, " +
+                    "`failures` INTEGER NOT NULL, " +
+                    "`latency_saved` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`id_activity`, `strategy`))");
+        }
+    };
+
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `nappa_url` ADD COLUMN `prefetched` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `nappa_context_edge` (" +
+                    "`id_activity_source` INTEGER NOT NULL, " +
+                    "`id_activity_destination` INTEGER NOT NULL, " +
+                    "`context_bucket` INTEGER NOT NULL, " +
+                    "`count` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`id_activity_source`, `id_activity_destination`, `context_bucket`))");
+        }
+    };
+
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `nappa_template_ttl` (" +
+                    "`template` TEXT NOT NULL, " +
+                    "`ttl` INTEGER NOT NULL, " +
+                    "`last_update` INTEGER NOT NULL, " +
+                    "PRIMARY KEY(`template`))");
+        }
+    };
+
     NappaDB() {
     }
 
@@ -56,6 +142,7 @@ public abstract class NappaDB extends RoomDatabase {
             synchronized (NappaDB.class) {
                 instance = Room.databaseBuilder(context.getApplicationContext(),
                         NappaDB.class, "nappa.db")
+                        .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
                         //TODO remove and provide migrations in production
                         .fallbackToDestructiveMigration()
                         .build();
@@ -74,9 +161,19 @@ public abstract class NappaDB extends RoomDatabase {
 
     public abstract GraphEdgeDao graphEdgeDao();
 
+    public abstract GraphSnapshotDao graphSnapshotDao();
+
     public abstract ActivityExtraDao activityExtraDao();
 
     public abstract UrlCandidateDao urlCandidateDao();
 
     public abstract ActivityVisitTimeDao activityVisitTimeDao();
+
+    public abstract DecayedEdgeDao decayedEdgeDao();
+
+    public abstract StrategyArmDao strategyArmDao();
+
+    public abstract ContextEdgeDao contextEdgeDao();
+
+    public abstract TemplateTtlDao templateTtlDao();
 }
@@ -3,12 +3,13 @@ package nl.vu.cs.s2group.nappa.room;
 
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
 /**
  * Represents all data corresponding to an http request
  */
-@Entity(tableName = "nappa_url")
+@Entity(tableName = "nappa_url", indices = @Index("url"))
 public class RequestData {
 
     @PrimaryKey(autoGenerate = true) public Long id;
@@ -17,14 +18,21 @@ public class RequestData {
     @ColumnInfo(name = "mime_type") public String mimeType;
     @ColumnInfo(name = "size") public Long size;
     @ColumnInfo(name = "time_issued") public Long timeIssued;
+    @ColumnInfo(name = "duration") public Long duration;
+    /**
+     * Whether the request was issued by NAPPA (e.g. a prefetch) instead of the application
+     */
+    @ColumnInfo(name = "prefetched", defaultValue = "0") public boolean prefetched;
 
 
-    public RequestData(Long id, Long idActivity, String url, String mimeType, Long size, Long timeIssued) {
+    public RequestData(Long id, Long idActivity, String url, String mimeType, Long size, Long timeIssued, Long duration, boolean prefetched) {
         this.id = id;
         this.idActivity = idActivity;
         this.url = url;
         this.mimeType = mimeType;
         this.size = size;
         this.timeIssued = timeIssued;
+        this.duration = duration;
+        this.prefetched = prefetched;
     }
 }
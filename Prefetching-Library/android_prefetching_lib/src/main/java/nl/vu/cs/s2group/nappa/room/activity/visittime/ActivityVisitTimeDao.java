@@ -13,6 +13,60 @@ public interface ActivityVisitTimeDao {
     @Insert
     void insert(ActivityVisitTime activityVisitTime);
 
+    /**
+     * Get the navigation history of all sessions. Each row represents a visit to an activity.
+     * The rows are ordered by session and, within a session, in the order the activities
+     * were visited.
+     *
+     * @return The ordered list of visits
+     */
+    @Query("SELECT * " +
+            "FROM nappa_activity_visit_time " +
+            "ORDER BY id_session, timestamp, id")
+    List<ActivityVisitTime> getNavigationHistory();
+
+    /**
+     * Get the visits of the (source -> destination) edges that have no decayed counters in
+     * the table {@code nappa_decayed_edge}, used to seed these counters
+     *
+     * @param since The timestamp in milliseconds of the oldest visit to take
+     * @return The visits in chronological order
+     */
+    @Query("SELECT * " +
+            "FROM nappa_activity_visit_time AS visit " +
+            "WHERE " +
+            "   id_from_activity IS NOT NULL AND " +
+            "   timestamp >= :since AND " +
+            "   NOT EXISTS ( " +
+            "       SELECT 1 " +
+            "       FROM nappa_decayed_edge " +
+            "       WHERE " +
+            "           id_activity_source = visit.id_from_activity AND " +
+            "           id_activity_destination = visit.id_activity " +
+            "   ) " +
+            "ORDER BY timestamp, id")
+    List<ActivityVisitTime> getVisitsOfEdgesWithoutDecayedCounters(long since);
+
+    /**
+     * Get the first activity visited in each of the latest sessions, i.e. the activity the
+     * application was launched into
+     *
+     * @param maxSessions The maximum number of sessions to take
+     * @return The first visit of each session in reverse chronological order
+     */
+    @Query("SELECT " +
+            "   id_session AS sessionId, " +
+            "   id_activity AS activityId, " +
+            "   activity_name AS activityName, " +
+            "   MIN(timestamp) AS timestamp " +
+            "FROM nappa_activity_visit_time " +
+            "LEFT JOIN nappa_activity " +
+            "   ON nappa_activity.id = id_activity " +
+            "GROUP BY id_session " +
+            "ORDER BY id_session DESC " +
+            "LIMIT :maxSessions")
+    List<SessionStart> getSessionStarts(int maxSessions);
+
 
     /**
      * This query takes the Database View {@link AggregateVisitTimeBySession} with the aggregate
@@ -200,4 +254,21 @@ public interface ActivityVisitTimeDao {
     LiveData<List<AggregateVisitTimeByActivity>> getSuccessorAggregateVisitTimeWithinLastNSessionsInThisEntity(
             long fromActivityId,
             int lastNSessions);
+
+    /**
+     * Represents the first activity visited in a session and when it was visited
+     */
+    class SessionStart {
+        public Long sessionId;
+        public Long activityId;
+        public String activityName;
+        public Long timestamp;
+
+        public SessionStart(Long sessionId, Long activityId, String activityName, Long timestamp) {
+            this.sessionId = sessionId;
+            this.activityId = activityId;
+            this.activityName = activityName;
+            this.timestamp = timestamp;
+        }
+    }
 }
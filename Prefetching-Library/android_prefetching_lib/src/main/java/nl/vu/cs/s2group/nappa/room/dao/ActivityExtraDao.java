@@ -23,4 +23,30 @@ public interface ActivityExtraDao {
     @Query("SELECT * FROM nappa_activity_extra WHERE id_activity = :idAct")
     LiveData<List<ActivityExtraData>> getActivityExtraLiveData(Long idAct);
 
+    /**
+     * Count how often each activity sent each value of each extra
+     * @return A list containing the number of occurrences of each (activity, key, value) triple
+     */
+    @Query("SELECT id_activity AS idActivity, `key`, value, COUNT(*) AS count " +
+            "FROM nappa_activity_extra " +
+            "WHERE id_activity IS NOT NULL AND `key` IS NOT NULL AND value IS NOT NULL " +
+            "GROUP BY id_activity, `key`, value")
+    List<ExtraValueCount> getExtraValueCounts();
+
+    /**
+     * Represents the number of times an activity sent a value of an extra
+     */
+    class ExtraValueCount {
+        public Long idActivity;
+        public String key;
+        public String value;
+        public Long count;
+
+        public ExtraValueCount(Long idActivity, String key, String value, Long count) {
+            this.idActivity = idActivity;
+            this.key = key;
+            this.value = value;
+            this.count = count;
+        }
+    }
 }
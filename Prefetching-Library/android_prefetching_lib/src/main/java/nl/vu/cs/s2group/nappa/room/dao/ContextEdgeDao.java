@@ -0,0 +1,23 @@
+package nl.vu.cs.s2group.nappa.room.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.room.data.ContextEdgeData;
+
+@Dao
+public interface ContextEdgeDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOrUpdate(ContextEdgeData contextEdgeData);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOrUpdate(List<ContextEdgeData> contextEdgeData);
+
+    @Query("SELECT * FROM nappa_context_edge")
+    List<ContextEdgeData> getAll();
+}
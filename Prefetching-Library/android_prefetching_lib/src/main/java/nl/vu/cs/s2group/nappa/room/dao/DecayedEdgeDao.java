@@ -0,0 +1,27 @@
+package nl.vu.cs.s2group.nappa.room.dao;
+
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.room.data.DecayedEdgeData;
+
+@Dao
+public interface DecayedEdgeDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOrUpdate(DecayedEdgeData decayedEdgeData);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOrUpdate(List<DecayedEdgeData> decayedEdgeData);
+
+    @Delete
+    void delete(List<DecayedEdgeData> decayedEdgeData);
+
+    @Query("SELECT * FROM nappa_decayed_edge")
+    List<DecayedEdgeData> getAll();
+}
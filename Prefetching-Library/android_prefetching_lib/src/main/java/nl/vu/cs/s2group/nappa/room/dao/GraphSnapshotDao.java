@@ -0,0 +1,80 @@
+package nl.vu.cs.s2group.nappa.room.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+@Dao
+public interface GraphSnapshotDao {
+
+    /**
+     * Get a fingerprint of all data used to build the ENG. The fingerprint changes whenever an
+     * activity, a LAR score, a session transition or an URL candidate is inserted or updated,
+     * and therefore is used to verify whether a graph snapshot is still up to date.
+     *
+     * @return The current fingerprint of the ENG data
+     */
+    @Query("SELECT " +
+            "   (SELECT COUNT(*) FROM nappa_activity) as activityCount, " +
+            "   (SELECT TOTAL(PR + authority + hub + authorityS + hubS) FROM nappa_LAR) as larSum, " +
+            "   (SELECT COUNT(*) FROM nappa_session_data) as sessionDataCount, " +
+            "   (SELECT IFNULL(MAX(id_session), 0) FROM nappa_session_data) as maxSessionId, " +
+            "   (SELECT IFNULL(SUM(count_source_destination), 0) FROM nappa_session_data) as transitionCount, " +
+            "   (SELECT COUNT(*) FROM nappa_url_candidate) as urlCandidateCount, " +
+            "   (SELECT IFNULL(SUM(count), 0) FROM nappa_url_candidate) as urlCandidateSum, " +
+            "   (SELECT COUNT(*) FROM nappa_url_candidate_part) as urlCandidatePartCount")
+    GraphFingerprint getFingerprint();
+
+    class GraphFingerprint {
+        public long activityCount;
+        public double larSum;
+        public long sessionDataCount;
+        public long maxSessionId;
+        public long transitionCount;
+        public long urlCandidateCount;
+        public long urlCandidateSum;
+        public long urlCandidatePartCount;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            GraphFingerprint that = (GraphFingerprint) o;
+            return activityCount == that.activityCount &&
+                    Double.compare(that.larSum, larSum) == 0 &&
+                    sessionDataCount == that.sessionDataCount &&
+                    maxSessionId == that.maxSessionId &&
+                    transitionCount == that.transitionCount &&
+                    urlCandidateCount == that.urlCandidateCount &&
+                    urlCandidateSum == that.urlCandidateSum &&
+                    urlCandidatePartCount == that.urlCandidatePartCount;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (activityCount ^ (activityCount >>> 32));
+            long larBits = Double.doubleToLongBits(larSum);
+            result = 31 * result + (int) (larBits ^ (larBits >>> 32));
+            result = 31 * result + (int) (sessionDataCount ^ (sessionDataCount >>> 32));
+            result = 31 * result + (int) (maxSessionId ^ (maxSessionId >>> 32));
+            result = 31 * result + (int) (transitionCount ^ (transitionCount >>> 32));
+            result = 31 * result + (int) (urlCandidateCount ^ (urlCandidateCount >>> 32));
+            result = 31 * result + (int) (urlCandidateSum ^ (urlCandidateSum >>> 32));
+            result = 31 * result + (int) (urlCandidatePartCount ^ (urlCandidatePartCount >>> 32));
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "GraphFingerprint{" +
+                    "activityCount=" + activityCount +
+                    ", larSum=" + larSum +
+                    ", sessionDataCount=" + sessionDataCount +
+                    ", maxSessionId=" + maxSessionId +
+                    ", transitionCount=" + transitionCount +
+                    ", urlCandidateCount=" + urlCandidateCount +
+                    ", urlCandidateSum=" + urlCandidateSum +
+                    ", urlCandidatePartCount=" + urlCandidatePartCount +
+                    '}';
+        }
+    }
+}
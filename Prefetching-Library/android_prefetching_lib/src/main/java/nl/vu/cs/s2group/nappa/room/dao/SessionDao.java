@@ -30,6 +30,15 @@ public interface SessionDao {
     @Query("SELECT id, date from nappa_session where date=:date")
     public Session getSession(Long date);
 
+    /**
+     * Get the start date of the latest sessions, i.e. when the application was launched
+     *
+     * @param maxSessions The maximum number of sessions to take
+     * @return The start dates in reverse chronological order
+     */
+    @Query("SELECT date FROM nappa_session WHERE date IS NOT NULL ORDER BY id DESC LIMIT :maxSessions")
+    public List<Long> getLatestSessionDates(int maxSessions);
+
     @Query("SELECT id_session, id_activity_source, id_activity_destination, count_source_destination FROM nappa_session_data")
     public LiveData<List<SessionData>> getSessionDataListLiveData();
 
@@ -61,10 +70,48 @@ public interface SessionDao {
             "GROUP BY id_activity_destination ")
     public LiveData<List<SessionAggregate>> getCountForActivitySource(Long idSource, int lastN);
 
+    /**
+     * Gets the count of the number of instances each (source --> destination) edge has been
+     * followed for all sources at once. This is the set-based equivalent of invoking
+     * {@link #getCountForActivitySource(Long)} for every known activity.
+     *
+     * @return For all edges x --> y, a total count of all transitions x --> y.
+     */
+    @Query("SELECT id_activity_source as idActSource, id_activity_destination as idActDest, activity_name as actName, SUM(count_source_destination) as countSource2Dest " +
+            "FROM nappa_session_data " +
+            "LEFT JOIN nappa_activity as pfa ON pfa.id = id_activity_destination " +
+            "GROUP BY id_activity_source, id_activity_destination")
+    public List<SessionAggregateBySource> getCountForAllActivitySources();
+
+    /**
+     * Set-based equivalent of {@link #getCountForActivitySource(Long, int)}, counting only the
+     * transitions registered in the last N sessions.
+     *
+     * @param lastN The number N of sessions to take.
+     * @return For all edges x --> y, a total count of all transitions x --> y in the last N sessions.
+     */
+    @Query("SELECT id_activity_source as idActSource, id_activity_destination as idActDest, activity_name as actName, SUM(count_source_destination) as countSource2Dest " +
+            "FROM nappa_session_data " +
+            "LEFT JOIN nappa_activity as pfa ON pfa.id = id_activity_destination " +
+            "WHERE " +
+            "   id_session > (" +
+            "       SELECT IFNULL(MAX(id_session) - :lastN, 0) " +
+            "       FROM nappa_session_data" +
+            "   ) " +
+            "GROUP BY id_activity_source, id_activity_destination")
+    public List<SessionAggregateBySource> getCountForAllActivitySources(int lastN);
+
     class SessionAggregate {
         public Long idActDest;
         public String actName;
         public Long countSource2Dest;
     }
 
+    /**
+     * A {@link SessionAggregate} that also identifies the source of the edge
+     */
+    class SessionAggregateBySource extends SessionAggregate {
+        public Long idActSource;
+    }
+
 }
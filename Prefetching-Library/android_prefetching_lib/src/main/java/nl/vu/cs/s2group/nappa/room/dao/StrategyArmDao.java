@@ -0,0 +1,23 @@
+package nl.vu.cs.s2group.nappa.room.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.room.data.StrategyArmData;
+
+@Dao
+public interface StrategyArmDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOrUpdate(StrategyArmData strategyArmData);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOrUpdate(List<StrategyArmData> strategyArmData);
+
+    @Query("SELECT * FROM nappa_strategy_arm")
+    List<StrategyArmData> getAll();
+}
@@ -0,0 +1,20 @@
+package nl.vu.cs.s2group.nappa.room.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.room.data.TemplateTtlData;
+
+@Dao
+public interface TemplateTtlDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertOrUpdate(TemplateTtlData templateTtlData);
+
+    @Query("SELECT * FROM nappa_template_ttl")
+    List<TemplateTtlData> getAll();
+}
@@ -50,6 +50,18 @@ public interface UrlCandidateDao {
             "WHERE id_activity = :idAct")
     LiveData<List<UrlCandidateToUrlParameter>> getCandidatePartsListLiveDataForActivity(Long idAct);
 
+    /**
+     * Fetch the url candidates and their candidate parts of all activities in a single query.
+     * The result can be grouped by {@link UrlCandidateToUrlParameter#idActivity} to obtain the
+     * same result of {@link #getCandidatePartsListForActivity(Long)} for each activity.
+     *
+     * @return All candidate parts P for all urlCandidates C of all activities
+     */
+    @Query("SELECT puc.id, id_activity as idActivity, count, url_order as urlOrder, type, url_piece as urlPiece " +
+            "from nappa_url_candidate as puc " +
+            "LEFT JOIN nappa_url_candidate_part as pucp ON puc.id = pucp.id_url_candidate")
+    List<UrlCandidateToUrlParameter> getCandidatePartsList();
+
 
     /**
      * This class represents an individual URL Candidate
@@ -0,0 +1,25 @@
+package nl.vu.cs.s2group.nappa.room.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+import nl.vu.cs.s2group.nappa.util.ContextBucket;
+
+/**
+ * Represents the number of transitions of a (source -> destination) edge in a context
+ * bucket, see {@link ContextBucket}.
+ */
+@Entity(tableName = "nappa_context_edge", primaryKeys = {"id_activity_source", "id_activity_destination", "context_bucket"})
+public class ContextEdgeData {
+    @ColumnInfo(name = "id_activity_source") public long idActivitySource;
+    @ColumnInfo(name = "id_activity_destination") public long idActivityDestination;
+    @ColumnInfo(name = "context_bucket") public int contextBucket;
+    @ColumnInfo(name = "count") public long count;
+
+    public ContextEdgeData(long idActivitySource, long idActivityDestination, int contextBucket, long count) {
+        this.idActivitySource = idActivitySource;
+        this.idActivityDestination = idActivityDestination;
+        this.contextBucket = contextBucket;
+        this.count = count;
+    }
+}
@@ -0,0 +1,32 @@
+package nl.vu.cs.s2group.nappa.room.data;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+import nl.vu.cs.s2group.nappa.util.DecayingCounter;
+
+/**
+ * Represents the exponentially decayed visit frequency and visit time of a (source ->
+ * destination) edge. Each measure is stored as a (value, last update timestamp) pair, see
+ * {@link DecayingCounter}.
+ */
+@Entity(tableName = "nappa_decayed_edge", primaryKeys = {"id_activity_source", "id_activity_destination"})
+public class DecayedEdgeData {
+    @ColumnInfo(name = "id_activity_source") public long idActivitySource;
+    @ColumnInfo(name = "id_activity_destination") public long idActivityDestination;
+    @ColumnInfo(name = "frequency") public double frequency;
+    @ColumnInfo(name = "frequency_updated_at") public long frequencyUpdatedAt;
+    @ColumnInfo(name = "visit_time") public double visitTime;
+    @ColumnInfo(name = "visit_time_updated_at") public long visitTimeUpdatedAt;
+
+    public DecayedEdgeData(long idActivitySource, long idActivityDestination,
+                           double frequency, long frequencyUpdatedAt,
+                           double visitTime, long visitTimeUpdatedAt) {
+        this.idActivitySource = idActivitySource;
+        this.idActivityDestination = idActivityDestination;
+        this.frequency = frequency;
+        this.frequencyUpdatedAt = frequencyUpdatedAt;
+        this.visitTime = visitTime;
+        this.visitTimeUpdatedAt = visitTimeUpdatedAt;
+    }
+}
@@ -0,0 +1,27 @@
+package nl.vu.cs.s2group.nappa.room.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+/**
+ * Represents the realised outcomes of the predictions made by a prefetching strategy (an arm
+ * of the strategy bandit) while the user visited an activity. A prediction is a success if
+ * the predicted URL was requested within the outcome window and a failure otherwise.
+ */
+@Entity(tableName = "nappa_strategy_arm", primaryKeys = {"id_activity", "strategy"})
+public class StrategyArmData {
+    @ColumnInfo(name = "id_activity") public long idActivity;
+    @NonNull @ColumnInfo(name = "strategy") public String strategy;
+    @ColumnInfo(name = "successes") public long successes;
+    @ColumnInfo(name = "failures") public long failures;
+    @ColumnInfo(name = "latency_saved") public long latencySaved;
+
+    public StrategyArmData(long idActivity, @NonNull String strategy, long successes, long failures, long latencySaved) {
+        this.idActivity = idActivity;
+        this.strategy = strategy;
+        this.successes = successes;
+        this.failures = failures;
+        this.latencySaved = latencySaved;
+    }
+}
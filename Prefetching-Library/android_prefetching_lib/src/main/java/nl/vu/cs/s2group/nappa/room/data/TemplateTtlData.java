@@ -0,0 +1,26 @@
+package nl.vu.cs.s2group.nappa.room.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import nl.vu.cs.s2group.nappa.prefetchurl.UrlTemplate;
+
+/**
+ * Represents how long the server allows the responses of a URL template to be cached, see
+ * {@link UrlTemplate#getKey()}. The TTL is taken from the {@code max-age} directive of the
+ * latest response and is 0 if the response must not be cached or has no {@code max-age}.
+ */
+@Entity(tableName = "nappa_template_ttl")
+public class TemplateTtlData {
+    @PrimaryKey @NonNull @ColumnInfo(name = "template") public String template;
+    @ColumnInfo(name = "ttl") public long ttl;
+    @ColumnInfo(name = "last_update") public long lastUpdate;
+
+    public TemplateTtlData(@NonNull String template, long ttl, long lastUpdate) {
+        this.template = template;
+        this.ttl = ttl;
+        this.lastUpdate = lastUpdate;
+    }
+}
@@ -0,0 +1,57 @@
+package nl.vu.cs.s2group.nappa.util;
+
+import java.util.Calendar;
+
+/**
+ * Partitions the time into coarse context buckets, combining a band of the day (night,
+ * morning, afternoon and evening) with the type of the day (weekday or weekend). The buckets
+ * are identified by a number between 0 and {@link #NUMBER_OF_BUCKETS} - 1.
+ * <p>
+ * The buckets are organized in a hierarchy used to back off when a bucket has few
+ * observations: the bucket itself, all buckets of the same type of day and all buckets.
+ */
+public final class ContextBucket {
+    public static final int NUMBER_OF_BUCKETS = 8;
+
+    public static final int LEVEL_BUCKET = 0;
+    public static final int LEVEL_DAY_TYPE = 1;
+    public static final int LEVEL_ALL = 2;
+
+    private static final int HOURS_PER_BAND = 6;
+
+    private ContextBucket() {
+    }
+
+    /**
+     * @param timestamp A timestamp in milliseconds
+     * @return The bucket of the provided timestamp in the default time zone
+     */
+    public static int of(long timestamp) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(timestamp);
+        int band = calendar.get(Calendar.HOUR_OF_DAY) / HOURS_PER_BAND;
+        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
+        boolean weekend = dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY;
+        return band * 2 + (weekend ? 1 : 0);
+    }
+
+    /**
+     * @return {@code True} if the provided buckets are in the same group at the provided
+     * level of the hierarchy
+     */
+    public static boolean matches(int bucket, int otherBucket, int level) {
+        switch (level) {
+            case LEVEL_BUCKET:
+                return bucket == otherBucket;
+            case LEVEL_DAY_TYPE:
+                return bucket % 2 == otherBucket % 2;
+            default:
+                return true;
+        }
+    }
+
+    public static String toString(int bucket) {
+        String[] bands = {"night", "morning", "afternoon", "evening"};
+        return bands[bucket / 2] + (bucket % 2 == 1 ? "/weekend" : "/weekday");
+    }
+}
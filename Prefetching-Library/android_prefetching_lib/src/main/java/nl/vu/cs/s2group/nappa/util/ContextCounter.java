@@ -0,0 +1,47 @@
+package nl.vu.cs.s2group.nappa.util;
+
+/**
+ * Counts events partitioned by {@link ContextBucket}, such that the count of any group of
+ * buckets in the back-off hierarchy is available without re-aggregating the history of
+ * events.
+ */
+public class ContextCounter {
+    private final long[] counts = new long[ContextBucket.NUMBER_OF_BUCKETS];
+
+    public synchronized void set(int bucket, long count) {
+        counts[bucket] = count;
+    }
+
+    /**
+     * Increments the count of the provided bucket
+     *
+     * @return The updated count of the bucket
+     */
+    public synchronized long increment(int bucket) {
+        return ++counts[bucket];
+    }
+
+    /**
+     * Adds the provided count to the count of the provided bucket
+     *
+     * @return The updated count of the bucket
+     */
+    public synchronized long add(int bucket, long count) {
+        counts[bucket] += count;
+        return counts[bucket];
+    }
+
+    /**
+     * @param bucket The bucket of the current context
+     * @param level  The level of the back-off hierarchy
+     * @return The total count of the buckets in the same group as the provided bucket at the
+     * provided level
+     */
+    public synchronized long get(int bucket, int level) {
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (ContextBucket.matches(bucket, i, level)) count += counts[i];
+        }
+        return count;
+    }
+}
@@ -0,0 +1,83 @@
+package nl.vu.cs.s2group.nappa.util;
+
+/**
+ * Represents a counter whose value decays exponentially over time. The counter is stored
+ * as a (value, last update timestamp) pair and the decay is applied lazily when the counter
+ * is read or updated. As such, reading the current value runs in constant time and does not
+ * require re-aggregating the history of events.
+ * <p>
+ * After one half-life without updates, the value of the counter is halved.
+ */
+public class DecayingCounter {
+    public static final float DEFAULT_HALF_LIFE_HOURS = 168f;
+    public static final float DEFAULT_PRUNE_THRESHOLD = 0.05f;
+
+    private final long halfLife;
+    private double value;
+    private long lastUpdate;
+
+    /**
+     * @param halfLife   The half-life in milliseconds. Use 0 to disable the decay.
+     * @param value      The value at the moment of the last update
+     * @param lastUpdate The timestamp of the last update in milliseconds
+     */
+    public DecayingCounter(long halfLife, double value, long lastUpdate) {
+        this.halfLife = halfLife;
+        this.value = value;
+        this.lastUpdate = lastUpdate;
+    }
+
+    /**
+     * @param now The current timestamp in milliseconds
+     * @return The value of the counter decayed until {@code now}
+     */
+    public synchronized double get(long now) {
+        return decay(value, now - lastUpdate, halfLife);
+    }
+
+    /**
+     * Decays the counter until {@code now} and adds the provided amount
+     *
+     * @param amount The amount to add
+     * @param now    The current timestamp in milliseconds
+     */
+    public synchronized void add(double amount, long now) {
+        value = get(now) + amount;
+        lastUpdate = Math.max(now, lastUpdate);
+    }
+
+    /**
+     * @return The value of the counter at the moment of the last update
+     */
+    public synchronized double getValue() {
+        return value;
+    }
+
+    public synchronized long getLastUpdate() {
+        return lastUpdate;
+    }
+
+    /**
+     * Converts a half-life in hours, as defined in the configuration, to milliseconds
+     *
+     * @param halfLifeHours The half-life in hours
+     * @return The half-life in milliseconds
+     */
+    public static long halfLifeFromHours(float halfLifeHours) {
+        return (long) (halfLifeHours * 60 * 60 * 1000);
+    }
+
+    /**
+     * @param halfLife The half-life in milliseconds
+     * @param ratio    The ratio of the initial value, between 0 and 1
+     * @return The number of milliseconds until a value decays to the provided ratio of itself
+     */
+    public static long getTimeToDecay(long halfLife, double ratio) {
+        return Math.round(halfLife * Math.log(1 / ratio) / Math.log(2));
+    }
+
+    private static double decay(double value, long elapsed, long halfLife) {
+        if (elapsed <= 0 || halfLife <= 0) return value;
+        return value * Math.pow(0.5, (double) elapsed / halfLife);
+    }
+}
@@ -0,0 +1,31 @@
+package nl.vu.cs.s2group.nappa.util;
+
+import java.io.File;
+
+import okhttp3.Cache;
+
+/**
+ * Holds the persistent HTTP cache of NAPPA. The same instance must be shared by all OkHttp
+ * clients of the process, since two caches cannot use the same directory at the same time.
+ */
+public class NappaHttpCache {
+    /**
+     * The maximum size of the cache in bytes
+     */
+    public static final long MAX_SIZE = 10 * 10 * 1024;
+
+    private static Cache cache;
+
+    private NappaHttpCache() {
+        throw new IllegalStateException("NappaHttpCache is a utility class and should not be instantiated!");
+    }
+
+    /**
+     * @param cacheDir The cache directory of the application
+     * @return The HTTP cache stored in the provided directory
+     */
+    public static synchronized Cache get(File cacheDir) {
+        if (cache == null) cache = new Cache(cacheDir, MAX_SIZE);
+        return cache;
+    }
+}
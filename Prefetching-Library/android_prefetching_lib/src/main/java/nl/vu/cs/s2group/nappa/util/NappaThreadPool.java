@@ -57,4 +57,39 @@ public final class NappaThreadPool {
         }
     }
 
+    /**
+     * Schedules the task to run in the worker thread without waiting for its completion.
+     * Exceptions thrown by the task are logged. Used for tasks whose result is not needed
+     * by the caller, such as persisting data when the application goes to the background.
+     *
+     * @param task The task to run in the worker thread
+     */
+    public static void execute(Runnable task) {
+        scheduler.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                Log.e(LOG_TAG, "Exception caught on worker thread", e);
+            }
+        });
+    }
+
+    /**
+     * Schedules the task to run in the worker thread after the provided delay without
+     * waiting for its completion. Exceptions thrown by the task are logged.
+     *
+     * @param task  The task to run in the worker thread
+     * @param delay The time to wait before running the task
+     * @param unit  The time unit of the delay
+     */
+    public static void schedule(Runnable task, long delay, TimeUnit unit) {
+        scheduler.schedule(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                Log.e(LOG_TAG, "Exception caught on worker thread", e);
+            }
+        }, delay, unit);
+    }
+
 }
@@ -1,7 +1,9 @@
 package nl.vu.cs.s2group.nappa.util;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -9,7 +11,9 @@ import java.util.Map;
 
 import nl.vu.cs.s2group.nappa.Nappa;
 import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.prefetch.ScoredCandidate;
 import nl.vu.cs.s2group.nappa.prefetchurl.ParameteredUrl;
+import nl.vu.cs.s2group.nappa.room.AggregateUrlDao;
 import nl.vu.cs.s2group.nappa.room.activity.visittime.AggregateVisitTimeByActivity;
 import nl.vu.cs.s2group.nappa.room.dao.SessionDao;
 
@@ -98,6 +102,69 @@ public class NappaUtil {
         return candidateUrls;
     }
 
+    /**
+     * Verifies which URLs requested in the candidate node can be requested with the Extras
+     * captured in the visited node, as in {@link #getUrlsFromCandidateNode(ActivityNode, ActivityNode, int)},
+     * and score them with the provided probability and their expected cost.
+     *
+     * @param visitedNode     Represents the node which the user is currently visiting
+     * @param candidateNode   Represents a node with the potential to be visited in the near future
+     * @param probability     The probability of navigating to the candidate node
+     * @param remainingBudget Represents a number limiting the amount of URLs to take. Use -1 to
+     *                        take all URLs.
+     * @return The scored URLs requested in the candidate node that fit the remaining budget
+     */
+    @NotNull
+    public static List<ScoredCandidate> getScoredCandidatesFromCandidateNode(@NotNull ActivityNode visitedNode,
+                                                                         @NotNull ActivityNode candidateNode,
+                                                                         float probability,
+                                                                         int remainingBudget) {
+        List<String> urls = getUrlsFromCandidateNode(visitedNode, candidateNode, remainingBudget);
+        return toScoredCandidates(visitedNode, candidateNode, urls, probability);
+    }
+
+    /**
+     * Score the provided URLs with the provided probability and their expected cost. The
+     * expected response size and request duration of a URL are the averages of its previous
+     * requests. If the URL was never requested, the averages of all requests issued by the
+     * target node are used instead. The averages are taken from the {@link UrlStatisticsCache}.
+     *
+     * @param visitedNode Represents the node which the user is currently visiting
+     * @param targetNode  Represents the node expected to request the URLs or {@code null} if unknown
+     * @param urls        The URLs to score
+     * @param probability The probability that the URLs are requested
+     * @return A list of scored candidates in the same order as the provided URLs
+     */
+    @NotNull
+    public static List<ScoredCandidate> toScoredCandidates(@NotNull ActivityNode visitedNode,
+                                                           @Nullable ActivityNode targetNode,
+                                                           @NotNull List<String> urls,
+                                                           float probability) {
+        List<ScoredCandidate> candidates = new ArrayList<>(urls.size());
+        if (urls.isEmpty()) return candidates;
+
+        Map<String, AggregateUrlDao.UrlStatistics> statisticsMap = UrlStatisticsCache.get(urls);
+
+        AggregateUrlDao.UrlStatistics targetStatistics = null;
+        if (statisticsMap.size() < urls.size() && targetNode != null) {
+            Long targetId = Nappa.getActivityIdFromName(targetNode.activityName);
+            if (targetId != null) targetStatistics = UrlStatisticsCache.getForActivity(targetId);
+        }
+
+        for (String url : urls) {
+            AggregateUrlDao.UrlStatistics statistics = statisticsMap.get(url);
+            if (statistics == null) statistics = targetStatistics;
+            candidates.add(new ScoredCandidate(url,
+                    visitedNode,
+                    targetNode,
+                    probability,
+                    statistics == null || statistics.sizeAvg == null ? ScoredCandidate.UNKNOWN : statistics.sizeAvg,
+                    statistics == null || statistics.durationAvg == null ? ScoredCandidate.UNKNOWN : statistics.durationAvg));
+        }
+
+        return candidates;
+    }
+
     /**
      * Calculate the total aggregate sum of the visit time of all subsequent nodes
      *
@@ -204,4 +271,70 @@ public class NappaUtil {
 
         return map;
     }
+
+    /**
+     * Calculate the total decayed visit frequency of all edges leaving the current node
+     *
+     * @param activityNode The current node
+     * @param now          The current timestamp in milliseconds
+     * @return Return the total decayed visit frequency
+     */
+    public static double getSuccessorsTotalDecayedVisitFrequency(@NotNull ActivityNode activityNode, long now) {
+        return sumDecayingCounters(activityNode.decayedFrequency, now);
+    }
+
+    /**
+     * Maps the decayed visit frequency of the edges leaving the current node using the
+     * successor activity name as key and the decayed visit frequency as value
+     *
+     * @param activityNode The current node
+     * @param now          The current timestamp in milliseconds
+     * @return Return the mapped decayed visit frequency for this node successors
+     */
+    @NotNull
+    public static Map<String, Double> mapSuccessorsDecayedVisitFrequency(@NotNull ActivityNode activityNode, long now) {
+        return mapDecayingCounters(activityNode.decayedFrequency, now);
+    }
+
+    /**
+     * Calculate the total decayed time spent on all successor activities when accessing
+     * them from the current node
+     *
+     * @param activityNode The current node
+     * @param now          The current timestamp in milliseconds
+     * @return Return the total decayed visit time
+     */
+    public static double getSuccessorsTotalDecayedVisitTime(@NotNull ActivityNode activityNode, long now) {
+        return sumDecayingCounters(activityNode.decayedVisitTime, now);
+    }
+
+    /**
+     * Maps the decayed time spent on the successor activities when accessed from the current
+     * node using the successor activity name as key and the decayed visit time as value
+     *
+     * @param activityNode The current node
+     * @param now          The current timestamp in milliseconds
+     * @return Return the mapped decayed visit time for this node successors
+     */
+    @NotNull
+    public static Map<String, Double> mapSuccessorsDecayedVisitTime(@NotNull ActivityNode activityNode, long now) {
+        return mapDecayingCounters(activityNode.decayedVisitTime, now);
+    }
+
+    private static double sumDecayingCounters(@NotNull Map<ActivityNode, DecayingCounter> counters, long now) {
+        double total = 0;
+        for (DecayingCounter counter : counters.values()) {
+            total += counter.get(now);
+        }
+        return total;
+    }
+
+    @NotNull
+    private static Map<String, Double> mapDecayingCounters(@NotNull Map<ActivityNode, DecayingCounter> counters, long now) {
+        Map<String, Double> map = new HashMap<>(counters.size());
+        for (Map.Entry<ActivityNode, DecayingCounter> entry : counters.entrySet()) {
+            map.put(entry.getKey().activityName, entry.getValue().get(now));
+        }
+        return map;
+    }
 }
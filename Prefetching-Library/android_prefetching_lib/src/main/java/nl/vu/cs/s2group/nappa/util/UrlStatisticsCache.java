@@ -0,0 +1,113 @@
+package nl.vu.cs.s2group.nappa.util;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nl.vu.cs.s2group.nappa.room.AggregateUrlDao;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+
+/**
+ * Centralize a single and shared cache of the {@link AggregateUrlDao.UrlStatistics} used to
+ * score the candidate URLs, such that the statistics are not queried on each execution of a
+ * strategy. URLs never requested are cached as well, with unknown averages.
+ * <p>
+ * The statistics of a URL and of an activity only change when a new request is recorded,
+ * thus the entries are invalidated with {@link #invalidate(String, Long)} whenever a request
+ * is inserted in the database.
+ */
+public class UrlStatisticsCache {
+    private static final String LOG_TAG = UrlStatisticsCache.class.getSimpleName();
+
+    private static final int MAX_URLS = 512;
+    private static final int MAX_ACTIVITIES = 64;
+
+    private static final LruCache<String, AggregateUrlDao.UrlStatistics> urlStatistics = new LruCache<>(MAX_URLS);
+    private static final LruCache<Long, AggregateUrlDao.UrlStatistics> activityStatistics = new LruCache<>(MAX_ACTIVITIES);
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong lookups = new AtomicLong();
+
+    private UrlStatisticsCache() {
+        throw new IllegalStateException("UrlStatisticsCache is a utility class and should not be instantiated!");
+    }
+
+    /**
+     * Get the statistics of the provided URLs, querying the database only for the URLs that
+     * are not cached
+     *
+     * @param urls The URLs to look for
+     * @return The URLs requested at least once mapped to their statistics
+     */
+    @NotNull
+    public static Map<String, AggregateUrlDao.UrlStatistics> get(@NotNull List<String> urls) {
+        Map<String, AggregateUrlDao.UrlStatistics> statisticsMap = new HashMap<>();
+        List<String> missingUrls = new ArrayList<>();
+
+        for (String url : urls) {
+            AggregateUrlDao.UrlStatistics statistics = urlStatistics.get(url);
+            if (statistics == null) missingUrls.add(url);
+            else if (statistics.sizeAvg != null || statistics.durationAvg != null)
+                statisticsMap.put(url, statistics);
+        }
+
+        if (!missingUrls.isEmpty()) {
+            for (AggregateUrlDao.UrlStatistics statistics : NappaDB.getInstance().urlDao().getUrlStatistics(missingUrls)) {
+                statisticsMap.put(statistics.url, statistics);
+            }
+            for (String url : missingUrls) {
+                AggregateUrlDao.UrlStatistics statistics = statisticsMap.get(url);
+                urlStatistics.put(url, statistics == null ? new AggregateUrlDao.UrlStatistics(url, null, null) : statistics);
+            }
+        }
+
+        logHitRate(urls.size() - missingUrls.size(), urls.size());
+        return statisticsMap;
+    }
+
+    /**
+     * Get the statistics of all requests issued by the provided activity
+     *
+     * @param idActivity The ID of the activity
+     * @return The statistics of the activity requests, with unknown averages if the activity
+     * never issued a request
+     */
+    @Nullable
+    public static AggregateUrlDao.UrlStatistics getForActivity(@NotNull Long idActivity) {
+        AggregateUrlDao.UrlStatistics statistics = activityStatistics.get(idActivity);
+        logHitRate(statistics == null ? 0 : 1, 1);
+        if (statistics != null) return statistics;
+
+        statistics = NappaDB.getInstance().urlDao().getUrlStatisticsForIdActivity(idActivity);
+        if (statistics != null) activityStatistics.put(idActivity, statistics);
+        return statistics;
+    }
+
+    /**
+     * Remove the statistics affected by a new request from the cache
+     *
+     * @param url        The requested URL
+     * @param idActivity The ID of the activity that issued the request or {@code null} if unknown
+     */
+    public static void invalidate(@NotNull String url, @Nullable Long idActivity) {
+        urlStatistics.remove(url);
+        if (idActivity != null) activityStatistics.remove(idActivity);
+    }
+
+    private static void logHitRate(int hitCount, int lookupCount) {
+        long totalHits = hits.addAndGet(hitCount);
+        long totalLookups = lookups.addAndGet(lookupCount);
+        if (totalLookups == 0) return;
+        Log.d(LOG_TAG, String.format("STATS URL statistics cache hits: %d of %d lookups (%.1f%%)",
+                totalHits,
+                totalLookups,
+                100f * totalHits / totalLookups));
+    }
+}
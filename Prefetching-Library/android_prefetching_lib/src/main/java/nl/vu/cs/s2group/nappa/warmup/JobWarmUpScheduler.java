@@ -0,0 +1,58 @@
+package nl.vu.cs.s2group.nappa.warmup;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.PersistableBundle;
+import android.util.Log;
+
+/**
+ * Schedules the warm-up as a job of the {@link JobScheduler}, run by the
+ * {@link WarmUpJobService} once the device is idle and connected to an unmetered network.
+ * The job has no deadline, such that it never runs without these conditions, thus it may run
+ * late and carries the launch slot it was scheduled for in its extras. The job is not
+ * persisted across reboots, it is scheduled again whenever NAPPA is initialized.
+ */
+public class JobWarmUpScheduler implements WarmUpScheduler {
+    private static final String LOG_TAG = JobWarmUpScheduler.class.getSimpleName();
+
+    /**
+     * The ID of the warm-up job. Applications using the {@link JobScheduler} must not use it.
+     */
+    public static final int JOB_ID = 0x4E415050;
+    static final String EXTRA_MAX_KB = "nappa_warm_up_max_kb";
+    static final String EXTRA_LAUNCH_TIME = "nappa_warm_up_launch_time";
+
+    private final Context context;
+
+    public JobWarmUpScheduler(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void schedule(long delay, long launchTime, int maxKb) {
+        PersistableBundle extras = new PersistableBundle();
+        extras.putInt(EXTRA_MAX_KB, maxKb);
+        extras.putLong(EXTRA_LAUNCH_TIME, launchTime);
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, WarmUpJobService.class))
+                .setMinimumLatency(delay)
+                .setRequiresDeviceIdle(true)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setExtras(extras)
+                .build();
+        int result = getJobScheduler().schedule(job);
+        Log.d(LOG_TAG, String.format("Warm-up scheduled in %d ms: %s",
+                delay,
+                result == JobScheduler.RESULT_SUCCESS ? "success" : "failure"));
+    }
+
+    @Override
+    public void cancel() {
+        getJobScheduler().cancel(JOB_ID);
+    }
+
+    private JobScheduler getJobScheduler() {
+        return (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    }
+}
@@ -0,0 +1,39 @@
+package nl.vu.cs.s2group.nappa.warmup;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import nl.vu.cs.s2group.nappa.handler.warmup.ScheduleWarmUpHandler;
+import nl.vu.cs.s2group.nappa.handler.warmup.WarmUpHandler;
+import nl.vu.cs.s2group.nappa.room.NappaDB;
+
+/**
+ * Runs the warm-up scheduled by the {@link JobWarmUpScheduler} and schedules the warm-up of
+ * the next launch once it finishes. The job may run in a process where NAPPA was not
+ * initialized, thus it only depends on the database and the cache directory.
+ */
+public class WarmUpJobService extends JobService {
+    private AtomicBoolean stopped;
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        NappaDB.init(this);
+        int maxKb = params.getExtras().getInt(JobWarmUpScheduler.EXTRA_MAX_KB, WarmUpPlanner.DEFAULT_WARM_UP_MAX_KB);
+        long launchTime = params.getExtras().getLong(JobWarmUpScheduler.EXTRA_LAUNCH_TIME, WarmUpPlanner.NONE);
+        stopped = new AtomicBoolean(false);
+        WarmUpHandler.run(getCacheDir(), maxKb, launchTime, stopped, () -> {
+            jobFinished(params, false);
+            ScheduleWarmUpHandler.run(new JobWarmUpScheduler(this), maxKb);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The device is no longer idle or the network is metered
+        if (stopped != null) stopped.set(true);
+        return false;
+    }
+}
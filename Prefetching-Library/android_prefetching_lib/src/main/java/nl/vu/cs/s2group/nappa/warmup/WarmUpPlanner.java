@@ -0,0 +1,189 @@
+package nl.vu.cs.s2group.nappa.warmup;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import nl.vu.cs.s2group.nappa.prefetch.PrefetchingStrategyConfigKeys;
+import nl.vu.cs.s2group.nappa.prefetch.ScoredCandidate;
+import nl.vu.cs.s2group.nappa.prefetchurl.UrlTemplate;
+
+/**
+ * Plans the warm-up of the persistent HTTP cache before the user launches the application.
+ * <p>
+ * The launch window is the {@link #LAUNCH_SLOT} of the day the latest sessions most often
+ * started in, if at least {@link #MIN_LAUNCHES_IN_SLOT} sessions started in it. The warm-up
+ * is scheduled {@link #WARM_UP_LEAD} milliseconds before the next occurrence of this slot,
+ * but it only runs once the device is idle, thus it is planned against the slot it was
+ * scheduled for, and it is useful until this slot ends.
+ * <p>
+ * A cached response is served while its age is below its freshness lifetime, capped by the
+ * {@code max-age} the NAPPA interceptor sets, plus the {@code max-stale} the interceptor
+ * sets, see {@link #CACHE_STALENESS}. Thus, the URLs predicted for the launch are only
+ * warmed up if the TTL learned for their template keeps them usable for
+ * {@link #MIN_USABLE_IN_SLOT} milliseconds after the launch slot starts, or after the
+ * warm-up if it runs within the slot. The URLs are then selected by decreasing probability
+ * while their expected size fits {@link PrefetchingStrategyConfigKeys#WARM_UP_MAX_KB}.
+ * <p>
+ * This class has no Android dependencies, such that it can be tested in the JVM.
+ */
+public class WarmUpPlanner {
+    public static final boolean DEFAULT_WARM_UP_ENABLED = false;
+    public static final int DEFAULT_WARM_UP_MAX_KB = 64;
+    public static final long NONE = -1;
+
+    /**
+     * The number of latest sessions the launch window is learned from
+     */
+    public static final int MAX_SESSIONS = 100;
+    /**
+     * The maximum number of URLs warmed up
+     */
+    public static final int MAX_URLS = 10;
+    public static final long LAUNCH_SLOT = TimeUnit.MINUTES.toMillis(10);
+    public static final long WARM_UP_LEAD = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * The minimum time a warmed up response must remain usable within the launch slot
+     */
+    public static final long MIN_USABLE_IN_SLOT = TimeUnit.MINUTES.toMillis(2);
+    /**
+     * The {@code max-age} and {@code max-stale} the interceptor sets in all requests
+     */
+    public static final long CACHE_STALENESS = TimeUnit.SECONDS.toMillis(300);
+
+    private static final int MIN_LAUNCHES_IN_SLOT = 3;
+    private static final int SLOTS_PER_DAY = (int) (TimeUnit.DAYS.toMillis(1) / LAUNCH_SLOT);
+
+    private final TimeZone timeZone;
+
+    /**
+     * @param timeZone The time zone the time of the day of the launches is taken in
+     */
+    public WarmUpPlanner(@NotNull TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * @param launchTimes The timestamps the latest sessions started at
+     * @param now         The current timestamp
+     * @return The start of the next occurrence of the slot the sessions most often started
+     * in, or {@link #NONE} if no slot has enough launches
+     */
+    public long getNextLaunchTime(@NotNull List<Long> launchTimes, long now) {
+        int[] launches = new int[SLOTS_PER_DAY];
+        Calendar calendar = Calendar.getInstance(timeZone);
+        for (Long launchTime : launchTimes) {
+            if (launchTime == null) continue;
+            calendar.setTimeInMillis(launchTime);
+            launches[getSlot(calendar)]++;
+        }
+
+        int typicalSlot = 0;
+        for (int slot = 1; slot < SLOTS_PER_DAY; slot++) {
+            if (launches[slot] > launches[typicalSlot]) typicalSlot = slot;
+        }
+        if (launches[typicalSlot] < MIN_LAUNCHES_IN_SLOT) return NONE;
+
+        calendar.setTimeInMillis(now);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.MINUTE, (int) (typicalSlot * TimeUnit.MILLISECONDS.toMinutes(LAUNCH_SLOT)));
+        if (calendar.getTimeInMillis() <= now) calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * @param launchTime The start of the next launch slot
+     * @param now        The current timestamp
+     * @return The number of milliseconds until the warm-up should run
+     */
+    public long getWarmUpDelay(long launchTime, long now) {
+        return Math.max(0, launchTime - WARM_UP_LEAD - now);
+    }
+
+    /**
+     * Schedule the warm-up before the next launch slot
+     *
+     * @param scheduler   The scheduler to schedule the warm-up with
+     * @param launchTimes The timestamps the latest sessions started at
+     * @param now         The current timestamp
+     * @param maxKb       The maximum number of kilobytes the warm-up downloads
+     * @return {@code true} if the warm-up was scheduled, {@code false} if no slot has enough
+     * launches
+     */
+    public boolean scheduleWarmUp(@NotNull WarmUpScheduler scheduler,
+                                  @NotNull List<Long> launchTimes,
+                                  long now,
+                                  int maxKb) {
+        long launchTime = getNextLaunchTime(launchTimes, now);
+        if (launchTime == NONE) return false;
+        scheduler.schedule(getWarmUpDelay(launchTime, now), launchTime, maxKb);
+        return true;
+    }
+
+    /**
+     * @param launchTime The start of the launch slot the warm-up was scheduled for
+     * @param now        The current timestamp
+     * @return {@code true} if warming up still serves this slot, i.e., the slot did not end
+     */
+    public boolean isInWarmUpWindow(long launchTime, long now) {
+        return launchTime != NONE && now < launchTime + LAUNCH_SLOT;
+    }
+
+    /**
+     * Select the URLs whose responses are still usable within the launch slot, by
+     * decreasing probability, while their expected size fits the budget. URLs with unknown
+     * size are selected but do not count towards the budget, which the caller enforces on
+     * the downloaded bytes as well.
+     *
+     * @param candidates   The URLs predicted for the launch
+     * @param sizes        The expected response size in bytes of the URLs
+     * @param templateTtls The TTL in milliseconds learned for each template
+     * @param now          The current timestamp
+     * @param launchTime   The start of the launch slot the warm-up was scheduled for
+     * @param maxBytes     The maximum number of bytes to warm up
+     * @return The selected URLs
+     */
+    @NotNull
+    public List<String> selectUrls(@NotNull List<ScoredCandidate> candidates,
+                                   @NotNull Map<String, Long> sizes,
+                                   @NotNull Map<String, Long> templateTtls,
+                                   long now,
+                                   long launchTime,
+                                   long maxBytes) {
+        List<ScoredCandidate> sortedCandidates = new ArrayList<>(candidates);
+        Collections.sort(sortedCandidates, ScoredCandidate.BY_PROBABILITY);
+        long requiredLifetime = Math.max(launchTime - now, 0) + MIN_USABLE_IN_SLOT;
+
+        List<String> urls = new ArrayList<>();
+        long expectedBytes = 0;
+        for (ScoredCandidate candidate : sortedCandidates) {
+            if (urls.size() >= MAX_URLS) break;
+            Long ttl = templateTtls.get(UrlTemplate.parse(candidate.url).getKey());
+            long usableLifetime = Math.min(ttl == null ? 0 : ttl, CACHE_STALENESS) + CACHE_STALENESS;
+            if (usableLifetime < requiredLifetime) continue;
+
+            Long size = sizes.get(candidate.url);
+            if (size != null && size > 0) {
+                if (expectedBytes + size > maxBytes) continue;
+                expectedBytes += size;
+            }
+            urls.add(candidate.url);
+        }
+        return urls;
+    }
+
+    private static int getSlot(@NotNull Calendar calendar) {
+        long millisOfDay = TimeUnit.HOURS.toMillis(calendar.get(Calendar.HOUR_OF_DAY)) +
+                TimeUnit.MINUTES.toMillis(calendar.get(Calendar.MINUTE));
+        return (int) (millisOfDay / LAUNCH_SLOT);
+    }
+}
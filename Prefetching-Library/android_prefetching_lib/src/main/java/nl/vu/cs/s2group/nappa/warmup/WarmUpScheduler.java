@@ -0,0 +1,24 @@
+package nl.vu.cs.s2group.nappa.warmup;
+
+/**
+ * Schedules the warm-up of the persistent HTTP cache. The warm-up must only run while the
+ * device is idle and connected to an unmetered network. Scheduling replaces the previously
+ * scheduled warm-up, if any.
+ * <p>
+ * This abstraction separates the planning of the warm-up from the Android job APIs, such
+ * that the planning can be tested in the JVM.
+ */
+public interface WarmUpScheduler {
+
+    /**
+     * @param delay      The minimum number of milliseconds until the warm-up runs
+     * @param launchTime The start of the launch slot the warm-up is planned for
+     * @param maxKb      The maximum number of kilobytes the warm-up downloads
+     */
+    void schedule(long delay, long launchTime, int maxKb);
+
+    /**
+     * Cancel the scheduled warm-up, if any
+     */
+    void cancel();
+}
@@ -0,0 +1,123 @@
+package nl.vu.cs.s2group.nappa.graph;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nl.vu.cs.s2group.nappa.room.ActivityData;
+import nl.vu.cs.s2group.nappa.room.activity.visittime.ActivityVisitTime;
+import nl.vu.cs.s2group.nappa.room.dao.SessionDao;
+import nl.vu.cs.s2group.nappa.room.dao.UrlCandidateDao;
+import nl.vu.cs.s2group.nappa.room.data.ContextEdgeData;
+import nl.vu.cs.s2group.nappa.room.data.LARData;
+import nl.vu.cs.s2group.nappa.util.ContextBucket;
+import nl.vu.cs.s2group.nappa.util.ContextCounter;
+
+import static org.junit.Assert.*;
+
+public class ActivityGraphContextEdgesTest {
+    private ActivityGraph graph;
+    private ActivityNode a0;
+    private ActivityNode a1;
+    private ActivityNode a2;
+    private long mondayMorning;
+    private long saturdayEvening;
+
+    @Before
+    public void setUp() {
+        List<ActivityData> activities = new ArrayList<>();
+        for (long i = 0; i < 3; i++) {
+            ActivityData activity = new ActivityData("A" + i);
+            activity.id = i;
+            activities.add(activity);
+        }
+        List<SessionDao.SessionAggregateBySource> edges = new ArrayList<>();
+        edges.add(createEdge(0, 1));
+        edges.add(createEdge(0, 2));
+        graph = new ActivityGraph();
+        graph.initNodes(activities, new ArrayList<LARData>(), edges, edges,
+                new ArrayList<UrlCandidateDao.UrlCandidateToUrlParameter>());
+        a0 = graph.getByName("A0");
+        a1 = graph.getByName("A1");
+        a2 = graph.getByName("A2");
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2020, Calendar.JUNE, 1, 8, 0, 0);
+        mondayMorning = calendar.getTimeInMillis();
+        calendar.set(2020, Calendar.JUNE, 6, 20, 0, 0);
+        saturdayEvening = calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void seedContextEdges_replaysVisitsPerBucket() {
+        List<ActivityVisitTime> visits = new ArrayList<>();
+        visits.add(createVisit(0, 1, mondayMorning));
+        visits.add(createVisit(0, 1, mondayMorning + 1000));
+        visits.add(createVisit(0, 1, saturdayEvening));
+
+        List<ContextEdgeData> seededEdges = graph.seedContextEdges(visits,
+                graph.getContextCountedEdges(), Long.MAX_VALUE);
+
+        int morning = ContextBucket.of(mondayMorning);
+        int evening = ContextBucket.of(saturdayEvening);
+        assertEquals(2, seededEdges.size());
+        assertEquals(2, a0.contextFrequency.get(a1).get(morning, ContextBucket.LEVEL_BUCKET));
+        assertEquals(1, a0.contextFrequency.get(a1).get(evening, ContextBucket.LEVEL_BUCKET));
+        assertEquals(3, a0.contextFrequency.get(a1).get(morning, ContextBucket.LEVEL_ALL));
+        assertFalse(a0.contextFrequency.containsKey(a2));
+    }
+
+    @Test
+    public void seedContextEdges_skipsCountedEdgesAndRecentVisits() {
+        int morning = ContextBucket.of(mondayMorning);
+        graph.initContextEdges(Collections.singletonList(new ContextEdgeData(0, 1, morning, 5)));
+        List<ActivityVisitTime> visits = new ArrayList<>();
+        visits.add(createVisit(0, 1, mondayMorning));
+        visits.add(createVisit(0, 2, mondayMorning));
+        visits.add(createVisit(0, 2, saturdayEvening));
+
+        List<ContextEdgeData> seededEdges = graph.seedContextEdges(visits,
+                graph.getContextCountedEdges(), saturdayEvening);
+
+        assertEquals(1, seededEdges.size());
+        assertEquals(2, seededEdges.get(0).idActivityDestination);
+        assertEquals(1, seededEdges.get(0).count);
+        assertEquals(5, a0.contextFrequency.get(a1).get(morning, ContextBucket.LEVEL_ALL));
+    }
+
+    @Test
+    public void seedContextEdges_addsToTransitionsRecordedMeanwhile() {
+        int morning = ContextBucket.of(mondayMorning);
+        Map<ActivityNode, Set<ActivityNode>> countedEdges = graph.getContextCountedEdges();
+        // A transition recorded after the graph was initialized
+        a0.contextFrequency.put(a1, new ContextCounter());
+        a0.contextFrequency.get(a1).increment(morning);
+
+        List<ContextEdgeData> seededEdges = graph.seedContextEdges(
+                Collections.singletonList(createVisit(0, 1, mondayMorning)), countedEdges, Long.MAX_VALUE);
+
+        assertEquals(1, seededEdges.size());
+        assertEquals(2, seededEdges.get(0).count);
+        assertEquals(2, a0.contextFrequency.get(a1).get(morning, ContextBucket.LEVEL_BUCKET));
+    }
+
+    private static ActivityVisitTime createVisit(long source, long destination, long timestamp) {
+        return new ActivityVisitTime(destination, source, 1, new Date(timestamp), 100);
+    }
+
+    private static SessionDao.SessionAggregateBySource createEdge(long source, long destination) {
+        SessionDao.SessionAggregateBySource edge = new SessionDao.SessionAggregateBySource();
+        edge.idActSource = source;
+        edge.idActDest = destination;
+        edge.actName = "A" + destination;
+        edge.countSource2Dest = 1L;
+        return edge;
+    }
+}
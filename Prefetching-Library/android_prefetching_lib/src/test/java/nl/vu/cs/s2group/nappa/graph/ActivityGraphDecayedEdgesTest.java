@@ -0,0 +1,148 @@
+package nl.vu.cs.s2group.nappa.graph;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.room.ActivityData;
+import nl.vu.cs.s2group.nappa.room.activity.visittime.ActivityVisitTime;
+import nl.vu.cs.s2group.nappa.room.dao.SessionDao;
+import nl.vu.cs.s2group.nappa.room.dao.UrlCandidateDao;
+import nl.vu.cs.s2group.nappa.room.data.DecayedEdgeData;
+import nl.vu.cs.s2group.nappa.room.data.LARData;
+
+import static org.junit.Assert.*;
+
+public class ActivityGraphDecayedEdgesTest {
+    private static final long HALF_LIFE = 1000;
+    private static final float PRUNE_THRESHOLD = 0.1f;
+
+    private ActivityGraph graph;
+    private ActivityNode a0;
+    private ActivityNode a1;
+    private ActivityNode a2;
+
+    @Before
+    public void setUp() {
+        List<ActivityData> activities = new ArrayList<>();
+        for (long i = 0; i < 3; i++) {
+            ActivityData activity = new ActivityData("A" + i);
+            activity.id = i;
+            activities.add(activity);
+        }
+        List<SessionDao.SessionAggregateBySource> edges = new ArrayList<>();
+        edges.add(createEdge(0, 1));
+        edges.add(createEdge(0, 2));
+        graph = new ActivityGraph();
+        graph.initNodes(activities, new ArrayList<LARData>(), edges, edges,
+                new ArrayList<UrlCandidateDao.UrlCandidateToUrlParameter>());
+        graph.setEdgeDecay(HALF_LIFE, PRUNE_THRESHOLD);
+        a0 = graph.getByName("A0");
+        a1 = graph.getByName("A1");
+        a2 = graph.getByName("A2");
+    }
+
+    @Test
+    public void seedDecayedEdges_replaysVisits() {
+        List<ActivityVisitTime> visits = new ArrayList<>();
+        visits.add(createVisit(0, 1, 0, 100));
+        visits.add(createVisit(0, 1, HALF_LIFE, 200));
+
+        List<DecayedEdgeData> seededEdges = graph.seedDecayedEdges(visits, HALF_LIFE);
+
+        assertEquals(1, seededEdges.size());
+        // The first visit decayed by one half-life
+        assertEquals(1.5, a0.decayedFrequency.get(a1).get(HALF_LIFE), 1e-9);
+        assertEquals(HALF_LIFE + 200, a0.decayedVisitTime.get(a1).getLastUpdate());
+        assertEquals(0, seededEdges.get(0).idActivitySource);
+        assertEquals(1, seededEdges.get(0).idActivityDestination);
+        assertEquals(1.5, seededEdges.get(0).frequency, 1e-9);
+        assertFalse(a0.decayedFrequency.containsKey(a2));
+    }
+
+    @Test
+    public void seedDecayedEdges_skipsEdgesBelowThreshold() {
+        List<ActivityVisitTime> visits = Collections.singletonList(createVisit(0, 1, 0, 100));
+
+        List<DecayedEdgeData> seededEdges = graph.seedDecayedEdges(visits, 10 * HALF_LIFE);
+
+        assertTrue(seededEdges.isEmpty());
+        assertFalse(a0.decayedFrequency.containsKey(a1));
+    }
+
+    @Test
+    public void seedDecayedEdges_keepsExistingCounters() {
+        List<DecayedEdgeData> persistedEdges = new ArrayList<>();
+        persistedEdges.add(new DecayedEdgeData(0, 1, 5, 0, 500, 0));
+        graph.initDecayedEdges(persistedEdges, 0);
+        List<ActivityVisitTime> visits = new ArrayList<>();
+        visits.add(createVisit(0, 1, 0, 100));
+        visits.add(createVisit(0, 2, 0, 100));
+
+        List<DecayedEdgeData> seededEdges = graph.seedDecayedEdges(visits, 0);
+
+        assertEquals(1, seededEdges.size());
+        assertEquals(2, seededEdges.get(0).idActivityDestination);
+        assertEquals(5, a0.decayedFrequency.get(a1).get(0), 1e-9);
+    }
+
+    @Test
+    public void seedDecayedEdges_ignoresUnknownEdges() {
+        List<ActivityVisitTime> visits = new ArrayList<>();
+        visits.add(createVisit(1, 2, 0, 100));
+        visits.add(createVisit(0, 42, 0, 100));
+        visits.add(new ActivityVisitTime(0, null, 1, new Date(0), 100));
+
+        assertTrue(graph.seedDecayedEdges(visits, 0).isEmpty());
+    }
+
+    @Test
+    public void getDecaySeedingStart_isWhenOneVisitDecaysBelowThreshold() {
+        long start = graph.getDecaySeedingStart(100 * HALF_LIFE);
+        double decayedVisit = Math.pow(0.5, (100.0 * HALF_LIFE - start) / HALF_LIFE);
+        assertEquals(PRUNE_THRESHOLD, decayedVisit, 1e-3);
+
+        graph.setEdgeDecay(0, PRUNE_THRESHOLD);
+        assertEquals(0, graph.getDecaySeedingStart(100 * HALF_LIFE));
+    }
+
+    @Test
+    public void pruneDecayedEdges_dropsEdgesBelowThreshold() {
+        List<DecayedEdgeData> persistedEdges = new ArrayList<>();
+        persistedEdges.add(new DecayedEdgeData(0, 1, 1, 0, 100, 0));
+        persistedEdges.add(new DecayedEdgeData(0, 2, 1, 5 * HALF_LIFE, 100, 5 * HALF_LIFE));
+        graph.initDecayedEdges(persistedEdges, 0);
+
+        // After 5 half-lives, the edge to A1 decayed to 1/32, under the threshold
+        List<ActivityNode> prunedSuccessors = a0.pruneDecayedEdges(PRUNE_THRESHOLD, 5 * HALF_LIFE);
+
+        assertEquals(Collections.singletonList(a1), prunedSuccessors);
+        assertFalse(a0.decayedFrequency.containsKey(a1));
+        assertFalse(a0.decayedVisitTime.containsKey(a1));
+        assertTrue(a0.decayedFrequency.containsKey(a2));
+        assertTrue(a0.pruneDecayedEdges(PRUNE_THRESHOLD, 5 * HALF_LIFE).isEmpty());
+    }
+
+    @Test
+    public void setEdgeDecay_enablesDecayedCounters() {
+        assertTrue(graph.isEdgeDecayEnabled());
+        assertFalse(new ActivityGraph().isEdgeDecayEnabled());
+    }
+
+    private static ActivityVisitTime createVisit(long source, long destination, long timestamp, long duration) {
+        return new ActivityVisitTime(destination, source, 1, new Date(timestamp), duration);
+    }
+
+    private static SessionDao.SessionAggregateBySource createEdge(long source, long destination) {
+        SessionDao.SessionAggregateBySource edge = new SessionDao.SessionAggregateBySource();
+        edge.idActSource = source;
+        edge.idActDest = destination;
+        edge.actName = "A" + destination;
+        edge.countSource2Dest = 1L;
+        return edge;
+    }
+}
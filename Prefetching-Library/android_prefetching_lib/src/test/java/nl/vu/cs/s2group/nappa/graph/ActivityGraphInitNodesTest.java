@@ -0,0 +1,81 @@
+package nl.vu.cs.s2group.nappa.graph;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.room.ActivityData;
+import nl.vu.cs.s2group.nappa.room.dao.SessionDao;
+import nl.vu.cs.s2group.nappa.room.dao.UrlCandidateDao;
+import nl.vu.cs.s2group.nappa.room.data.LARData;
+
+import static org.junit.Assert.*;
+
+/**
+ * Verifies the set-based bootstrap of the activity graph
+ */
+public class ActivityGraphInitNodesTest {
+
+    @Test
+    public void initNodes_linksSuccessorsAndLarScores() {
+        List<ActivityData> activities = new ArrayList<>();
+        List<LARData> larList = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            activities.add(createActivity(i));
+            larList.add(new LARData("A" + i, i, 1f, 1f, 1f, 1f));
+        }
+        List<SessionDao.SessionAggregateBySource> edges = new ArrayList<>();
+        edges.add(createEdge(0, 1));
+        edges.add(createEdge(0, 2));
+        edges.add(createEdge(1, 2));
+        // Edges to unknown activities are ignored
+        edges.add(createEdge(1, 42));
+
+        ActivityGraph graph = new ActivityGraph();
+        graph.initNodes(activities, larList, edges, edges, new ArrayList<UrlCandidateDao.UrlCandidateToUrlParameter>());
+
+        assertEquals(3, graph.getNodeList().size());
+        ActivityNode a0 = graph.getByName("A0");
+        ActivityNode a1 = graph.getByName("A1");
+        ActivityNode a2 = graph.getByName("A2");
+        assertEquals(2, a0.successors.size());
+        assertTrue(a0.successors.containsKey(a1));
+        assertTrue(a0.successors.containsKey(a2));
+        assertEquals(1, a1.successors.size());
+        assertTrue(a2.successors.isEmpty());
+        assertEquals(2f, a2.pageRank, 0f);
+        assertEquals(2, a0.getSessionAggregateList().size());
+    }
+
+    @Test
+    public void initNodes_isIdempotent() {
+        List<ActivityData> activities = new ArrayList<>();
+        for (int i = 0; i < 2; i++) activities.add(createActivity(i));
+        List<SessionDao.SessionAggregateBySource> edges = new ArrayList<>();
+        edges.add(createEdge(0, 1));
+
+        ActivityGraph graph = new ActivityGraph();
+        graph.initNodes(activities, new ArrayList<LARData>(), edges, edges, new ArrayList<UrlCandidateDao.UrlCandidateToUrlParameter>());
+        ActivityNode a0 = graph.getByName("A0");
+        graph.initNodes(activities, new ArrayList<LARData>(), edges, edges, new ArrayList<UrlCandidateDao.UrlCandidateToUrlParameter>());
+
+        assertEquals(2, graph.getNodeList().size());
+        assertSame(a0, graph.getByName("A0"));
+    }
+
+    private static ActivityData createActivity(long id) {
+        ActivityData activity = new ActivityData("A" + id);
+        activity.id = id;
+        return activity;
+    }
+
+    private static SessionDao.SessionAggregateBySource createEdge(long source, long destination) {
+        SessionDao.SessionAggregateBySource edge = new SessionDao.SessionAggregateBySource();
+        edge.idActSource = source;
+        edge.idActDest = destination;
+        edge.actName = "A" + destination;
+        edge.countSource2Dest = 1L;
+        return edge;
+    }
+}
@@ -0,0 +1,53 @@
+package nl.vu.cs.s2group.nappa.graph;
+
+import java.util.ArrayList;
+
+import nl.vu.cs.s2group.nappa.room.activity.visittime.AggregateVisitTimeByActivity;
+
+/**
+ * Sets the state of an {@link ActivityNode} that is otherwise loaded from the database
+ * through {@link androidx.lifecycle.LiveData}, which is not observable in unit tests.
+ */
+public class ActivityNodeFixtures {
+
+    private ActivityNodeFixtures() {
+    }
+
+    /**
+     * Add the edge {@code source -> destination} without persisting it
+     */
+    public static void link(ActivityNode source, ActivityNode destination) {
+        source.successors.put(destination, 0);
+        destination.ancestors.put(source, 0);
+    }
+
+    /**
+     * Set the position of the node, as if it were added to a graph
+     */
+    public static void setIndex(ActivityNode node, int index) {
+        node.index = index;
+    }
+
+    /**
+     * Set t(u), the total time spent on the node
+     */
+    public static void setVisitTime(ActivityNode node, long totalDuration) {
+        node.aggregateVisitTime = createVisitTime(node.activityName, totalDuration);
+    }
+
+    /**
+     * Add t(v, u), the time spent on the successor {@code destination} when accessed from
+     * {@code source}
+     */
+    public static void addSuccessorVisitTime(ActivityNode source, ActivityNode destination, long totalDuration) {
+        if (source.successorVisitTimeList == null) source.successorVisitTimeList = new ArrayList<>();
+        source.successorVisitTimeList.add(createVisitTime(destination.activityName, totalDuration));
+    }
+
+    private static AggregateVisitTimeByActivity createVisitTime(String activityName, long totalDuration) {
+        AggregateVisitTimeByActivity visitTime = new AggregateVisitTimeByActivity();
+        visitTime.activityName = activityName;
+        visitTime.totalDuration = totalDuration;
+        return visitTime;
+    }
+}
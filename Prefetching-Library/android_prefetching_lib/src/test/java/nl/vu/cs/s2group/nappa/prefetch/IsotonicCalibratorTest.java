@@ -0,0 +1,59 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IsotonicCalibratorTest {
+
+    @Test
+    public void calibrate_returnsRawScoreWithoutEnoughObservations() {
+        IsotonicCalibrator calibrator = new IsotonicCalibrator();
+        for (int i = 0; i < IsotonicCalibrator.MIN_OBSERVATIONS - 1; i++) calibrator.addOutcome(0.5f, false);
+
+        assertEquals(0.5f, calibrator.calibrate(0.5f), 0f);
+        assertTrue(calibrator.getCalibrationCurve().isEmpty());
+    }
+
+    @Test
+    public void calibrate_poolsAdjacentViolators() {
+        IsotonicCalibrator calibrator = new IsotonicCalibrator();
+        // A lower score with a higher hit rate than a higher score
+        addOutcomes(calibrator, 0.32f, 10, 8);
+        addOutcomes(calibrator, 0.62f, 10, 2);
+        addOutcomes(calibrator, 0.92f, 10, 9);
+
+        assertEquals(0.5f, calibrator.calibrate(0.32f), 1e-6f);
+        assertEquals(0.5f, calibrator.calibrate(0.62f), 1e-6f);
+        assertEquals(0.9f, calibrator.calibrate(0.92f), 1e-6f);
+        // Empty bins take the closest lower bin with outcomes, or the first one
+        assertEquals(0.5f, calibrator.calibrate(0.05f), 1e-6f);
+        assertEquals(0.5f, calibrator.calibrate(0.8f), 1e-6f);
+    }
+
+    @Test
+    public void getCalibrationCurve_isNonDecreasingAndFitsTheHitRate() {
+        IsotonicCalibrator calibrator = new IsotonicCalibrator();
+        Random random = new Random(1);
+        // The true probability of a hit is the square of the raw score
+        for (int i = 0; i < 5000; i++) {
+            float score = random.nextFloat();
+            calibrator.addOutcome(score, random.nextFloat() < score * score);
+        }
+
+        List<IsotonicCalibrator.Point> curve = calibrator.getCalibrationCurve();
+        assertEquals(IsotonicCalibrator.NUMBER_OF_BINS, curve.size());
+        for (int i = 1; i < curve.size(); i++) {
+            assertTrue(curve.get(i).probability >= curve.get(i - 1).probability);
+        }
+        assertEquals(0.9f * 0.9f, calibrator.calibrate(0.9f), 0.1f);
+        assertEquals(0.1f * 0.1f, calibrator.calibrate(0.1f), 0.1f);
+    }
+
+    private static void addOutcomes(IsotonicCalibrator calibrator, float score, int count, int hits) {
+        for (int i = 0; i < count; i++) calibrator.addOutcome(score, i < hits);
+    }
+}
@@ -0,0 +1,84 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.room.AggregateUrlDao;
+import nl.vu.cs.s2group.nappa.room.activity.visittime.ActivityVisitTimeDao;
+
+import static org.junit.Assert.*;
+
+public class LaunchPredictorTest {
+
+    @Test
+    public void predict_weighsUrlsByLaunchActivityProbability() {
+        // Three sessions start at A and one at B
+        List<ActivityVisitTimeDao.SessionStart> sessionStarts = new ArrayList<>();
+        for (long session = 1; session <= 3; session++) sessionStarts.add(createStart(session, 1, "A"));
+        sessionStarts.add(createStart(4, 2, "B"));
+        // Two of the sessions started at A have recorded launch requests
+        List<AggregateUrlDao.LaunchRequest> launchRequests = new ArrayList<>();
+        launchRequests.add(new AggregateUrlDao.LaunchRequest(1L, 1L, "u1"));
+        launchRequests.add(new AggregateUrlDao.LaunchRequest(2L, 1L, "u1"));
+        launchRequests.add(new AggregateUrlDao.LaunchRequest(2L, 1L, "u2"));
+        launchRequests.add(new AggregateUrlDao.LaunchRequest(4L, 2L, "u3"));
+
+        LaunchPredictor predictor = new LaunchPredictor(5);
+        List<ScoredCandidate> candidates = predictor.predict(sessionStarts, launchRequests);
+
+        assertEquals(Long.valueOf(1), predictor.getLaunchActivityId());
+        // u3 is only requested by the launches into B, with a probability of 0.25
+        assertEquals(2, candidates.size());
+        assertEquals("u1", candidates.get(0).url);
+        assertEquals(0.75f, candidates.get(0).probability, 1e-6f);
+        assertEquals("u2", candidates.get(1).url);
+        assertEquals(0.375f, candidates.get(1).probability, 1e-6f);
+        assertEquals("A", candidates.get(0).sourceNode.activityName);
+    }
+
+    @Test
+    public void predict_keepsTheMostLikelyUrlsWithinTheLimit() {
+        List<ActivityVisitTimeDao.SessionStart> sessionStarts = new ArrayList<>();
+        sessionStarts.add(createStart(1, 1, "A"));
+        sessionStarts.add(createStart(2, 1, "A"));
+        List<AggregateUrlDao.LaunchRequest> launchRequests = new ArrayList<>();
+        launchRequests.add(new AggregateUrlDao.LaunchRequest(1L, 1L, "u1"));
+        launchRequests.add(new AggregateUrlDao.LaunchRequest(2L, 1L, "u1"));
+        launchRequests.add(new AggregateUrlDao.LaunchRequest(2L, 1L, "u2"));
+
+        List<ScoredCandidate> candidates = new LaunchPredictor(1).predict(sessionStarts, launchRequests);
+
+        assertEquals(1, candidates.size());
+        assertEquals("u1", candidates.get(0).url);
+    }
+
+    @Test
+    public void predict_updatesTheLaunchActivity() {
+        LaunchPredictor predictor = new LaunchPredictor(5);
+        List<ActivityVisitTimeDao.SessionStart> sessionStarts = new ArrayList<>();
+        sessionStarts.add(createStart(1, 1, "A"));
+        predictor.predict(sessionStarts, new ArrayList<AggregateUrlDao.LaunchRequest>());
+
+        // B is now the most likely launch activity, although less likely than A was
+        sessionStarts.add(createStart(2, 2, "B"));
+        sessionStarts.add(createStart(3, 2, "B"));
+        predictor.predict(sessionStarts, new ArrayList<AggregateUrlDao.LaunchRequest>());
+
+        assertEquals(Long.valueOf(2), predictor.getLaunchActivityId());
+    }
+
+    @Test
+    public void predict_withoutSessions_predictsNothing() {
+        LaunchPredictor predictor = new LaunchPredictor(5);
+
+        assertTrue(predictor.predict(new ArrayList<ActivityVisitTimeDao.SessionStart>(),
+                new ArrayList<AggregateUrlDao.LaunchRequest>()).isEmpty());
+        assertNull(predictor.getLaunchActivityId());
+    }
+
+    private static ActivityVisitTimeDao.SessionStart createStart(long sessionId, long activityId, String activityName) {
+        return new ActivityVisitTimeDao.SessionStart(sessionId, activityId, activityName, 0L);
+    }
+}
@@ -0,0 +1,31 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LookaheadStageTest {
+
+    @Test
+    public void containsToken_matchesJsonValues() {
+        assertTrue(LookaheadStage.containsToken("{\"id\": 12}", "12"));
+        assertTrue(LookaheadStage.containsToken("{\"id\":\"12\",\"name\":\"x\"}", "12"));
+        assertTrue(LookaheadStage.containsToken("[12, 34]", "34"));
+        assertTrue(LookaheadStage.containsToken("12", "12"));
+        assertTrue(LookaheadStage.containsToken("{\"slug\": \"new-york\"}", "new-york"));
+    }
+
+    @Test
+    public void containsToken_ignoresPartialMatches() {
+        assertFalse(LookaheadStage.containsToken("{\"id\": 123}", "12"));
+        assertFalse(LookaheadStage.containsToken("{\"price\": 1.12}", "12"));
+        assertFalse(LookaheadStage.containsToken("{\"id\": \"a12\"}", "12"));
+        assertFalse(LookaheadStage.containsToken("{\"slug\": \"new-york\"}", "york"));
+        assertFalse(LookaheadStage.containsToken("{\"id\": 12}", ""));
+    }
+
+    @Test
+    public void containsToken_findsLaterOccurrence() {
+        assertTrue(LookaheadStage.containsToken("{\"count\": 123, \"id\": 12}", "12"));
+    }
+}
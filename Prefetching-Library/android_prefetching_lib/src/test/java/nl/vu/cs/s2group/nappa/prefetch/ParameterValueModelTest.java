@@ -0,0 +1,118 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.prefetchurl.ParameteredUrl;
+
+import static org.junit.Assert.*;
+
+public class ParameterValueModelTest {
+    private static final long ACTIVITY_ID = 1;
+
+    @Test
+    public void predictUrls_fillsUnknownExtrasWithTheMostLikelyValues() {
+        ParameterValueModel model = createModel(2);
+
+        Map<String, Float> urls = model.predictUrls(ACTIVITY_ID, createTemplate(), new HashMap<>(), 0.8f);
+
+        // Two of the three values of "id" times the only value of "lang"
+        assertEquals(2, urls.size());
+        assertEquals(0.8f * 0.6f, urls.get("https://x/p/25?l=en"), 1e-6f);
+        for (Map.Entry<String, Float> url : urls.entrySet()) {
+            if (!url.getKey().equals("https://x/p/25?l=en")) assertEquals(0.8f * 0.2f, url.getValue(), 1e-6f);
+        }
+    }
+
+    @Test
+    public void predictUrls_keepsTheKnownExtras() {
+        ParameterValueModel model = createModel(1);
+        Map<String, String> knownParameters = new HashMap<>();
+        knownParameters.put("lang", "de");
+
+        Map<String, Float> urls = model.predictUrls(ACTIVITY_ID, createTemplate(), knownParameters, 0.8f);
+
+        assertEquals(1, urls.size());
+        assertEquals(0.8f * 0.6f, urls.get("https://x/p/25?l=de"), 1e-6f);
+    }
+
+    @Test
+    public void predictUrls_skipsTemplatesWithAllExtrasKnown() {
+        ParameterValueModel model = createModel(2);
+        Map<String, String> knownParameters = new HashMap<>();
+        knownParameters.put("id", "1");
+        knownParameters.put("lang", "de");
+
+        assertTrue(model.predictUrls(ACTIVITY_ID, createTemplate(), knownParameters, 0.8f).isEmpty());
+    }
+
+    @Test
+    public void predictUrls_dropsUnlikelyUrls() {
+        ParameterValueModel model = createModel(3);
+
+        // The values of "id" with a probability of 0.2 fall below 0.05 after the transition
+        Map<String, Float> urls = model.predictUrls(ACTIVITY_ID, createTemplate(), new HashMap<>(), 0.2f);
+
+        assertEquals(1, urls.size());
+        assertTrue(urls.containsKey("https://x/p/25?l=en"));
+    }
+
+    @Test
+    public void selectWithinBudget_limitsTheExpectedWastedRequests() {
+        ParameterValueModel model = new ParameterValueModel(2, 0.8f);
+        ActivityNode node = new ActivityNode("A");
+        List<ScoredCandidate> candidates = Arrays.asList(
+                new ScoredCandidate("u3", node, node, 0.5f, -1, -1),
+                new ScoredCandidate("u1", node, node, 0.9f, -1, -1),
+                new ScoredCandidate("u2", node, node, 0.6f, -1, -1));
+
+        List<ScoredCandidate> selected = model.selectWithinBudget(candidates);
+
+        // The expected waste is 0.1 + 0.4, adding u3 would reach 1.0
+        assertEquals(2, selected.size());
+        assertEquals("u1", selected.get(0).url);
+        assertEquals("u2", selected.get(1).url);
+    }
+
+    @Test
+    public void isEnabled_requiresTopKAndBudget() {
+        assertFalse(new ParameterValueModel(0, 1f).isEnabled());
+        assertFalse(new ParameterValueModel(2, 0f).isEnabled());
+        assertTrue(new ParameterValueModel(2, 1f).isEnabled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNegativeBudget() {
+        new ParameterValueModel(2, -1f);
+    }
+
+    /**
+     * @return A model where "id" was sent as 25 three times and as 4 and 7 once, and "lang"
+     * was sent as "en"
+     */
+    private static ParameterValueModel createModel(int topK) {
+        ParameterValueModel model = new ParameterValueModel(topK, 1f);
+        for (int i = 0; i < 3; i++) model.onExtra(ACTIVITY_ID, "id", "25");
+        model.onExtra(ACTIVITY_ID, "id", "4");
+        model.onExtra(ACTIVITY_ID, "id", "7");
+        model.onExtra(ACTIVITY_ID, "lang", "en");
+        return model;
+    }
+
+    /**
+     * @return The template https://x/p/{id}?l={lang}
+     */
+    private static ParameteredUrl createTemplate() {
+        ParameteredUrl parameteredUrl = new ParameteredUrl();
+        parameteredUrl.addParameter(0, ParameteredUrl.TYPES.STATIC, "https://x/p/");
+        parameteredUrl.addParameter(1, ParameteredUrl.TYPES.PARAMETER, "id");
+        parameteredUrl.addParameter(2, ParameteredUrl.TYPES.STATIC, "?l=");
+        parameteredUrl.addParameter(3, ParameteredUrl.TYPES.PARAMETER, "lang");
+        return parameteredUrl;
+    }
+}
@@ -0,0 +1,103 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PeriodicRequestDetectorTest {
+    private static final String URL = "http://x/weather";
+    private static final long PERIOD = TimeUnit.MINUTES.toMillis(1);
+
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+    private final List<String> refreshedUrls = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void onRequest_schedulesTheRefreshBeforeTheNextPoll() {
+        PeriodicRequestDetector detector = createDetector(5);
+
+        // Three intervals are required to detect the period
+        requestPeriodically(detector, 3, 0);
+        assertTrue(executor.getQueue().isEmpty());
+        detector.onRequest(1, URL, 3 * PERIOD);
+
+        assertEquals(1, executor.getQueue().size());
+        long delay = getScheduledRefresh().getDelay(TimeUnit.MILLISECONDS);
+        assertTrue(delay > PERIOD - TimeUnit.SECONDS.toMillis(6));
+        assertTrue(delay <= PERIOD - TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Test
+    public void onRequest_ignoresIrregularRequests() {
+        PeriodicRequestDetector detector = createDetector(5);
+        long[] timestamps = {0, 60000, 80000, 180000, 200000};
+        for (long timestamp : timestamps) detector.onRequest(1, URL, timestamp);
+
+        assertTrue(executor.getQueue().isEmpty());
+    }
+
+    @Test
+    public void onRequest_ignoresDuplicateRequests() {
+        PeriodicRequestDetector detector = createDetector(5);
+        long[] timestamps = {0, PERIOD, PERIOD + 500, 2 * PERIOD, 3 * PERIOD};
+        for (long timestamp : timestamps) detector.onRequest(1, URL, timestamp);
+
+        assertEquals(1, executor.getQueue().size());
+    }
+
+    @Test
+    public void onActivityLeft_cancelsTheScheduledRefreshes() {
+        PeriodicRequestDetector detector = createDetector(5);
+        requestPeriodically(detector, 4, 0);
+        ScheduledFuture<?> refresh = getScheduledRefresh();
+
+        detector.onActivityLeft(2, 4 * PERIOD);
+        assertFalse(refresh.isCancelled());
+        detector.onActivityLeft(1, 4 * PERIOD);
+        assertTrue(refresh.isCancelled());
+    }
+
+    @Test
+    public void refresh_fetchesThePeriodicUrl() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        // The refresh runs one second after the last request of a period of 11 seconds
+        PeriodicRequestDetector detector = new PeriodicRequestDetector(10, 0.1f, executor, url -> {
+            refreshedUrls.add(url);
+            latch.countDown();
+        });
+        for (int i = 0; i < 4; i++) detector.onRequest(1, URL, i * 11000L);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(URL, refreshedUrls.get(0));
+    }
+
+    @Test
+    public void isEnabled_requiresLeadTime() {
+        assertFalse(createDetector(0).isEnabled());
+        assertTrue(createDetector(5).isEnabled());
+    }
+
+    private PeriodicRequestDetector createDetector(int leadSeconds) {
+        return new PeriodicRequestDetector(leadSeconds, 0.1f, executor, refreshedUrls::add);
+    }
+
+    private static void requestPeriodically(PeriodicRequestDetector detector, int requests, long start) {
+        for (int i = 0; i < requests; i++) detector.onRequest(1, URL, start + i * PERIOD);
+    }
+
+    private ScheduledFuture<?> getScheduledRefresh() {
+        return (ScheduledFuture<?>) executor.getQueue().peek();
+    }
+}
@@ -0,0 +1,58 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+
+import static org.junit.Assert.*;
+
+public class PredictionTableTest {
+    private final List<Runnable> queuedTasks = new ArrayList<>();
+    private final ActivityNode node = new ActivityNode("A");
+    private final ActivityNode successor = new ActivityNode("B");
+    private int rankings;
+    private PredictionTable table;
+
+    @Before
+    public void setUp() {
+        table = new PredictionTable(rankedNode -> {
+            rankings++;
+            List<PredictionTable.RankedSuccessor> rankedSuccessors = new ArrayList<>();
+            rankedSuccessors.add(new PredictionTable.RankedSuccessor(successor, 1));
+            return rankedSuccessors;
+        }, queuedTasks::add);
+    }
+
+    @Test
+    public void getRankedSuccessors_reusesUpToDateRow() {
+        List<PredictionTable.RankedSuccessor> rankedSuccessors = table.getRankedSuccessors(node);
+
+        assertSame(rankedSuccessors, table.getRankedSuccessors(node));
+        assertEquals(1, rankings);
+        assertSame(successor, rankedSuccessors.get(0).node);
+    }
+
+    @Test
+    public void scheduleRefresh_coalescesPendingRefreshes() {
+        for (int i = 0; i < 5; i++) table.scheduleRefresh(node);
+        assertEquals(1, queuedTasks.size());
+
+        queuedTasks.remove(0).run();
+        assertEquals(1, rankings);
+
+        // A change after the refresh ran schedules a new refresh
+        table.scheduleRefresh(node);
+        assertEquals(1, queuedTasks.size());
+    }
+
+    @Test
+    public void scheduleRefresh_schedulesEachNode() {
+        table.scheduleRefresh(node);
+        table.scheduleRefresh(successor);
+        assertEquals(2, queuedTasks.size());
+    }
+}
@@ -0,0 +1,109 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+
+import static org.junit.Assert.*;
+
+public class PrefetchHintsTest {
+    private static final ActivityNode NODE = new ActivityNode("A");
+
+    @Test
+    public void merge_keepsTheMostValuableUrlsWithinTheBudget() {
+        PrefetchHints hints = new PrefetchHints(2);
+        List<ScoredCandidate> predicted = Arrays.asList(
+                createCandidate("p1", 0.5f, 100),
+                createCandidate("p2", 0.5f, 300));
+        List<ScoredCandidate> hinted = Collections.singletonList(createCandidate("h1", 0.9f, 200));
+
+        List<ScoredCandidate> merged = hints.merge(predicted, hinted, "test/merge");
+
+        assertEquals(2, merged.size());
+        assertEquals("h1", merged.get(0).url);
+        assertEquals("p2", merged.get(1).url);
+    }
+
+    @Test
+    public void merge_withdrawsThePredictionOfTheStrategyWhenTheHintWins() {
+        final List<String> hits = new ArrayList<>();
+        PrefetchOutcomeTracker.addListener((source, activityId, candidate, hit, latencySaved) -> {
+            if (source.startsWith("test/withdraw") && hit) hits.add(source + " " + candidate.url);
+        });
+        PrefetchOutcomeTracker.registerPrediction("test/withdraw", 1, createCandidate("w1", 0.2f, 100));
+        PrefetchOutcomeTracker.registerPrediction("test/withdraw", 1, createCandidate("w2", 0.8f, 100));
+
+        new PrefetchHints(5).merge(
+                Arrays.asList(createCandidate("w1", 0.2f, 100), createCandidate("w2", 0.8f, 100)),
+                Arrays.asList(createCandidate("w1", 0.6f, 100), createCandidate("w2", 0.6f, 100)),
+                "test/withdraw");
+        PrefetchOutcomeTracker.onRequest("w1", 0);
+        PrefetchOutcomeTracker.onRequest("w2", 0);
+
+        // Only the prediction of w2 won the merge
+        assertEquals(Collections.singletonList("test/withdraw w2"), hits);
+        assertFalse(PrefetchOutcomeTracker.withdrawPrediction("test/withdraw", "w1"));
+    }
+
+    @Test
+    public void decideNewHints_decidesEachHintOnce() {
+        FakePrefetchHints hints = new FakePrefetchHints();
+        hints.add(Collections.singletonMap("d1", 0.7f), 0);
+
+        assertEquals(1, hints.decideNewHints(NODE, null, null, 10).size());
+        assertTrue(hints.decideNewHints(NODE, null, null, 20).isEmpty());
+        assertEquals(1, hints.scoredHints);
+        assertEquals("d1", hints.getSelectedCandidates(30).get(0).url);
+
+        // Hinting the URL again renews it as a new hint
+        hints.add(Collections.singletonMap("d1", 0.9f), 40);
+        List<ScoredCandidate> candidates = hints.decideNewHints(NODE, null, null, 50);
+
+        assertEquals(2, hints.scoredHints);
+        assertEquals(0.9f, candidates.get(0).probability, 1e-6f);
+    }
+
+    @Test
+    public void getSelectedCandidates_dropsExpiredHints() {
+        FakePrefetchHints hints = new FakePrefetchHints();
+        hints.add(Collections.singletonMap("e1", 0.7f), 0);
+        hints.decideNewHints(NODE, null, null, 0);
+
+        assertEquals(1, hints.getSelectedCandidates(PrefetchHints.HINT_LIFETIME).size());
+        assertTrue(hints.getSelectedCandidates(PrefetchHints.HINT_LIFETIME + 1).isEmpty());
+    }
+
+    private static ScoredCandidate createCandidate(String url, float probability, long expectedDuration) {
+        return new ScoredCandidate(url, NODE, null, probability, ScoredCandidate.UNKNOWN, expectedDuration);
+    }
+
+    /**
+     * Scores the hints without querying the expected costs in the database
+     */
+    private static class FakePrefetchHints extends PrefetchHints {
+        int scoredHints = 0;
+
+        FakePrefetchHints() {
+            super(5);
+        }
+
+        @NotNull
+        @Override
+        public List<ScoredCandidate> getScoredCandidates(@NotNull ActivityNode visitedNode,
+                                                         @NotNull Map<String, Float> urlProbabilities) {
+            List<ScoredCandidate> candidates = new ArrayList<>();
+            for (Map.Entry<String, Float> entry : urlProbabilities.entrySet()) {
+                scoredHints++;
+                candidates.add(createCandidate(entry.getKey(), entry.getValue(), 100));
+            }
+            return candidates;
+        }
+    }
+}
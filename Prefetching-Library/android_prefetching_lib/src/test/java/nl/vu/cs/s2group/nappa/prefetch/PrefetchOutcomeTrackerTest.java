@@ -0,0 +1,56 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+
+import static org.junit.Assert.*;
+
+public class PrefetchOutcomeTrackerTest {
+    private final ActivityNode node = new ActivityNode("A");
+
+    @Test
+    public void onRequest_notifiesHitsAndExpiredMissesOutsideTheLock() throws InterruptedException {
+        final List<String> outcomes = new ArrayList<>();
+        final List<Boolean> registeredFromOtherThread = new ArrayList<>();
+        PrefetchOutcomeTracker.setOutcomeWindow(1);
+        PrefetchOutcomeTracker.addListener((source, activityId, candidate, hit, latencySaved) -> {
+            if (!source.startsWith("test/")) return;
+            outcomes.add(source + " " + candidate.url + " " + hit + " " + latencySaved);
+
+            // A listener holding the tracker lock would block the other thread
+            Thread thread = new Thread(() -> PrefetchOutcomeTracker.registerPrediction("other", 1, createCandidate("other")));
+            thread.start();
+            try {
+                thread.join(1000);
+            } catch (InterruptedException ignored) {
+            }
+            registeredFromOtherThread.add(!thread.isAlive());
+        });
+
+        PrefetchOutcomeTracker.registerPrediction("test/X", 1, createCandidate("u1"));
+        PrefetchOutcomeTracker.registerPrediction("test/Y", 1, createCandidate("u1"));
+        PrefetchOutcomeTracker.registerPrediction("test/X", 1, createCandidate("u2"));
+        PrefetchOutcomeTracker.onRequest("u1", 42);
+
+        assertEquals(2, outcomes.size());
+        assertTrue(outcomes.contains("test/X u1 true 42"));
+        assertTrue(outcomes.contains("test/Y u1 true 42"));
+
+        // The prediction of u2 expires after the outcome window
+        Thread.sleep(1100);
+        PrefetchOutcomeTracker.onRequest("u3", 0);
+
+        assertEquals(3, outcomes.size());
+        assertEquals("test/X u2 false 0", outcomes.get(2));
+        assertFalse(registeredFromOtherThread.contains(false));
+        PrefetchOutcomeTracker.setOutcomeWindow(PrefetchOutcomeTracker.DEFAULT_OUTCOME_WINDOW_SECONDS);
+    }
+
+    private ScoredCandidate createCandidate(String url) {
+        return new ScoredCandidate(url, node, null, 0.5f, 10, 100);
+    }
+}
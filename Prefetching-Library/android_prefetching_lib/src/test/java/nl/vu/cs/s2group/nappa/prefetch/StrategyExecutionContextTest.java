@@ -0,0 +1,80 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.graph.ActivityNodeFixtures;
+
+import static org.junit.Assert.*;
+
+public class StrategyExecutionContextTest {
+
+    @Test
+    public void markVisited_marksGraphAndDetachedNodesOnce() {
+        ActivityNode graphNode = createNode("A", 3);
+        ActivityNode detachedNode = new ActivityNode("B");
+        // A different node with the same name is not the same detached node
+        ActivityNode otherDetachedNode = new ActivityNode("B");
+        StrategyExecutionContext context = new StrategyExecutionContext(graphNode, PredictionDeadline.NONE);
+
+        assertTrue(context.markVisited(graphNode));
+        assertFalse(context.markVisited(graphNode));
+        assertTrue(context.markVisited(detachedNode));
+        assertFalse(context.markVisited(detachedNode));
+        assertTrue(context.markVisited(otherDetachedNode));
+    }
+
+    @Test
+    public void markVisited_isIndependentPerExecution() {
+        ActivityNode node = createNode("A", 0);
+        StrategyExecutionContext first = new StrategyExecutionContext(node, PredictionDeadline.NONE);
+        StrategyExecutionContext second = new StrategyExecutionContext(node, PredictionDeadline.NONE);
+
+        assertTrue(first.markVisited(node));
+        assertTrue(second.markVisited(node));
+        assertNotEquals(first.id, second.id);
+    }
+
+    @Test
+    public void nodeScores_keepScoresInFirstScoredOrder() {
+        ActivityNode first = createNode("A", 40);
+        ActivityNode second = createNode("B", 1);
+        ActivityNode detached = new ActivityNode("C");
+        StrategyExecutionContext.NodeScores scores =
+                new StrategyExecutionContext(first, PredictionDeadline.NONE).getScores();
+
+        scores.set(first, 0.5f);
+        scores.add(detached, 0.25f);
+        scores.add(second, 0.1f);
+        assertEquals(0.35f, scores.add(detached, 0.1f), 1e-6f);
+        scores.set(first, 0.75f);
+
+        assertEquals(0.75f, scores.get(first), 0f);
+        assertEquals(0.1f, scores.get(second), 0f);
+        assertEquals(0.35f, scores.get(detached), 1e-6f);
+        assertEquals(Arrays.asList(first, detached, second), scores.getNodes());
+    }
+
+    @Test
+    public void nodeScores_defaultToZero() {
+        ActivityNode node = createNode("A", 2);
+        StrategyExecutionContext context = new StrategyExecutionContext(node, PredictionDeadline.NONE);
+        StrategyExecutionContext.NodeScores scores = context.createScores();
+
+        assertFalse(scores.contains(node));
+        assertFalse(scores.contains(new ActivityNode("B")));
+        assertEquals(0f, scores.get(node), 0f);
+        // Each set of scores is independent
+        context.getScores().set(node, 1f);
+        assertFalse(scores.contains(node));
+        assertTrue(context.getScores().contains(node));
+    }
+
+    private static ActivityNode createNode(String name, int index) {
+        ActivityNode node = new ActivityNode(name);
+        ActivityNodeFixtures.setIndex(node, index);
+        return node;
+    }
+}
@@ -0,0 +1,173 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.graph.ActivityNodeFixtures;
+import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
+import nl.vu.cs.s2group.nappa.util.NappaUtil;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the TFPR scores against a port of the original implementation, which builds the
+ * subgraph as a hash map of nodes and runs a fixed number of iterations
+ */
+public class TfprPrefetchingStrategyTest {
+    private static final float TOLERANCE = 1e-3f;
+
+    @BeforeClass
+    public static void initConfig() {
+        try {
+            NappaConfigMap.init(new HashMap<PrefetchingStrategyConfigKeys, Object>());
+        } catch (IllegalStateException ignored) {
+            // Already initialized by another test, the default values are used
+        }
+    }
+
+    @Test
+    public void getSuccessorScores_matchesOriginalImplementation() {
+        List<ActivityNode> nodes = createRandomGraph(30, 4, new Random(7));
+        TfprPrefetchingStrategy strategy = new TfprPrefetchingStrategy();
+
+        for (ActivityNode node : nodes) {
+            assertScoresMatch(strategy, node);
+        }
+    }
+
+    @Test
+    public void getSuccessorScores_scoresSelfLoopLikeOriginalImplementation() {
+        ActivityNode a = new ActivityNode("A");
+        ActivityNode b = new ActivityNode("B");
+        ActivityNode c = new ActivityNode("C");
+        // A is reloaded (A -> A) and has the successor B, which is also reached from C
+        ActivityNodeFixtures.link(a, a);
+        ActivityNodeFixtures.link(a, b);
+        ActivityNodeFixtures.link(c, b);
+        ActivityNodeFixtures.link(b, c);
+        ActivityNodeFixtures.setVisitTime(a, 90000);
+        ActivityNodeFixtures.setVisitTime(b, 20000);
+        ActivityNodeFixtures.setVisitTime(c, 10000);
+        ActivityNodeFixtures.addSuccessorVisitTime(a, a, 60000);
+        ActivityNodeFixtures.addSuccessorVisitTime(a, b, 20000);
+        ActivityNodeFixtures.addSuccessorVisitTime(c, b, 5000);
+        ActivityNodeFixtures.addSuccessorVisitTime(b, c, 10000);
+
+        TfprPrefetchingStrategy strategy = new TfprPrefetchingStrategy();
+        Map<ActivityNode, Float> scores = strategy.getSuccessorScores(a);
+
+        assertTrue(scores.containsKey(a));
+        assertTrue(scores.get(a) >= strategy.scoreLowerThreshold);
+        assertScoresMatch(strategy, a);
+    }
+
+    private static void assertScoresMatch(TfprPrefetchingStrategy strategy, ActivityNode node) {
+        Map<ActivityNode, Float> expected = getOriginalSuccessorScores(strategy, node);
+        Map<ActivityNode, Float> actual = strategy.getSuccessorScores(node);
+
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<ActivityNode, Float> entry : expected.entrySet()) {
+            assertEquals(node.activityName + " -> " + entry.getKey().activityName,
+                    entry.getValue(), actual.get(entry.getKey()), TOLERANCE);
+        }
+    }
+
+    /**
+     * Create a graph in which every node has {@code edgesPerNode} random successors and all
+     * nodes and edges have a random visit time
+     */
+    private static List<ActivityNode> createRandomGraph(int nodeCount, int edgesPerNode, Random random) {
+        List<ActivityNode> nodes = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            ActivityNode node = new ActivityNode("A" + i);
+            ActivityNodeFixtures.setVisitTime(node, 1000 + random.nextInt(60000));
+            nodes.add(node);
+        }
+        for (ActivityNode node : nodes) {
+            while (node.successors.size() < edgesPerNode) {
+                ActivityNode successor = nodes.get(random.nextInt(nodeCount));
+                if (node.successors.containsKey(successor)) continue;
+                ActivityNodeFixtures.link(node, successor);
+                ActivityNodeFixtures.addSuccessorVisitTime(node, successor, 1000 + random.nextInt(30000));
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * A port of the score calculation of the original implementation
+     *
+     * @return The successors of the current node mapped to their TFPR score
+     */
+    private static Map<ActivityNode, Float> getOriginalSuccessorScores(TfprPrefetchingStrategy strategy,
+                                                                       ActivityNode currentNode) {
+        Map<String, OriginalNode> graph = new HashMap<>();
+        OriginalNode current = getOrCreate(graph, currentNode);
+        for (ActivityNode successor : currentNode.successors.keySet()) {
+            OriginalNode successorNode = getOrCreate(graph, successor);
+            link(successorNode, current);
+            for (ActivityNode successorParent : successor.ancestors.keySet()) {
+                link(successorNode, getOrCreate(graph, successorParent));
+            }
+        }
+
+        long aggregateVisitTime = 0;
+        for (OriginalNode node : graph.values()) {
+            node.visitTime = node.node.getAggregateVisitTime().totalDuration;
+            aggregateVisitTime += node.visitTime;
+            node.totalVisitTimeFromSuccessors = NappaUtil.getSuccessorsAggregateVisitTimeOriginatedFromNode(node.node);
+            node.visitTimeFromSuccessors = NappaUtil.getSuccessorsAggregateVisitTimeOriginatedFromNodeMap(node.node);
+        }
+
+        for (int i = 0; i < strategy.numberOfIterations; i++) {
+            for (OriginalNode node : graph.values()) {
+                float sumBu = 0;
+                for (OriginalNode parent : node.parents) {
+                    //noinspection ConstantConditions All edges have a visit time
+                    sumBu += parent.score * parent.visitTimeFromSuccessors.get(node.node.activityName) /
+                            parent.totalVisitTimeFromSuccessors;
+                }
+                node.score = strategy.dampingFactor * node.visitTime / aggregateVisitTime + (1 - strategy.dampingFactor) * sumBu;
+            }
+        }
+
+        Map<ActivityNode, Float> scores = new HashMap<>();
+        for (OriginalNode successor : current.successors) scores.put(successor.node, successor.score);
+        return scores;
+    }
+
+    private static OriginalNode getOrCreate(Map<String, OriginalNode> graph, ActivityNode node) {
+        OriginalNode originalNode = graph.get(node.activityName);
+        if (originalNode == null) {
+            originalNode = new OriginalNode(node);
+            graph.put(node.activityName, originalNode);
+        }
+        return originalNode;
+    }
+
+    private static void link(OriginalNode successor, OriginalNode parent) {
+        if (!parent.successors.contains(successor)) parent.successors.add(successor);
+        if (!successor.parents.contains(parent)) successor.parents.add(parent);
+    }
+
+    private static class OriginalNode {
+        final ActivityNode node;
+        final List<OriginalNode> parents = new ArrayList<>();
+        final List<OriginalNode> successors = new ArrayList<>();
+        long visitTime;
+        long totalVisitTimeFromSuccessors;
+        Map<String, Long> visitTimeFromSuccessors;
+        float score;
+
+        OriginalNode(ActivityNode node) {
+            this.node = node;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package nl.vu.cs.s2group.nappa.prefetch;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.util.NappaConfigMap;
+
+import static org.junit.Assert.*;
+
+public class VariableOrderPPMPrefetchingStrategyTest {
+    private final ActivityNode a = new ActivityNode("A");
+    private final ActivityNode b = new ActivityNode("B");
+    private final ActivityNode c = new ActivityNode("C");
+    private final ActivityNode d = new ActivityNode("D");
+    private final ActivityNode x = new ActivityNode("X");
+    private final ActivityNode y = new ActivityNode("Y");
+
+    @BeforeClass
+    public static void initConfig() {
+        try {
+            NappaConfigMap.init(new HashMap<PrefetchingStrategyConfigKeys, Object>());
+        } catch (IllegalStateException ignored) {
+            // Already initialized by another test, the default values are used
+        }
+    }
+
+    @Test
+    public void update_keepsContextsUpToMaxOrder() {
+        VariableOrderPPMPrefetchingStrategy.ContextTrie trie = new VariableOrderPPMPrefetchingStrategy.ContextTrie(2, 100);
+        List<VariableOrderPPMPrefetchingStrategy.ContextNode> contexts = trie.getEmptyContexts();
+        for (ActivityNode node : new ActivityNode[]{a, b, c, d}) contexts = trie.update(contexts, node);
+
+        // The contexts of order 0 to 2, i.e. (), (D) and (C, D)
+        assertEquals(3, contexts.size());
+        assertEquals(2, contexts.get(2).order);
+        assertSame(d, contexts.get(2).activity);
+        assertSame(c, contexts.get(2).parent.activity);
+        // The trie is k + 1 levels deep: (B, C, D) is counted, (A, B, C, D) is not
+        assertNotNull(trie.root.getChild(b).getChild(c).getChild(d));
+        assertNull(trie.root.getChild(a).getChild(b).getChild(c).getChild(d));
+    }
+
+    @Test
+    public void predict_usesContextOfMaxOrder() {
+        VariableOrderPPMPrefetchingStrategy strategy = new VariableOrderPPMPrefetchingStrategy();
+        // With k = 3, the context (X, A, B) predicts C and (Y, A, B) predicts D
+        for (int i = 0; i < 5; i++) {
+            for (ActivityNode node : new ActivityNode[]{x, a, b, c}) strategy.onActivityVisited(node);
+            for (ActivityNode node : new ActivityNode[]{y, a, b, d}) strategy.onActivityVisited(node);
+        }
+        strategy.onActivityVisited(x);
+        strategy.onActivityVisited(a);
+        strategy.onActivityVisited(b);
+
+        StrategyExecutionContext.NodeScores probabilities = strategy.predict(new StrategyExecutionContext(b, PredictionDeadline.NONE));
+
+        assertTrue(probabilities.get(c) > 0.8f);
+        assertTrue(probabilities.get(d) < probabilities.get(c) / 4);
+    }
+
+    @Test
+    public void update_prunesLeastFrequentContexts() {
+        VariableOrderPPMPrefetchingStrategy.ContextTrie trie = new VariableOrderPPMPrefetchingStrategy.ContextTrie(2, 20);
+        ActivityNode[] nodes = new ActivityNode[8];
+        for (int i = 0; i < nodes.length; i++) nodes[i] = new ActivityNode("N" + i);
+
+        // A frequent sequence followed by many rare ones
+        List<VariableOrderPPMPrefetchingStrategy.ContextNode> contexts = trie.getEmptyContexts();
+        for (int i = 0; i < 10; i++) {
+            contexts = trie.update(contexts, a);
+            contexts = trie.update(contexts, b);
+        }
+        for (int i = 0; i < 64; i++) contexts = trie.update(contexts, nodes[(i * 3) % nodes.length]);
+
+        assertTrue(trie.size <= 20);
+        assertNotNull(trie.root.getChild(a).getChild(b));
+        for (VariableOrderPPMPrefetchingStrategy.ContextNode context : contexts) assertFalse(context.removed);
+    }
+
+    @Test
+    public void merge_addsCountsAndFindsContexts() {
+        VariableOrderPPMPrefetchingStrategy.ContextTrie trainedTrie = new VariableOrderPPMPrefetchingStrategy.ContextTrie(2, 100);
+        List<VariableOrderPPMPrefetchingStrategy.ContextNode> contexts = trainedTrie.getEmptyContexts();
+        contexts = trainedTrie.update(contexts, a);
+        trainedTrie.update(contexts, b);
+
+        VariableOrderPPMPrefetchingStrategy.ContextTrie liveTrie = new VariableOrderPPMPrefetchingStrategy.ContextTrie(2, 100);
+        List<VariableOrderPPMPrefetchingStrategy.ContextNode> liveContexts = liveTrie.getEmptyContexts();
+        liveContexts = liveTrie.update(liveContexts, a);
+        liveContexts = liveTrie.update(liveContexts, b);
+
+        trainedTrie.merge(liveTrie);
+        List<VariableOrderPPMPrefetchingStrategy.ContextNode> foundContexts = trainedTrie.find(liveContexts);
+
+        assertEquals(2, trainedTrie.root.getChild(a).getChild(b).count);
+        assertEquals(3, trainedTrie.size);
+        assertEquals(3, foundContexts.size());
+        assertSame(trainedTrie.root, foundContexts.get(0));
+        assertSame(trainedTrie.root.getChild(b), foundContexts.get(1));
+        assertSame(trainedTrie.root.getChild(a).getChild(b), foundContexts.get(2));
+    }
+}
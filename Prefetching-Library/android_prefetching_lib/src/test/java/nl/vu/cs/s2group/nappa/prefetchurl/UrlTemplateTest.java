@@ -0,0 +1,57 @@
+package nl.vu.cs.s2group.nappa.prefetchurl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class UrlTemplateTest {
+
+    @Test
+    public void parse_replacesNumericPathSegments() {
+        UrlTemplate template = UrlTemplate.parse("https://pokeapi.co/api/v2/pokemon/25/");
+
+        assertEquals("https://pokeapi.co/api/v2/pokemon/{}/", template.getKey());
+        assertEquals(Collections.singletonList("25"), template.getValues());
+        assertEquals(template.getKey(), UrlTemplate.parse("https://pokeapi.co/api/v2/pokemon/133/").getKey());
+    }
+
+    @Test
+    public void parse_replacesQueryValuesAndDropsFragment() {
+        UrlTemplate template = UrlTemplate.parse("https://x.io/a?id=123&q=abc&page=2#top");
+
+        assertEquals("https://x.io/a?id={}&q=abc&page={}", template.getKey());
+        assertEquals(Arrays.asList("123", "2"), template.getValues());
+    }
+
+    @Test
+    public void parse_replacesUuidsAndHexadecimalIdentifiers() {
+        assertEquals("https://x.io/u/{}/img",
+                UrlTemplate.parse("https://x.io/u/550e8400-e29b-41d4-a716-446655440000/img").getKey());
+        assertEquals("https://x.io/c/{}",
+                UrlTemplate.parse("https://x.io/c/deadbeef42").getKey());
+        // Hexadecimal words without digits and short strings are not identifiers
+        assertEquals("https://x.io/deadbeefcafe/abc1",
+                UrlTemplate.parse("https://x.io/deadbeefcafe/abc1").getKey());
+    }
+
+    @Test
+    public void parse_neverReplacesTheHost() {
+        UrlTemplate template = UrlTemplate.parse("https://10.0.2.2:8080");
+
+        assertEquals("https://10.0.2.2:8080", template.getKey());
+        assertEquals(0, template.getNumberOfSlots());
+    }
+
+    @Test
+    public void fill_restoresTheUrl() {
+        String url = "https://x.io/a/7/b?id=123&q=abc";
+        UrlTemplate template = UrlTemplate.parse(url);
+
+        assertEquals(url, template.fill(template.getValues()));
+        assertEquals("https://x.io/a/8/b?id=9&q=abc", template.fill(Arrays.asList("8", "9")));
+        assertNull(template.fill(Collections.singletonList("8")));
+    }
+}
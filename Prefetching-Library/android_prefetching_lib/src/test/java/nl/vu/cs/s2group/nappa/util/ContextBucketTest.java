@@ -0,0 +1,75 @@
+package nl.vu.cs.s2group.nappa.util;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ContextBucketTest {
+
+    @Test
+    public void of_combinesBandOfDayAndTypeOfDay() {
+        // 2020-06-01 is a Monday and 2020-06-06 a Saturday
+        int mondayNight = ContextBucket.of(timestamp(1, 3));
+        int mondayMorning = ContextBucket.of(timestamp(1, 8));
+        int mondayEvening = ContextBucket.of(timestamp(1, 23));
+        int saturdayMorning = ContextBucket.of(timestamp(6, 8));
+
+        assertEquals("night/weekday", ContextBucket.toString(mondayNight));
+        assertEquals("morning/weekday", ContextBucket.toString(mondayMorning));
+        assertEquals("evening/weekday", ContextBucket.toString(mondayEvening));
+        assertEquals("morning/weekend", ContextBucket.toString(saturdayMorning));
+    }
+
+    @Test
+    public void of_coversAllBuckets() {
+        Set<Integer> buckets = new HashSet<>();
+        for (int day = 1; day <= 7; day++) {
+            for (int hour = 0; hour < 24; hour++) {
+                int bucket = ContextBucket.of(timestamp(day, hour));
+                assertTrue(bucket >= 0 && bucket < ContextBucket.NUMBER_OF_BUCKETS);
+                buckets.add(bucket);
+            }
+        }
+        assertEquals(ContextBucket.NUMBER_OF_BUCKETS, buckets.size());
+    }
+
+    @Test
+    public void matches_followsBackOffHierarchy() {
+        int mondayMorning = ContextBucket.of(timestamp(1, 8));
+        int mondayEvening = ContextBucket.of(timestamp(1, 20));
+        int saturdayMorning = ContextBucket.of(timestamp(6, 8));
+
+        assertTrue(ContextBucket.matches(mondayMorning, mondayMorning, ContextBucket.LEVEL_BUCKET));
+        assertFalse(ContextBucket.matches(mondayMorning, mondayEvening, ContextBucket.LEVEL_BUCKET));
+        assertTrue(ContextBucket.matches(mondayMorning, mondayEvening, ContextBucket.LEVEL_DAY_TYPE));
+        assertFalse(ContextBucket.matches(mondayMorning, saturdayMorning, ContextBucket.LEVEL_DAY_TYPE));
+        assertTrue(ContextBucket.matches(mondayMorning, saturdayMorning, ContextBucket.LEVEL_ALL));
+    }
+
+    @Test
+    public void counter_aggregatesPerLevel() {
+        int mondayMorning = ContextBucket.of(timestamp(1, 8));
+        int mondayEvening = ContextBucket.of(timestamp(1, 20));
+        int saturdayMorning = ContextBucket.of(timestamp(6, 8));
+        ContextCounter counter = new ContextCounter();
+
+        assertEquals(1, counter.increment(mondayMorning));
+        assertEquals(3, counter.add(mondayEvening, 3));
+        counter.set(saturdayMorning, 5);
+
+        assertEquals(1, counter.get(mondayMorning, ContextBucket.LEVEL_BUCKET));
+        assertEquals(4, counter.get(mondayMorning, ContextBucket.LEVEL_DAY_TYPE));
+        assertEquals(5, counter.get(saturdayMorning, ContextBucket.LEVEL_DAY_TYPE));
+        assertEquals(9, counter.get(mondayMorning, ContextBucket.LEVEL_ALL));
+    }
+
+    private static long timestamp(int dayOfJune, int hour) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2020, Calendar.JUNE, dayOfJune, hour, 0, 0);
+        return calendar.getTimeInMillis();
+    }
+}
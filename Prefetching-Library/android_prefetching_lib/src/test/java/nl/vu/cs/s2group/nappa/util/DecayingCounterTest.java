@@ -0,0 +1,54 @@
+package nl.vu.cs.s2group.nappa.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DecayingCounterTest {
+    private static final long HALF_LIFE = 1000;
+
+    @Test
+    public void get_halvesAfterOneHalfLife() {
+        DecayingCounter counter = new DecayingCounter(HALF_LIFE, 8, 0);
+        assertEquals(8, counter.get(0), 1e-9);
+        assertEquals(4, counter.get(HALF_LIFE), 1e-9);
+        assertEquals(1, counter.get(3 * HALF_LIFE), 1e-9);
+    }
+
+    @Test
+    public void get_doesNotDecayWithoutHalfLife() {
+        DecayingCounter counter = new DecayingCounter(0, 8, 0);
+        assertEquals(8, counter.get(100 * HALF_LIFE), 0);
+    }
+
+    @Test
+    public void add_decaysBeforeAdding() {
+        DecayingCounter counter = new DecayingCounter(HALF_LIFE, 0, 0);
+        counter.add(2, 0);
+        counter.add(1, HALF_LIFE);
+        assertEquals(2, counter.getValue(), 1e-9);
+        assertEquals(HALF_LIFE, counter.getLastUpdate());
+        assertEquals(1, counter.get(2 * HALF_LIFE), 1e-9);
+    }
+
+    @Test
+    public void add_keepsLatestUpdateForOutOfOrderEvents() {
+        DecayingCounter counter = new DecayingCounter(HALF_LIFE, 1, HALF_LIFE);
+        counter.add(1, 0);
+        assertEquals(HALF_LIFE, counter.getLastUpdate());
+        assertEquals(2, counter.get(HALF_LIFE), 1e-9);
+    }
+
+    @Test
+    public void halfLifeFromHours_convertsToMilliseconds() {
+        assertEquals(3600000, DecayingCounter.halfLifeFromHours(1));
+        assertEquals(1800000, DecayingCounter.halfLifeFromHours(0.5f));
+    }
+
+    @Test
+    public void getTimeToDecay_matchesDecay() {
+        long time = DecayingCounter.getTimeToDecay(HALF_LIFE, 0.25);
+        assertEquals(2 * HALF_LIFE, time);
+        assertEquals(0.25, new DecayingCounter(HALF_LIFE, 1, 0).get(time), 1e-9);
+    }
+}
@@ -0,0 +1,150 @@
+package nl.vu.cs.s2group.nappa.warmup;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import nl.vu.cs.s2group.nappa.graph.ActivityNode;
+import nl.vu.cs.s2group.nappa.prefetch.ScoredCandidate;
+import nl.vu.cs.s2group.nappa.prefetchurl.UrlTemplate;
+
+import static org.junit.Assert.*;
+
+public class WarmUpPlannerTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    // Midnight UTC
+    private static final long BASE = 100 * DAY;
+    private static final long LAUNCH = BASE + 8 * HOUR;
+
+    private final WarmUpPlanner planner = new WarmUpPlanner(TimeZone.getTimeZone("UTC"));
+
+    @Test
+    public void getNextLaunchTime_selectsTheMostFrequentSlot() {
+        assertEquals(LAUNCH, planner.getNextLaunchTime(createLaunches(), BASE + 7 * HOUR));
+    }
+
+    @Test
+    public void getNextLaunchTime_rollsOverToTheNextDay() {
+        assertEquals(LAUNCH + DAY, planner.getNextLaunchTime(createLaunches(), BASE + 12 * HOUR));
+        // The slot already started
+        assertEquals(LAUNCH + DAY, planner.getNextLaunchTime(createLaunches(), LAUNCH));
+    }
+
+    @Test
+    public void getNextLaunchTime_requiresEnoughLaunchesInTheSlot() {
+        List<Long> launches = Arrays.asList(LAUNCH - DAY, LAUNCH - 2 * DAY, BASE + 20 * HOUR);
+        assertEquals(WarmUpPlanner.NONE, planner.getNextLaunchTime(launches, BASE));
+    }
+
+    @Test
+    public void isInWarmUpWindow_acceptsLateRunsUntilTheSlotEnds() {
+        assertTrue(planner.isInWarmUpWindow(LAUNCH, LAUNCH - WarmUpPlanner.WARM_UP_LEAD));
+        assertTrue(planner.isInWarmUpWindow(LAUNCH, LAUNCH + WarmUpPlanner.LAUNCH_SLOT - 1));
+        assertFalse(planner.isInWarmUpWindow(LAUNCH, LAUNCH + WarmUpPlanner.LAUNCH_SLOT));
+        assertFalse(planner.isInWarmUpWindow(WarmUpPlanner.NONE, LAUNCH));
+    }
+
+    @Test
+    public void selectUrls_keepsUrlsUsableInTheLaunchSlot() {
+        List<ScoredCandidate> candidates = createCandidates("http://x/a", "http://x/b");
+        Map<String, Long> ttls = new HashMap<>();
+        ttls.put(getTemplateKey("http://x/a"), HOUR);
+        ttls.put(getTemplateKey("http://x/b"), MINUTE);
+        Map<String, Long> sizes = Collections.emptyMap();
+
+        // On time, http://x/b is only usable for 6 minutes
+        assertEquals(Collections.singletonList("http://x/a"),
+                planner.selectUrls(candidates, sizes, ttls, LAUNCH - WarmUpPlanner.WARM_UP_LEAD, LAUNCH, Long.MAX_VALUE));
+        // Within the slot, both remain usable long enough
+        assertEquals(Arrays.asList("http://x/a", "http://x/b"),
+                planner.selectUrls(candidates, sizes, ttls, LAUNCH + 3 * MINUTE, LAUNCH, Long.MAX_VALUE));
+        // An hour early, no cached response survives until the slot
+        assertTrue(planner.selectUrls(candidates, sizes, ttls, LAUNCH - HOUR, LAUNCH, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    public void selectUrls_fitsTheByteBudget() {
+        List<ScoredCandidate> candidates = createCandidates("http://x/a", "http://x/b", "http://x/c", "http://x/d");
+        Map<String, Long> ttls = new HashMap<>();
+        Map<String, Long> sizes = new HashMap<>();
+        for (ScoredCandidate candidate : candidates) ttls.put(getTemplateKey(candidate.url), HOUR);
+        sizes.put("http://x/a", 40000L);
+        sizes.put("http://x/c", 30000L);
+        sizes.put("http://x/d", 10000L);
+
+        // http://x/b has an unknown size and http://x/c exceeds the remaining budget
+        assertEquals(Arrays.asList("http://x/a", "http://x/b", "http://x/d"),
+                planner.selectUrls(candidates, sizes, ttls, LAUNCH - WarmUpPlanner.WARM_UP_LEAD, LAUNCH, 64 * 1024));
+    }
+
+    @Test
+    public void scheduleWarmUp_schedulesBeforeTheNextSlot() {
+        FakeWarmUpScheduler scheduler = new FakeWarmUpScheduler();
+        long now = BASE + 7 * HOUR;
+
+        assertTrue(planner.scheduleWarmUp(scheduler, createLaunches(), now, 32));
+
+        assertEquals(LAUNCH - WarmUpPlanner.WARM_UP_LEAD - now, scheduler.delay);
+        assertEquals(LAUNCH, scheduler.launchTime);
+        assertEquals(32, scheduler.maxKb);
+    }
+
+    @Test
+    public void scheduleWarmUp_doesNotScheduleWithoutTypicalSlot() {
+        FakeWarmUpScheduler scheduler = new FakeWarmUpScheduler();
+
+        assertFalse(planner.scheduleWarmUp(scheduler, Collections.<Long>emptyList(), BASE, 32));
+
+        assertEquals(WarmUpPlanner.NONE, scheduler.launchTime);
+    }
+
+    /**
+     * @return Five launches at 08:03 in the previous days and one at 20:00
+     */
+    private static List<Long> createLaunches() {
+        List<Long> launches = new ArrayList<>();
+        for (int day = 0; day < 5; day++) launches.add(LAUNCH - day * DAY + 3 * MINUTE);
+        launches.add(BASE + 20 * HOUR);
+        return launches;
+    }
+
+    private static List<ScoredCandidate> createCandidates(String... urls) {
+        ActivityNode node = new ActivityNode("A");
+        List<ScoredCandidate> candidates = new ArrayList<>();
+        for (int i = 0; i < urls.length; i++) {
+            candidates.add(new ScoredCandidate(urls[i], node, node, 0.9f - 0.1f * i, -1, -1));
+        }
+        return candidates;
+    }
+
+    private static String getTemplateKey(String url) {
+        return UrlTemplate.parse(url).getKey();
+    }
+
+    private static class FakeWarmUpScheduler implements WarmUpScheduler {
+        long delay = WarmUpPlanner.NONE;
+        long launchTime = WarmUpPlanner.NONE;
+        int maxKb;
+
+        @Override
+        public void schedule(long delay, long launchTime, int maxKb) {
+            this.delay = delay;
+            this.launchTime = launchTime;
+            this.maxKb = maxKb;
+        }
+
+        @Override
+        public void cancel() {
+            launchTime = WarmUpPlanner.NONE;
+        }
+    }
+}